@@ -32,4 +32,6 @@ public @interface Data {
 
   ArgOption[] arguments() default {};
 
+  DeriveOption[] options() default {};
+
 }
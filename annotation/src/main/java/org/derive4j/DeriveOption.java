@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2019, Jean-Baptiste Giraudeau <jb@giraudeau.info>
+ *
+ * This file is part of "Derive4J - Annotations API".
+ *
+ * "Derive4J - Annotations API" is free software: you can redistribute it
+ * and/or modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * "Derive4J - Annotations API" is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with "Derive4J - Annotations API".  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.derive4j;
+
+/**
+ * Code generation options, see {@link Data#options()}.
+ */
+public enum DeriveOption {
+
+  /**
+   * Generated code uses the shared primitives of the derive4j-runtime library (that must then be on the
+   * classpath) instead of generating its own copies: currently the {@code F2} to {@code F8} function interfaces, in
+   * place of per constructor mapper interfaces.
+   */
+  runtimeLibrary,
+
+  /**
+   * Startup-oriented generation: all nullary constructors share a single tag-dispatched class instead of one class
+   * each. Combine with {@link #runtimeLibrary} to also avoid the generation of mapper interfaces. Matcher and
+   * matching step classes are still generated, one per step, since their types make up the fluent matching API.
+   * The number of classes generated for each data type is reported as a compiler note.
+   */
+  minimalClasses,
+
+  /**
+   * Derived type class instances that depend on other instances are cached, keyed by the identity of those
+   * instances, in a bounded cache of the derive4j-runtime library. Recursive instances thus reuse the enclosing
+   * instance instead of building a new one at each level.
+   */
+  cachedInstances,
+
+  /**
+   * Singletons (nullary constructors, factory, exported values and derived instances) are held by
+   * {@code static final} fields of holder classes instead of lazily initialized mutable fields: the JIT can then
+   * treat them as constants, and a holder is only initialized on first use, so that static initializers of the
+   * data type can use them. Applies whenever the singleton type can be expressed without type variables.
+   */
+  eagerSingletons,
+
+  /**
+   * Modifiers ({@code modX}/{@code setX}) return the original instance when the new field value is the same
+   * reference (or the same primitive value) as the old one, preserving sharing through nested updates. Modifiers
+   * that change the type of the data type always build a new instance.
+   */
+  identityModifiers,
+
+  /**
+   * Derived {@code hashCode} mixes the constructor index and field hashes through a murmur3-style finalizer instead
+   * of the default prime-based combination, and a 64-bit {@code hash64(value)} is generated in the derived class
+   * (for large hash tables and Bloom filters), {@code hashCode} being its folding to 32 bits.
+   */
+  mixedHash,
+
+  /**
+   * For self-recursive data types, {@code size(value)} and {@code depth(value)} are generated in the derived class
+   * and run in constant time: constructors store the measures of their instances, computed from those of their
+   * recursive fields. Lazy fields are not evaluated for that purpose: the measures of the values built on top of them
+   * are computed on first demand, then stored.
+   */
+  cachedMeasures
+
+}
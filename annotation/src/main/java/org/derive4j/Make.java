@@ -91,6 +91,118 @@ public enum Make {
 
       return cases.factory();
     }
+  },
+
+  constructorIndex {
+    @Override
+    public <R> R match(Cases<R> cases) {
+
+      return cases.constructorIndex();
+    }
+  },
+
+  binaryCodec {
+    @Override
+    public <R> R match(Cases<R> cases) {
+
+      return cases.binaryCodec();
+    }
+  },
+
+  flyweight {
+    @Override
+    public <R> R match(Cases<R> cases) {
+
+      return cases.flyweight();
+    }
+  },
+
+  columnar {
+    @Override
+    public <R> R match(Cases<R> cases) {
+
+      return cases.columnar();
+    }
+  },
+
+  updater {
+    @Override
+    public <R> R match(Cases<R> cases) {
+
+      return cases.updater();
+    }
+  },
+
+  comparator {
+    @Override
+    public <R> R match(Cases<R> cases) {
+
+      return cases.comparator();
+    }
+  },
+
+  fusion {
+    @Override
+    public <R> R match(Cases<R> cases) {
+
+      return cases.fusion();
+    }
+  },
+
+  anamorphism {
+    @Override
+    public <R> R match(Cases<R> cases) {
+
+      return cases.anamorphism();
+    }
+  },
+
+  spliterator {
+    @Override
+    public <R> R match(Cases<R> cases) {
+
+      return cases.spliterator();
+    }
+  },
+
+  linearFold {
+    @Override
+    public <R> R match(Cases<R> cases) {
+
+      return cases.linearFold();
+    }
+  },
+
+  parallelCatamorphism {
+    @Override
+    public <R> R match(Cases<R> cases) {
+
+      return cases.parallelCatamorphism();
+    }
+  },
+
+  memoizedCatamorphism {
+    @Override
+    public <R> R match(Cases<R> cases) {
+
+      return cases.memoizedCatamorphism();
+    }
+  },
+
+  asyncCatamorphism {
+    @Override
+    public <R> R match(Cases<R> cases) {
+
+      return cases.asyncCatamorphism();
+    }
+  },
+
+  batchMatching {
+    @Override
+    public <R> R match(Cases<R> cases) {
+
+      return cases.batchMatching();
+    }
   };
 
   public interface Cases<R> {
@@ -111,6 +223,34 @@ public enum Make {
     R catamorphism();
 
     R factory();
+
+    R constructorIndex();
+
+    R binaryCodec();
+
+    R flyweight();
+
+    R columnar();
+
+    R updater();
+
+    R comparator();
+
+    R fusion();
+
+    R anamorphism();
+
+    R spliterator();
+
+    R linearFold();
+
+    R parallelCatamorphism();
+
+    R memoizedCatamorphism();
+
+    R asyncCatamorphism();
+
+    R batchMatching();
   }
 
   public abstract <R> R match(Cases<R> cases);
@@ -0,0 +1,39 @@
+/*
+ * Copyright (c) 2019, Jean-Baptiste Giraudeau <jb@giraudeau.info>
+ *
+ * This file is part of "Derive4J - Annotations API".
+ *
+ * "Derive4J - Annotations API" is free software: you can redistribute it
+ * and/or modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * "Derive4J - Annotations API" is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with "Derive4J - Annotations API".  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.derive4j;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Target;
+
+/**
+ * Annotate a @Data type with a single type parameter (eg. {@code List<A>}) to also generate, in its derived class,
+ * a specialized data type for each of the given primitive types (eg. {@code @Specialize(int.class)} generates
+ * {@code IntList}). Fields of the type parameter type get the primitive type, recursive fields the specialized type.
+ * The specialized types come with their own constructors, matchers, getters and modifiers, and with static
+ * conversions from and to the generic form ({@code IntList.fromList} and {@code IntList.toList}). Recursive data
+ * types must also derive {@link Make#lazyConstructor}: conversions then convert recursive fields lazily, on demand.
+ */
+@Target(ElementType.TYPE)
+@Documented
+public @interface Specialize {
+
+  Class<?>[] value();
+
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright (c) 2019, Jean-Baptiste Giraudeau <jb@giraudeau.info>
+ *
+ * This file is part of "Derive4J - Annotation Processor".
+ *
+ * "Derive4J - Annotation Processor" is free software: you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * "Derive4J - Annotation Processor" is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with "Derive4J - Annotation Processor".  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.derive4j.example;
+
+import fj.Equal;
+import fj.Hash;
+import fj.Show;
+import org.derive4j.Data;
+import org.derive4j.Derive;
+import org.derive4j.DeriveOption;
+import org.derive4j.Flavour;
+import org.derive4j.Instances;
+
+/**
+ * Derived instances are cached by the identity of their element instance, and refer to themselves for the rest of
+ * the chain: comparing two long chains neither allocates nor looks up an instance for each element.
+ */
+@Data(flavour = Flavour.FJ, options = DeriveOption.cachedInstances, value = @Derive(@Instances({ Equal.class,
+    Hash.class, Show.class })))
+public abstract class Chain<A> {
+  Chain() {
+  }
+
+  public interface Cases<A, R> {
+    R end();
+
+    R link(A value, Chain<A> next);
+  }
+
+  public abstract <R> R match(Cases<A, R> cases);
+
+}
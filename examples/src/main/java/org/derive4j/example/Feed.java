@@ -0,0 +1,48 @@
+/*
+ * Copyright (c) 2019, Jean-Baptiste Giraudeau <jb@giraudeau.info>
+ *
+ * This file is part of "Derive4J - Annotation Processor".
+ *
+ * "Derive4J - Annotation Processor" is free software: you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * "Derive4J - Annotation Processor" is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with "Derive4J - Annotation Processor".  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.derive4j.example;
+
+import org.derive4j.Data;
+import org.derive4j.Derive;
+import org.derive4j.DeriveOption;
+import org.derive4j.Make;
+
+/**
+ * Paginated feeds: {@code Feeds.size(feed)} is stored by each item, so that computing the number of pages does not
+ * walk the feed. Items appended on top of a lazy feed are measured on first demand.
+ */
+@Data(value = @Derive(make = { Make.constructors, Make.lazyConstructor }), options = DeriveOption.cachedMeasures)
+public abstract class Feed<A> {
+  Feed() {
+  }
+
+  public interface Cases<A, R> {
+    R end();
+
+    R item(A item, Feed<A> more);
+  }
+
+  public abstract <R> R match(Cases<A, R> cases);
+
+  public static <A> long pages(Feed<A> feed, int pageSize) {
+    long items = Feeds.size(feed) - 1;
+    return (items + pageSize - 1) / pageSize;
+  }
+
+}
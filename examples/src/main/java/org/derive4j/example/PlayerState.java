@@ -0,0 +1,56 @@
+/*
+ * Copyright (c) 2019, Jean-Baptiste Giraudeau <jb@giraudeau.info>
+ *
+ * This file is part of "Derive4J - Annotation Processor".
+ *
+ * "Derive4J - Annotation Processor" is free software: you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * "Derive4J - Annotation Processor" is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with "Derive4J - Annotation Processor".  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.derive4j.example;
+
+import org.derive4j.Data;
+import org.derive4j.Derive;
+import org.derive4j.Make;
+
+/**
+ * A reducer updating several fields per event through {@code PlayerStates.updater()} copies the state only once.
+ */
+@Data(@Derive(make = { Make.constructors, Make.getters, Make.updater }))
+public abstract class PlayerState {
+  PlayerState() {
+  }
+
+  public interface Case<R> {
+    R playerState(String name, int health, int score, long lastSeen);
+  }
+
+  public abstract <R> R match(Case<R> playerState);
+
+  public final PlayerState hit(int damage, long now) {
+    return PlayerStates.updater()
+        .modHealth(health -> health - damage)
+        .modScore(score -> score - 1)
+        .setLastSeen(now)
+        .apply(this);
+  }
+
+  @Override
+  public abstract boolean equals(Object obj);
+
+  @Override
+  public abstract int hashCode();
+
+  @Override
+  public abstract String toString();
+
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright (c) 2019, Jean-Baptiste Giraudeau <jb@giraudeau.info>
+ *
+ * This file is part of "Derive4J - Annotation Processor".
+ *
+ * "Derive4J - Annotation Processor" is free software: you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * "Derive4J - Annotation Processor" is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with "Derive4J - Annotation Processor".  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.derive4j.example;
+
+import org.derive4j.Data;
+import org.derive4j.Derive;
+import org.derive4j.Make;
+
+/**
+ * Readings can be bucketed by kind with {@code Readings.constructorIndex(reading)} and a
+ * {@code Readings.ConstructorMap}, without a full pattern match.
+ */
+@Data(@Derive(make = { Make.constructors, Make.casesMatching, Make.constructorIndex }))
+public abstract class Reading {
+  Reading() {
+  }
+
+  public interface Cases<R> {
+    R temperature(String sensor, double celsius);
+
+    R humidity(String sensor, double percent);
+
+    R heartbeat();
+
+    R offline();
+  }
+
+  public abstract <R> R match(Cases<R> cases);
+
+}
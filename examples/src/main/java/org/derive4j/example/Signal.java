@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2019, Jean-Baptiste Giraudeau <jb@giraudeau.info>
+ *
+ * This file is part of "Derive4J - Annotation Processor".
+ *
+ * "Derive4J - Annotation Processor" is free software: you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * "Derive4J - Annotation Processor" is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with "Derive4J - Annotation Processor".  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.derive4j.example;
+
+import org.derive4j.Data;
+import org.derive4j.Derive;
+import org.derive4j.Make;
+
+/**
+ * Ingested in large batches: {@code Signals.matchAllToLong(signals, weights, out)} weighs the clicks, then the
+ * scrolls, then the key presses, each in a loop of its own.
+ */
+@Data(@Derive(make = { Make.constructors, Make.batchMatching }))
+public abstract class Signal {
+  Signal() {
+  }
+
+  public interface Cases<R> {
+    R click(int x, int y);
+
+    R scroll(int delta);
+
+    R keyPress(char key, boolean shift);
+  }
+
+  public abstract <R> R match(Cases<R> cases);
+
+  private static final Cases<Long> weights = new Cases<Long>() {
+    @Override
+    public Long click(int x, int y) {
+      return 10L;
+    }
+
+    @Override
+    public Long scroll(int delta) {
+      return (long) Math.abs(delta);
+    }
+
+    @Override
+    public Long keyPress(char key, boolean shift) {
+      return shift ? 2L : 1L;
+    }
+  };
+
+  public static long totalWeight(Signal[] signals) {
+    long[] out = new long[signals.length];
+    Signals.matchAllToLong(signals, weights, out);
+    long total = 0;
+    for (long weight : out) {
+      total += weight;
+    }
+    return total;
+  }
+
+}
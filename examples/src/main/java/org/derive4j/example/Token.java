@@ -0,0 +1,55 @@
+/*
+ * Copyright (c) 2019, Jean-Baptiste Giraudeau <jb@giraudeau.info>
+ *
+ * This file is part of "Derive4J - Annotation Processor".
+ *
+ * "Derive4J - Annotation Processor" is free software: you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * "Derive4J - Annotation Processor" is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with "Derive4J - Annotation Processor".  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.derive4j.example;
+
+import fj.Equal;
+import fj.Show;
+import org.derive4j.Data;
+import org.derive4j.Derive;
+import org.derive4j.DeriveOption;
+import org.derive4j.ExportAsPublic;
+import org.derive4j.Instances;
+
+/**
+ * Nullary constructors, exported constants and derived instances are held by {@code static final} fields of
+ * holder classes.
+ */
+@Data(options = DeriveOption.eagerSingletons, value = @Derive(@Instances({ Equal.class, Show.class })))
+public abstract class Token {
+  Token() {
+  }
+
+  public interface Cases<R> {
+    R eof();
+
+    R comma();
+
+    R number(int value);
+
+    R identifier(String name);
+  }
+
+  public abstract <R> R match(Cases<R> cases);
+
+  @ExportAsPublic
+  static Token zero() {
+    return Tokens.number(0);
+  }
+
+}
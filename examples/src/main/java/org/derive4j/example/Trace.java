@@ -0,0 +1,52 @@
+/*
+ * Copyright (c) 2019, Jean-Baptiste Giraudeau <jb@giraudeau.info>
+ *
+ * This file is part of "Derive4J - Annotation Processor".
+ *
+ * "Derive4J - Annotation Processor" is free software: you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * "Derive4J - Annotation Processor" is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with "Derive4J - Annotation Processor".  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.derive4j.example;
+
+import org.derive4j.Data;
+import org.derive4j.Derive;
+import org.derive4j.Make;
+import org.derive4j.Specialize;
+
+/**
+ * A list of samples that also comes specialized as {@code Traces.IntTrace} and {@code Traces.DoubleTrace}, with
+ * unboxed fields: {@code IntTraces.sample(3, IntTraces.end())}, converted back with
+ * {@code Traces.IntTrace.toTrace}.
+ */
+@Data(@Derive(make = { Make.lambdaVisitor, Make.constructors, Make.lazyConstructor, Make.casesMatching,
+    Make.getters }))
+@Specialize({ int.class, double.class })
+public abstract class Trace<A> {
+  Trace() {
+  }
+
+  public interface Cases<A, R> {
+    R end();
+
+    R sample(A value, Trace<A> next);
+  }
+
+  public abstract <R> R match(Cases<A, R> cases);
+
+  @Override
+  public abstract boolean equals(Object obj);
+
+  @Override
+  public abstract int hashCode();
+
+}
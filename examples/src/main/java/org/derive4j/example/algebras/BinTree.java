@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2019, Jean-Baptiste Giraudeau <jb@giraudeau.info>
+ *
+ * This file is part of "Derive4J - Annotation Processor".
+ *
+ * "Derive4J - Annotation Processor" is free software: you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * "Derive4J - Annotation Processor" is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with "Derive4J - Annotation Processor".  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.derive4j.example.algebras;
+
+import java.util.function.Supplier;
+import org.derive4j.Data;
+import org.derive4j.Derive;
+import org.derive4j.Make;
+
+/**
+ * {@code balanced(from, to)} unfolds a balanced tree lazily from a range; {@code sum(from, to)} refolds the same
+ * coalgebra with a summing algebra, without building any node.
+ */
+@Data(@Derive(make = { Make.constructors, Make.lazyConstructor, Make.anamorphism }))
+public abstract class BinTree<A> {
+  BinTree() {
+  }
+
+  public interface TreeAlg<A, T, R> {
+    R leaf();
+
+    R node(T left, A value, T right);
+  }
+
+  public abstract <R> R match(TreeAlg<A, BinTree<A>, R> alg);
+
+  private static final BinTrees.Coalgebra<Integer, int[]> halves = new BinTrees.Coalgebra<Integer, int[]>() {
+    @Override
+    public <R> R next(int[] range, TreeAlg<Integer, int[], R> cases) {
+      if (range[0] >= range[1]) {
+        return cases.leaf();
+      }
+      int middle = (range[0] + range[1]) >>> 1;
+      return cases.node(new int[] { range[0], middle }, middle, new int[] { middle + 1, range[1] });
+    }
+  };
+
+  public static BinTree<Integer> balanced(int from, int to) {
+    return BinTrees.unfold(new int[] { from, to }, halves);
+  }
+
+  public static long sum(int from, int to) {
+    return BinTrees.hylo(new int[] { from, to }, halves, new TreeAlg<Integer, Long, Long>() {
+      @Override
+      public Long leaf() {
+        return 0L;
+      }
+
+      @Override
+      public Long node(Long left, Integer value, Long right) {
+        return left + value + right;
+      }
+    }, Supplier::get);
+  }
+
+}
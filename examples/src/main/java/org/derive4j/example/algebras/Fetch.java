@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) 2019, Jean-Baptiste Giraudeau <jb@giraudeau.info>
+ *
+ * This file is part of "Derive4J - Annotation Processor".
+ *
+ * "Derive4J - Annotation Processor" is free software: you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * "Derive4J - Annotation Processor" is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with "Derive4J - Annotation Processor".  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.derive4j.example.algebras;
+
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+import org.derive4j.Data;
+import org.derive4j.Derive;
+import org.derive4j.Make;
+
+/**
+ * A tree of requests, each node fetching its own data once its dependencies are fetched. {@code Fetches.cataAsync}
+ * fetches independent dependencies concurrently, at most {@code concurrency} at once, without blocking a thread per
+ * node.
+ */
+@Data(@Derive(make = { Make.constructors, Make.asyncCatamorphism }))
+public abstract class Fetch {
+  Fetch() {
+  }
+
+  public interface FetchAlg<T, R> {
+    R resource(String uri);
+
+    R combine(String uri, T first, T second);
+  }
+
+  public abstract <R> R match(FetchAlg<Fetch, R> alg);
+
+  public static Function<Fetch, CompletionStage<String>> fetchAll(Function<String, CompletionStage<String>> get,
+      Executor executor, int concurrency) {
+    return Fetches.cataAsync(new FetchAlg<String, CompletionStage<String>>() {
+      @Override
+      public CompletionStage<String> resource(String uri) {
+        return get.apply(uri);
+      }
+
+      @Override
+      public CompletionStage<String> combine(String uri, String first, String second) {
+        return get.apply(uri + "?first=" + first + "&second=" + second);
+      }
+    }, executor, concurrency);
+  }
+
+}
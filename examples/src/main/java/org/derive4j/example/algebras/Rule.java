@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2019, Jean-Baptiste Giraudeau <jb@giraudeau.info>
+ *
+ * This file is part of "Derive4J - Annotation Processor".
+ *
+ * "Derive4J - Annotation Processor" is free software: you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * "Derive4J - Annotation Processor" is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with "Derive4J - Annotation Processor".  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.derive4j.example.algebras;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import org.derive4j.Data;
+import org.derive4j.Derive;
+import org.derive4j.Make;
+
+/**
+ * Large generated rule sets are matched in parallel: the first levels of {@code both} and {@code either} are
+ * evaluated by distinct fork/join tasks.
+ */
+@Data(@Derive(make = { Make.constructors, Make.parallelCatamorphism }))
+public abstract class Rule<A> {
+  Rule() {
+  }
+
+  public interface RuleAlg<A, T, R> {
+    R test(Predicate<A> test);
+
+    R both(T left, T right);
+
+    R either(T left, T right);
+  }
+
+  public abstract <R> R match(RuleAlg<A, Rule<A>, R> alg);
+
+  public static <A> Function<Rule<A>, Boolean> matches(A value, ForkJoinPool pool) {
+    return Rules.parCata(new RuleAlg<A, Boolean, Boolean>() {
+      @Override
+      public Boolean test(Predicate<A> test) {
+        return test.test(value);
+      }
+
+      @Override
+      public Boolean both(Boolean left, Boolean right) {
+        return left && right;
+      }
+
+      @Override
+      public Boolean either(Boolean left, Boolean right) {
+        return left || right;
+      }
+    }, pool, 6);
+  }
+
+}
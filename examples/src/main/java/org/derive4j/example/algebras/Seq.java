@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2019, Jean-Baptiste Giraudeau <jb@giraudeau.info>
+ *
+ * This file is part of "Derive4J - Annotation Processor".
+ *
+ * "Derive4J - Annotation Processor" is free software: you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * "Derive4J - Annotation Processor" is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with "Derive4J - Annotation Processor".  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.derive4j.example.algebras;
+
+import java.util.function.Function;
+import java.util.function.Supplier;
+import org.derive4j.Data;
+import org.derive4j.Derive;
+import org.derive4j.Make;
+
+/**
+ * {@code sum(map(range(0, n), f))} folds the range directly with the summing algebra: no cons cell is allocated.
+ */
+@Data(@Derive(make = { Make.constructors, Make.lazyConstructor, Make.fusion }))
+public abstract class Seq<A> {
+  Seq() {
+  }
+
+  public interface SeqAlg<A, S, R> {
+    R nil();
+
+    R cons(A head, S tail);
+  }
+
+  public abstract <R> R match(SeqAlg<A, Seq<A>, R> alg);
+
+  public static Seq<Integer> range(int from, int to) {
+    return Seqs.build(new Seqs.Producer<Integer>() {
+      @Override
+      public <R> R produce(SeqAlg<Integer, R, R> algebra) {
+        R seq = algebra.nil();
+        for (int i = to - 1; i >= from; i--) {
+          seq = algebra.cons(i, seq);
+        }
+        return seq;
+      }
+    });
+  }
+
+  public static <A, B> Seq<B> map(Seq<A> seq, Function<A, B> f) {
+    final Seqs.Producer<A> producer = Seqs.producer(seq);
+    return Seqs.build(new Seqs.Producer<B>() {
+      @Override
+      public <R> R produce(SeqAlg<B, R, R> algebra) {
+        return producer.produce(new SeqAlg<A, R, R>() {
+          @Override
+          public R nil() {
+            return algebra.nil();
+          }
+
+          @Override
+          public R cons(A head, R tail) {
+            return algebra.cons(f.apply(head), tail);
+          }
+        });
+      }
+    });
+  }
+
+  public static long sum(Seq<Integer> seq) {
+    return Seqs.cata(new SeqAlg<Integer, Long, Long>() {
+      @Override
+      public Long nil() {
+        return 0L;
+      }
+
+      @Override
+      public Long cons(Integer head, Long tail) {
+        return head + tail;
+      }
+    }, Supplier::get).apply(seq);
+  }
+
+}
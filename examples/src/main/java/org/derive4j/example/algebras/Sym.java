@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2019, Jean-Baptiste Giraudeau <jb@giraudeau.info>
+ *
+ * This file is part of "Derive4J - Annotation Processor".
+ *
+ * "Derive4J - Annotation Processor" is free software: you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * "Derive4J - Annotation Processor" is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with "Derive4J - Annotation Processor".  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.derive4j.example.algebras;
+
+import java.util.function.Function;
+import java.util.function.Supplier;
+import org.derive4j.Data;
+import org.derive4j.Derive;
+import org.derive4j.Make;
+
+/**
+ * Symbolic expressions are graphs: {@code doubling(n)} shares its subterms, so that it has n distinct nodes but 2^n
+ * paths. {@code Syms.cataMemo} folds each distinct node once.
+ */
+@Data(@Derive(make = { Make.constructors, Make.memoizedCatamorphism }))
+public abstract class Sym {
+  Sym() {
+  }
+
+  public interface SymAlg<T, R> {
+    R variable(String name);
+
+    R constant(double value);
+
+    R plus(T left, T right);
+
+    R times(T left, T right);
+  }
+
+  public abstract <R> R match(SymAlg<Sym, R> alg);
+
+  public static Sym doubling(int n) {
+    Sym term = Syms.variable("x");
+    for (int i = 0; i < n; i++) {
+      term = Syms.plus(term, term);
+    }
+    return term;
+  }
+
+  public static Function<Sym, Double> evaluate(Function<String, Double> environment) {
+    return Syms.cataMemo(new SymAlg<Double, Double>() {
+      @Override
+      public Double variable(String name) {
+        return environment.apply(name);
+      }
+
+      @Override
+      public Double constant(double value) {
+        return value;
+      }
+
+      @Override
+      public Double plus(Double left, Double right) {
+        return left + right;
+      }
+
+      @Override
+      public Double times(Double left, Double right) {
+        return left * right;
+      }
+    }, Supplier::get);
+  }
+
+}
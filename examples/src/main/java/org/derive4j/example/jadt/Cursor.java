@@ -0,0 +1,16 @@
+package org.derive4j.example.jadt;
+
+import org.derive4j.Data;
+import org.derive4j.Derive;
+import org.derive4j.Make;
+
+@Data(@Derive(make = { Make.constructors, Make.updater }))
+public record Cursor(int line, int column, String file) {
+
+    Cursor newLine() {
+        return Cursors.updater()
+            .modLine(line -> line + 1)
+            .setColumn(0)
+            .apply(this);
+    }
+}
@@ -1,8 +1,10 @@
 package org.derive4j.example.jadt;
 
 import org.derive4j.Data;
+import org.derive4j.Derive;
+import org.derive4j.Make;
 
-@Data
+@Data(@Derive(make = { Make.constructors, Make.casesMatching, Make.caseOfMatching }))
 public sealed interface Levels {
     record Level0(String id) implements Levels {}
 
@@ -0,0 +1,12 @@
+package org.derive4j.example.jadt;
+
+import org.derive4j.Data;
+import org.derive4j.Derive;
+import org.derive4j.Make;
+
+@Data(@Derive(make = { Make.constructors, Make.constructorIndex }))
+public sealed interface Signal<A> {
+    record Value<A>(A value) implements Signal<A> {}
+    record Failure<A>(String message) implements Signal<A> {}
+    record Completed<A>() implements Signal<A> {}
+}
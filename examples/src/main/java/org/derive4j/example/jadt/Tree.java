@@ -0,0 +1,27 @@
+package org.derive4j.example.jadt;
+
+import org.derive4j.Data;
+import org.derive4j.Derive;
+import org.derive4j.Make;
+
+import java.util.function.Function;
+
+@Data(@Derive(make = { Make.constructors, Make.caseOfMatching, Make.catamorphism }))
+public sealed interface Tree<A> {
+    record Leaf<A>(A value) implements Tree<A> {}
+    record Node<A>(Tree<A> left, Tree<A> right) implements Tree<A> {}
+
+    static int size(Tree<?> tree) {
+        return Trees.caseOf(tree)
+            .leaf_(1)
+            .node((left, right) -> size(left) + size(right));
+    }
+
+    static <A> int depth(Tree<A> tree) {
+        final Function<Tree<A>, Integer> depth = Trees.<A, Integer>cata(
+            value -> 1,
+            (left, right) -> 1 + Math.max(left, right),
+            delayed -> delayed.get());
+        return depth.apply(tree);
+    }
+}
@@ -0,0 +1,7 @@
+package org.derive4j.example.jadt;
+
+import org.derive4j.Data;
+import org.derive4j.DeriveOption;
+
+@Data(options = DeriveOption.identityModifiers)
+public record Viewport(int width, int height, String title) {}
@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2019, Jean-Baptiste Giraudeau <jb@giraudeau.info>
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *  * Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *  * Neither the name of the copyright holder nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.derive4j.example;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import org.derive4j.example.LogEntry.Level;
+import org.junit.Test;
+
+import static org.derive4j.example.LogEntries.entry;
+import static org.derive4j.example.LogEntries.marker;
+import static org.derive4j.example.Schedules.done;
+import static org.derive4j.example.Schedules.fork;
+import static org.derive4j.example.Schedules.slot;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.*;
+
+public class ComparatorTest {
+
+  @Test
+  public void ordersByConstructorThenFields() {
+    List<LogEntry> sorted = Arrays.asList(
+        entry(1, Level.DEBUG, "b"),
+        entry(1, Level.INFO, "a"),
+        entry(1, Level.INFO, "b"),
+        entry(2, Level.DEBUG, "a"),
+        marker(0),
+        marker(3));
+    List<LogEntry> shuffled = new ArrayList<>(sorted);
+    Collections.reverse(shuffled);
+    Collections.swap(shuffled, 1, 4);
+
+    shuffled.sort(LogEntries.comparator());
+    assertThat(shuffled, is(sorted));
+
+    Collections.shuffle(shuffled);
+    Collections.sort(shuffled);
+    assertThat(shuffled, is(sorted));
+  }
+
+  @Test
+  public void isConsistentWithCompareTo() {
+    LogEntry lazyEntry = LogEntries.lazy(() -> entry(1, Level.WARN, "disk"));
+
+    assertThat(LogEntries.comparator().compare(lazyEntry, entry(1, Level.WARN, "disk")), is(0));
+    assertThat(lazyEntry.compareTo(entry(1, Level.WARN, "disks")), is(-1));
+    assertThat(entry(1, Level.WARN, "disks").compareTo(lazyEntry), is(1));
+    assertThat(marker(Long.MIN_VALUE).compareTo(entry(Long.MAX_VALUE, Level.ERROR, "")), is(1));
+  }
+
+  @Test
+  public void ordersSchedulesLexicographically() {
+    Comparator<Schedule<String>> comparator = Schedules.comparator(Comparator.<String>naturalOrder());
+
+    assertThat(comparator.compare(done(), slot(0, 1, "a", done())), is(-1));
+    assertThat(comparator.compare(slot(0, 1, "a", done()), slot(0, 1, "a", slot(0, 1, "a", done()))), is(-1));
+    assertThat(comparator.compare(slot(0, 1, "b", done()), slot(0, 1, "a", slot(0, 1, "a", done()))), is(1));
+    assertThat(comparator.compare(fork(done(), 0.5, slot(0, 1, "a", done())), fork(done(), 0.5, done())), is(1));
+    assertThat(comparator.compare(fork(done(), -0.0, done()), fork(done(), 0.0, done())), is(-1));
+  }
+
+  @Test
+  public void comparesLongSchedulesWithoutRecursion() {
+    Comparator<Schedule<String>> comparator = Schedules.comparator(Comparator.<String>naturalOrder());
+
+    assertThat(comparator.compare(longSchedule("z"), longSchedule("z")), is(0));
+    assertThat(comparator.compare(longSchedule("a"), longSchedule("z")), is(-1));
+    assertThat(comparator.compare(longSchedule("z"), longSchedule("a")), is(1));
+  }
+
+  private static Schedule<String> longSchedule(String last) {
+    Schedule<String> schedule = slot(0, 1, last, done());
+    for (int i = 1; i < 1_000_000; i++) {
+      schedule = i % 2 == 0 ? slot(i, 1, "task", schedule) : fork(schedule, i, done());
+    }
+    return schedule;
+  }
+
+}
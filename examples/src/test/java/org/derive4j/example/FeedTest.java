@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2019, Jean-Baptiste Giraudeau <jb@giraudeau.info>
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *  * Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *  * Neither the name of the copyright holder nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.derive4j.example;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+
+import static org.derive4j.example.Feeds.*;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.*;
+
+public class FeedTest {
+
+  private static final int SIZE = 1_000_000;
+
+  private final AtomicInteger forced = new AtomicInteger();
+
+  @Test
+  public void measuresStrictFeeds() {
+    Feed<String> feed = item("a", item("b", item("c", end())));
+
+    assertThat(size(feed), is(4L));
+    assertThat(depth(feed), is(4));
+    assertThat(size(Feeds.<String>end()), is(1L));
+    assertThat(Feed.pages(feed, 2), is(2L));
+  }
+
+  @Test
+  public void measuresItemsOnTopOfLazyFeedsOnDemand() {
+    Feed<String> feed = item("a", lazy(() -> {
+      forced.incrementAndGet();
+      return item("b", end());
+    }));
+    assertThat(forced.get(), is(0));
+
+    assertThat(size(feed), is(3L));
+    assertThat(forced.get(), is(1));
+    assertThat(depth(feed), is(3));
+    assertThat(size(item("z", feed)), is(4L));
+    assertThat(forced.get(), is(1));
+  }
+
+  @Test
+  public void measuresLongLazyFeedsAfterForcing() {
+    Feed<Integer> feed = item(-1, feed(0));
+
+    assertThat(size(feed), is(SIZE + 2L));
+    assertThat(forced.get(), is(SIZE + 1));
+    assertThat(depth(feed), is(SIZE + 2));
+    assertThat(size(item(-2, feed)), is(SIZE + 3L));
+    assertThat(Feed.pages(feed, 1000), is(1001L));
+    assertThat(forced.get(), is(SIZE + 1));
+  }
+
+  private Feed<Integer> feed(int from) {
+    return lazy(() -> {
+      forced.incrementAndGet();
+      return from == SIZE ? end() : item(from, feed(from + 1));
+    });
+  }
+
+}
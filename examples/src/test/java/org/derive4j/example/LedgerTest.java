@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2019, Jean-Baptiste Giraudeau <jb@giraudeau.info>
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *  * Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *  * Neither the name of the copyright holder nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.derive4j.example;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.*;
+
+public class LedgerTest {
+
+  private static final int SIZE = 1_000_000;
+
+  private final AtomicInteger forced = new AtomicInteger();
+
+  @Test
+  public void foldsLongLazyLedgersFromTheFirstEntry() {
+    Ledger<Integer> ledger = ledger(0);
+
+    assertThat(Ledgers.foldLeft(ledger, 0L, (sum, entry) -> sum + entry), is((long) SIZE * (SIZE - 1) / 2));
+    assertThat(Ledgers.foldLeft(ledger, -1, (previous, entry) -> {
+      assertThat(entry, is(previous + 1));
+      return entry;
+    }), is(SIZE - 1));
+    assertThat(forced.get(), is(SIZE + 1));
+  }
+
+  @Test
+  public void walksLongLazyLedgers() {
+    List<Integer> entries = new ArrayList<>();
+    Ledgers.forEach(ledger(0), entries::add);
+
+    assertThat(entries.size(), is(SIZE));
+    assertThat(entries.get(SIZE - 1), is(SIZE - 1));
+    assertThat(Ledgers.length(ledger(0)), is(SIZE));
+    assertThat(Ledgers.length(Ledgers.<Integer>opening()), is(0));
+  }
+
+  @Test
+  public void getsEntriesWithoutForcingTheRest() {
+    assertThat(Ledgers.get(ledger(0), 10), is(10));
+    assertThat(forced.get(), is(11));
+    assertThat(Ledgers.get(ledger(0), SIZE - 1), is(SIZE - 1));
+  }
+
+  @Test(expected = IndexOutOfBoundsException.class)
+  public void rejectsIndicesPastTheEnd() {
+    Ledgers.get(ledger(SIZE - 3), 3);
+  }
+
+  private Ledger<Integer> ledger(int from) {
+    return Ledgers.lazy(() -> {
+      forced.incrementAndGet();
+      return from == SIZE ? Ledgers.opening() : Ledgers.entry(from, from, ledger(from + 1));
+    });
+  }
+
+}
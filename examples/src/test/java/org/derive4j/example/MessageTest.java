@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) 2019, Jean-Baptiste Giraudeau <jb@giraudeau.info>
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *  * Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *  * Neither the name of the copyright holder nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.derive4j.example;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import org.junit.Test;
+
+import static org.derive4j.example.Messages.*;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.*;
+
+public class MessageTest {
+
+  @Test
+  public void roundTripsEveryKindOfField() {
+    Message message = forwarded("relay", moved("Zoë", Positions.position(48.85, -0.0), true));
+
+    Message decoded = roundTrip(message);
+
+    assertThat(describe(decoded), is(describe(message)));
+    assertThat(describe(decoded), is("forwarded(relay, moved(Zoë, 48.85/-0.0, true))"));
+    assertThat(describe(roundTrip(text("ops", "disk full", Message.Priority.high))),
+        is("text(ops, disk full, high)"));
+    assertThat(describe(roundTrip(ping(Long.MIN_VALUE))), is("ping(" + Long.MIN_VALUE + ")"));
+  }
+
+  @Test
+  public void roundTripsLongForwardingChains() {
+    int depth = 1_000_000;
+    Message message = ping(42);
+    for (int i = 0; i < depth; i++) {
+      message = forwarded(i % 2 == 0 ? "a" : "€", message);
+    }
+
+    Message decoded = roundTrip(message);
+
+    int forwards = 0;
+    for (Message next = decoded; next != null; next = forwardedMessage(next)) {
+      if (forwardedMessage(next) != null) {
+        forwards++;
+      } else {
+        assertThat(describe(next), is("ping(42)"));
+      }
+    }
+    assertThat(forwards, is(depth));
+    assertTrue(Arrays.equals(encoded(decoded), encoded(message)));
+  }
+
+  private static Message roundTrip(Message message) {
+    ByteBuffer buffer = ByteBuffer.wrap(encoded(message));
+    Message decoded = decode(buffer);
+    assertThat(buffer.remaining(), is(0));
+    return decoded;
+  }
+
+  private static byte[] encoded(Message message) {
+    ByteBuffer buffer = ByteBuffer.allocate(encodedSize(message));
+    encode(message, buffer);
+    assertThat(buffer.remaining(), is(0));
+    return buffer.array();
+  }
+
+  private static Message forwardedMessage(Message message) {
+    return message.match(new Message.Cases<Message>() {
+      @Override
+      public Message ping(long sentAt) {
+        return null;
+      }
+
+      @Override
+      public Message text(String sender, String body, Message.Priority priority) {
+        return null;
+      }
+
+      @Override
+      public Message moved(String sender, Position position, boolean tracked) {
+        return null;
+      }
+
+      @Override
+      public Message forwarded(String via, Message message) {
+        return message;
+      }
+    });
+  }
+
+  private static String describe(Message message) {
+    return message.match(new Message.Cases<String>() {
+      @Override
+      public String ping(long sentAt) {
+        return "ping(" + sentAt + ")";
+      }
+
+      @Override
+      public String text(String sender, String body, Message.Priority priority) {
+        return "text(" + sender + ", " + body + ", " + priority + ")";
+      }
+
+      @Override
+      public String moved(String sender, Position position, boolean tracked) {
+        return "moved(" + sender + ", " + Positions.getLatitude(position) + "/" + Positions.getLongitude(position)
+            + ", " + tracked + ")";
+      }
+
+      @Override
+      public String forwarded(String via, Message message) {
+        return "forwarded(" + via + ", " + describe(message) + ")";
+      }
+    });
+  }
+
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2019, Jean-Baptiste Giraudeau <jb@giraudeau.info>
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *  * Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *  * Neither the name of the copyright holder nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.derive4j.example;
+
+import java.util.function.IntFunction;
+import org.junit.Test;
+
+import static org.derive4j.example.Ropes.*;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNot.not;
+import static org.junit.Assert.*;
+
+public class RopeTest {
+
+  private static final int DEPTH = 1_000_000;
+
+  @Test
+  public void comparesDeepRopes() {
+    assertEquals(deep(i -> leaf(i)), deep(i -> leaf(i)));
+    assertNotEquals(deep(i -> leaf(i)), deep(i -> leaf(i == DEPTH - 1 ? -1 : i)));
+    assertNotEquals(deep(i -> leaf(i)), deep(i -> leaf(i == 0 ? -1 : i)));
+  }
+
+  @Test
+  public void hashesDeepRopes() {
+    assertThat(deep(i -> leaf(i)).hashCode(), is(deep(i -> leaf(i)).hashCode()));
+    assertThat(deep(i -> leaf(i)).hashCode(), is(not(deep(i -> leaf(i == 0 ? -1 : i)).hashCode())));
+  }
+
+  @Test
+  public void forcesLazyRopesWhileComparing() {
+    Rope<Integer> strict = deep(i -> leaf(i));
+    Rope<Integer> lazy = deep(i -> lazy(() -> leaf(i)));
+
+    assertEquals(strict, lazy);
+    assertEquals(lazy, strict);
+    assertThat(lazy.hashCode(), is(strict.hashCode()));
+  }
+
+  @Test
+  public void comparesShallowRopes() {
+    Rope<String> rope = concat(2, leaf("a"), concat(1, leaf("b"), leaf("c")));
+
+    assertThat(rope.hashCode(), is(concat(2, leaf("a"), concat(1, leaf("b"), leaf("c"))).hashCode()));
+    assertThat(rope, is(concat(2, leaf("a"), concat(1, leaf("b"), leaf("c")))));
+    assertThat(rope, is(not(concat(2, leaf("a"), concat(1, leaf("c"), leaf("b"))))));
+  }
+
+  private static Rope<Integer> deep(IntFunction<Rope<Integer>> leaf) {
+    Rope<Integer> rope = leaf.apply(0);
+    for (int i = 1; i < DEPTH; i++) {
+      rope = concat(i, rope, leaf.apply(i));
+    }
+    return rope;
+  }
+
+}
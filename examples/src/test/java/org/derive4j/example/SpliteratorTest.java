@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2019, Jean-Baptiste Giraudeau <jb@giraudeau.info>
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *  * Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *  * Neither the name of the copyright holder nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.derive4j.example;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.junit.Test;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.*;
+
+public class SpliteratorTest {
+
+  private static final int SIZE = 1_000_000;
+
+  private static final List<Integer> ELEMENTS = IntStream.range(0, SIZE).boxed().collect(Collectors.toList());
+
+  @Test
+  public void streamsTreesInOrder() {
+    SearchTree<Integer> tree = tree(0, SIZE);
+
+    assertThat(SearchTrees.stream(tree).collect(Collectors.toList()), is(ELEMENTS));
+    assertThat(SearchTrees.parallelStream(tree).collect(Collectors.toList()), is(ELEMENTS));
+    assertThat(SearchTrees.stream(SearchTrees.<Integer>leaf()).count(), is(0L));
+  }
+
+  @Test
+  public void splitsTreesOnSubtrees() {
+    Spliterator<Integer> suffix = SearchTrees.spliterator(tree(0, SIZE));
+    Spliterator<Integer> prefix = suffix.trySplit();
+
+    assertNotNull(prefix);
+    List<Integer> first = drain(prefix);
+    List<Integer> second = drain(suffix);
+    assertFalse(first.isEmpty());
+    assertFalse(second.isEmpty());
+    assertTrue(first.size() < SIZE);
+    first.addAll(second);
+    assertThat(first, is(ELEMENTS));
+  }
+
+  @Test
+  public void streamsLongLazyWalksInOrder() {
+    assertThat(Walks.stream(walk(0)).collect(Collectors.toList()), is(ELEMENTS));
+    assertThat(Walks.parallelStream(walk(0)).collect(Collectors.toList()), is(ELEMENTS));
+    assertThat(Walks.parallelStream(walk(0)).mapToLong(i -> i).sum(), is((long) SIZE * (SIZE - 1) / 2));
+  }
+
+  @Test
+  public void splitsWalksInGrowingBatches() {
+    Spliterator<Integer> suffix = Walks.spliterator(walk(0));
+
+    List<Integer> first = drain(suffix.trySplit());
+    List<Integer> second = drain(suffix.trySplit());
+    assertThat(first, is(ELEMENTS.subList(0, 1024)));
+    assertThat(second, is(ELEMENTS.subList(1024, 1024 + 2048)));
+    List<Integer> all = new ArrayList<>(first);
+    all.addAll(second);
+    all.addAll(drain(suffix));
+    assertThat(all, is(ELEMENTS));
+  }
+
+  private static SearchTree<Integer> tree(int from, int to) {
+    if (from == to) {
+      return SearchTrees.leaf();
+    }
+    int middle = (from + to) >>> 1;
+    SearchTree<Integer> left = tree(from, middle);
+    SearchTree<Integer> right = tree(middle + 1, to);
+    return SearchTrees.node(left, middle, 0, right);
+  }
+
+  private static Walk<Integer> walk(int from) {
+    return Walks.lazy(() -> from == SIZE ? Walks.done() : Walks.step(from, walk(from + 1)));
+  }
+
+  private static List<Integer> drain(Spliterator<Integer> spliterator) {
+    List<Integer> elements = new ArrayList<>();
+    spliterator.forEachRemaining(elements::add);
+    return elements;
+  }
+
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2019, Jean-Baptiste Giraudeau <jb@giraudeau.info>
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *  * Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *  * Neither the name of the copyright holder nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.derive4j.example;
+
+import org.junit.Test;
+
+import static org.derive4j.example.Trails.*;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.*;
+
+public class TrailTest {
+
+  private final Trail trail = step("c", 3, step("b", 2, step("a", 1, start())));
+
+  @Test
+  public void rendersRecursiveFields() {
+    assertThat(trail.toString(), is("step(c, 3, step(b, 2, step(a, 1, start())))"));
+  }
+
+  @Test
+  public void rendersNullRecursiveFields() {
+    assertThat(step("a", 1, null).toString(), is("step(a, 1, null)"));
+    assertThat(Routes.leg(null, Routes.end()).toString(), is("leg(null, end())"));
+  }
+
+  @Test
+  public void rendersNestedDataTypes() {
+    assertThat(Routes.leg(trail, Routes.leg(start(), Routes.end())).toString(),
+        is("leg(step(c, 3, step(b, 2, step(a, 1, start()))), leg(start(), end()))"));
+  }
+
+  @Test
+  public void truncatesToMaxLength() {
+    assertThat(appendTo(trail, new StringBuilder(), 10, Integer.MAX_VALUE).toString(), is("step(c, 3,..."));
+    assertThat(appendTo(trail, new StringBuilder("trail: "), 10, Integer.MAX_VALUE).toString(),
+        is("trail: step(c, 3,..."));
+    assertThat(appendTo(trail, new StringBuilder(), 100, Integer.MAX_VALUE).toString(), is(trail.toString()));
+  }
+
+  @Test
+  public void truncatesToMaxDepth() {
+    assertThat(appendTo(trail, new StringBuilder(), Integer.MAX_VALUE, 1).toString(),
+        is("step(c, 3, step(b, 2, ...))"));
+    assertThat(appendTo(trail, new StringBuilder(), Integer.MAX_VALUE, 0).toString(), is("step(c, 3, ...)"));
+  }
+
+  @Test
+  public void rendersDeepTrailsWithoutRecursion() {
+    Trail deep = start();
+    for (int i = 0; i < 1_000_000; i++) {
+      deep = step("x", i, deep);
+    }
+
+    String rendered = deep.toString();
+
+    assertTrue(rendered.startsWith("step(x, 999999, step(x, 999998, "));
+    assertTrue(rendered.endsWith("step(x, 0, start())" + ")".repeat(999_999)));
+  }
+
+}
@@ -23,6 +23,7 @@ import java.util.Map;
 import java.util.Set;
 import org.derive4j.ArgOption;
 import org.derive4j.Data;
+import org.derive4j.DeriveOption;
 import org.derive4j.Flavour;
 import org.derive4j.Make;
 
@@ -30,6 +31,7 @@ import static org.derive4j.processor.api.model.DeriveConfigs.getArgOptions;
 import static org.derive4j.processor.api.model.DeriveConfigs.getDerivedInstances;
 import static org.derive4j.processor.api.model.DeriveConfigs.getFlavour;
 import static org.derive4j.processor.api.model.DeriveConfigs.getMakes;
+import static org.derive4j.processor.api.model.DeriveConfigs.getOptions;
 import static org.derive4j.processor.api.model.DeriveConfigs.getTargetClass;
 
 @Data
@@ -37,7 +39,7 @@ public abstract class DeriveConfig {
 
   public interface Case<X> {
     X Config(Flavour flavour, DeriveTargetClass targetClass, Set<Make> makes, Set<ArgOption> argOptions,
-        Map<ClassName, DerivedInstanceConfig> derivedInstances);
+        Set<DeriveOption> options, Map<ClassName, DerivedInstanceConfig> derivedInstances);
   }
 
   DeriveConfig() {
@@ -61,6 +63,10 @@ public abstract class DeriveConfig {
     return getArgOptions(this);
   }
 
+  public final Set<DeriveOption> options() {
+    return getOptions(this);
+  }
+
   public final Map<ClassName, DerivedInstanceConfig> derivedInstances() {
     return getDerivedInstances(this);
   }
@@ -19,6 +19,7 @@
 package org.derive4j.processor;
 
 import org.derive4j.FieldNames;
+import org.derive4j.Make;
 import org.derive4j.processor.api.DeriveResult;
 import org.derive4j.processor.api.DeriveUtils;
 import org.derive4j.processor.api.MessageLocalization;
@@ -28,6 +29,7 @@ import org.derive4j.processor.api.model.AlgebraicDataType.Variant.Java;
 
 import javax.lang.model.element.*;
 import javax.lang.model.type.*;
+import javax.lang.model.util.ElementFilter;
 import javax.lang.model.util.Elements;
 import javax.lang.model.util.Types;
 import java.util.*;
@@ -95,6 +97,7 @@ final class AdtParser {
         findOnlyOne(deriveUtils.allAbstractMethods(declaredType)
             .stream()
             .filter(p(this::isEqualHashcodeToString).negate())
+            .filter(e -> !isDerivedCompareTo(e, adtTypeElement, deriveConfig))
             .collect(Collectors.toList())),
         error(message("One, and only one, abstract method should be define on the data type",
             deriveUtils.allAbstractMethods(declaredType).stream().map(MessageLocalization::onElement).collect(
@@ -251,6 +254,14 @@ final class AdtParser {
         || overrides(executableElement, deriveUtils.object().toStringMethod());
   }
 
+  private boolean isDerivedCompareTo(ExecutableElement executableElement, TypeElement adtTypeElement,
+      DeriveConfig deriveConfig) {
+    return deriveConfig.makes().contains(Make.comparator) && ElementFilter.methodsIn(
+        elements.getTypeElement(Comparable.class.getName()).getEnclosedElements())
+        .stream()
+        .anyMatch(compareTo -> elements.overrides(executableElement, compareTo, adtTypeElement));
+  }
+
   private boolean overrides(ExecutableElement overrider, ExecutableElement overridee) {
     return elements.overrides(overrider, overridee, deriveUtils.object().classModel());
   }
@@ -0,0 +1,248 @@
+/*
+ * Copyright (c) 2019, Jean-Baptiste Giraudeau <jb@giraudeau.info>
+ *
+ * This file is part of "Derive4J - Annotation Processor".
+ *
+ * "Derive4J - Annotation Processor" is free software: you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * "Derive4J - Annotation Processor" is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with "Derive4J - Annotation Processor".  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.derive4j.processor;
+
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.CodeBlock;
+import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.NameAllocator;
+import com.squareup.javapoet.ParameterizedTypeName;
+import com.squareup.javapoet.TypeName;
+import com.squareup.javapoet.TypeSpec;
+import com.squareup.javapoet.TypeVariableName;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeMirror;
+import org.derive4j.processor.api.Derivator;
+import org.derive4j.processor.api.DeriveResult;
+import org.derive4j.processor.api.DeriveUtils;
+import org.derive4j.processor.api.DerivedCodeSpec;
+import org.derive4j.processor.api.DerivedCodeSpecs;
+import org.derive4j.processor.api.model.*;
+import org.derive4j.processor.api.model.AlgebraicDataType.Variant.Drv4j;
+
+import static org.derive4j.processor.Utils.zip;
+
+/**
+ * Unfolds for data types whose visitor is an object algebra: a {@code Coalgebra} chooses, for a seed, a constructor
+ * whose recursive fields are new seeds. {@code unfold(seed, coalgebra)} builds lazily, one node per evaluation, and
+ * {@code hylo(seed, coalgebra, algebra, delay)} folds the unfolded structure without building it.
+ */
+final class AnamorphismDerivator implements Derivator<Drv4j> {
+
+  private static final String COALGEBRA = "Coalgebra";
+
+  private static final String UNFOLD = "Unfold";
+
+  private static final String HYLO = "Hylo";
+
+  private final DeriveUtils utils;
+  private final CataDerivator cataDerivator;
+
+  AnamorphismDerivator(DeriveUtils utils) {
+    this.utils = utils;
+    cataDerivator = new CataDerivator(utils);
+  }
+
+  @Override
+  public DeriveResult<DerivedCodeSpec> derive(AlgebraicDataType<Drv4j> adt) {
+    return DeriveResult.result(DataConstructions.caseOf(AlgebraicDataTypes.getDataConstruction_(adt))
+        .multipleConstructors(MultipleConstructorsSupport.cases()
+            .visitorDispatch((visitorParam, visitorType, constructors) -> cataDerivator.visitorIsObjectAlgebra(adt)
+                ? anamorphism(adt, visitorType, constructors)
+                : DerivedCodeSpec.none())
+            .otherwise_(DerivedCodeSpec.none()))
+        .otherwise_(DerivedCodeSpec.none()));
+  }
+
+  private DerivedCodeSpec anamorphism(AlgebraicDataType<Drv4j> adt, DeclaredType visitorType,
+      List<DataConstructor> constructors) {
+
+    final var typeConstructor = adt.typeConstructor();
+    final var matchMethod = AlgebraicDataTypes.getMatchMethod_(adt);
+    final var targetClass = adt.deriveConfig().targetClass().className();
+    final var typeVariables = typeConstructor.typeVariables()
+        .stream()
+        .map(TypeVariableName::get)
+        .collect(Collectors.toList());
+    final var adtTypeName = TypeName.get(typeConstructor.declaredType());
+    final var f0 = utils.function0Model(adt.deriveConfig().flavour());
+    final var f1 = utils.function1Model(adt.deriveConfig().flavour());
+
+    final NameAllocator typeVariableNames = new NameAllocator();
+    typeVariables.forEach(tv -> typeVariableNames.newName(tv.name));
+    final var resultVariable = TypeVariableName.get(typeVariableNames.newName(
+        matchMethod.returnTypeVariable().toString()));
+    final var seed = TypeVariableName.get(typeVariableNames.newName("S"));
+
+    final var coalgebraClass = targetClass.nestedClass(COALGEBRA);
+    final var coalgebraTypeName = ParameterizedTypeName.get(coalgebraClass,
+        concat(typeVariables, seed).toArray(new TypeName[0]));
+    final var unfoldClass = targetClass.nestedClass(UNFOLD);
+    final var hyloClass = targetClass.nestedClass(HYLO);
+    final var hyloAlgebraType = visitorTypeName(adt, visitorType, resultVariable, resultVariable);
+    final var delayType = ParameterizedTypeName.get(ClassName.get(f1.samClass()),
+        ParameterizedTypeName.get(ClassName.get(f0.samClass()), resultVariable), resultVariable);
+
+    final TypeSpec coalgebra = TypeSpec.interfaceBuilder(COALGEBRA)
+        .addJavadoc("Chooses the constructor of the value unfolded from a seed, with seeds for its recursive fields.\n")
+        .addModifiers(Modifier.PUBLIC)
+        .addTypeVariables(typeVariables)
+        .addTypeVariable(seed)
+        .addMethod(MethodSpec.methodBuilder("next")
+            .addModifiers(Modifier.PUBLIC, Modifier.ABSTRACT)
+            .addTypeVariable(resultVariable)
+            .addParameter(seed, "seed")
+            .addParameter(visitorTypeName(adt, visitorType, seed, resultVariable), "cases")
+            .returns(resultVariable)
+            .build())
+        .build();
+
+    final TypeSpec.Builder unfold = TypeSpec.classBuilder(UNFOLD)
+        .addModifiers(Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL)
+        .addTypeVariables(typeVariables)
+        .addTypeVariable(seed)
+        .addSuperinterface(visitorTypeName(adt, visitorType, seed, adtTypeName))
+        .addField(coalgebraTypeName, "coalgebra", Modifier.PRIVATE, Modifier.FINAL)
+        .addMethod(MethodSpec.constructorBuilder()
+            .addParameter(coalgebraTypeName, "coalgebra")
+            .addStatement("this.coalgebra = coalgebra")
+            .build())
+        .addMethod(MethodSpec.methodBuilder("_unfold")
+            .addParameter(seed, "seed")
+            .returns(adtTypeName)
+            .addStatement("return $T.lazy(() -> this.coalgebra.next(seed, this))", targetClass)
+            .build());
+
+    final TypeSpec.Builder hylo = TypeSpec.classBuilder(HYLO)
+        .addModifiers(Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL)
+        .addTypeVariables(typeVariables)
+        .addTypeVariable(seed)
+        .addTypeVariable(resultVariable)
+        .addSuperinterface(visitorTypeName(adt, visitorType, seed, resultVariable))
+        .addField(coalgebraTypeName, "coalgebra", Modifier.PRIVATE, Modifier.FINAL)
+        .addField(hyloAlgebraType, "algebra", Modifier.PRIVATE, Modifier.FINAL)
+        .addField(delayType, "delay", Modifier.PRIVATE, Modifier.FINAL)
+        .addMethod(MethodSpec.constructorBuilder()
+            .addParameter(coalgebraTypeName, "coalgebra")
+            .addParameter(hyloAlgebraType, "algebra")
+            .addParameter(delayType, "delay")
+            .addStatement("this.coalgebra = coalgebra")
+            .addStatement("this.algebra = algebra")
+            .addStatement("this.delay = delay")
+            .build())
+        .addMethod(MethodSpec.methodBuilder("_hylo")
+            .addParameter(seed, "seed")
+            .returns(resultVariable)
+            .addStatement("return this.coalgebra.next(seed, this)")
+            .build());
+
+    for (DataConstructor constructor : constructors) {
+      final var deconstructor = constructor.deconstructor();
+      final var parameters = zip(deconstructor.method().getParameters(),
+          deconstructor.methodType().getParameterTypes());
+      final var constructorName = constructor.name()
+          + (StrictConstructorDerivator.smartConstructor(constructor, adt.deriveConfig()) ? "0" : "");
+
+      final MethodSpec.Builder unfoldCase = MethodSpec.methodBuilder(deconstructor.method().getSimpleName().toString())
+          .addAnnotation(Override.class)
+          .addModifiers(Modifier.PUBLIC)
+          .returns(adtTypeName);
+      final MethodSpec.Builder hyloCase = MethodSpec.methodBuilder(deconstructor.method().getSimpleName().toString())
+          .addAnnotation(Override.class)
+          .addModifiers(Modifier.PUBLIC)
+          .returns(resultVariable);
+      parameters.forEach(p -> {
+        final TypeName type = isSelf(adt, p._2()) ? seed : TypeName.get(p._2());
+        unfoldCase.addParameter(type, p._1().getSimpleName().toString());
+        hyloCase.addParameter(type, p._1().getSimpleName().toString());
+      });
+
+      unfold.addMethod(unfoldCase.addStatement("return $T.$L($L)", targetClass, constructorName, parameters.stream()
+          .map(p -> isSelf(adt, p._2())
+              ? CodeBlock.of("this._unfold($L)", p._1().getSimpleName())
+              : CodeBlock.of("$L", p._1().getSimpleName()))
+          .collect(CodeBlock.joining(", "))).build());
+
+      hylo.addMethod(hyloCase.addStatement("return this.algebra.$L($L)", deconstructor.method().getSimpleName(),
+          parameters.stream()
+              .map(p -> isSelf(adt, p._2())
+                  ? CodeBlock.of("this.delay.$L(() -> this._hylo($L))", f1.sam().getSimpleName(),
+                      p._1().getSimpleName())
+                  : CodeBlock.of("$L", p._1().getSimpleName()))
+              .collect(CodeBlock.joining(", "))).build());
+    }
+
+    final MethodSpec unfoldMethod = MethodSpec.methodBuilder("unfold")
+        .addJavadoc("The value unfolded from seed, lazily.\n")
+        .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
+        .addTypeVariables(typeVariables)
+        .addTypeVariable(seed)
+        .addParameter(seed, "seed")
+        .addParameter(coalgebraTypeName, "coalgebra")
+        .returns(adtTypeName)
+        .addStatement("return new $T<>(coalgebra)._unfold(seed)", unfoldClass)
+        .build();
+
+    final MethodSpec hyloMethod = MethodSpec.methodBuilder("hylo")
+        .addJavadoc("Same as {@code cata(algebra, delay).apply(unfold(seed, coalgebra))}, without building the "
+            + "unfolded value.\n")
+        .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
+        .addTypeVariables(typeVariables)
+        .addTypeVariable(seed)
+        .addTypeVariable(resultVariable)
+        .addParameter(seed, "seed")
+        .addParameter(coalgebraTypeName, "coalgebra")
+        .addParameter(hyloAlgebraType, "algebra")
+        .addParameter(delayType, "delay")
+        .returns(resultVariable)
+        .addStatement("return new $T<>(coalgebra, algebra, delay)._hylo(seed)", hyloClass)
+        .build();
+
+    return DerivedCodeSpecs.codeSpec(List.of(coalgebra, unfold.build(), hylo.build()), List.of(),
+        List.of(unfoldMethod, hyloMethod));
+  }
+
+  /**
+   * The visitor type of the data type, its recursive positions being instantiated to {@code self} and its result
+   * to {@code result}.
+   */
+  private TypeName visitorTypeName(AlgebraicDataType<Drv4j> adt, DeclaredType visitorType, TypeName self,
+      TypeName result) {
+    final var returnTypeVariable = AlgebraicDataTypes.getMatchMethod_(adt).returnTypeVariable();
+    return ParameterizedTypeName.get(ClassName.get(utils.asTypeElement(visitorType).get()), visitorType
+        .getTypeArguments()
+        .stream()
+        .map(tm -> isSelf(adt, tm)
+            ? self
+            : utils.types().isSameType(tm, returnTypeVariable) ? result : TypeName.get(tm))
+        .toArray(TypeName[]::new));
+  }
+
+  private boolean isSelf(AlgebraicDataType<Drv4j> adt, TypeMirror type) {
+    return utils.types().isSameType(type, adt.typeConstructor().declaredType());
+  }
+
+  private static List<TypeName> concat(List<TypeVariableName> typeVariables, TypeVariableName typeVariable) {
+    return Stream.concat(typeVariables.stream(), Stream.of(typeVariable)).collect(Collectors.toList());
+  }
+}
@@ -0,0 +1,335 @@
+/*
+ * Copyright (c) 2019, Jean-Baptiste Giraudeau <jb@giraudeau.info>
+ *
+ * This file is part of "Derive4J - Annotation Processor".
+ *
+ * "Derive4J - Annotation Processor" is free software: you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * "Derive4J - Annotation Processor" is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with "Derive4J - Annotation Processor".  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.derive4j.processor;
+
+import com.squareup.javapoet.ArrayTypeName;
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.CodeBlock;
+import com.squareup.javapoet.FieldSpec;
+import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.NameAllocator;
+import com.squareup.javapoet.ParameterSpec;
+import com.squareup.javapoet.TypeName;
+import com.squareup.javapoet.TypeSpec;
+import com.squareup.javapoet.TypeVariableName;
+import com.squareup.javapoet.WildcardTypeName;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import org.derive4j.Make;
+import org.derive4j.processor.api.DeriveResults;
+import org.derive4j.processor.api.DerivedCodeSpec;
+import org.derive4j.processor.api.DerivedCodeSpecs;
+import org.derive4j.processor.api.model.AlgebraicDataType;
+import org.derive4j.processor.api.model.AlgebraicDataType.Variant.Drv4j;
+import org.derive4j.processor.api.model.DataArgument;
+import org.derive4j.processor.api.model.DataConstructor;
+import org.derive4j.processor.api.model.DeriveVisibilities;
+
+/**
+ * Streaming {@code toString}: {@code appendTo(value, StringBuilder[, maxLength, maxDepth])} writes into a single
+ * builder, expanding self-recursive fields from an explicit stack instead of the call stack. Only derived for
+ * self-recursive data types with an abstract {@code toString}: other data types keep a plain concatenation.
+ */
+final class AppendToDerivator {
+
+  static final String APPENDER_CLASS_NAME = "ToStringAppender";
+
+  private static final String NESTED_INTERFACE_NAME = "Nested";
+
+  private final DeriveUtilsImpl deriveUtils;
+
+  AppendToDerivator(DeriveUtilsImpl deriveUtils) {
+    this.deriveUtils = deriveUtils;
+  }
+
+  /**
+   * Body of the {@code toString} of constructor classes: a plain concatenation unless the data type is recursive,
+   * so that non-recursive values do not allocate an appender.
+   */
+  CodeBlock toStringImpl(AlgebraicDataType<Drv4j> adt, DataConstructor constructor) {
+    return recursive(adt)
+        ? CodeBlock.of("return $T.appendTo(this, new $T()).toString();\n",
+            adt.deriveConfig().targetClass().className(), StringBuilder.class)
+        : CodeBlock.of("return $S + $L + $S;\n", constructor.name() + '(', constructor.arguments()
+            .stream()
+            .map(da -> da.type().getKind() == TypeKind.ARRAY
+                ? CodeBlock.of("$T.toString(this.$N)", Arrays.class, da.fieldName())
+                : CodeBlock.of("this.$N", da.fieldName()))
+            .collect(CodeBlock.joining(" + \", \" + ")), ")");
+  }
+
+  DerivedCodeSpec appendTo(AlgebraicDataType<Drv4j> adt) {
+
+    final var typeVariables = adt.typeConstructor()
+        .typeVariables()
+        .stream()
+        .map(TypeVariableName::get)
+        .collect(Collectors.toList());
+    final var adtTypeName = TypeName.get(adt.typeConstructor().declaredType());
+    final var adtWildcardTypeName = Utils.typeName(ClassName.get(adt.typeConstructor().typeElement()),
+        typeVariables.stream().map(__ -> WildcardTypeName.subtypeOf(Object.class)));
+    final var appender = adt.deriveConfig().targetClass().className().nestedClass(APPENDER_CLASS_NAME);
+
+    final NameAllocator nameAllocator = new NameAllocator();
+    adt.fields().forEach(da -> nameAllocator.newName(da.fieldName()));
+    final var expanded = nameAllocator.newName("value");
+    final var nestedParams = List.of(nameAllocator.newName("sb"), nameAllocator.newName("maxLength"),
+        nameAllocator.newName("maxDepth"));
+    final MethodSpec expand = MethodSpec.methodBuilder("expand")
+        .addModifiers(Modifier.PRIVATE)
+        .addTypeVariables(typeVariables)
+        .addParameter(adtTypeName, expanded)
+        .addStatement("$L", Utils.matchWithLambdas(adt, CodeBlock.of("$L", expanded),
+            dc -> expandConstructor(adt, dc, nestedParams)))
+        .build();
+
+    final TypeSpec appenderSpec = TypeSpec.classBuilder(APPENDER_CLASS_NAME)
+        .addModifiers(Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL)
+        .addType(TypeSpec.interfaceBuilder(NESTED_INTERFACE_NAME)
+            .addJavadoc("The {@code appendTo} of a field of another data type.\n")
+            .addMethod(MethodSpec.methodBuilder("appendTo")
+                .addModifiers(Modifier.PUBLIC, Modifier.ABSTRACT)
+                .addParameter(StringBuilder.class, "sb")
+                .addParameter(TypeName.INT, "maxLength")
+                .addParameter(TypeName.INT, "maxDepth")
+                .returns(StringBuilder.class)
+                .build())
+            .build())
+        .addField(StringBuilder.class, "sb", Modifier.PRIVATE, Modifier.FINAL)
+        .addField(TypeName.INT, "limit", Modifier.PRIVATE, Modifier.FINAL)
+        .addField(TypeName.INT, "maxDepth", Modifier.PRIVATE, Modifier.FINAL)
+        .addField(FieldSpec.builder(ArrayTypeName.of(Object.class), "stack", Modifier.PRIVATE)
+            .initializer("new $T[16]", Object.class)
+            .build())
+        .addField(FieldSpec.builder(ArrayTypeName.of(TypeName.INT), "depths", Modifier.PRIVATE)
+            .initializer("new int[16]")
+            .build())
+        .addField(TypeName.INT, "size", Modifier.PRIVATE)
+        .addField(TypeName.INT, "depth", Modifier.PRIVATE)
+        .addField(TypeName.BOOLEAN, "deferring", Modifier.PRIVATE)
+        .addMethod(MethodSpec.constructorBuilder()
+            .addParameter(StringBuilder.class, "sb")
+            .addParameter(TypeName.INT, "maxLength")
+            .addParameter(TypeName.INT, "maxDepth")
+            .addStatement("this.sb = sb")
+            .addStatement(
+                "this.limit = maxLength > $T.MAX_VALUE - sb.length() ? $T.MAX_VALUE : sb.length() + maxLength",
+                Integer.class, Integer.class)
+            .addStatement("this.maxDepth = maxDepth")
+            .build())
+        .addMethod(MethodSpec.methodBuilder("text")
+            .addParameter(String.class, "text")
+            .returns(appender)
+            .addStatement("return deferring ? push(text, -1) : append(text)")
+            .build())
+        .addMethod(MethodSpec.methodBuilder("field")
+            .addParameter(Object.class, "value")
+            .returns(appender)
+            .addStatement("return deferring ? push(value, -1) : append(value)")
+            .build())
+        .addMethod(MethodSpec.methodBuilder("self")
+            .addJavadoc("A self-recursive field: it is expanded after the current value, from the stack.\n")
+            .addParameter(adtWildcardTypeName, "value")
+            .returns(appender)
+            .beginControlFlow("if (value == null)")
+            .addStatement("return field(null)")
+            .endControlFlow()
+            .addStatement("deferring = true")
+            .addStatement("return push(value, depth + 1)")
+            .build())
+        .addMethod(MethodSpec.methodBuilder("nested")
+            .addJavadoc("A field of another data type, appended by its own {@code appendTo} one level deeper.\n")
+            .addParameter(Object.class, "value")
+            .addParameter(appender.nestedClass(NESTED_INTERFACE_NAME), "nested")
+            .returns(appender)
+            .beginControlFlow("if (value == null)")
+            .addStatement("return field(null)")
+            .endControlFlow()
+            .addStatement("return deferring ? push(nested, depth + 1) : appendNested(nested, depth + 1)")
+            .build())
+        .addMethod(MethodSpec.methodBuilder("appendNested")
+            .addModifiers(Modifier.PRIVATE)
+            .addParameter(appender.nestedClass(NESTED_INTERFACE_NAME), "nested")
+            .addParameter(TypeName.INT, "nestedDepth")
+            .returns(appender)
+            .beginControlFlow("if (nestedDepth > maxDepth)")
+            .addStatement("sb.append($S)", "...")
+            .nextControlFlow("else")
+            .addStatement("nested.appendTo(sb, $T.max(0, limit - sb.length()), maxDepth - nestedDepth)", Math.class)
+            .endControlFlow()
+            .addStatement("return this")
+            .build())
+        .addMethod(MethodSpec.methodBuilder("append")
+            .addModifiers(Modifier.PRIVATE)
+            .addParameter(Object.class, "value")
+            .returns(appender)
+            .addStatement("sb.append(value)")
+            .addStatement("return this")
+            .build())
+        .addMethod(MethodSpec.methodBuilder("push")
+            .addModifiers(Modifier.PRIVATE)
+            .addParameter(Object.class, "value")
+            .addParameter(TypeName.INT, "valueDepth")
+            .returns(appender)
+            .beginControlFlow("if (size == stack.length)")
+            .addStatement("stack = $T.copyOf(stack, size * 2)", Arrays.class)
+            .addStatement("depths = $T.copyOf(depths, size * 2)", Arrays.class)
+            .endControlFlow()
+            .addStatement("stack[size] = value")
+            .addStatement("depths[size] = valueDepth")
+            .addStatement("size++")
+            .addStatement("return this")
+            .build())
+        .addMethod(MethodSpec.methodBuilder("run")
+            .addParameter(adtWildcardTypeName, "value")
+            .returns(StringBuilder.class)
+            .addStatement("push(value, 0)")
+            .beginControlFlow("while (size > 0 && sb.length() < limit)")
+            .addStatement("size--")
+            .addStatement("$T item = stack[size]", Object.class)
+            .addStatement("int itemDepth = depths[size]")
+            .addStatement("stack[size] = null")
+            .beginControlFlow("if (itemDepth < 0)")
+            .addStatement("sb.append(item)")
+            .nextControlFlow("else if (itemDepth > maxDepth)")
+            .addStatement("sb.append($S)", "...")
+            .nextControlFlow("else if (item instanceof $T)", appender.nestedClass(NESTED_INTERFACE_NAME))
+            .addStatement("appendNested(($T) item, itemDepth)", appender.nestedClass(NESTED_INTERFACE_NAME))
+            .nextControlFlow("else")
+            .addStatement("int mark = size")
+            .addStatement("depth = itemDepth")
+            .addStatement("deferring = false")
+            .addStatement("expand(($T) item)", adtWildcardTypeName)
+            .addComment("deferred items were pushed in order: reverse them so that they are popped in order")
+            .beginControlFlow("for (int i = mark, j = size - 1; i < j; i++, j--)")
+            .addStatement("$T tmp = stack[i]", Object.class)
+            .addStatement("stack[i] = stack[j]")
+            .addStatement("stack[j] = tmp")
+            .addStatement("int tmpDepth = depths[i]")
+            .addStatement("depths[i] = depths[j]")
+            .addStatement("depths[j] = tmpDepth")
+            .endControlFlow()
+            .endControlFlow()
+            .endControlFlow()
+            .beginControlFlow("if (size > 0 || sb.length() > limit)")
+            .addStatement("sb.setLength($T.min(sb.length(), limit))", Math.class)
+            .addStatement("sb.append($S)", "...")
+            .endControlFlow()
+            .addStatement("return sb")
+            .build())
+        .addMethod(expand)
+        .build();
+
+    final ParameterSpec value = ParameterSpec.builder(adtTypeName, "value").build();
+    final ParameterSpec sb = ParameterSpec.builder(StringBuilder.class, "sb").build();
+
+    return DerivedCodeSpecs.codeSpec(List.of(appenderSpec), List.of(), List.of(
+        MethodSpec.methodBuilder("appendTo")
+            .addJavadoc("Appends the {@code toString} representation of value to sb.\n")
+            .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
+            .addTypeVariables(typeVariables)
+            .addParameters(List.of(value, sb))
+            .returns(StringBuilder.class)
+            .addStatement("return new $L($N, $T.MAX_VALUE, $T.MAX_VALUE).run($N)", APPENDER_CLASS_NAME, sb,
+                Integer.class, Integer.class, value)
+            .build(),
+        MethodSpec.methodBuilder("appendTo")
+            .addJavadoc("Appends at most maxLength characters (then {@code ...}) of the {@code toString} "
+                + "representation of value to sb,\nvalues nested deeper than maxDepth being rendered as {@code ...}.\n")
+            .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
+            .addTypeVariables(typeVariables)
+            .addParameters(List.of(value, sb))
+            .addParameter(TypeName.INT, "maxLength")
+            .addParameter(TypeName.INT, "maxDepth")
+            .returns(StringBuilder.class)
+            .addStatement("return new $L($N, maxLength, maxDepth).run($N)", APPENDER_CLASS_NAME, sb, value)
+            .build()));
+  }
+
+  private CodeBlock expandConstructor(AlgebraicDataType<Drv4j> adt, DataConstructor constructor,
+      List<String> nestedParams) {
+    final List<DataArgument> arguments = constructor.arguments();
+    final CodeBlock.Builder calls = CodeBlock.builder().add("this");
+
+    if (arguments.isEmpty()) {
+      return calls.add(".text($S)", constructor.name() + "()").build();
+    }
+
+    calls.add(".text($S)", constructor.name() + '(');
+    for (int i = 0; i < arguments.size(); i++) {
+      final var da = arguments.get(i);
+      if (i > 0) {
+        calls.add(".text($S)", ", ");
+      }
+      final Optional<ClassName> nestedAppendTo = appendToClass(adt, da.type());
+      if (isSelf(adt, da)) {
+        calls.add(".self($N)", da.fieldName());
+      } else if (nestedAppendTo.isPresent()) {
+        calls.add(".nested($1N, ($2N, $3N, $4N) -> $5T.appendTo($1N, $2N, $3N, $4N))", da.fieldName(),
+            nestedParams.get(0), nestedParams.get(1), nestedParams.get(2), nestedAppendTo.get());
+      } else if (da.type().getKind() == TypeKind.ARRAY) {
+        calls.add(".field($T.toString($N))", Arrays.class, da.fieldName());
+      } else {
+        calls.add(".field($N)", da.fieldName());
+      }
+    }
+    return calls.add(".text($S)", ")").build();
+  }
+
+  /**
+   * Whether {@code appendTo} is derived for adt: only self-recursive data types need one, to be printed without
+   * recursion.
+   */
+  boolean recursive(AlgebraicDataType<?> adt) {
+    return adt.fields().stream().anyMatch(da -> isSelf(adt, da));
+  }
+
+  private boolean isSelf(AlgebraicDataType<?> adt, DataArgument da) {
+    final var types = deriveUtils.types();
+    return types.isSameType(types.erasure(da.type()), types.erasure(adt.typeConstructor().declaredType()));
+  }
+
+  /**
+   * The derived class of another data type whose {@code appendTo} is accessible from the derived class of adt.
+   */
+  private Optional<ClassName> appendToClass(AlgebraicDataType<Drv4j> adt, TypeMirror type) {
+    final var packageName = adt.deriveConfig().targetClass().className().packageName();
+    return deriveUtils.asDeclaredType(type)
+        .map(dt -> (TypeElement) dt.asElement())
+        .filter(te -> te.getKind() != ElementKind.ENUM && !Utils.isJADT(te))
+        .filter(te -> deriveUtils.allAbstractMethods(te)
+            .stream()
+            .anyMatch(e -> deriveUtils.elements().overrides(e, deriveUtils.object().toStringMethod(), te)))
+        .flatMap(te -> deriveUtils.findDeriveConfig(te)
+            .filter(config -> config.makes().contains(Make.constructors))
+            .filter(config -> DeriveResults.getResult(new AdtParser(deriveUtils).parseAlgebraicDataType(te, config))
+                .filter(this::recursive)
+                .isPresent()))
+        .filter(config -> config.targetClass().className().packageName().equals(packageName)
+            || DeriveVisibilities.caseOf(config.targetClass().visibility()).Package_(false).otherwise_(true))
+        .map(config -> config.targetClass().className());
+  }
+}
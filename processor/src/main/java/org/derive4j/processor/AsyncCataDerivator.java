@@ -0,0 +1,280 @@
+/*
+ * Copyright (c) 2019, Jean-Baptiste Giraudeau <jb@giraudeau.info>
+ *
+ * This file is part of "Derive4J - Annotation Processor".
+ *
+ * "Derive4J - Annotation Processor" is free software: you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * "Derive4J - Annotation Processor" is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with "Derive4J - Annotation Processor".  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.derive4j.processor;
+
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.CodeBlock;
+import com.squareup.javapoet.FieldSpec;
+import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.NameAllocator;
+import com.squareup.javapoet.ParameterizedTypeName;
+import com.squareup.javapoet.TypeName;
+import com.squareup.javapoet.TypeSpec;
+import com.squareup.javapoet.TypeVariableName;
+import com.squareup.javapoet.WildcardTypeName;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeMirror;
+import org.derive4j.processor.api.Derivator;
+import org.derive4j.processor.api.DeriveResult;
+import org.derive4j.processor.api.DeriveUtils;
+import org.derive4j.processor.api.DerivedCodeSpec;
+import org.derive4j.processor.api.DerivedCodeSpecs;
+import org.derive4j.processor.api.SamInterface;
+import org.derive4j.processor.api.model.AlgebraicDataType;
+import org.derive4j.processor.api.model.AlgebraicDataType.Variant.Drv4j;
+import org.derive4j.processor.api.model.AlgebraicDataTypes;
+import org.derive4j.processor.api.model.DataConstructions;
+import org.derive4j.processor.api.model.DataConstructor;
+import org.derive4j.processor.api.model.DataDeconstructor;
+import org.derive4j.processor.api.model.MultipleConstructorsSupport;
+
+import static org.derive4j.processor.Utils.zip;
+import static org.derive4j.processor.api.DeriveMessages.message;
+import static org.derive4j.processor.api.MessageLocalizations.onElement;
+
+/**
+ * {@code cataAsync(algebra, executor, concurrency)}: the catamorphism of data types whose visitor is an object
+ * algebra, for algebras returning a {@link CompletionStage}. The recursive fields of a node are folded concurrently,
+ * the algebra being called on the executor once they are all completed, with at most {@code concurrency} algebra
+ * stages running at once. No thread is blocked waiting for a stage.
+ */
+final class AsyncCataDerivator implements Derivator<Drv4j> {
+
+  private static final String ASYNC_CATA = "AsyncCata";
+
+  private static final String ASYNC_LIMITER = "AsyncLimiter";
+
+  private final DeriveUtils utils;
+  private final CataDerivator cataDerivator;
+
+  AsyncCataDerivator(DeriveUtils utils) {
+    this.utils = utils;
+    cataDerivator = new CataDerivator(utils);
+  }
+
+  @Override
+  public DeriveResult<DerivedCodeSpec> derive(AlgebraicDataType<Drv4j> adt) {
+    return DataConstructions.caseOf(AlgebraicDataTypes.getDataConstruction_(adt))
+        .multipleConstructors(MultipleConstructorsSupport.cases()
+            .visitorDispatch((visitorParam, visitorType, constructors) -> cataDerivator.visitorIsObjectAlgebra(adt)
+                ? DeriveResult.result(asyncCata(adt, visitorType, constructors))
+                : error(adt))
+            .otherwise_(error(adt)))
+        .otherwise_(error(adt));
+  }
+
+  private DerivedCodeSpec asyncCata(AlgebraicDataType<Drv4j> adt, DeclaredType visitorType,
+      List<DataConstructor> constructors) {
+
+    final var typeConstructor = adt.typeConstructor();
+    final var matchMethod = AlgebraicDataTypes.getMatchMethod_(adt);
+    final var targetClass = adt.deriveConfig().targetClass().className();
+    final var returnTypeVariable = TypeVariableName.get(matchMethod.returnTypeVariable());
+    final List<TypeVariableName> typeVariables = new ArrayList<>(typeConstructor.typeVariables()
+        .stream()
+        .map(TypeVariableName::get)
+        .collect(Collectors.toList()));
+    typeVariables.add(returnTypeVariable);
+
+    final TypeMirror resultStage = utils.types()
+        .getDeclaredType(utils.elements().getTypeElement(CompletionStage.class.getName()),
+            matchMethod.returnTypeVariable());
+    final DeclaredType asyncVisitorType = withTypeArguments(visitorType,
+        tm -> utils.types().isSameType(tm, matchMethod.returnTypeVariable()) ? resultStage : tm);
+    final DeclaredType algebraType = withTypeArguments(visitorType,
+        tm -> utils.types().isSameType(tm, matchMethod.returnTypeVariable())
+            ? resultStage
+            : utils.types().isSameType(tm, typeConstructor.declaredType()) ? matchMethod.returnTypeVariable() : tm);
+
+    final var adtTypeName = TypeName.get(typeConstructor.declaredType());
+    final var algebraTypeName = TypeName.get(algebraType);
+    final var futureTypeName = ParameterizedTypeName.get(ClassName.get(CompletableFuture.class), returnTypeVariable);
+    final SamInterface f1 = utils.function1Model(adt.deriveConfig().flavour());
+    final var foldTypeName = ParameterizedTypeName.get(ClassName.get(f1.samClass()), adtTypeName,
+        TypeName.get(resultStage));
+    final var limiterClass = targetClass.nestedClass(ASYNC_LIMITER);
+    final var asyncCataClass = targetClass.nestedClass(ASYNC_CATA);
+
+    final TypeSpec asyncCata = TypeSpec.classBuilder(ASYNC_CATA)
+        .addModifiers(Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL)
+        .addTypeVariables(typeVariables)
+        .addSuperinterface(TypeName.get(asyncVisitorType))
+        .addField(algebraTypeName, "algebra", Modifier.PRIVATE, Modifier.FINAL)
+        .addField(limiterClass, "limiter", Modifier.PRIVATE, Modifier.FINAL)
+        .addMethod(MethodSpec.constructorBuilder()
+            .addParameter(algebraTypeName, "algebra")
+            .addParameter(limiterClass, "limiter")
+            .addStatement("this.algebra = algebra")
+            .addStatement("this.limiter = limiter")
+            .build())
+        .addMethod(MethodSpec.methodBuilder("_fold")
+            .addParameter(adtTypeName, "node")
+            .returns(futureTypeName)
+            .addStatement("return node.$L(this).toCompletableFuture()", matchMethod.element().getSimpleName())
+            .build())
+        .addMethods(constructors.stream()
+            .map(dc -> asyncCase(adt, dc.deconstructor(), asyncVisitorType, futureTypeName))
+            .collect(Collectors.toList()))
+        .build();
+
+    final TypeSpec limiter = TypeSpec.classBuilder(ASYNC_LIMITER)
+        .addJavadoc("Runs at most concurrency stages at once on executor, queueing the others.\n")
+        .addModifiers(Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL)
+        .addField(Executor.class, "executor", Modifier.PRIVATE, Modifier.FINAL)
+        .addField(FieldSpec.builder(ParameterizedTypeName.get(Queue.class, Runnable.class), "pending", Modifier.PRIVATE,
+            Modifier.FINAL).initializer("new $T<>()", ArrayDeque.class).build())
+        .addField(TypeName.INT, "available", Modifier.PRIVATE)
+        .addMethod(MethodSpec.constructorBuilder()
+            .addParameter(Executor.class, "executor")
+            .addParameter(TypeName.INT, "concurrency")
+            .beginControlFlow("if (concurrency < 1)")
+            .addStatement("throw new $T($S + concurrency)", IllegalArgumentException.class, "concurrency: ")
+            .endControlFlow()
+            .addStatement("this.executor = executor")
+            .addStatement("this.available = concurrency")
+            .build())
+        .addMethod(MethodSpec.methodBuilder("submit")
+            .addTypeVariable(TypeVariableName.get("T"))
+            .addParameter(ParameterizedTypeName.get(ClassName.get(Supplier.class), WildcardTypeName.subtypeOf(
+                ParameterizedTypeName.get(ClassName.get(CompletionStage.class), TypeVariableName.get("T")))), "task")
+            .returns(ParameterizedTypeName.get(ClassName.get(CompletableFuture.class), TypeVariableName.get("T")))
+            .addStatement("$T<T> result = new $T<>()", CompletableFuture.class, CompletableFuture.class)
+            .addCode("$T run = () -> {\n$>", Runnable.class)
+            .beginControlFlow("try")
+            .addStatement("task.get().whenComplete((value, failure) -> {\n$>release();\n"
+                + "if (failure != null) {\n$>result.completeExceptionally(failure);\n$<} else {\n$>"
+                + "result.complete(value);\n$<}\n$<})")
+            .nextControlFlow("catch ($T failure)", Throwable.class)
+            .addStatement("release()")
+            .addStatement("result.completeExceptionally(failure)")
+            .endControlFlow()
+            .addCode("$<};\n")
+            .addStatement("boolean start")
+            .beginControlFlow("synchronized (this)")
+            .addStatement("start = available > 0")
+            .beginControlFlow("if (start)")
+            .addStatement("available--")
+            .nextControlFlow("else")
+            .addStatement("pending.add(run)")
+            .endControlFlow()
+            .endControlFlow()
+            .beginControlFlow("if (start)")
+            .addStatement("start(run)")
+            .endControlFlow()
+            .addStatement("return result")
+            .build())
+        .addMethod(MethodSpec.methodBuilder("release")
+            .addModifiers(Modifier.PRIVATE)
+            .addStatement("$T next", Runnable.class)
+            .beginControlFlow("synchronized (this)")
+            .addStatement("next = pending.poll()")
+            .beginControlFlow("if (next == null)")
+            .addStatement("available++")
+            .endControlFlow()
+            .endControlFlow()
+            .beginControlFlow("if (next != null)")
+            .addStatement("start(next)")
+            .endControlFlow()
+            .build())
+        .addMethod(MethodSpec.methodBuilder("start")
+            .addModifiers(Modifier.PRIVATE)
+            .addParameter(Runnable.class, "run")
+            .beginControlFlow("try")
+            .addStatement("executor.execute(run)")
+            .nextControlFlow("catch ($T rejected)", RejectedExecutionException.class)
+            .addStatement("run.run()")
+            .endControlFlow()
+            .build())
+        .build();
+
+    final MethodSpec cataAsync = MethodSpec.methodBuilder("cataAsync")
+        .addJavadoc("Same as {@code cata(algebra, delay)}, for an algebra returning stages, run on executor with at "
+            + "most\nconcurrency of them running at once, across all folds of the returned function.\n")
+        .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
+        .addTypeVariables(typeVariables)
+        .addParameter(algebraTypeName, "algebra")
+        .addParameter(Executor.class, "executor")
+        .addParameter(TypeName.INT, "concurrency")
+        .returns(foldTypeName)
+        .addStatement("$T<$L> cata = new $T<>(algebra, new $T(executor, concurrency))", asyncCataClass,
+            typeVariables.stream().map(tv -> CodeBlock.of("$T", tv)).collect(CodeBlock.joining(", ")),
+            asyncCataClass, limiterClass)
+        .addStatement("return cata::_fold")
+        .build();
+
+    return DerivedCodeSpecs.codeSpec(List.of(asyncCata, limiter), List.of(), List.of(cataAsync));
+  }
+
+  /**
+   * Folds the recursive fields concurrently, then calls the algebra through the limiter once they are all completed.
+   */
+  private MethodSpec asyncCase(AlgebraicDataType<Drv4j> adt, DataDeconstructor deconstructor,
+      DeclaredType asyncVisitorType, TypeName futureTypeName) {
+
+    final NameAllocator nameAllocator = new NameAllocator();
+    deconstructor.method().getParameters().forEach(p -> nameAllocator.newName(p.getSimpleName().toString(), p));
+    final MethodSpec.Builder method = utils.overrideMethodBuilder(deconstructor.method(), asyncVisitorType);
+
+    final List<String> folds = new ArrayList<>();
+    final List<CodeBlock> arguments = new ArrayList<>();
+    for (var p : zip(deconstructor.method().getParameters(), deconstructor.methodType().getParameterTypes())) {
+      final VariableElement parameter = p._1();
+      if (utils.types().isSameType(p._2(), adt.typeConstructor().declaredType())) {
+        final String fold = nameAllocator.newName(parameter.getSimpleName() + "Fold");
+        method.addStatement("$T $L = this._fold($L)", futureTypeName, fold, parameter.getSimpleName());
+        folds.add(fold);
+        arguments.add(CodeBlock.of("$L.join()", fold));
+      } else {
+        arguments.add(CodeBlock.of("$L", parameter.getSimpleName()));
+      }
+    }
+    final CodeBlock call = CodeBlock.of("this.limiter.submit(() -> this.algebra.$L($L))",
+        deconstructor.method().getSimpleName(), CodeBlock.join(arguments, ", "));
+
+    return (folds.isEmpty()
+        ? method.addStatement("return $L", call)
+        : method.addStatement("return $T.allOf($L).thenCompose($L -> $L)", CompletableFuture.class,
+            String.join(", ", folds), nameAllocator.newName("completed"), call)).build();
+  }
+
+  private DeclaredType withTypeArguments(DeclaredType visitorType, UnaryOperator<TypeMirror> typeArgument) {
+    return utils.types().getDeclaredType(utils.asTypeElement(visitorType).get(), visitorType.getTypeArguments()
+        .stream()
+        .map(typeArgument)
+        .toArray(TypeMirror[]::new));
+  }
+
+  private static DeriveResult<DerivedCodeSpec> error(AlgebraicDataType<Drv4j> adt) {
+    return DeriveResult.error(message("asyncCatamorphism requires a visitor that is an object algebra",
+        onElement(adt.typeConstructor().typeElement())));
+  }
+}
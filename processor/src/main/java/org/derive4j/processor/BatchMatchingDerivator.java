@@ -0,0 +1,162 @@
+/*
+ * Copyright (c) 2019, Jean-Baptiste Giraudeau <jb@giraudeau.info>
+ *
+ * This file is part of "Derive4J - Annotation Processor".
+ *
+ * "Derive4J - Annotation Processor" is free software: you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * "Derive4J - Annotation Processor" is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with "Derive4J - Annotation Processor".  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.derive4j.processor;
+
+import com.squareup.javapoet.ArrayTypeName;
+import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.TypeName;
+import com.squareup.javapoet.TypeVariableName;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeMirror;
+import org.derive4j.processor.api.Derivator;
+import org.derive4j.processor.api.DeriveResult;
+import org.derive4j.processor.api.DeriveUtils;
+import org.derive4j.processor.api.DerivedCodeSpec;
+import org.derive4j.processor.api.DerivedCodeSpecs;
+import org.derive4j.processor.api.model.AlgebraicDataType;
+import org.derive4j.processor.api.model.AlgebraicDataType.Variant.Drv4j;
+import org.derive4j.processor.api.model.AlgebraicDataTypes;
+import org.derive4j.processor.api.model.DataConstructions;
+import org.derive4j.processor.api.model.DataConstructor;
+import org.derive4j.processor.api.model.MultipleConstructorsSupport;
+
+import static org.derive4j.processor.api.DeriveMessages.message;
+import static org.derive4j.processor.api.MessageLocalizations.onElement;
+
+/**
+ * {@code matchAll(values, cases, out)}: matches an array of values with a visitor, grouped by constructor. The indices
+ * of the values are sorted by constructor index first, then each constructor has its own loop, so that every match
+ * call site only sees values of one constructor.
+ */
+final class BatchMatchingDerivator implements Derivator<Drv4j> {
+
+  private static final String BATCH_PARTITION = "batchPartition";
+
+  private final DeriveUtils deriveUtils;
+
+  BatchMatchingDerivator(DeriveUtils deriveUtils) {
+    this.deriveUtils = deriveUtils;
+  }
+
+  @Override
+  public DeriveResult<DerivedCodeSpec> derive(AlgebraicDataType<Drv4j> adt) {
+    return DataConstructions.caseOf(AlgebraicDataTypes.getDataConstruction_(adt))
+        .multipleConstructors(MultipleConstructorsSupport.cases()
+            .visitorDispatch((visitorParam, visitorType, constructors) -> DeriveResult.result(
+                batchMatching(adt, visitorType, constructors)))
+            .otherwise_(error(adt)))
+        .otherwise_(error(adt));
+  }
+
+  private DerivedCodeSpec batchMatching(AlgebraicDataType<Drv4j> adt, DeclaredType visitorType,
+      List<DataConstructor> constructors) {
+
+    final var typeConstructor = adt.typeConstructor();
+    final var returnTypeVariable = AlgebraicDataTypes.getMatchMethod_(adt).returnTypeVariable();
+    final List<TypeVariableName> typeVariables = typeConstructor.typeVariables()
+        .stream()
+        .map(TypeVariableName::get)
+        .collect(Collectors.toList());
+    final var valuesTypeName = ArrayTypeName.of(TypeName.get(typeConstructor.declaredType()));
+    final var matchMethodName = AlgebraicDataTypes.getMatchMethod_(adt).element().getSimpleName().toString();
+
+    final MethodSpec partition = MethodSpec.methodBuilder(BATCH_PARTITION)
+        .addModifiers(Modifier.PRIVATE, Modifier.STATIC)
+        .addTypeVariables(typeVariables)
+        .addParameter(valuesTypeName, "values")
+        .addParameter(int[].class, "order")
+        .returns(int[].class)
+        .addStatement("int[] tags = new int[values.length]")
+        .addStatement("int[] offsets = new int[CONSTRUCTOR_COUNT + 1]")
+        .beginControlFlow("for (int i = 0; i < values.length; i++)")
+        .addStatement("int tag = constructorIndex(values[i])")
+        .addStatement("tags[i] = tag")
+        .addStatement("offsets[tag + 1]++")
+        .endControlFlow()
+        .beginControlFlow("for (int tag = 0; tag < CONSTRUCTOR_COUNT; tag++)")
+        .addStatement("offsets[tag + 1] += offsets[tag]")
+        .endControlFlow()
+        .addStatement("int[] next = $T.copyOf(offsets, CONSTRUCTOR_COUNT)", Arrays.class)
+        .beginControlFlow("for (int i = 0; i < values.length; i++)")
+        .addStatement("order[next[tags[i]]++] = i")
+        .endControlFlow()
+        .addStatement("return offsets")
+        .build();
+
+    final List<MethodSpec> methods = new ArrayList<>();
+    methods.add(partition);
+
+    final List<TypeVariableName> genericTypeVariables = new ArrayList<>(typeVariables);
+    genericTypeVariables.add(TypeVariableName.get(returnTypeVariable));
+    methods.add(matchAll("matchAll", genericTypeVariables, valuesTypeName, TypeName.get(visitorType),
+        ArrayTypeName.of(TypeVariableName.get(returnTypeVariable)), matchMethodName, constructors.size())
+        .addJavadoc("Sets out[i] to the match of values[i] with cases, for all i, matching the values of each "
+            + "constructor\nin a loop of its own.\n")
+        .build());
+
+    for (Class<?> boxed : List.of(Integer.class, Long.class, Double.class)) {
+      final TypeMirror boxedType = deriveUtils.elements().getTypeElement(boxed.getName()).asType();
+      final DeclaredType primitiveVisitorType = deriveUtils.resolve(visitorType,
+          tv -> deriveUtils.types().isSameType(tv, returnTypeVariable) ? Optional.of(boxedType) : Optional.empty());
+      final TypeName primitive = TypeName.get(boxed).unbox();
+      methods.add(matchAll("matchAllTo" + Utils.capitalize(primitive.toString()), typeVariables, valuesTypeName,
+          TypeName.get(primitiveVisitorType), ArrayTypeName.of(primitive), matchMethodName, constructors.size())
+          .addJavadoc("Same as {@code matchAll}, into an array of $L.\n", primitive)
+          .build());
+    }
+
+    return DerivedCodeSpecs.codeSpec(List.of(), List.of(), methods);
+  }
+
+  private static MethodSpec.Builder matchAll(String name, List<TypeVariableName> typeVariables,
+      TypeName valuesTypeName, TypeName casesTypeName, TypeName outTypeName, String matchMethodName,
+      int constructorCount) {
+
+    final MethodSpec.Builder matchAll = MethodSpec.methodBuilder(name)
+        .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
+        .addTypeVariables(typeVariables)
+        .addParameter(valuesTypeName, "values")
+        .addParameter(casesTypeName, "cases")
+        .addParameter(outTypeName, "out")
+        .beginControlFlow("if (out.length < values.length)")
+        .addStatement("throw new $T($S + out.length + $S + values.length)", IllegalArgumentException.class,
+            "out length ", " is less than values length ")
+        .endControlFlow()
+        .addStatement("int[] order = new int[values.length]")
+        .addStatement("int[] offsets = $L(values, order)", BATCH_PARTITION);
+    for (int tag = 0; tag < constructorCount; tag++) {
+      matchAll.beginControlFlow("for (int k = offsets[$L], end = offsets[$L]; k < end; k++)", tag, tag + 1)
+          .addStatement("int i = order[k]")
+          .addStatement("out[i] = values[i].$L(cases)", matchMethodName)
+          .endControlFlow();
+    }
+    return matchAll;
+  }
+
+  private static DeriveResult<DerivedCodeSpec> error(AlgebraicDataType<Drv4j> adt) {
+    return DeriveResult.error(message("batchMatching requires a visitor with several constructors",
+        onElement(adt.typeConstructor().typeElement())));
+  }
+}
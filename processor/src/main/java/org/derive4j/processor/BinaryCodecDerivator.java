@@ -0,0 +1,577 @@
+/*
+ * Copyright (c) 2019, Jean-Baptiste Giraudeau <jb@giraudeau.info>
+ *
+ * This file is part of "Derive4J - Annotation Processor".
+ *
+ * "Derive4J - Annotation Processor" is free software: you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * "Derive4J - Annotation Processor" is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with "Derive4J - Annotation Processor".  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.derive4j.processor;
+
+import com.squareup.javapoet.AnnotationSpec;
+import com.squareup.javapoet.ArrayTypeName;
+import com.squareup.javapoet.CodeBlock;
+import com.squareup.javapoet.FieldSpec;
+import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.NameAllocator;
+import com.squareup.javapoet.TypeName;
+import com.squareup.javapoet.TypeVariableName;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.PrimitiveType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import org.derive4j.Make;
+import org.derive4j.processor.api.Derivator;
+import org.derive4j.processor.api.DeriveResult;
+import org.derive4j.processor.api.DerivedCodeSpec;
+import org.derive4j.processor.api.DerivedCodeSpecs;
+import org.derive4j.processor.api.model.*;
+import org.derive4j.processor.api.model.AlgebraicDataType.Variant;
+
+import static org.derive4j.processor.api.DeriveMessages.message;
+import static org.derive4j.processor.api.MessageLocalizations.onElement;
+
+/**
+ * Reflection-free binary encoding: a constructor tag (if more than one constructor) followed by the fields in
+ * declaration order. Fields must be primitives (or boxed primitives), strings (UTF-8, length prefixed), enums, the
+ * data type itself or other data types deriving a binary codec; they must not be null.
+ */
+final class BinaryCodecDerivator implements Derivator<Variant> {
+
+  private static final int MAX_CONSTRUCTORS = 256;
+
+  private static final String ENCODED_SIZE = "encodedSize";
+  private static final String ENCODE       = "encode";
+  private static final String DECODE       = "decode";
+  private static final String UTF8_LENGTH  = "utf8Length";
+  private static final String PUT_UTF8     = "putUtf8";
+  private static final String GET_UTF8     = "getUtf8";
+
+  private static final List<String> API_METHODS  = List.of(ENCODED_SIZE, ENCODE, DECODE);
+  private static final List<String> UTF8_METHODS = List.of(UTF8_LENGTH, PUT_UTF8, GET_UTF8);
+
+  private final DeriveUtilsImpl deriveUtils;
+
+  BinaryCodecDerivator(DeriveUtilsImpl deriveUtils) {
+    this.deriveUtils = deriveUtils;
+  }
+
+  @Override
+  public DeriveResult<DerivedCodeSpec> derive(AlgebraicDataType<Variant> adt) {
+    return AlgebraicDataTypes.caseOf(adt)
+        .adt((deriveConfig, typeConstructor, matchMethod, dataConstruction, fields, eq) -> {
+          final var drv4jAdt = Utils.coerce(adt, eq);
+          final var constructors = dataConstruction.constructors();
+
+          if (constructors.stream().anyMatch(dc -> !dc.typeRestrictions().isEmpty())) {
+            return error(adt, "binaryCodec is not supported for constructors with type restrictions (GADT)");
+          }
+
+          return deriveCodec(adt,
+              constructors.stream()
+                  .map(dc -> new CodecCase(dc.name(), dc.arguments()
+                      .stream()
+                      .map(da -> new CodecField(da.fieldName(), da.type()))
+                      .collect(Collectors.toList()), args -> CodeBlock.of("$L($L)", dc.name()
+                      + (StrictConstructorDerivator.smartConstructor(dc, deriveConfig) ? "0" : ""), args)))
+                  .collect(Collectors.toList()),
+              (value, matchCase) -> Utils.matchWithLambdas(drv4jAdt, CodeBlock.of("$N", value),
+                  dc -> matchCase.apply(constructors.indexOf(dc), field -> CodeBlock.of("$N", field)).lambdaBody()));
+        })
+
+        .jadt((deriveConfig, typeConstructor, jDataConstruction, fields, eq) -> {
+          final var records = jDataConstruction.constructors();
+
+          return deriveCodec(adt,
+              records.stream()
+                  .map(rec -> new CodecCase(JRecords.getElement(rec).getSimpleName().toString(), JRecords
+                      .getComponents(rec)
+                      .stream()
+                      .map(rc -> new CodecField(rc.getSimpleName().toString(), rc.asType()))
+                      .collect(Collectors.toList()), args -> CodeBlock.of("new $T$L($L)", JRecords.getElement(rec),
+                      JRecords.getElement(rec).getTypeParameters().isEmpty() ? "" : "<>", args)))
+                  .collect(Collectors.toList()),
+              (value, matchCase) -> {
+                NameAllocator nameAllocator = new NameAllocator();
+                nameAllocator.newName(value);
+
+                return CodeBlock.builder()
+                    .add("switch($N) {\n", value)
+                    .indent()
+                    .add(records.stream()
+                        .map(rec -> {
+                          final var elt = JRecords.getElement(rec);
+                          final var caseVar = nameAllocator.newName(Utils.uncapitalize(elt.getSimpleName()));
+
+                          return CodeBlock.builder()
+                              .add("case $T $N -> ", elt, caseVar)
+                              .add(matchCase.apply(records.indexOf(rec), field -> CodeBlock.of("$N.$N()", caseVar,
+                                  field)).switchBody())
+                              .build();
+                        })
+                        .reduce((cb1, cb2) -> cb1.toBuilder().add("\n").add(cb2).build())
+                        .orElse(CodeBlock.of("")))
+                    .unindent()
+                    .add("\n}")
+                    .build();
+              });
+        });
+  }
+
+  private DeriveResult<DerivedCodeSpec> deriveCodec(AlgebraicDataType<?> adt, List<CodecCase> cases,
+      BiFunction<String, BiFunction<Integer, Function<String, CodeBlock>, CaseCode>, CodeBlock> matchCases) {
+
+    if (cases.isEmpty()) {
+      return DeriveResult.result(DerivedCodeSpec.none());
+    }
+    if (cases.size() > MAX_CONSTRUCTORS) {
+      return error(adt, "binaryCodec supports at most " + MAX_CONSTRUCTORS + " constructors");
+    }
+
+    // generated members must not clash with constructors (static factories or constants) nor with field accessors.
+    final var memberNames = new NameAllocator();
+    cases.forEach(c -> {
+      memberNames.newName(c.name);
+      c.fields.forEach(f -> memberNames.newName(f.name));
+    });
+    for (String apiMethod : API_METHODS) {
+      if (!memberNames.newName(apiMethod, apiMethod).equals(apiMethod)) {
+        return error(adt, "binaryCodec: the " + apiMethod + " method of the codec would clash with a constructor or a "
+            + "field of the same name, that other codecs call it by");
+      }
+    }
+    UTF8_METHODS.forEach(utf8Method -> memberNames.newName(utf8Method, utf8Method));
+
+    final var tagged = cases.size() > 1;
+    final var enumValues = new LinkedHashMap<TypeName, FieldSpec>();
+    final var codecs = new LinkedHashMap<CodecField, FieldCodec>();
+
+    for (CodecCase codecCase : cases) {
+      for (CodecField field : codecCase.fields) {
+        Optional<FieldCodec> codec = fieldCodec(adt, field.type, memberNames, enumValues);
+        if (!codec.isPresent()) {
+          return error(adt, "binaryCodec: cannot encode field " + field.name + " of " + codecCase.name + ", of type "
+              + field.type + " (supported: primitives, String, enums, data types deriving binaryCodec)");
+        }
+        codecs.put(field, codec.get());
+      }
+    }
+
+    final var nameAllocator = new NameAllocator();
+    cases.forEach(c -> c.fields.forEach(f -> nameAllocator.newName(f.name)));
+    final var buffer = nameAllocator.newName("buffer");
+    final var value = nameAllocator.newName(Utils.uncapitalize(adt.typeConstructor().typeElement().getSimpleName()));
+
+    final var typeVariables = adt.typeConstructor()
+        .typeVariables()
+        .stream()
+        .map(TypeVariableName::get)
+        .collect(Collectors.toList());
+    final var adtTypeName = TypeName.get(adt.typeConstructor().declaredType());
+
+    // the last field of a constructor, if of the data type itself, is encoded and decoded in a loop rather than
+    // through recursive calls, so that long lists do not overflow the stack.
+    final Function<CodecCase, Optional<CodecField>> tail = codecCase -> tagged && !codecCase.fields.isEmpty()
+        ? Optional.of(codecCase.fields.get(codecCase.fields.size() - 1))
+            .filter(field -> deriveUtils.types().isSameType(field.type, adt.typeConstructor().declaredType()))
+        : Optional.empty();
+    final var tailRecursive = cases.stream().anyMatch(codecCase -> tail.apply(codecCase).isPresent())
+        && cases.stream().anyMatch(codecCase -> !tail.apply(codecCase).isPresent());
+    final Function<CodecCase, List<CodecField>> headFields = codecCase -> tail.apply(codecCase).isPresent()
+        ? codecCase.fields.subList(0, codecCase.fields.size() - 1)
+        : codecCase.fields;
+
+    final BiFunction<List<CodecField>, Function<String, CodeBlock>, CodeBlock> sizeOf = (fields, fieldRef) -> {
+      List<CodeBlock> sizes = new ArrayList<>();
+      int fixedSize = tagged ? 1 : 0;
+      for (CodecField field : fields) {
+        FieldCodec codec = codecs.get(field);
+        if (codec.fixedSize > 0) {
+          fixedSize += codec.fixedSize;
+        } else {
+          sizes.add(codec.size.apply(fieldRef.apply(field.name)));
+        }
+      }
+      sizes.add(0, CodeBlock.of("$L", fixedSize));
+      return CodeBlock.join(sizes, " + ");
+    };
+
+    final BiFunction<Integer, List<CodecField>, Function<Function<String, CodeBlock>, CodeBlock>> encodeOf =
+        (index, fields) -> fieldRef -> {
+          CodeBlock encoded = tagged
+              ? CodeBlock.of("$N.put((byte) $L)", buffer, index)
+              : CodeBlock.of("$N", buffer);
+          for (CodecField field : fields) {
+            encoded = codecs.get(field).encode.apply(encoded, fieldRef.apply(field.name));
+          }
+          return encoded;
+        };
+
+    final Function<CodecField, CodeBlock> decodeField = field -> codecs.get(field).decode.apply(CodeBlock.of("$N",
+        buffer));
+
+    MethodSpec.Builder encodedSize = MethodSpec.methodBuilder(memberNames.get(ENCODED_SIZE))
+        .addJavadoc("Number of bytes written by {@code $N}.\n", memberNames.get(ENCODE))
+        .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
+        .addTypeVariables(typeVariables)
+        .addParameter(adtTypeName, value)
+        .returns(TypeName.INT);
+
+    MethodSpec.Builder encode = MethodSpec.methodBuilder(memberNames.get(ENCODE))
+        .addJavadoc("Writes $N at the current position of $N, that must have {@code $N($N)} remaining bytes.\n",
+            value, buffer, memberNames.get(ENCODED_SIZE), value)
+        .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
+        .addTypeVariables(typeVariables)
+        .addParameter(adtTypeName, value)
+        .addParameter(ByteBuffer.class, buffer)
+        .returns(ByteBuffer.class);
+
+    MethodSpec.Builder decode = MethodSpec.methodBuilder(memberNames.get(DECODE))
+        .addJavadoc("Reads a value written by {@code $N} at the current position of $N.\n", memberNames.get(ENCODE),
+            buffer)
+        .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
+        .addTypeVariables(typeVariables)
+        .addParameter(ByteBuffer.class, buffer)
+        .returns(adtTypeName);
+
+    if (tailRecursive) {
+      final var size = nameAllocator.newName("_size");
+      final var next = nameAllocator.newName("_next");
+      final var result = nameAllocator.newName("_result");
+      final var pending = nameAllocator.newName("_pending");
+      final var node = nameAllocator.newName("_node");
+      final Function<CodecCase, Function<String, CodeBlock>> nextOf = codecCase -> fieldRef -> tail.apply(codecCase)
+          .map(field -> fieldRef.apply(field.name))
+          .orElse(CodeBlock.of("null"));
+
+      encodedSize.addStatement("int[] $N = { 0 }", size)
+          .addStatement("$T $N = $N", adtTypeName, next, value)
+          .beginControlFlow("while ($N != null)", next)
+          .addStatement("$N = $L", next, matchCases.apply(next, (index, fieldRef) -> new CaseCode(
+              CodeBlock.of("$N[0] += $L;\n", size, sizeOf.apply(headFields.apply(cases.get(index)), fieldRef)),
+              nextOf.apply(cases.get(index)).apply(fieldRef))))
+          .endControlFlow()
+          .addStatement("return $N[0]", size);
+
+      encode.addStatement("$T $N = $N", adtTypeName, next, value)
+          .beginControlFlow("while ($N != null)", next)
+          .addStatement("$N = $L", next, matchCases.apply(next, (index, fieldRef) -> new CaseCode(
+              CodeBlock.of("$L;\n", encodeOf.apply(index, headFields.apply(cases.get(index))).apply(fieldRef)),
+              nextOf.apply(cases.get(index)).apply(fieldRef))))
+          .endControlFlow()
+          .addStatement("return $N", buffer);
+
+      // constructors with a tail are pushed (tag and other fields) until a constructor without one is read, then
+      // built from the innermost one.
+      decode.addAnnotation(AnnotationSpec.builder(SuppressWarnings.class).addMember("value", "$S", "unchecked").build())
+          .addStatement("$T<Object[]> $N = new $T<>()", ArrayDeque.class, pending, ArrayDeque.class)
+          .addStatement("$T $N", adtTypeName, result)
+          .addCode("decoding:\n")
+          .beginControlFlow("while (true)")
+          .addStatement("int tag = $N.get() & 0xFF", buffer)
+          .beginControlFlow("switch (tag)");
+      for (int i = 0; i < cases.size(); i++) {
+        CodecCase codecCase = cases.get(i);
+        CodeBlock.Builder caseCode = CodeBlock.builder().indent();
+        if (tail.apply(codecCase).isPresent()) {
+          caseCode.addStatement("$N.push(new Object[] { $L })", pending, CodeBlock.join(Stream.concat(
+              Stream.of(CodeBlock.of("$L", i)), headFields.apply(codecCase).stream().map(decodeField))
+              .collect(Collectors.toList()), ", "))
+              .addStatement("break");
+        } else {
+          caseCode.addStatement("$N = $L", result, codecCase.construct.apply(codecCase.fields
+              .stream()
+              .map(decodeField)
+              .collect(CodeBlock.joining(", "))))
+              .addStatement("break decoding");
+        }
+        decode.addCode("case $L:\n", i).addCode(caseCode.unindent().build());
+      }
+      decode.addCode("default:\n")
+          .addCode(CodeBlock.builder()
+              .indent()
+              .addStatement("throw new $T($S + tag)", IllegalArgumentException.class,
+                  "Unknown " + adt.typeConstructor().typeElement().getSimpleName() + " tag: ")
+              .unindent()
+              .build())
+          .endControlFlow()
+          .endControlFlow()
+          .beginControlFlow("while (!$N.isEmpty())", pending)
+          .addStatement("Object[] $N = $N.pop()", node, pending)
+          .beginControlFlow("switch ((int) $N[0])", node);
+      for (int i = 0; i < cases.size(); i++) {
+        CodecCase codecCase = cases.get(i);
+        if (tail.apply(codecCase).isPresent()) {
+          List<CodecField> fields = headFields.apply(codecCase);
+          List<CodeBlock> arguments = new ArrayList<>();
+          for (int f = 0; f < fields.size(); f++) {
+            arguments.add(CodeBlock.of("($T) $N[$L]", TypeName.get(fields.get(f).type), node, f + 1));
+          }
+          arguments.add(CodeBlock.of("$N", result));
+          decode.addCode("case $L:\n", i)
+              .addCode(CodeBlock.builder()
+                  .indent()
+                  .addStatement("$N = $L", result, codecCase.construct.apply(CodeBlock.join(arguments, ", ")))
+                  .addStatement("break")
+                  .unindent()
+                  .build());
+        }
+      }
+      decode.endControlFlow().endControlFlow().addStatement("return $N", result);
+    } else {
+      encodedSize.addStatement("return $L", matchCases.apply(value, (index, fieldRef) -> new CaseCode(
+          CodeBlock.of(""), sizeOf.apply(cases.get(index).fields, fieldRef))));
+
+      encode.addStatement("return $L", matchCases.apply(value, (index, fieldRef) -> new CaseCode(CodeBlock.of(""),
+          encodeOf.apply(index, cases.get(index).fields).apply(fieldRef))));
+
+      Function<CodecCase, CodeBlock> decodeCase = codecCase -> CodeBlock.of("return $L;\n",
+          codecCase.construct.apply(codecCase.fields
+              .stream()
+              .map(decodeField)
+              .collect(CodeBlock.joining(", "))));
+
+      if (tagged) {
+        decode.addStatement("int tag = $N.get() & 0xFF", buffer).beginControlFlow("switch (tag)");
+        for (int i = 0; i < cases.size(); i++) {
+          decode.addCode("case $L:\n", i).addCode(CodeBlock.builder().indent().add(decodeCase.apply(cases.get(i)))
+              .unindent().build());
+        }
+        decode.addCode("default:\n")
+            .addCode(CodeBlock.builder()
+                .indent()
+                .addStatement("throw new $T($S + tag)", IllegalArgumentException.class,
+                    "Unknown " + adt.typeConstructor().typeElement().getSimpleName() + " tag: ")
+                .unindent()
+                .build())
+            .endControlFlow();
+      } else {
+        decode.addCode(decodeCase.apply(cases.get(0)));
+      }
+    }
+
+    List<MethodSpec> methods = new ArrayList<>(List.of(encodedSize.build(), encode.build(), decode.build()));
+    if (codecs.values().stream().anyMatch(codec -> codec.usesUtf8)) {
+      methods.addAll(utf8Methods(memberNames));
+    }
+
+    return DeriveResult.result(DerivedCodeSpecs.codeSpec(List.of(), new ArrayList<>(enumValues.values()), methods));
+  }
+
+  private Optional<FieldCodec> fieldCodec(AlgebraicDataType<?> adt, TypeMirror type, NameAllocator memberNames,
+      Map<TypeName, FieldSpec> enumValues) {
+
+    TypeMirror unboxed = type;
+    if (type.getKind() == TypeKind.DECLARED) {
+      try {
+        unboxed = deriveUtils.types().unboxedType(type);
+      } catch (IllegalArgumentException notABoxedType) {
+        unboxed = type;
+      }
+    }
+
+    if (unboxed.getKind().isPrimitive()) {
+      return Optional.of(primitiveCodec((PrimitiveType) unboxed));
+    }
+
+    if (deriveUtils.types().isSameType(type, deriveUtils.elements().getTypeElement(String.class.getName()).asType())) {
+      return Optional.of(new FieldCodec(0, v -> CodeBlock.of("4 + $N($L)", memberNames.get(UTF8_LENGTH), v),
+          (b, v) -> CodeBlock.of("$N($L, $L)", memberNames.get(PUT_UTF8), b, v),
+          b -> CodeBlock.of("$N($L)", memberNames.get(GET_UTF8), b), true));
+    }
+
+    Optional<TypeElement> typeElement = deriveUtils.asTypeElement(type);
+
+    if (typeElement.filter(te -> te.getKind() == ElementKind.ENUM).isPresent()) {
+      TypeName enumType = TypeName.get(deriveUtils.types().erasure(type));
+      FieldSpec values = enumValues.computeIfAbsent(enumType, et -> FieldSpec
+          .builder(ArrayTypeName.of(et), memberNames.newName(Utils.uncapitalize(typeElement.get().getSimpleName())
+              + "Values"), Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL)
+          .initializer("$T.values()", et)
+          .build());
+      return Optional.of(new FieldCodec(4, v -> CodeBlock.of("4"), (b, v) -> CodeBlock.of("$L.putInt($L.ordinal())", b,
+          v), b -> CodeBlock.of("$N[$L.getInt()]", values, b), false));
+    }
+
+    if (typeElement.filter(te -> te.equals(adt.typeConstructor().typeElement())).isPresent()) {
+      return Optional.of(new FieldCodec(0, v -> CodeBlock.of("$N($L)", memberNames.get(ENCODED_SIZE), v),
+          (b, v) -> CodeBlock.of("$N($L, $L)", memberNames.get(ENCODE), v, b),
+          b -> CodeBlock.of("$N($L)", memberNames.get(DECODE), b), false));
+    }
+
+    return typeElement.flatMap(deriveUtils::findDeriveConfig)
+        .filter(deriveConfig -> deriveConfig.makes().contains(Make.binaryCodec))
+        .map(deriveConfig -> deriveConfig.targetClass().className())
+        .map(codecClass -> new FieldCodec(0, v -> CodeBlock.of("$T.$N($L)", codecClass, ENCODED_SIZE, v),
+            (b, v) -> CodeBlock.of("$T.$N($L, $L)", codecClass, ENCODE, v, b),
+            b -> CodeBlock.of("$T.$N($L)", codecClass, DECODE, b), false));
+  }
+
+  private static FieldCodec primitiveCodec(PrimitiveType type) {
+    switch (type.getKind()) {
+      case BOOLEAN:
+        return new FieldCodec(1, v -> CodeBlock.of("1"), (b, v) -> CodeBlock.of("$L.put((byte) ($L ? 1 : 0))", b, v),
+            b -> CodeBlock.of("($L.get() != 0)", b), false);
+      case BYTE:
+        return primitiveCodec(1, "");
+      case SHORT:
+        return primitiveCodec(2, "Short");
+      case CHAR:
+        return primitiveCodec(2, "Char");
+      case INT:
+        return primitiveCodec(4, "Int");
+      case FLOAT:
+        return primitiveCodec(4, "Float");
+      case LONG:
+        return primitiveCodec(8, "Long");
+      case DOUBLE:
+        return primitiveCodec(8, "Double");
+      default:
+        throw new IllegalArgumentException(type.toString());
+    }
+  }
+
+  private static FieldCodec primitiveCodec(int size, String bufferMethodSuffix) {
+    return new FieldCodec(size, v -> CodeBlock.of("$L", size),
+        (b, v) -> CodeBlock.of("$L.put$L($L)", b, bufferMethodSuffix, v),
+        b -> CodeBlock.of("$L.get$L()", b, bufferMethodSuffix), false);
+  }
+
+  private static List<MethodSpec> utf8Methods(NameAllocator memberNames) {
+    return List.of(MethodSpec.methodBuilder(memberNames.get(UTF8_LENGTH))
+            .addModifiers(Modifier.PRIVATE, Modifier.STATIC)
+            .addParameter(String.class, "s")
+            .returns(TypeName.INT)
+            .addStatement("int length = s.length()")
+            .beginControlFlow("for (int i = 0; i < s.length(); i++)")
+            .addStatement("char c = s.charAt(i)")
+            .beginControlFlow("if (c >= 0x800)")
+            .beginControlFlow("if (Character.isHighSurrogate(c) && i + 1 < s.length() && "
+                + "Character.isLowSurrogate(s.charAt(i + 1)))")
+            .addStatement("length += 2")
+            .addStatement("i++")
+            .nextControlFlow("else if (!Character.isSurrogate(c))")
+            .addStatement("length += 2")
+            .endControlFlow()
+            .nextControlFlow("else if (c >= 0x80)")
+            .addStatement("length += 1")
+            .endControlFlow()
+            .endControlFlow()
+            .addStatement("return length")
+            .build(),
+        MethodSpec.methodBuilder(memberNames.get(PUT_UTF8))
+            .addModifiers(Modifier.PRIVATE, Modifier.STATIC)
+            .addParameter(ByteBuffer.class, "buffer")
+            .addParameter(String.class, "s")
+            .returns(ByteBuffer.class)
+            .addStatement("byte[] bytes = s.getBytes($T.UTF_8)", StandardCharsets.class)
+            .addStatement("return buffer.putInt(bytes.length).put(bytes)")
+            .build(),
+        MethodSpec.methodBuilder(memberNames.get(GET_UTF8))
+            .addModifiers(Modifier.PRIVATE, Modifier.STATIC)
+            .addParameter(ByteBuffer.class, "buffer")
+            .returns(String.class)
+            .addStatement("byte[] bytes = new byte[buffer.getInt()]")
+            .addStatement("buffer.get(bytes)")
+            .addStatement("return new String(bytes, $T.UTF_8)", StandardCharsets.class)
+            .build());
+  }
+
+  private static DeriveResult<DerivedCodeSpec> error(AlgebraicDataType<?> adt, String msg) {
+    return DeriveResult.error(message(msg, onElement(adt.typeConstructor().typeElement())));
+  }
+
+  private static final class CodecField {
+    final String     name;
+    final TypeMirror type;
+
+    CodecField(String name, TypeMirror type) {
+      this.name = name;
+      this.type = type;
+    }
+  }
+
+  private static final class CodecCase {
+    final String                         name;
+    final List<CodecField>               fields;
+    final Function<CodeBlock, CodeBlock> construct;
+
+    CodecCase(String name, List<CodecField> fields, Function<CodeBlock, CodeBlock> construct) {
+      this.name = name;
+      this.fields = fields;
+      this.construct = construct;
+    }
+  }
+
+  /**
+   * Code of a match case: statements (possibly empty) followed by the resulting expression.
+   */
+  private static final class CaseCode {
+    final CodeBlock statements;
+    final CodeBlock result;
+
+    CaseCode(CodeBlock statements, CodeBlock result) {
+      this.statements = statements;
+      this.result = result;
+    }
+
+    CodeBlock lambdaBody() {
+      return statements.isEmpty()
+          ? result
+          : CodeBlock.builder().add("{\n").indent().add(statements).addStatement("return $L", result).unindent()
+              .add("}").build();
+    }
+
+    CodeBlock switchBody() {
+      return statements.isEmpty()
+          ? CodeBlock.of("$L;", result)
+          : CodeBlock.builder().add("{\n").indent().add(statements).addStatement("yield $L", result).unindent()
+              .add("}").build();
+    }
+  }
+
+  private static final class FieldCodec {
+    /**
+     * Size in bytes, or 0 if it depends on the value.
+     */
+    final int                                       fixedSize;
+    final Function<CodeBlock, CodeBlock>            size;
+    final BiFunction<CodeBlock, CodeBlock, CodeBlock> encode;
+    final Function<CodeBlock, CodeBlock>            decode;
+    final boolean                                   usesUtf8;
+
+    FieldCodec(int fixedSize, Function<CodeBlock, CodeBlock> size, BiFunction<CodeBlock, CodeBlock, CodeBlock> encode,
+        Function<CodeBlock, CodeBlock> decode, boolean usesUtf8) {
+      this.fixedSize = fixedSize;
+      this.size = size;
+      this.encode = encode;
+      this.decode = decode;
+      this.usesUtf8 = usesUtf8;
+    }
+  }
+
+}
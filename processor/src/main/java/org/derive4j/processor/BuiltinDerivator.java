@@ -21,7 +21,6 @@ package org.derive4j.processor;
 import org.derive4j.Makes;
 import org.derive4j.processor.api.Derivator;
 import org.derive4j.processor.api.DeriveResult;
-import org.derive4j.processor.api.DeriveUtils;
 import org.derive4j.processor.api.DerivedCodeSpec;
 import org.derive4j.processor.api.model.AlgebraicDataType;
 import org.derive4j.processor.api.model.AlgebraicDataTypes;
@@ -30,18 +29,26 @@ import static java.util.stream.Collectors.toList;
 import static java.util.stream.Stream.concat;
 import static java.util.stream.Stream.of;
 import static org.derive4j.processor.Utils.traverseResults;
+import static org.derive4j.processor.api.DeriveMessages.message;
 
 final class BuiltinDerivator {
 
   private BuiltinDerivator() {
   }
 
-  static Derivator<AlgebraicDataType.Variant> derivator(DeriveUtils deriveUtils) {
+  static Derivator<AlgebraicDataType.Variant> derivator(DeriveUtilsImpl deriveUtils) {
 
     final Derivator<AlgebraicDataType.Variant> exportDerivator = new ExportDerivator(deriveUtils);
+    final Derivator<AlgebraicDataType.Variant> specializeDerivator = new SpecializeDerivator(deriveUtils);
 
     return adt -> {
 
+      final var runtimeOption = RuntimeLibrary.requiringOption(adt.deriveConfig());
+      if (runtimeOption.isPresent() && !RuntimeLibrary.isAvailable(deriveUtils)) {
+        return DeriveResult.error(message("DeriveOption." + runtimeOption.get() + " requires " + RuntimeLibrary.PACKAGE
+            + " (derive4j-runtime) to be on the compilation classpath"));
+      }
+
       final var makeDerivators = AlgebraicDataTypes.caseOf(adt)
           .adt_(Makes.cases()
               .<Derivator<? extends AlgebraicDataType.Variant>>lambdaVisitor_(new MapperDerivator(deriveUtils))
@@ -52,18 +59,44 @@ final class BuiltinDerivator {
               .getters_(new GettersDerivator(deriveUtils))
               .modifiers_(new ModifiersDerivator(deriveUtils))
               .catamorphism_(new CataDerivator(deriveUtils))
-              .factory_(new FactoryDerivator(deriveUtils)))
+              .factory_(new FactoryDerivator(deriveUtils))
+              .constructorIndex_(new ConstructorIndexDerivator(deriveUtils))
+              .binaryCodec_(new BinaryCodecDerivator(deriveUtils))
+              .flyweight_(new FlyweightDerivator(deriveUtils))
+              .columnar_(new ColumnarDerivator(deriveUtils))
+              .updater_(new UpdaterDerivator(deriveUtils))
+              .comparator_(new ComparatorDerivator(deriveUtils))
+              .fusion_(new FusionDerivator(deriveUtils))
+              .anamorphism_(new AnamorphismDerivator(deriveUtils))
+              .spliterator_(new SpliteratorDerivator(deriveUtils))
+              .linearFold_(new LinearFoldDerivator(deriveUtils))
+              .parallelCatamorphism_(new ParallelCataDerivator(deriveUtils))
+              .memoizedCatamorphism_(new MemoCataDerivator(deriveUtils))
+              .asyncCatamorphism_(new AsyncCataDerivator(deriveUtils))
+              .batchMatching_(new BatchMatchingDerivator(deriveUtils)))
 
           .jadt_(Makes.cases()
-              .<Derivator<? extends AlgebraicDataType.Variant>>constructors_(new StrictConstructorDerivator(deriveUtils))
+              .<Derivator<? extends AlgebraicDataType.Variant>>lambdaVisitor_(new JMapperDerivator(deriveUtils))
+              .constructors_(new StrictConstructorDerivator(deriveUtils))
+              // no lazyConstructor: records and sealed hierarchies cannot be subclassed by a lazy implementation.
+              .casesMatching_(new JPatternMatchingDerivator(deriveUtils, PatternMatchingDerivator.MatchingKind.Cases))
+              .caseOfMatching_(new JPatternMatchingDerivator(deriveUtils, PatternMatchingDerivator.MatchingKind.CaseOf))
               .getters_(new GettersDerivator(deriveUtils))
               .modifiers_(new ModifiersDerivator(deriveUtils))
+              .catamorphism_(new JCataDerivator(deriveUtils))
+              .constructorIndex_(new ConstructorIndexDerivator(deriveUtils))
+              .binaryCodec_(new BinaryCodecDerivator(deriveUtils))
+              .flyweight_(new FlyweightDerivator(deriveUtils))
+              .columnar_(new ColumnarDerivator(deriveUtils))
+              .updater_(new UpdaterDerivator(deriveUtils))
+              .comparator_(new ComparatorDerivator(deriveUtils))
               .otherwise_(__ -> DeriveResult.result(DerivedCodeSpec.none())))
 
           .andThen(BuiltinDerivator::invariant);
 
       return traverseResults(
-          concat(of(exportDerivator), adt.deriveConfig().makes().stream().map(makeDerivators)).map(d -> d.derive(adt))
+          concat(of(exportDerivator, specializeDerivator), adt.deriveConfig().makes().stream().map(makeDerivators))
+              .map(d -> d.derive(adt))
               .collect(toList()))
           .map(codeSpecList -> codeSpecList.stream().reduce(DerivedCodeSpec.none(), DerivedCodeSpec::append));
     };
@@ -36,6 +36,7 @@ import javax.lang.model.element.TypeElement;
 import javax.lang.model.element.VariableElement;
 import javax.lang.model.type.DeclaredType;
 import javax.lang.model.type.TypeMirror;
+import org.derive4j.Make;
 import org.derive4j.processor.api.Derivator;
 import org.derive4j.processor.api.DeriveResult;
 import org.derive4j.processor.api.DeriveUtils;
@@ -195,7 +196,7 @@ final class CataDerivator implements Derivator<Drv4j> {
     return result(methodSpec(cataMethod));
   }
 
-  private DeclaredType strictCataType(AlgebraicDataType<Drv4j> adt, DeclaredType acceptedVisitorType) {
+  DeclaredType strictCataType(AlgebraicDataType<Drv4j> adt, DeclaredType acceptedVisitorType) {
     return utils.types().getDeclaredType(utils.asTypeElement(acceptedVisitorType).get(),
         acceptedVisitorType.getTypeArguments()
             .stream()
@@ -278,11 +279,15 @@ final class CataDerivator implements Derivator<Drv4j> {
             matchMethod.returnTypeVariable())))
         .addStatement("$T $L = new $L<>($L, $L)", TypeName.get(visitorType), nameAllocator.get("lazyCata"),
             cataVisitorClassName, nameAllocator.get("strictCata"), nameAllocator.get("delay"))
-        .addStatement("return $1L -> $2L.$3L(() -> $1L.$4L($5L))",
-            nameAllocator.get("adt var"),
-            nameAllocator.get("delay"),
-            f1.sam().getSimpleName(), matchMethod.element().getSimpleName(),
-            nameAllocator.get("lazyCata"))
+        .addStatement("$L", adt.deriveConfig().makes().contains(Make.fusion)
+            ? CodeBlock.of("return $1L -> $1L instanceof $6T ? (($7T) $1L).producer.produce($8L) : $2L.$3L(() -> "
+                + "$1L.$4L($5L))", nameAllocator.get("adt var"), nameAllocator.get("delay"),
+                f1.sam().getSimpleName(), matchMethod.element().getSimpleName(), nameAllocator.get("lazyCata"),
+                FusionDerivator.fusedClassName(adt), FusionDerivator.fusedTypeName(adt),
+                nameAllocator.get("strictCata"))
+            : CodeBlock.of("return $1L -> $2L.$3L(() -> $1L.$4L($5L))", nameAllocator.get("adt var"),
+                nameAllocator.get("delay"), f1.sam().getSimpleName(), matchMethod.element().getSimpleName(),
+                nameAllocator.get("lazyCata")))
         .build();
 
     return DerivedCodeSpec.codeSpec(cataVisitor, cataVisitorFactory);
@@ -0,0 +1,239 @@
+/*
+ * Copyright (c) 2019, Jean-Baptiste Giraudeau <jb@giraudeau.info>
+ *
+ * This file is part of "Derive4J - Annotation Processor".
+ *
+ * "Derive4J - Annotation Processor" is free software: you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * "Derive4J - Annotation Processor" is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with "Derive4J - Annotation Processor".  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.derive4j.processor;
+
+import com.squareup.javapoet.AnnotationSpec;
+import com.squareup.javapoet.ArrayTypeName;
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.CodeBlock;
+import com.squareup.javapoet.FieldSpec;
+import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.NameAllocator;
+import com.squareup.javapoet.ParameterSpec;
+import com.squareup.javapoet.ParameterizedTypeName;
+import com.squareup.javapoet.TypeName;
+import com.squareup.javapoet.TypeSpec;
+import com.squareup.javapoet.TypeVariableName;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.DoubleUnaryOperator;
+import java.util.function.IntUnaryOperator;
+import java.util.function.LongUnaryOperator;
+import java.util.stream.Collectors;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.type.TypeKind;
+import org.derive4j.processor.api.Derivator;
+import org.derive4j.processor.api.DeriveResult;
+import org.derive4j.processor.api.DeriveUtils;
+import org.derive4j.processor.api.DerivedCodeSpec;
+import org.derive4j.processor.api.DerivedCodeSpecs;
+import org.derive4j.processor.api.model.*;
+import org.derive4j.processor.api.model.AlgebraicDataType.Variant;
+import org.derive4j.processor.api.model.AlgebraicDataType.Variant.Drv4j;
+
+import static org.derive4j.processor.api.DeriveMessages.message;
+import static org.derive4j.processor.api.MessageLocalizations.onElement;
+import static org.derive4j.processor.api.model.DeriveVisibilities.caseOf;
+
+/**
+ * Struct-of-arrays container for product types: one array per field.
+ */
+final class ColumnarDerivator implements Derivator<Variant> {
+
+  private static final String COLUMNS = "Columns";
+
+  private final DeriveUtils deriveUtils;
+
+  ColumnarDerivator(DeriveUtils deriveUtils) {
+    this.deriveUtils = deriveUtils;
+  }
+
+  @Override
+  public DeriveResult<DerivedCodeSpec> derive(AlgebraicDataType<Variant> adt) {
+    return AlgebraicDataTypes.caseOf(adt)
+        .adt((deriveConfig, typeConstructor, matchMethod, dataConstruction, fields, eq) -> DataConstructions
+            .caseOf(dataConstruction)
+            .oneConstructor(constructor -> constructor.typeRestrictions().isEmpty()
+                ? DeriveResult.result(columns(Utils.coerce(adt, eq), constructor))
+                : error(adt, "columnar is not supported for constructors with type restrictions (GADT)"))
+            .otherwise(() -> error(adt, "columnar requires a product type (single constructor)")))
+
+        .jadt((deriveConfig, typeConstructor, jDataConstruction, fields, eq) -> error(adt,
+            "columnar is not supported for records: annotate a single constructor type with @Data instead"));
+  }
+
+  private DerivedCodeSpec columns(AlgebraicDataType<Drv4j> adt, DataConstructor constructor) {
+
+    final var typeConstructor = adt.typeConstructor();
+    final var companion = adt.deriveConfig().targetClass().className();
+    final var adtTypeName = TypeName.get(typeConstructor.declaredType());
+    final var typeVariables = typeConstructor.typeVariables()
+        .stream()
+        .map(TypeVariableName::get)
+        .collect(Collectors.toList());
+    final var columnsTypeName = typeVariables.isEmpty()
+        ? companion.nestedClass(COLUMNS)
+        : ParameterizedTypeName.get(companion.nestedClass(COLUMNS), typeVariables.toArray(new TypeName[0]));
+    final var smart = StrictConstructorDerivator.smartConstructor(constructor, adt.deriveConfig());
+    final var setterModifiers = caseOf(adt.deriveConfig().targetClass().visibility()).Smart_(new Modifier[0])
+        .otherwise_(new Modifier[] { Modifier.PUBLIC });
+    final var arguments = constructor.arguments();
+
+    final NameAllocator nameAllocator = new NameAllocator();
+    arguments.forEach(da -> nameAllocator.newName(da.fieldName(), da));
+    final var size = nameAllocator.newName("size");
+    final var initialCapacity = nameAllocator.newName("initialCapacity");
+    final var capacity = nameAllocator.newName("capacity");
+    final var index = nameAllocator.newName("index");
+    final var element = nameAllocator.newName("element");
+
+    TypeSpec.Builder columns = TypeSpec.classBuilder(COLUMNS)
+        .addJavadoc("A growable columnar container of {@link $T}: one array per field.\n",
+            ClassName.get(typeConstructor.typeElement()))
+        .addModifiers(Modifier.PUBLIC, Modifier.STATIC, Modifier.FINAL)
+        .addTypeVariables(typeVariables)
+        .addField(TypeName.INT, size, Modifier.PRIVATE);
+
+    MethodSpec.Builder init = MethodSpec.constructorBuilder()
+        .addModifiers(Modifier.PUBLIC)
+        .addParameter(TypeName.INT, initialCapacity);
+    MethodSpec.Builder grow = MethodSpec.methodBuilder("grow")
+        .addModifiers(Modifier.PRIVATE)
+        .addStatement("int $N = Math.max(1, $N * 2)", capacity, size);
+    // field-wise add bypasses the smart constructor, so that it is not public under Smart visibility.
+    MethodSpec.Builder add = MethodSpec.methodBuilder("add")
+        .addModifiers(setterModifiers)
+        .returns(columnsTypeName)
+        .addParameters(arguments.stream()
+            .map(da -> ParameterSpec.builder(TypeName.get(da.type()), nameAllocator.get(da)).build())
+            .collect(Collectors.toList()));
+
+    if (!arguments.isEmpty()) {
+      add.beginControlFlow("if (this.$N == this.$N.length)", size, arguments.get(0).fieldName())
+          .addStatement("grow()")
+          .endControlFlow();
+    }
+
+    for (DataArgument da : arguments) {
+      final var primitive = da.type().getKind().isPrimitive();
+      final var columnType = primitive
+          ? ArrayTypeName.of(TypeName.get(da.type()))
+          : ArrayTypeName.of(Object.class);
+      final var capitalized = Utils.capitalize(da.fieldName());
+
+      columns.addField(FieldSpec.builder(columnType, da.fieldName(), Modifier.PRIVATE).build());
+      init.addStatement("this.$N = new $T[Math.max(1, $N)]", da.fieldName(),
+          primitive ? TypeName.get(da.type()) : TypeName.OBJECT, initialCapacity);
+      grow.addStatement("this.$1N = $2T.copyOf(this.$1N, $3N)", da.fieldName(), Arrays.class, capacity);
+      add.addStatement("this.$N[this.$N] = $N", da.fieldName(), size, nameAllocator.get(da));
+
+      MethodSpec.Builder getter = MethodSpec.methodBuilder("get" + capitalized)
+          .addModifiers(Modifier.PUBLIC)
+          .addParameter(TypeName.INT, index)
+          .returns(TypeName.get(da.type()));
+      if (primitive) {
+        getter.addStatement("return this.$N[$T.checkIndex($N, this.$N)]", da.fieldName(), Objects.class, index, size);
+      } else {
+        getter
+            .addAnnotation(AnnotationSpec.builder(SuppressWarnings.class).addMember("value", "$S", "unchecked").build())
+            .addStatement("return ($T) this.$N[$T.checkIndex($N, this.$N)]", TypeName.get(da.type()), da.fieldName(),
+                Objects.class, index, size);
+      }
+      columns.addMethod(getter.build());
+
+      columns.addMethod(MethodSpec.methodBuilder("set" + capitalized)
+          .addModifiers(setterModifiers)
+          .addParameter(TypeName.INT, index)
+          .addParameter(TypeName.get(da.type()), nameAllocator.get(da))
+          .addStatement("this.$N[$T.checkIndex($N, this.$N)] = $N", da.fieldName(), Objects.class, index, size,
+              nameAllocator.get(da))
+          .build());
+
+      final var boxedType = TypeName.get(da.type().accept(Utils.asBoxedType, deriveUtils.types()));
+      final var f1 = ClassName.get(deriveUtils.function1Model(adt.deriveConfig().flavour()).samClass());
+      final var f1Apply = deriveUtils.allAbstractMethods(deriveUtils.function1Model(adt.deriveConfig().flavour())
+          .samClass()).get(0).getSimpleName().toString();
+
+      final TypeName modType;
+      final String modApply;
+      if (da.type().getKind() == TypeKind.INT) {
+        modType = ClassName.get(IntUnaryOperator.class);
+        modApply = "applyAsInt";
+      } else if (da.type().getKind() == TypeKind.LONG) {
+        modType = ClassName.get(LongUnaryOperator.class);
+        modApply = "applyAsLong";
+      } else if (da.type().getKind() == TypeKind.DOUBLE) {
+        modType = ClassName.get(DoubleUnaryOperator.class);
+        modApply = "applyAsDouble";
+      } else {
+        modType = ParameterizedTypeName.get(f1, boxedType, boxedType);
+        modApply = f1Apply;
+      }
+
+      final var mod = nameAllocator.clone().newName(da.fieldName() + "Mod");
+      columns.addMethod(MethodSpec.methodBuilder("mod" + capitalized)
+          .addJavadoc("Updates in place the $N of the element at $N.\n", da.fieldName(), index)
+          .addModifiers(setterModifiers)
+          .addParameter(TypeName.INT, index)
+          .addParameter(modType, mod)
+          .addStatement("set$1L($2N, $3N.$4L(get$1L($2N)))", capitalized, index, mod, modApply)
+          .build());
+    }
+
+    columns.addMethod(MethodSpec.methodBuilder("size")
+        .addModifiers(Modifier.PUBLIC)
+        .returns(TypeName.INT)
+        .addStatement("return this.$N", size)
+        .build())
+        .addMethod(MethodSpec.constructorBuilder()
+            .addModifiers(Modifier.PUBLIC)
+            .addStatement("this(16)")
+            .build())
+        .addMethod(init.build())
+        .addMethod(add.addStatement("this.$N++", size).addStatement("return this").build())
+        .addMethod(MethodSpec.methodBuilder("add")
+            .addModifiers(Modifier.PUBLIC)
+            .addParameter(adtTypeName, element)
+            .returns(columnsTypeName)
+            .addStatement("return $L", Utils.matchWithLambdas(adt, CodeBlock.of("$N", element),
+                dc -> CodeBlock.of("add($L)", Utils.asArgumentsString(dc.arguments()))))
+            .build())
+        .addMethod(MethodSpec.methodBuilder("get")
+            .addJavadoc("Materializes the element at $N.\n", index)
+            .addModifiers(Modifier.PUBLIC)
+            .addParameter(TypeName.INT, index)
+            .returns(adtTypeName)
+            .addStatement("return $T.$L$L($L)", companion, constructor.name(), smart ? "0" : "", arguments.stream()
+                .map(da -> CodeBlock.of("get$L($N)", Utils.capitalize(da.fieldName()), index))
+                .collect(CodeBlock.joining(", ")))
+            .build());
+
+    if (!arguments.isEmpty()) {
+      columns.addMethod(grow.build());
+    }
+
+    return DerivedCodeSpecs.codeSpec(List.of(columns.build()), List.of(), List.of());
+  }
+
+  private static DeriveResult<DerivedCodeSpec> error(AlgebraicDataType<?> adt, String msg) {
+    return DeriveResult.error(message(msg, onElement(adt.typeConstructor().typeElement())));
+  }
+
+}
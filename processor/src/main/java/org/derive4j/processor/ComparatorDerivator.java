@@ -0,0 +1,491 @@
+/*
+ * Copyright (c) 2019, Jean-Baptiste Giraudeau <jb@giraudeau.info>
+ *
+ * This file is part of "Derive4J - Annotation Processor".
+ *
+ * "Derive4J - Annotation Processor" is free software: you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * "Derive4J - Annotation Processor" is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with "Derive4J - Annotation Processor".  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.derive4j.processor;
+
+import com.squareup.javapoet.AnnotationSpec;
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.CodeBlock;
+import com.squareup.javapoet.FieldSpec;
+import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.NameAllocator;
+import com.squareup.javapoet.ParameterSpec;
+import com.squareup.javapoet.ParameterizedTypeName;
+import com.squareup.javapoet.TypeName;
+import com.squareup.javapoet.TypeSpec;
+import com.squareup.javapoet.TypeVariableName;
+import com.squareup.javapoet.WildcardTypeName;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.PrimitiveType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.type.TypeVariable;
+import javax.lang.model.util.SimpleTypeVisitor8;
+import org.derive4j.Make;
+import org.derive4j.processor.api.Derivator;
+import org.derive4j.processor.api.DeriveResult;
+import org.derive4j.processor.api.DerivedCodeSpec;
+import org.derive4j.processor.api.DerivedCodeSpecs;
+import org.derive4j.processor.api.model.AlgebraicDataType;
+import org.derive4j.processor.api.model.AlgebraicDataType.Variant;
+import org.derive4j.processor.api.model.AlgebraicDataType.Variant.Drv4j;
+import org.derive4j.processor.api.model.AlgebraicDataTypes;
+import org.derive4j.processor.api.model.DataArgument;
+import org.derive4j.processor.api.model.DataConstructor;
+
+import static org.derive4j.processor.Utils.uncapitalize;
+import static org.derive4j.processor.api.DeriveMessages.message;
+import static org.derive4j.processor.api.MessageLocalizations.onElement;
+
+/**
+ * A JDK {@link Comparator}: values are ordered by constructor index, then field by field (primitive fields without
+ * boxing, type variables and nested data types through their comparators, other fields through
+ * {@link Comparable}). Self-recursive fields are compared from an explicit stack. An abstract {@code compareTo} is
+ * implemented through the comparator by the constructor classes.
+ */
+final class ComparatorDerivator implements Derivator<Variant> {
+
+  private static final String COMPARATOR_CLASS_NAME = "DerivedComparator";
+
+  private static final String COMPARISON_CLASS_NAME = "Comparison";
+
+  private static final String OTHER_SUFFIX = "_";
+
+  ComparatorDerivator(DeriveUtilsImpl deriveUtils) {
+    this.deriveUtils = deriveUtils;
+    strictDerivator = new StrictConstructorDerivator(deriveUtils);
+  }
+
+  private final DeriveUtilsImpl deriveUtils;
+
+  private final StrictConstructorDerivator strictDerivator;
+
+  @Override
+  public DeriveResult<DerivedCodeSpec> derive(AlgebraicDataType<Variant> adt) {
+
+    return AlgebraicDataTypes.caseOf(adt)
+        .adt((deriveConfig, typeConstructor, matchMethod, dataConstruction, fields, eq) -> dataConstruction
+            .constructors()
+            .stream()
+            .anyMatch(dc -> !dc.typeRestrictions().isEmpty())
+            ? error(adt, "comparator is not supported for constructors with type restrictions (GADT)")
+            : !typeConstructor.typeVariables().isEmpty()
+                && strictDerivator.findAbstractCompareTo(typeConstructor.typeElement()).isPresent()
+                ? error(adt, "compareTo can only be derived for data types without type variables: "
+                    + "use the derived comparator instead")
+                : comparator(Utils.coerce(adt, eq)))
+
+        .jadt((deriveConfig, typeConstructor, jDataConstruction, fields, eq) -> error(adt,
+            "comparator is not supported for records"));
+  }
+
+  private DeriveResult<DerivedCodeSpec> comparator(AlgebraicDataType<Drv4j> adt) {
+
+    final var typeConstructor = adt.typeConstructor();
+    final var typeVariables = typeConstructor.typeVariables()
+        .stream()
+        .map(TypeVariableName::get)
+        .collect(Collectors.toList());
+    final var adtTypeName = TypeName.get(typeConstructor.declaredType());
+    final var comparatorTypeName = ParameterizedTypeName.get(ClassName.get(Comparator.class), adtTypeName);
+    final var targetClass = adt.deriveConfig().targetClass().className();
+    final var comparatorClass = withTypeVariables(targetClass.nestedClass(COMPARATOR_CLASS_NAME), typeVariables);
+
+    final NameAllocator comparatorNames = new NameAllocator();
+    final Map<String, String> typeVariableComparators = new LinkedHashMap<>();
+    typeConstructor.typeVariables()
+        .forEach(tv -> typeVariableComparators.put(tv.toString(),
+            comparatorNames.newName(uncapitalize(tv.toString()) + "Comparator")));
+
+    final Map<String, CodeBlock> fieldComparatorInitializers = new LinkedHashMap<>();
+    final Map<String, String> fieldComparators = new LinkedHashMap<>();
+    final List<String> unsupportedFields = new ArrayList<>();
+    for (DataArgument da : adt.fields()) {
+      if (isSelf(adt, da)) {
+        continue;
+      }
+      if (isErasedSelf(adt, da)) {
+        unsupportedFields.add(da.fieldName() + " (polymorphic recursion)");
+      } else if (!isPrimitiveLike(da.type()) && !isComparable(da.type())) {
+        final Optional<CodeBlock> comparator = comparatorOf(adt, da.type(), typeVariableComparators);
+        if (comparator.isPresent()) {
+          fieldComparatorInitializers.put(da.fieldName(), comparator.get());
+          fieldComparators.put(da.fieldName(), comparatorNames.newName(da.fieldName() + "Comparator"));
+        } else {
+          unsupportedFields.add(da.fieldName());
+        }
+      }
+    }
+    if (!unsupportedFields.isEmpty()) {
+      return error(adt, "no ordering available for field(s) " + String.join(", ", unsupportedFields)
+          + ": fields must be primitives, type variables, Comparable or data types deriving a comparator");
+    }
+
+    final boolean recursive = AlgebraicDataTypes.getDataConstruction_(adt)
+        .constructors()
+        .stream()
+        .anyMatch(dc -> dc.arguments().stream().anyMatch(da -> isSelf(adt, da)));
+
+    final NameAllocator localNames = new NameAllocator();
+    adt.fields().forEach(da -> {
+      localNames.newName(da.fieldName());
+      localNames.newName(da.fieldName() + OTHER_SUFFIX);
+    });
+    final var left = localNames.newName("left");
+    final var right = localNames.newName("right");
+    final var from = localNames.newName("from");
+    final var compared = localNames.newName("c");
+
+    final Fields fieldsOrdering = new Fields(adt, typeVariableComparators, fieldComparators, compared);
+
+    final TypeSpec.Builder comparatorSpec = TypeSpec.classBuilder(COMPARATOR_CLASS_NAME)
+        .addModifiers(Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL)
+        .addTypeVariables(typeVariables)
+        .addSuperinterface(comparatorTypeName);
+    final MethodSpec.Builder comparatorConstructor = MethodSpec.constructorBuilder();
+    typeConstructor.typeVariables().forEach(tv -> {
+      final var name = typeVariableComparators.get(tv.toString());
+      final var type = ParameterizedTypeName.get(ClassName.get(Comparator.class),
+          WildcardTypeName.supertypeOf(TypeName.get(tv)));
+      comparatorSpec.addField(type, name, Modifier.PRIVATE, Modifier.FINAL);
+      comparatorConstructor.addParameter(type, name).addStatement("this.$1N = $1N", name);
+    });
+    fieldComparators.forEach((fieldName, name) -> {
+      final var fieldType = adt.fields()
+          .stream()
+          .filter(da -> da.fieldName().equals(fieldName))
+          .findFirst()
+          .get()
+          .type();
+      comparatorSpec.addField(ParameterizedTypeName.get(ClassName.get(Comparator.class),
+          WildcardTypeName.supertypeOf(TypeName.get(fieldType))), name, Modifier.PRIVATE, Modifier.FINAL);
+      comparatorConstructor.addStatement("this.$N = $L", name, fieldComparatorInitializers.get(fieldName));
+    });
+
+    final MethodSpec.Builder compare = MethodSpec.methodBuilder("compare")
+        .addAnnotation(Override.class)
+        .addModifiers(Modifier.PUBLIC)
+        .addParameter(adtTypeName, "left")
+        .addParameter(adtTypeName, "right")
+        .returns(TypeName.INT);
+    if (recursive) {
+      compare.addStatement("return left == right ? 0 : new $T$L(this).run(left, right)",
+          targetClass.nestedClass(COMPARISON_CLASS_NAME), typeVariables.isEmpty() ? "" : "<>");
+    } else {
+      compare.beginControlFlow("if (left == right)")
+          .addStatement("return 0")
+          .endControlFlow()
+          .addStatement("return $L", Utils.matchWithLambdas(adt, CodeBlock.of("left"),
+              dc -> Utils.matchWithLambdas(adt, CodeBlock.of("right"), OTHER_SUFFIX,
+                  other -> other.name().equals(dc.name())
+                      ? fieldsOrdering.compare(dc, CodeBlock.of("this"))
+                      : constructorOrder(adt, dc, other))));
+    }
+    comparatorSpec.addMethod(comparatorConstructor.build()).addMethod(compare.build());
+
+    final List<TypeSpec> classes = new ArrayList<>();
+    classes.add(comparatorSpec.build());
+    if (recursive) {
+      classes.add(comparison(adt, typeVariables, comparatorClass, fieldsOrdering, left, right, from));
+    }
+
+    final var comparatorParameters = typeConstructor.typeVariables()
+        .stream()
+        .map(tv -> ParameterSpec.builder(ParameterizedTypeName.get(ClassName.get(Comparator.class),
+            WildcardTypeName.supertypeOf(TypeName.get(tv))), typeVariableComparators.get(tv.toString())).build())
+        .collect(Collectors.toList());
+
+    final MethodSpec.Builder comparatorFactory = MethodSpec.methodBuilder("comparator")
+        .addJavadoc("Orders values by constructor, then field by field.\n")
+        .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
+        .addTypeVariables(typeVariables)
+        .addParameters(comparatorParameters)
+        .returns(comparatorTypeName);
+
+    final List<FieldSpec> fields = new ArrayList<>();
+    if (typeVariables.isEmpty()) {
+      fields.add(FieldSpec.builder(comparatorTypeName, "comparator", Modifier.PRIVATE, Modifier.STATIC,
+          Modifier.FINAL).initializer("new $T()", comparatorClass).build());
+      comparatorFactory.addStatement("return comparator");
+    } else {
+      comparatorFactory.addStatement("return new $T<>($L)", targetClass.nestedClass(COMPARATOR_CLASS_NAME),
+          Utils.joinStringsAsArguments(comparatorParameters.stream().map(p -> p.name)));
+    }
+
+    return DeriveResult.result(DerivedCodeSpecs.codeSpec(classes, fields, List.of(comparatorFactory.build())));
+  }
+
+  /**
+   * Per-comparison state: pairs of values still to compare, with the position of the field (segment) from which
+   * the comparison of their fields resumes.
+   */
+  private TypeSpec comparison(AlgebraicDataType<Drv4j> adt, List<TypeVariableName> typeVariables,
+      TypeName comparatorClass, Fields fieldsOrdering, String left, String right, String from) {
+
+    final var adtTypeName = TypeName.get(adt.typeConstructor().declaredType());
+    final MethodSpec.Builder run = MethodSpec.methodBuilder("run");
+    if (!typeVariables.isEmpty()) {
+      run.addAnnotation(AnnotationSpec.builder(SuppressWarnings.class).addMember("value", "$S", "unchecked").build());
+    }
+
+    return TypeSpec.classBuilder(COMPARISON_CLASS_NAME)
+        .addModifiers(Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL)
+        .addTypeVariables(typeVariables)
+        .addField(comparatorClass, "order", Modifier.PRIVATE, Modifier.FINAL)
+        .addField(FieldSpec.builder(Object[].class, "stack", Modifier.PRIVATE)
+            .initializer("new $T[32]", Object.class)
+            .build())
+        .addField(FieldSpec.builder(int[].class, "positions", Modifier.PRIVATE).initializer("new int[16]").build())
+        .addField(TypeName.INT, "size", Modifier.PRIVATE)
+        .addMethod(MethodSpec.constructorBuilder()
+            .addParameter(comparatorClass, "order")
+            .addStatement("this.order = order")
+            .build())
+        .addMethod(MethodSpec.methodBuilder("push")
+            .addModifiers(Modifier.PRIVATE)
+            .addParameter(Object.class, "left")
+            .addParameter(Object.class, "right")
+            .addParameter(TypeName.INT, "from")
+            .beginControlFlow("if (size == positions.length)")
+            .addStatement("positions = $T.copyOf(positions, size * 2)", Arrays.class)
+            .addStatement("stack = $T.copyOf(stack, size * 4)", Arrays.class)
+            .endControlFlow()
+            .addStatement("stack[2 * size] = left")
+            .addStatement("stack[2 * size + 1] = right")
+            .addStatement("positions[size] = from")
+            .addStatement("size++")
+            .build())
+        .addMethod(run
+            .addParameter(adtTypeName, "left")
+            .addParameter(adtTypeName, "right")
+            .returns(TypeName.INT)
+            .addStatement("push(left, right, 0)")
+            .beginControlFlow("while (size > 0)")
+            .addStatement("size--")
+            .addStatement("$T x = stack[2 * size]", Object.class)
+            .addStatement("$T y = stack[2 * size + 1]", Object.class)
+            .addStatement("stack[2 * size] = null")
+            .addStatement("stack[2 * size + 1] = null")
+            .beginControlFlow("if (x == y)")
+            .addStatement("continue")
+            .endControlFlow()
+            .beginControlFlow("if (x == null || y == null)")
+            .addStatement("return x == null ? -1 : 1")
+            .endControlFlow()
+            .addStatement("int c = step(($1T) x, ($1T) y, positions[size])", adtTypeName)
+            .beginControlFlow("if (c != 0)")
+            .addStatement("return c")
+            .endControlFlow()
+            .endControlFlow()
+            .addStatement("return 0")
+            .build())
+        .addMethod(MethodSpec.methodBuilder("step")
+            .addModifiers(Modifier.PRIVATE)
+            .addParameter(adtTypeName, left)
+            .addParameter(adtTypeName, right)
+            .addParameter(TypeName.INT, from)
+            .returns(TypeName.INT)
+            .addStatement("return $L", Utils.matchWithLambdas(adt, CodeBlock.of("$L", left),
+                dc -> Utils.matchWithLambdas(adt, CodeBlock.of("$L", right), OTHER_SUFFIX,
+                    other -> other.name().equals(dc.name())
+                        ? fieldsOrdering.resumableCompare(dc, CodeBlock.of("this.order"), left, right, from)
+                        : constructorOrder(adt, dc, other))))
+            .build())
+        .build();
+  }
+
+  private static CodeBlock constructorOrder(AlgebraicDataType<Drv4j> adt, DataConstructor left,
+      DataConstructor right) {
+    final var constructors = AlgebraicDataTypes.getDataConstruction_(adt).constructors();
+    return CodeBlock.of("$L", constructors.indexOf(left) < constructors.indexOf(right) ? -1 : 1);
+  }
+
+  /**
+   * Comparison of the fields of two values built with the same constructor, normalized to -1, 0 or 1 so that
+   * boxing through the match methods does not allocate.
+   */
+  private final class Fields {
+    private final AlgebraicDataType<Drv4j> adt;
+    private final Map<String, String> typeVariableComparators;
+    private final Map<String, String> fieldComparators;
+    private final String compared;
+
+    Fields(AlgebraicDataType<Drv4j> adt, Map<String, String> typeVariableComparators,
+        Map<String, String> fieldComparators, String compared) {
+      this.adt = adt;
+      this.typeVariableComparators = typeVariableComparators;
+      this.fieldComparators = fieldComparators;
+      this.compared = compared;
+    }
+
+    CodeBlock compare(DataConstructor constructor, CodeBlock comparators) {
+      if (constructor.arguments().isEmpty()) {
+        return CodeBlock.of("0");
+      }
+      final CodeBlock.Builder body = CodeBlock.builder().add("{\n").indent().addStatement("int $N", compared);
+      constructor.arguments().forEach(da -> body.add(fieldComparison(da, comparators)));
+      return body.addStatement("return 0").unindent().add("}").build();
+    }
+
+    CodeBlock resumableCompare(DataConstructor constructor, CodeBlock comparators, String left, String right,
+        String from) {
+      final List<DataArgument> arguments = constructor.arguments();
+      if (arguments.stream().noneMatch(da -> isSelf(adt, da))) {
+        return compare(constructor, comparators);
+      }
+      final CodeBlock.Builder body = CodeBlock.builder()
+          .add("{\n")
+          .indent()
+          .addStatement("int $N", compared)
+          .beginControlFlow("switch ($N)", from)
+          .add("case 0:\n")
+          .indent();
+      int segment = 0;
+      for (DataArgument da : arguments) {
+        if (isSelf(adt, da)) {
+          segment++;
+          body.addStatement("this.push($N, $N, $L)", left, right, segment)
+              .addStatement("this.push($N, $N, 0)", da.fieldName(), da.fieldName() + OTHER_SUFFIX)
+              .addStatement("return 0")
+              .unindent()
+              .add(segment == arguments.stream().filter(a -> isSelf(adt, a)).count()
+                  ? CodeBlock.of("default:\n")
+                  : CodeBlock.of("case $L:\n", segment))
+              .indent();
+        } else {
+          body.add(fieldComparison(da, comparators));
+        }
+      }
+      return body.addStatement("return 0").unindent().endControlFlow().unindent().add("}").build();
+    }
+
+    private CodeBlock fieldComparison(DataArgument da, CodeBlock comparators) {
+      final var thisField = da.fieldName();
+      final var otherField = da.fieldName() + OTHER_SUFFIX;
+      final CodeBlock comparison = da.type().accept(new SimpleTypeVisitor8<CodeBlock, Void>() {
+
+        @Override
+        public CodeBlock visitPrimitive(PrimitiveType t, Void p) {
+          return CodeBlock.of("$T.compare($N, $N)",
+              deriveUtils.types().boxedClass(t), thisField, otherField);
+        }
+
+        @Override
+        public CodeBlock visitArray(ArrayType t, Void p) {
+          return CodeBlock.of("$T.compare($N, $N)", Arrays.class, thisField, otherField);
+        }
+
+        @Override
+        public CodeBlock visitTypeVariable(TypeVariable t, Void p) {
+          return CodeBlock.of("$L.$N.compare($N, $N)", comparators, typeVariableComparators.get(t.toString()),
+              thisField, otherField);
+        }
+
+        @Override
+        protected CodeBlock defaultAction(TypeMirror e, Void p) {
+          return fieldComparators.containsKey(da.fieldName())
+              ? CodeBlock.of("$L.$N.compare($N, $N)", comparators, fieldComparators.get(da.fieldName()), thisField,
+                  otherField)
+              : CodeBlock.of("$N.compareTo($N)", thisField, otherField);
+        }
+      }, null);
+      return CodeBlock.builder()
+          .beginControlFlow("if (($N = $L) != 0)", compared, comparison)
+          .addStatement("return $N < 0 ? -1 : 1", compared)
+          .endControlFlow()
+          .build();
+    }
+  }
+
+  /**
+   * Expression of a comparator for the given type, from within the constructor of the derived comparator.
+   */
+  private Optional<CodeBlock> comparatorOf(AlgebraicDataType<Drv4j> adt, TypeMirror type,
+      Map<String, String> typeVariableComparators) {
+
+    if (type.getKind() == TypeKind.TYPEVAR) {
+      return Optional.ofNullable(typeVariableComparators.get(type.toString())).map(name -> CodeBlock.of("$N", name));
+    }
+    if (deriveUtils.types().isSameType(type, adt.typeConstructor().declaredType())) {
+      return Optional.of(CodeBlock.of("this"));
+    }
+    final Optional<DeclaredType> declaredType = deriveUtils.asDeclaredType(type);
+    final Optional<CodeBlock> derived = declaredType
+        .flatMap(dt -> deriveUtils.findDeriveConfig((TypeElement) dt.asElement())
+            .filter(config -> config.makes().contains(Make.comparator))
+            .flatMap(config -> {
+              final List<CodeBlock> arguments = new ArrayList<>();
+              for (TypeMirror typeArgument : dt.getTypeArguments()) {
+                final Optional<CodeBlock> argument = comparatorOf(adt, typeArgument, typeVariableComparators);
+                if (!argument.isPresent()) {
+                  return Optional.empty();
+                }
+                arguments.add(argument.get());
+              }
+              return Optional.of(CodeBlock.of("$T.comparator($L)", config.targetClass().className(),
+                  CodeBlock.join(arguments, ", ")));
+            }));
+    if (derived.isPresent()) {
+      return derived;
+    }
+    return isComparable(type)
+        ? Optional.of(CodeBlock.of("$T.naturalOrder()", Comparator.class))
+        : Optional.empty();
+  }
+
+  private boolean isSelf(AlgebraicDataType<Drv4j> adt, DataArgument da) {
+    return deriveUtils.types().isSameType(da.type(), adt.typeConstructor().declaredType());
+  }
+
+  private boolean isErasedSelf(AlgebraicDataType<Drv4j> adt, DataArgument da) {
+    final var types = deriveUtils.types();
+    return types.isSameType(types.erasure(da.type()), types.erasure(adt.typeConstructor().declaredType()));
+  }
+
+  private static boolean isPrimitiveLike(TypeMirror type) {
+    return type.getKind().isPrimitive() || type.getKind() == TypeKind.TYPEVAR
+        || (type.getKind() == TypeKind.ARRAY && ((ArrayType) type).getComponentType().getKind().isPrimitive());
+  }
+
+  private boolean isComparable(TypeMirror type) {
+    final var types = deriveUtils.types();
+    return type.getKind() == TypeKind.DECLARED && types.isAssignable(types.erasure(type),
+        types.erasure(deriveUtils.elements().getTypeElement(Comparable.class.getName()).asType()));
+  }
+
+  private static TypeName withTypeVariables(ClassName className, List<TypeVariableName> typeVariables) {
+    return typeVariables.isEmpty()
+        ? className
+        : ParameterizedTypeName.get(className, typeVariables.toArray(new TypeName[0]));
+  }
+
+  private static DeriveResult<DerivedCodeSpec> error(AlgebraicDataType<Variant> adt, String msg) {
+    return DeriveResult.error(message(msg, onElement(adt.typeConstructor().typeElement())));
+  }
+}
@@ -0,0 +1,339 @@
+/*
+ * Copyright (c) 2019, Jean-Baptiste Giraudeau <jb@giraudeau.info>
+ *
+ * This file is part of "Derive4J - Annotation Processor".
+ *
+ * "Derive4J - Annotation Processor" is free software: you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * "Derive4J - Annotation Processor" is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with "Derive4J - Annotation Processor".  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.derive4j.processor;
+
+import com.squareup.javapoet.AnnotationSpec;
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.CodeBlock;
+import com.squareup.javapoet.FieldSpec;
+import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.NameAllocator;
+import com.squareup.javapoet.ParameterizedTypeName;
+import com.squareup.javapoet.TypeName;
+import com.squareup.javapoet.TypeSpec;
+import com.squareup.javapoet.TypeVariableName;
+import com.squareup.javapoet.WildcardTypeName;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.function.ObjIntConsumer;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.type.TypeVariable;
+import org.derive4j.Make;
+import org.derive4j.processor.api.Derivator;
+import org.derive4j.processor.api.DeriveResult;
+import org.derive4j.processor.api.DeriveUtils;
+import org.derive4j.processor.api.DerivedCodeSpec;
+import org.derive4j.processor.api.DerivedCodeSpecs;
+import org.derive4j.processor.api.model.*;
+import org.derive4j.processor.api.model.AlgebraicDataType.Variant;
+
+import static org.derive4j.processor.api.DeriveResult.result;
+
+final class ConstructorIndexDerivator implements Derivator<Variant> {
+
+  private static final String INDEXED_CONSTRUCTOR = "IndexedConstructor";
+
+  private static final String CONSTRUCTOR_INDEX = "constructorIndex";
+
+  private static final String CONSTRUCTOR_COUNT = "CONSTRUCTOR_COUNT";
+
+  private final DeriveUtils deriveUtils;
+
+  ConstructorIndexDerivator(DeriveUtils deriveUtils) {
+    this.deriveUtils = deriveUtils;
+  }
+
+  /**
+   * Whether the generated constructor classes of the adt implement the {@link #INDEXED_CONSTRUCTOR} interface.
+   */
+  static boolean indexedConstructors(AlgebraicDataType<?> adt) {
+    return adt.deriveConfig().makes().contains(Make.constructorIndex)
+        && adt.deriveConfig().makes().contains(Make.constructors)
+        && AlgebraicDataTypes.getDataConstruction(adt).filter(dc -> dc.constructors().size() > 1).isPresent();
+  }
+
+  static ClassName indexedConstructorInterface(AlgebraicDataType<?> adt) {
+    return adt.deriveConfig().targetClass().className().nestedClass(INDEXED_CONSTRUCTOR);
+  }
+
+  static MethodSpec constructorIndexImpl(CodeBlock index) {
+    return MethodSpec.methodBuilder(CONSTRUCTOR_INDEX)
+        .addAnnotation(Override.class)
+        .addModifiers(Modifier.PUBLIC)
+        .returns(TypeName.INT)
+        .addStatement("return $L", index)
+        .build();
+  }
+
+  @Override
+  public DeriveResult<DerivedCodeSpec> derive(AlgebraicDataType<Variant> adt) {
+    return result(AlgebraicDataTypes.caseOf(adt)
+        .adt((deriveConfig, typeConstructor, matchMethod, dataConstruction, fields, eq) -> DataConstructions
+            .caseOf(dataConstruction)
+            .multipleConstructors(MultipleConstructorsSupport.cases()
+                .visitorDispatch((visitorParam, visitorType, constructors) -> visitorDispatchIndex(
+                    Utils.coerce(adt, eq), visitorType, constructors))
+                .functionsDispatch(constructors -> indexCodeSpec(adt,
+                    constructors.stream().map(DataConstructor::name).collect(Collectors.toList()),
+                    arg -> CodeBlock.of("$L.$L($L)", arg, matchMethod.element().getSimpleName(),
+                        indexLambdas(constructors)))))
+            .otherwise(DerivedCodeSpec::none))
+
+        .jadt((deriveConfig, typeConstructor, jDataConstruction, fields, eq) -> jDataConstruction.constructors()
+            .size() > 1
+                ? indexCodeSpec(adt, jDataConstruction.constructors()
+                    .stream()
+                    .map(rec -> JRecords.getElement(rec).getSimpleName().toString())
+                    .collect(Collectors.toList()), arg -> switchIndex(jDataConstruction.constructors(), arg))
+                : DerivedCodeSpec.none()));
+  }
+
+  private DerivedCodeSpec visitorDispatchIndex(AlgebraicDataType<Variant.Drv4j> adt, DeclaredType visitorType,
+      List<DataConstructor> constructors) {
+
+    final var matchMethod = AlgebraicDataTypes.getMatchMethod_(adt);
+
+    Function<TypeVariable, Optional<TypeMirror>> returnTypeArg = tv -> deriveUtils.types().isSameType(tv,
+        matchMethod.returnTypeVariable())
+            ? Optional.of(deriveUtils.elements().getTypeElement(Integer.class.getName()).asType())
+            : Optional.empty();
+
+    Function<TypeVariable, Optional<TypeMirror>> otherTypeArgs = tv -> Optional
+        .of(deriveUtils.elements().getTypeElement(Object.class.getName()).asType());
+
+    FieldSpec indexVisitor = FieldSpec
+        .builder(TypeName.get(deriveUtils.resolve(deriveUtils.resolve(visitorType, returnTypeArg), otherTypeArgs)),
+            CONSTRUCTOR_INDEX + "Visitor")
+        .addModifiers(Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL)
+        .initializer("$T.$L($L)", adt.deriveConfig().targetClass().className(),
+            MapperDerivator.visitorLambdaFactoryName(adt), indexLambdas(constructors))
+        .build();
+
+    Function<String, CodeBlock> matchIndex = adt.typeConstructor().typeVariables().isEmpty()
+        ? arg -> CodeBlock.of("$L.$L($N)", arg, matchMethod.element().getSimpleName(), indexVisitor)
+        : arg -> CodeBlock.of("($T) $L.$L(($T) $N)", Integer.class, arg, matchMethod.element().getSimpleName(),
+            TypeName.get(deriveUtils.types().erasure(visitorType)), indexVisitor);
+
+    return DerivedCodeSpecs.codeSpec(List.of(), List.of(indexVisitor), List.of())
+        .append(indexCodeSpec(adt, constructors.stream().map(DataConstructor::name).collect(Collectors.toList()),
+            matchIndex));
+  }
+
+  private DerivedCodeSpec indexCodeSpec(AlgebraicDataType<?> adt, List<String> constructorNames,
+      Function<String, CodeBlock> indexOf) {
+
+    final var arg = Utils.uncapitalize(adt.typeConstructor().typeElement().getSimpleName());
+    final var indexed = indexedConstructors(adt);
+
+    MethodSpec.Builder constructorIndex = MethodSpec.methodBuilder(CONSTRUCTOR_INDEX)
+        .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
+        .addTypeVariables(
+            adt.typeConstructor().typeVariables().stream().map(TypeVariableName::get).collect(Collectors.toList()))
+        .addParameter(TypeName.get(adt.typeConstructor().declaredType()), arg)
+        .returns(TypeName.INT);
+
+    if (!adt.typeConstructor().typeVariables().isEmpty() && AlgebraicDataTypes.getDataConstruction(adt)
+        .map(DataConstruction::isVisitorDispatch)
+        .orElse(false)) {
+      constructorIndex.addAnnotation(AnnotationSpec.builder(SuppressWarnings.class)
+          .addMember("value", "{$S, $S}", "unchecked", "rawtypes")
+          .build());
+    }
+
+    constructorIndex.addStatement("$L", indexed
+        ? CodeBlock.of("return $1L instanceof $2T ? (($2T) $1L).$3L() : $4L", arg, indexedConstructorInterface(adt),
+            CONSTRUCTOR_INDEX, indexOf.apply(arg))
+        : CodeBlock.of("return $L", indexOf.apply(arg)));
+
+    List<FieldSpec> constants = IntStream.range(0, constructorNames.size())
+        .mapToObj(i -> FieldSpec.builder(TypeName.INT, constantName(constructorNames.get(i)) + "_INDEX",
+            Modifier.PUBLIC, Modifier.STATIC, Modifier.FINAL).initializer("$L", i).build())
+        .collect(Collectors.toList());
+    constants.add(FieldSpec.builder(TypeName.INT, CONSTRUCTOR_COUNT, Modifier.PUBLIC, Modifier.STATIC, Modifier.FINAL)
+        .initializer("$L", constructorNames.size())
+        .build());
+
+    List<TypeSpec> types = new ArrayList<>();
+    types.add(constructorMap(adt, arg));
+    if (indexed) {
+      types.add(TypeSpec.interfaceBuilder(INDEXED_CONSTRUCTOR)
+          .addModifiers(Modifier.PRIVATE)
+          .addMethod(MethodSpec.methodBuilder(CONSTRUCTOR_INDEX)
+              .addModifiers(Modifier.PUBLIC, Modifier.ABSTRACT)
+              .returns(TypeName.INT)
+              .build())
+          .build());
+    }
+
+    return DerivedCodeSpecs.codeSpec(types, constants, List.of(constructorIndex.build()));
+  }
+
+  private static TypeSpec constructorMap(AlgebraicDataType<?> adt, String arg) {
+
+    NameAllocator nameAllocator = new NameAllocator();
+    adt.typeConstructor().typeVariables().forEach(tv -> nameAllocator.newName(tv.toString()));
+    TypeVariableName valueType = TypeVariableName.get(nameAllocator.newName("V"));
+    List<TypeVariableName> adtTypeVariables = adt.typeConstructor()
+        .typeVariables()
+        .stream()
+        .map(TypeVariableName::get)
+        .collect(Collectors.toList());
+    TypeName adtType = TypeName.get(adt.typeConstructor().declaredType());
+    AnnotationSpec unchecked = AnnotationSpec.builder(SuppressWarnings.class).addMember("value", "$S", "unchecked")
+        .build();
+
+    return TypeSpec.classBuilder("ConstructorMap")
+        .addJavadoc("A map keyed by the constructors of $T, backed by an array indexed by constructor index,\n"
+            + "in the manner of an {@link $T}. Values must not be null.\n",
+            ClassName.get(adt.typeConstructor().typeElement()), EnumMap.class)
+        .addModifiers(Modifier.PUBLIC, Modifier.STATIC, Modifier.FINAL)
+        .addTypeVariable(valueType)
+        .addField(FieldSpec.builder(Object[].class, "values", Modifier.PRIVATE, Modifier.FINAL)
+            .initializer("new Object[$L]", CONSTRUCTOR_COUNT)
+            .build())
+        .addField(TypeName.INT, "size", Modifier.PRIVATE)
+        .addMethod(MethodSpec.methodBuilder("get")
+            .addAnnotation(unchecked)
+            .addModifiers(Modifier.PUBLIC)
+            .addParameter(TypeName.INT, CONSTRUCTOR_INDEX)
+            .returns(valueType)
+            .addStatement("return ($T) values[$L]", valueType, CONSTRUCTOR_INDEX)
+            .build())
+        .addMethod(MethodSpec.methodBuilder("get")
+            .addModifiers(Modifier.PUBLIC)
+            .addTypeVariables(adtTypeVariables)
+            .addParameter(adtType, arg)
+            .returns(valueType)
+            .addStatement("return get($L($L))", CONSTRUCTOR_INDEX, arg)
+            .build())
+        .addMethod(MethodSpec.methodBuilder("put")
+            .addAnnotation(unchecked)
+            .addModifiers(Modifier.PUBLIC)
+            .addParameter(TypeName.INT, CONSTRUCTOR_INDEX)
+            .addParameter(valueType, "value")
+            .returns(valueType)
+            .addStatement("$T previous = ($T) values[$L]", valueType, valueType, CONSTRUCTOR_INDEX)
+            .addStatement("values[$L] = $T.requireNonNull(value)", CONSTRUCTOR_INDEX, Objects.class)
+            .beginControlFlow("if (previous == null)")
+            .addStatement("size++")
+            .endControlFlow()
+            .addStatement("return previous")
+            .build())
+        .addMethod(MethodSpec.methodBuilder("put")
+            .addModifiers(Modifier.PUBLIC)
+            .addTypeVariables(adtTypeVariables)
+            .addParameter(adtType, arg)
+            .addParameter(valueType, "value")
+            .returns(valueType)
+            .addStatement("return put($L($L), value)", CONSTRUCTOR_INDEX, arg)
+            .build())
+        .addMethod(MethodSpec.methodBuilder("remove")
+            .addAnnotation(unchecked)
+            .addModifiers(Modifier.PUBLIC)
+            .addParameter(TypeName.INT, CONSTRUCTOR_INDEX)
+            .returns(valueType)
+            .addStatement("$T previous = ($T) values[$L]", valueType, valueType, CONSTRUCTOR_INDEX)
+            .addStatement("values[$L] = null", CONSTRUCTOR_INDEX)
+            .beginControlFlow("if (previous != null)")
+            .addStatement("size--")
+            .endControlFlow()
+            .addStatement("return previous")
+            .build())
+        .addMethod(MethodSpec.methodBuilder("remove")
+            .addModifiers(Modifier.PUBLIC)
+            .addTypeVariables(adtTypeVariables)
+            .addParameter(adtType, arg)
+            .returns(valueType)
+            .addStatement("return remove($L($L))", CONSTRUCTOR_INDEX, arg)
+            .build())
+        .addMethod(MethodSpec.methodBuilder("containsKey")
+            .addModifiers(Modifier.PUBLIC)
+            .addParameter(TypeName.INT, CONSTRUCTOR_INDEX)
+            .returns(TypeName.BOOLEAN)
+            .addStatement("return values[$L] != null", CONSTRUCTOR_INDEX)
+            .build())
+        .addMethod(MethodSpec.methodBuilder("containsKey")
+            .addModifiers(Modifier.PUBLIC)
+            .addTypeVariables(adtTypeVariables)
+            .addParameter(adtType, arg)
+            .returns(TypeName.BOOLEAN)
+            .addStatement("return containsKey($L($L))", CONSTRUCTOR_INDEX, arg)
+            .build())
+        .addMethod(MethodSpec.methodBuilder("size")
+            .addModifiers(Modifier.PUBLIC)
+            .returns(TypeName.INT)
+            .addStatement("return size")
+            .build())
+        .addMethod(MethodSpec.methodBuilder("isEmpty")
+            .addModifiers(Modifier.PUBLIC)
+            .returns(TypeName.BOOLEAN)
+            .addStatement("return size == 0")
+            .build())
+        .addMethod(MethodSpec.methodBuilder("clear")
+            .addModifiers(Modifier.PUBLIC)
+            .addStatement("$T.fill(values, null)", Arrays.class)
+            .addStatement("size = 0")
+            .build())
+        .addMethod(MethodSpec.methodBuilder("forEach")
+            .addJavadoc("Calls action with each value and its constructor index, in constructor index order.\n")
+            .addAnnotation(unchecked)
+            .addModifiers(Modifier.PUBLIC)
+            .addParameter(ParameterizedTypeName.get(ClassName.get(ObjIntConsumer.class),
+                WildcardTypeName.supertypeOf(valueType)), "action")
+            .beginControlFlow("for (int i = 0; i < values.length; i++)")
+            .beginControlFlow("if (values[i] != null)")
+            .addStatement("action.accept(($T) values[i], i)", valueType)
+            .endControlFlow()
+            .endControlFlow()
+            .build())
+        .build();
+  }
+
+  private static String indexLambdas(List<DataConstructor> constructors) {
+    return Utils.joinStringsAsArguments(IntStream.range(0, constructors.size())
+        .mapToObj(i -> "(" + Utils.asLambdaParametersString(constructors.get(i).arguments(),
+            constructors.get(i).typeRestrictions()) + ") -> " + i));
+  }
+
+  private static CodeBlock switchIndex(List<JRecord> records, String arg) {
+    NameAllocator nameAllocator = new NameAllocator();
+    nameAllocator.newName(arg);
+
+    return Utils.switchOnRecords(CodeBlock.of("$N", arg), records, nameAllocator,
+        (caseVar, rec) -> CodeBlock.of("$L;", records.indexOf(rec)), Optional.empty());
+  }
+
+  /**
+   * camelCase to UPPER_SNAKE_CASE.
+   */
+  private static String constantName(String name) {
+    return name.replaceAll("([a-z0-9])([A-Z])", "$1_$2").toUpperCase(Locale.US);
+  }
+
+}
@@ -44,6 +44,7 @@ import javax.lang.model.util.Elements;
 import org.derive4j.ArgOption;
 import org.derive4j.Data;
 import org.derive4j.Derive;
+import org.derive4j.DeriveOption;
 import org.derive4j.Flavour;
 import org.derive4j.Instances;
 import org.derive4j.Make;
@@ -68,6 +69,7 @@ import static org.derive4j.processor.Utils.getPackage;
 import static org.derive4j.processor.api.model.DeriveConfigs.Config;
 import static org.derive4j.processor.api.model.DeriveConfigs.modArgOptions;
 import static org.derive4j.processor.api.model.DeriveConfigs.modMakes;
+import static org.derive4j.processor.api.model.DeriveConfigs.modOptions;
 import static org.derive4j.processor.api.model.DeriveConfigs.modTargetClass;
 import static org.derive4j.processor.api.model.DeriveConfigs.setFlavour;
 import static org.derive4j.processor.api.model.DeriveConfigs.setMakes;
@@ -156,12 +158,27 @@ final class DeriveConfigBuilder {
       .getters(() -> of(lambdaVisitor))
       .modifiers(() -> of(lambdaVisitor, constructors))
       .catamorphism(() -> of(lambdaVisitor))
-      .factory(() -> of(lambdaVisitor));
+      .factory(() -> of(lambdaVisitor))
+      .constructorIndex(() -> of(lambdaVisitor))
+      .binaryCodec(() -> of(lambdaVisitor, constructors))
+      .flyweight(() -> of(lambdaVisitor, constructors))
+      .columnar(() -> of(lambdaVisitor, constructors))
+      .updater(() -> of(lambdaVisitor, constructors))
+      .comparator(() -> of(lambdaVisitor))
+      .fusion(() -> of(lambdaVisitor, factory, catamorphism))
+      .anamorphism(() -> of(lambdaVisitor, constructors, lazyConstructor))
+      .spliterator(() -> of(lambdaVisitor))
+      .linearFold(() -> of(lambdaVisitor))
+      .parallelCatamorphism(() -> of(lambdaVisitor, catamorphism))
+      .memoizedCatamorphism(() -> of(lambdaVisitor))
+      .asyncCatamorphism(() -> of(lambdaVisitor))
+      .batchMatching(() -> of(lambdaVisitor, constructorIndex));
 
   private final TypeElement       dataAnnotation;
   private final TypeElement       deriveAnnotation;
   private final ExecutableElement flavour;
   private final ExecutableElement arguments;
+  private final ExecutableElement options;
   private final ExecutableElement deriveValue;
   private final ExecutableElement inClass;
   private final ExecutableElement withVisibility;
@@ -176,6 +193,7 @@ final class DeriveConfigBuilder {
     dataAnnotation = elements.getTypeElement(Data.class.getName());
     flavour = unsafeGetExecutableElement(dataAnnotation, "flavour");
     arguments = unsafeGetExecutableElement(dataAnnotation, "arguments");
+    options = unsafeGetExecutableElement(dataAnnotation, "options");
     deriveValue = unsafeGetExecutableElement(dataAnnotation, "value");
 
     deriveAnnotation = elements.getTypeElement(Derive.class.getName());
@@ -341,12 +359,19 @@ final class DeriveConfigBuilder {
             ? EnumSet.noneOf(ArgOption.class)
             : EnumSet.copyOf(newArgOptions.stream().map(ArgOption::valueOf).collect(toList()))));
 
+    @SuppressWarnings("unchecked")
+    Optional<Function<DeriveConfig, DeriveConfig>> modOptions = get(options, elementValues)
+        .map(optionsValue -> (List<String>) getValue.visit(optionsValue))
+        .map(newOptions -> modOptions(options -> newOptions.isEmpty()
+            ? EnumSet.noneOf(DeriveOption.class)
+            : EnumSet.copyOf(newOptions.stream().map(DeriveOption::valueOf).collect(toList()))));
+
     @SuppressWarnings("unchecked")
     Optional<Function<DeriveConfig, DeriveConfig>> deriveConfig = get(deriveValue, elementValues)
         .map(value -> deriveConfig(typeElement,
             (Map<? extends ExecutableElement, ? extends AnnotationValue>) getValue.visit(value)));
 
-    return of(setFlavour, modArguments, deriveConfig).flatMap(Utils::optionalAsStream).reduce(Function::andThen).orElse(
+    return of(setFlavour, modArguments, modOptions, deriveConfig).flatMap(Utils::optionalAsStream).reduce(Function::andThen).orElse(
         identity());
   }
 
@@ -357,9 +382,12 @@ final class DeriveConfigBuilder {
                 autoGeneratedClassName(typeElement.getSimpleName().toString())),
             deduceDeriveVisibility(typeElement, Visibility.Same),
             Optional.empty()),
-        EnumSet.of(constructors, Make.lazyConstructor, lambdaVisitor, Make.getters, Make.modifiers, Make.catamorphism,
-            Make.factory, Make.casesMatching, Make.caseOfMatching),
-        EnumSet.noneOf(ArgOption.class), Collections.emptyMap());
+        // record based types get matchers and catamorphisms only on explicit request, as they did not get them before.
+        Utils.isJADT(typeElement)
+            ? EnumSet.of(constructors, lambdaVisitor, Make.getters, Make.modifiers, Make.factory)
+            : EnumSet.of(constructors, Make.lazyConstructor, lambdaVisitor, Make.getters, Make.modifiers,
+                Make.catamorphism, Make.factory, Make.casesMatching, Make.caseOfMatching),
+        EnumSet.noneOf(ArgOption.class), EnumSet.noneOf(DeriveOption.class), Collections.emptyMap());
   }
 
   private static DeriveVisibility deduceDeriveVisibility(TypeElement typeElement, Visibility visibility) {
@@ -381,7 +409,7 @@ final class DeriveConfigBuilder {
         .orElseThrow(() -> new NoSuchElementException(typeElement + "#" + methodName));
   }
 
-  private static String autoGeneratedClassName(String adtClassName) {
+  static String autoGeneratedClassName(String adtClassName) {
     return (adtClassName.endsWith("y")
         && !(adtClassName.endsWith("ay") || adtClassName.endsWith("ey") || adtClassName.endsWith("oy")))
             ? (adtClassName.substring(0, adtClassName.length() - 1) + "ies")
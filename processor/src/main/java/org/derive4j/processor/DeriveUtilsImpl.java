@@ -28,6 +28,7 @@ import com.squareup.javapoet.NameAllocator;
 import com.squareup.javapoet.ParameterSpec;
 import com.squareup.javapoet.ParameterizedTypeName;
 import com.squareup.javapoet.TypeName;
+import com.squareup.javapoet.TypeSpec;
 import com.squareup.javapoet.TypeVariableName;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -37,6 +38,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.BiFunction;
 import java.util.function.BinaryOperator;
 import java.util.function.Function;
@@ -54,6 +56,7 @@ import javax.lang.model.type.TypeVariable;
 import javax.lang.model.util.ElementFilter;
 import javax.lang.model.util.Elements;
 import javax.lang.model.util.Types;
+import org.derive4j.DeriveOption;
 import org.derive4j.ExportAsPublic;
 import org.derive4j.Flavour;
 import org.derive4j.Flavours;
@@ -594,6 +597,12 @@ final class DeriveUtilsImpl implements DeriveUtils {
             adt.fields().stream().map(DataArguments::getFieldName).forEach(na::newName);
           }
 
+          // cached instances refer to themselves through a local reference instead of a cache lookup per level.
+          final boolean cachedInstance = !freeVariables.isEmpty()
+              && adt.deriveConfig().options().contains(DeriveOption.cachedInstances);
+
+          final String selfName = na.newName("_self");
+
           final String methodName = generatedInstanceMethodName(findTypeElement(typeClass).get(),
               adt.typeConstructor().typeElement());
 
@@ -629,7 +638,14 @@ final class DeriveUtilsImpl implements DeriveUtils {
 
             final List<FieldSpec> fieldSpecs = new ArrayList<>();
 
-            if (freeVariables.isEmpty()) {
+            final List<TypeSpec> typeSpecs = new ArrayList<>();
+
+            final String freeVariableNames = joinStringsAsArguments(freeVariables.stream().map(FreeVariables::getName));
+
+            final boolean eagerInstance = freeVariables.isEmpty() && adt.typeConstructor().typeVariables().isEmpty()
+                && adt.deriveConfig().options().contains(DeriveOption.eagerSingletons);
+
+            if (freeVariables.isEmpty() && !eagerInstance) {
               fieldSpecs
                   .add(FieldSpec.builder(typeClass, methodName, Modifier.PRIVATE, Modifier.STATIC)
                       .addAnnotation(AnnotationSpec.builder(SuppressWarnings.class)
@@ -643,8 +659,26 @@ final class DeriveUtilsImpl implements DeriveUtils {
                       .build())
                   .addStatement("$1T _$2L = $2L", returnType, methodName).beginControlFlow("if (_$L == null)",
                       methodName);
+            } else if (cachedInstance) {
+              fieldSpecs.add(FieldSpec
+                  .builder(ParameterizedTypeName.get(RuntimeLibrary.INSTANCE_CACHE, ClassName.OBJECT),
+                      methodName + "Cache", Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL)
+                  .initializer("new $T<>()", RuntimeLibrary.INSTANCE_CACHE)
+                  .build());
+
+              method
+                  .addAnnotation(AnnotationSpec.builder(SuppressWarnings.class)
+                      .addMember("value", "$S", "unchecked")
+                      .build())
+                  .addStatement("$1T _$2L = ($1T) $2LCache.get($3L)", returnType, methodName, freeVariableNames)
+                  .beginControlFlow("if (_$L == null)", methodName)
+                  .addStatement("$T $L = new $T<>()",
+                      ParameterizedTypeName.get(ClassName.get(AtomicReference.class), returnType), selfName,
+                      AtomicReference.class);
             }
 
+            final CodeBlock.Builder initialization = CodeBlock.builder();
+
             List<FreeVariable> seenVariable = new ArrayList<>(freeVariables);
             getBindingsByFieldName(fieldsTypeClassInstanceBindingMap).values()
                 .forEach(binding -> binding.binding((variable, value) -> {
@@ -655,11 +689,12 @@ final class DeriveUtilsImpl implements DeriveUtils {
                         DeclaredType type = getType(variable);
 
                         if (isWildcarded(type))
-                          method.addCode("$T $L = ($T) ", TypeName.get(type), getName(variable), types().erasure(type));
+                          initialization.add("$T $L = ($T) ", TypeName.get(type), getName(variable),
+                              types().erasure(type));
                         else
-                          method.addCode("$T $L = ", TypeName.get(type), getName(variable));
+                          initialization.add("$T $L = ", TypeName.get(type), getName(variable));
 
-                        method.addCode(cb).addCode(";\n");
+                        initialization.add(cb).add(";\n");
                       }
                     });
                     seenVariable.add(variable);
@@ -671,22 +706,44 @@ final class DeriveUtilsImpl implements DeriveUtils {
             allCustomStatements.add(statement);
             allCustomStatements.addAll(Arrays.asList(statements));
             allCustomStatements.subList(0, allCustomStatements.size() - 1)
-                .forEach(cb -> method.addCode(cb.toBuilder().add(";").build()));
-
-            if (freeVariables.isEmpty())
-              method.addCode("$1L = _$1L = ", methodName)
+                .forEach(cb -> initialization.add(cb.toBuilder().add(";").build()));
+
+            if (eagerInstance) {
+              String holderName = Utils.capitalize(methodName) + "Holder";
+              typeSpecs.add(TypeSpec.classBuilder(holderName)
+                  .addModifiers(Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL)
+                  .addField(FieldSpec.builder(returnType, "INSTANCE", Modifier.STATIC, Modifier.FINAL).build())
+                  .addStaticBlock(initialization.add("INSTANCE = ")
+                      .add(allCustomStatements.get(allCustomStatements.size() - 1))
+                      .add(";\n")
+                      .build())
+                  .build());
+              method.addStatement("return $L.INSTANCE", holderName);
+            } else if (freeVariables.isEmpty())
+              method.addCode(initialization.build())
+                  .addCode("$1L = _$1L = ", methodName)
                   .addCode(allCustomStatements.get(allCustomStatements.size() - 1))
                   .addCode(";\n")
                   .endControlFlow()
                   .addStatement("return _$L", methodName);
+            else if (cachedInstance)
+              method.addCode(initialization.build())
+                  .addCode("_$L = ", methodName)
+                  .addCode(allCustomStatements.get(allCustomStatements.size() - 1))
+                  .addCode(";\n")
+                  .addStatement("$L.set(_$L)", selfName, methodName)
+                  .addStatement("_$1L = ($2T) $1LCache.put(_$1L, $3L)", methodName, returnType, freeVariableNames)
+                  .endControlFlow()
+                  .addStatement("return _$L", methodName);
             else
-              method.addCode(CodeBlock.builder()
-                  .add("return ")
-                  .add(allCustomStatements.get(allCustomStatements.size() - 1))
-                  .add(";\n")
-                  .build());
-
-            return DerivedCodeSpecs.codeSpec(emptyList(), fieldSpecs, singletonList(method.build()));
+              method.addCode(initialization.build())
+                  .addCode(CodeBlock.builder()
+                      .add("return ")
+                      .add(allCustomStatements.get(allCustomStatements.size() - 1))
+                      .add(";\n")
+                      .build());
+
+            return DerivedCodeSpecs.codeSpec(typeSpecs, fieldSpecs, singletonList(method.build()));
           }
 
           @Override
@@ -720,26 +777,8 @@ final class DeriveUtilsImpl implements DeriveUtils {
             na.newName(switchVar); // consume switchVar name
 
             return AlgebraicDataTypes.caseOf(adt)
-                .jadt((deriveConfig, typeConstructor, jDataConstruction, fields, eq) -> CodeBlock
-                    .builder()
-                    .add("switch($N) {\n", switchVar)
-                    .indent()
-                    .add(jDataConstruction.constructors()
-                      .stream()
-                      .map(rec -> {
-                        final var elt = JRecords.getElement(rec);
-                        final var caseVarName = na.newName(uncapitalize(elt.getSimpleName()));
-
-                        return CodeBlock.builder()
-                          .add("case $T $N -> ", elt, caseVarName)
-                          .add(caseImpl.apply(caseVarName, rec))
-                          .build();
-                      })
-                      .reduce((cb1, cb2) -> cb1.toBuilder().add("\n").add(cb2).build())
-                      .orElse(CodeBlock.of("")))
-                    .unindent()
-                    .add("}")
-                    .build())
+                .jadt((deriveConfig, typeConstructor, jDataConstruction, fields, eq) -> Utils.switchOnRecords(
+                    CodeBlock.of("$N", switchVar), jDataConstruction.constructors(), na, caseImpl, Optional.empty()))
 
                 .otherwise_(CodeBlock.of(""));
           }
@@ -754,7 +793,9 @@ final class DeriveUtilsImpl implements DeriveUtils {
                       return (expr.endsWith(")") && !expr.endsWith("()")) ? CodeBlock.of(getName(variable)) : cb;
                     })
 
-                    .recursiveExpression(fromOuter -> fromOuter.apply(methodRecursiveCall.apply(da))));
+                    .recursiveExpression(fromOuter -> fromOuter.apply(cachedInstance
+                        ? CodeBlock.of("$L.get()", selfName)
+                        : methodRecursiveCall.apply(da))));
           }
 
           @Override
@@ -787,6 +828,10 @@ final class DeriveUtilsImpl implements DeriveUtils {
     return Optional.ofNullable(elements().getTypeElement(cn.reflectionName().replace("$", ".")));
   }
 
+  Optional<DeriveConfig> findDeriveConfig(TypeElement typeElement) {
+    return deriveConfigBuilder.findDeriveConfig(typeElement).map(P2s::get_2);
+  }
+
   private CodeBlock asTypeArguments(Stream<? extends TypeMirror> typeVariables) {
     return typeVariables
         .filter(tv -> tv.getKind() != TypeKind.WILDCARD)
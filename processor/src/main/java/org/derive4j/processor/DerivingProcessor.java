@@ -20,6 +20,7 @@ package org.derive4j.processor;
 
 import com.google.auto.service.AutoService;
 import com.squareup.javapoet.*;
+import org.derive4j.DeriveOption;
 import org.derive4j.processor.api.*;
 import org.derive4j.processor.api.model.AlgebraicDataType;
 import org.derive4j.processor.api.model.DeriveConfig;
@@ -144,6 +145,7 @@ public final class DerivingProcessor extends AbstractProcessor {
 
               IO<Unit> derivedInstances = effect(() -> {
               });
+              int generatedClasses = 0;
               for (Map.Entry<ClassName, P2<Stream<DeriveMessage>, DerivedCodeSpec>> derivedClass : derivedInstances(adt)
                   .entrySet()) {
                 ClassName className = derivedClass.getKey();
@@ -154,6 +156,7 @@ public final class DerivingProcessor extends AbstractProcessor {
                       .addOriginatingElement(element)
                       .build();
                   JavaFile javaFile = JavaFile.builder(targetClassName.packageName(), classSpec).build();
+                  generatedClasses += classCount(classSpec);
                   derivedInstances = derivedInstances.then(effect(() -> javaFile.writeTo(processingEnv.getFiler())));
                 }
                 derivedInstances = derivedClass.getValue()._1().map(messagePrint).reduce(derivedInstances, IO::then);
@@ -171,11 +174,26 @@ public final class DerivingProcessor extends AbstractProcessor {
               }
 
               JavaFile javaFile = JavaFile.builder(targetClassName.packageName(), classSpec).build();
-
-              return effect(() -> javaFile.writeTo(processingEnv.getFiler())).then(derivedInstances).then(extendErrors);
+              generatedClasses += classCount(classSpec);
+
+              String classCountNote = "Derive4J: " + generatedClasses + " classes generated for "
+                  + element.getQualifiedName();
+              IO<Unit> classCountReport = deriveConfig.options().contains(DeriveOption.minimalClasses)
+                  ? effect(
+                      () -> processingEnv.getMessager().printMessage(Diagnostic.Kind.NOTE, classCountNote, element))
+                  : effect(() -> {
+                  });
+
+              return effect(() -> javaFile.writeTo(processingEnv.getFiler())).then(derivedInstances)
+                  .then(extendErrors)
+                  .then(classCountReport);
             }));
   }
 
+  private static int classCount(TypeSpec typeSpec) {
+    return typeSpec.typeSpecs.stream().mapToInt(DerivingProcessor::classCount).sum() + 1;
+  }
+
   private Function<DeriveMessage, IO<Unit>> mesagePrint(TypeElement element) {
     return DeriveMessages.cases()
         .message(
@@ -24,6 +24,7 @@ import com.squareup.javapoet.FieldSpec;
 import com.squareup.javapoet.MethodSpec;
 import com.squareup.javapoet.ParameterSpec;
 import com.squareup.javapoet.TypeName;
+import com.squareup.javapoet.TypeSpec;
 import com.squareup.javapoet.TypeVariableName;
 import java.util.List;
 import java.util.Set;
@@ -37,6 +38,7 @@ import javax.lang.model.element.TypeParameterElement;
 import javax.lang.model.element.VariableElement;
 import javax.lang.model.type.TypeMirror;
 import javax.lang.model.type.TypeVariable;
+import org.derive4j.DeriveOption;
 import org.derive4j.ExportAsPublic;
 import org.derive4j.processor.api.Derivator;
 import org.derive4j.processor.api.DeriveResult;
@@ -68,11 +70,12 @@ final class ExportDerivator implements Derivator<Variant> {
         optionalAsStream(adt.deriveConfig().targetClass().extend().flatMap(utils::findTypeElement))
             .flatMap(utils::allStaticMethods))
         .filter(this::hasExportAsPublicAnnotation)
-        .map(this::exportAsPublic)
+        .map(exported -> exportAsPublic(exported,
+            adt.deriveConfig().options().contains(DeriveOption.eagerSingletons)))
         .reduce(none(), DerivedCodeSpec::append));
   }
 
-  private DerivedCodeSpec exportAsPublic(ExecutableElement executableElement) {
+  private DerivedCodeSpec exportAsPublic(ExecutableElement executableElement, boolean eagerSingletons) {
     MethodSpec.Builder methodBuilder = replicate(executableElement).addModifiers(Modifier.PUBLIC);
 
     TypeName className = ClassName.get(asTypeElement.visit(executableElement.getEnclosingElement()).get());
@@ -82,7 +85,32 @@ final class ExportDerivator implements Derivator<Variant> {
 
     DerivedCodeSpec result;
 
-    if (executableElement.getParameters().isEmpty()) {
+    if (executableElement.getParameters().isEmpty() && eagerSingletons) {
+
+      TypeMirror returnType = executableElement.getReturnType();
+      String holderName = Utils.capitalize(methodName) + "Holder";
+
+      FieldSpec.Builder instance = FieldSpec.builder(TypeName.get(executableElement.getTypeParameters().isEmpty()
+          ? returnType
+          : utils.types().erasure(returnType)), "INSTANCE", Modifier.STATIC, Modifier.FINAL)
+          .initializer("$T.$L()", className, methodName);
+
+      if (executableElement.getTypeParameters().isEmpty()) {
+        methodBuilder.addStatement("return $L.INSTANCE", holderName);
+      } else {
+        instance.addAnnotation(AnnotationSpec.builder(SuppressWarnings.class).addMember("value", "$S", "rawtypes")
+            .build());
+        methodBuilder.addAnnotation(AnnotationSpec.builder(SuppressWarnings.class)
+            .addMember("value", "$S", "unchecked")
+            .build())
+            .addStatement("return ($T) $L.INSTANCE", TypeName.get(returnType), holderName);
+      }
+
+      result = DerivedCodeSpec.codeSpec(TypeSpec.classBuilder(holderName)
+          .addModifiers(Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL)
+          .addField(instance.build())
+          .build(), methodBuilder.build());
+    } else if (executableElement.getParameters().isEmpty()) {
 
       TypeMirror returnType = executableElement.getReturnType();
 
@@ -23,11 +23,13 @@ import com.squareup.javapoet.CodeBlock;
 import com.squareup.javapoet.FieldSpec;
 import com.squareup.javapoet.MethodSpec;
 import com.squareup.javapoet.TypeName;
+import com.squareup.javapoet.TypeSpec;
 import com.squareup.javapoet.TypeVariableName;
 import java.util.List;
 import java.util.Optional;
 import javax.lang.model.element.Modifier;
 import javax.lang.model.type.DeclaredType;
+import org.derive4j.DeriveOption;
 import org.derive4j.processor.api.Derivator;
 import org.derive4j.processor.api.DeriveResult;
 import org.derive4j.processor.api.DeriveUtils;
@@ -95,6 +97,25 @@ final class FactoryDerivator implements Derivator<Drv4j> {
           .build();
 
       factory.addStatement("return $L", methodName);
+    } else if (adt.deriveConfig().options().contains(DeriveOption.eagerSingletons)
+        && adt.typeConstructor().typeVariables().stream().allMatch(tv -> utils.types()
+            .isSameType(tv.getUpperBound(), utils.elements().getTypeElement(Object.class.getName()).asType()))) {
+      // type variables are instantiated to Object: the factory does not depend on them.
+      // The holder class is initialized on first use only, not with the derived class.
+      String holderName = Utils.capitalize(methodName) + "Holder";
+      TypeSpec holder = TypeSpec.classBuilder(holderName)
+          .addModifiers(Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL)
+          .addField(FieldSpec.builder(TypeName.get(utils.resolve(factoryType, tv -> Optional.of(tv.getUpperBound()))),
+              "INSTANCE", Modifier.STATIC, Modifier.FINAL).initializer(initializer).build())
+          .build();
+
+      factory.addAnnotation(AnnotationSpec.builder(SuppressWarnings.class)
+          .addMember("value", "{$S, $S}", "rawtypes", "unchecked")
+          .build())
+          .addStatement("return ($T) ($T) $L.INSTANCE", factoryTypeName,
+              TypeName.get(utils.types().erasure(factoryType)), holderName);
+
+      return DerivedCodeSpec.codeSpec(holder, factory.build());
     } else {
       singleton = FieldSpec.builder(TypeName.get(utils.types().erasure(factoryType)), methodName,
           Modifier.PRIVATE, Modifier.STATIC)
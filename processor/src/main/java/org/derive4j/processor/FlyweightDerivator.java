@@ -0,0 +1,321 @@
+/*
+ * Copyright (c) 2019, Jean-Baptiste Giraudeau <jb@giraudeau.info>
+ *
+ * This file is part of "Derive4J - Annotation Processor".
+ *
+ * "Derive4J - Annotation Processor" is free software: you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * "Derive4J - Annotation Processor" is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with "Derive4J - Annotation Processor".  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.derive4j.processor;
+
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.CodeBlock;
+import com.squareup.javapoet.FieldSpec;
+import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.NameAllocator;
+import com.squareup.javapoet.ParameterizedTypeName;
+import com.squareup.javapoet.TypeName;
+import com.squareup.javapoet.TypeSpec;
+import com.squareup.javapoet.TypeVariableName;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.type.TypeMirror;
+import org.derive4j.processor.api.Derivator;
+import org.derive4j.processor.api.DeriveResult;
+import org.derive4j.processor.api.DeriveUtils;
+import org.derive4j.processor.api.DerivedCodeSpec;
+import org.derive4j.processor.api.DerivedCodeSpecs;
+import org.derive4j.processor.api.model.*;
+import org.derive4j.processor.api.model.AlgebraicDataType.Variant;
+import org.derive4j.processor.api.model.AlgebraicDataType.Variant.Drv4j;
+
+import static org.derive4j.processor.Utils.optionalAsStream;
+import static org.derive4j.processor.api.DeriveMessages.message;
+import static org.derive4j.processor.api.MessageLocalizations.onElement;
+
+/**
+ * Flyweight implementation of single-constructor, primitive-only, data types over a {@link ByteBuffer}: fields are
+ * read at fixed offsets, so that values can be kept off-heap without materializing objects.
+ */
+final class FlyweightDerivator implements Derivator<Variant> {
+
+  private static final String FLYWEIGHT = "Flyweight";
+
+  private static final String FLYWEIGHT_ARRAY = "FlyweightArray";
+
+  private final DeriveUtils deriveUtils;
+
+  private final StrictConstructorDerivator strictDerivator;
+
+  FlyweightDerivator(DeriveUtilsImpl deriveUtils) {
+    this.deriveUtils = deriveUtils;
+    strictDerivator = new StrictConstructorDerivator(deriveUtils);
+  }
+
+  @Override
+  public DeriveResult<DerivedCodeSpec> derive(AlgebraicDataType<Variant> adt) {
+    return AlgebraicDataTypes.caseOf(adt)
+        .adt((deriveConfig, typeConstructor, matchMethod, dataConstruction, fields, eq) -> DataConstructions
+            .caseOf(dataConstruction)
+            .oneConstructor(constructor -> constructor.typeRestrictions().isEmpty() && constructor.arguments()
+                .stream()
+                .allMatch(da -> da.type().getKind().isPrimitive())
+                    ? DeriveResult.result(flyweight(Utils.coerce(adt, eq), constructor))
+                    : error(adt, "flyweight requires all fields to be of primitive types"))
+            .otherwise(() -> error(adt, "flyweight requires a single constructor")))
+
+        .jadt((deriveConfig, typeConstructor, jDataConstruction, fields, eq) -> error(adt,
+            "flyweight is not supported for records: records cannot be implemented by a flyweight class"));
+  }
+
+  private DerivedCodeSpec flyweight(AlgebraicDataType<Drv4j> adt, DataConstructor constructor) {
+
+    final var typeConstructor = adt.typeConstructor();
+    final var companion = adt.deriveConfig().targetClass().className();
+    final var adtTypeName = TypeName.get(typeConstructor.declaredType());
+    final var typeVariables = typeConstructor.typeVariables()
+        .stream()
+        .map(TypeVariableName::get)
+        .collect(Collectors.toList());
+    final var flyweightTypeName = typeVariables.isEmpty()
+        ? companion.nestedClass(FLYWEIGHT)
+        : ParameterizedTypeName.get(companion.nestedClass(FLYWEIGHT), typeVariables.toArray(new TypeName[0]));
+    final var flyweightArrayTypeName = typeVariables.isEmpty()
+        ? companion.nestedClass(FLYWEIGHT_ARRAY)
+        : ParameterizedTypeName.get(companion.nestedClass(FLYWEIGHT_ARRAY), typeVariables.toArray(new TypeName[0]));
+    final var diamond = typeVariables.isEmpty() ? "" : "<>";
+
+    final var arguments = constructor.arguments();
+    final int[] offsets = new int[arguments.size()];
+    int size = 0;
+    for (int i = 0; i < arguments.size(); i++) {
+      offsets[i] = size;
+      size += byteSize(arguments.get(i).type());
+    }
+
+    final CodeBlock readFields = IntStream.range(0, arguments.size())
+        .mapToObj(i -> read(arguments.get(i).type(), CodeBlock.of("this.offset + $L", offsets[i])))
+        .collect(CodeBlock.joining(", "));
+
+    final var constructorName = constructor.name()
+        + (StrictConstructorDerivator.smartConstructor(constructor, adt.deriveConfig()) ? "0" : "");
+
+    TypeSpec.Builder flyweight = TypeSpec.classBuilder(FLYWEIGHT)
+        .addJavadoc("A view of the $L bytes at some offset of a buffer as a {@link $T}.\n"
+            + "<p>\nA flyweight is mutable: {@code wrap} and writes to the buffer change the value it views, and\n"
+            + "thus its {@code equals}, {@code hashCode} and {@code toString}. Do not use a flyweight as a map key\n"
+            + "or set element: use {@link #toValue()} instead.\n", size, ClassName.get(typeConstructor.typeElement()))
+        .addModifiers(Modifier.PUBLIC, Modifier.STATIC, Modifier.FINAL)
+        .addTypeVariables(typeVariables)
+        .addField(FieldSpec.builder(TypeName.INT, "SIZE", Modifier.PUBLIC, Modifier.STATIC, Modifier.FINAL)
+            .initializer("$L", size)
+            .build())
+        .addField(ByteBuffer.class, "buffer", Modifier.PRIVATE)
+        .addField(TypeName.INT, "offset", Modifier.PRIVATE)
+        .addMethod(MethodSpec.methodBuilder("wrap")
+            .addModifiers(Modifier.PUBLIC)
+            .addParameter(ByteBuffer.class, "buffer")
+            .addParameter(TypeName.INT, "offset")
+            .returns(flyweightTypeName)
+            .addStatement("this.buffer = buffer")
+            .addStatement("this.offset = offset")
+            .addStatement("return this")
+            .build())
+        .addMethod(deriveUtils.overrideMethodBuilder(AlgebraicDataTypes.getMatchMethod_(adt).element(),
+            typeConstructor.declaredType())
+            .addStatement("return $L.$L($L)", constructor.deconstructor().visitorParam().getSimpleName(),
+                constructor.deconstructor().method().getSimpleName(), readFields)
+            .build())
+        .addMethod(MethodSpec.methodBuilder("toValue")
+            .addJavadoc("Copies the viewed value to the heap.\n")
+            .addModifiers(Modifier.PUBLIC)
+            .returns(adtTypeName)
+            .addStatement("return $T.$L($L)", companion, constructorName, readFields)
+            .build());
+
+    if (typeConstructor.declaredType().asElement().getKind() == ElementKind.INTERFACE) {
+      flyweight.addSuperinterface(adtTypeName);
+    } else {
+      flyweight.superclass(adtTypeName);
+    }
+
+    flyweight.addMethods(optionalAsStream(strictDerivator.findAbstractEquals(typeConstructor.typeElement())
+        .map(equals -> deriveUtils.overrideMethodBuilder(equals, typeConstructor.declaredType())
+            .addJavadoc("Compares the currently viewed value, see the class documentation.\n")
+            .addStatement("return toValue().equals($L)", equals.getParameters().get(0).getSimpleName())
+            .build())).collect(Collectors.toList()));
+
+    flyweight.addMethods(optionalAsStream(strictDerivator.findAbstractHashCode(typeConstructor.typeElement())
+        .map(hashCode -> deriveUtils.overrideMethodBuilder(hashCode, typeConstructor.declaredType())
+            .addJavadoc("Hash code of the currently viewed value, see the class documentation.\n")
+            .addStatement("return toValue().hashCode()")
+            .build())).collect(Collectors.toList()));
+
+    flyweight.addMethods(optionalAsStream(strictDerivator.findAbstractToString(typeConstructor.typeElement())
+        .map(toString -> deriveUtils.overrideMethodBuilder(toString, typeConstructor.declaredType())
+            .addStatement("return toValue().toString()")
+            .build())).collect(Collectors.toList()));
+
+    NameAllocator nameAllocator = new NameAllocator();
+    arguments.forEach(da -> nameAllocator.newName(da.fieldName()));
+    final var value = nameAllocator.newName(Utils.uncapitalize(typeConstructor.typeElement().getSimpleName()));
+    final var buffer = nameAllocator.newName("buffer");
+    final var offset = nameAllocator.newName("offset");
+
+    CodeBlock.Builder writeFields = CodeBlock.builder().add("$N", buffer);
+    for (int i = 0; i < arguments.size(); i++) {
+      writeFields.add(write(arguments.get(i), CodeBlock.of("$N + $L", offset, offsets[i])));
+    }
+
+    MethodSpec write = MethodSpec.methodBuilder("write")
+        .addJavadoc("Writes the $L bytes of $N at $N, in a layout readable by {@link $L}.\n", size, value, offset,
+            FLYWEIGHT)
+        .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
+        .addTypeVariables(typeVariables)
+        .addParameter(adtTypeName, value)
+        .addParameter(ByteBuffer.class, buffer)
+        .addParameter(TypeName.INT, offset)
+        .addStatement("$L", Utils.matchWithLambdas(adt, CodeBlock.of("$N", value), dc -> writeFields.build()))
+        .build();
+
+    TypeSpec flyweightArray = TypeSpec.classBuilder(FLYWEIGHT_ARRAY)
+        .addJavadoc("A growable array of {@link $T}, stored as structs in a direct buffer.\n"
+            + "<p>A direct buffer holds at most {@link Integer#MAX_VALUE} bytes (2 GB), ie. at most\n"
+            + "{@code Integer.MAX_VALUE / $L.SIZE} elements: going over throws an {@link $T}.\n",
+            ClassName.get(typeConstructor.typeElement()), FLYWEIGHT, IllegalStateException.class)
+        .addModifiers(Modifier.PUBLIC, Modifier.STATIC, Modifier.FINAL)
+        .addTypeVariables(typeVariables)
+        .addField(ByteBuffer.class, "buffer", Modifier.PRIVATE)
+        .addField(TypeName.INT, "size", Modifier.PRIVATE)
+        .addMethod(MethodSpec.constructorBuilder()
+            .addModifiers(Modifier.PUBLIC)
+            .addParameter(TypeName.INT, "initialCapacity")
+            .addStatement("this.buffer = $T.allocateDirect(bytes(Math.max(1, initialCapacity)))", ByteBuffer.class)
+            .build())
+        .addMethod(MethodSpec.methodBuilder("bytes")
+            .addModifiers(Modifier.PRIVATE, Modifier.STATIC)
+            .addParameter(TypeName.LONG, "elements")
+            .returns(TypeName.INT)
+            .addStatement("long bytes = elements * $L.SIZE", FLYWEIGHT)
+            .beginControlFlow("if (bytes > Integer.MAX_VALUE)")
+            .addStatement("throw new $T($S + elements + $S + Integer.MAX_VALUE / $L.SIZE)",
+                IllegalStateException.class, "Cannot hold ", " elements in a direct buffer, the maximum is ", FLYWEIGHT)
+            .endControlFlow()
+            .addStatement("return (int) bytes")
+            .build())
+        .addMethod(MethodSpec.methodBuilder("size")
+            .addModifiers(Modifier.PUBLIC)
+            .returns(TypeName.INT)
+            .addStatement("return size")
+            .build())
+        .addMethod(MethodSpec.methodBuilder("get")
+            .addJavadoc("A new view of the element at index.\n")
+            .addModifiers(Modifier.PUBLIC)
+            .addParameter(TypeName.INT, "index")
+            .returns(flyweightTypeName)
+            .addStatement("return view(index, new $L$L())", FLYWEIGHT, diamond)
+            .build())
+        .addMethod(MethodSpec.methodBuilder("view")
+            .addJavadoc("Points flyweight to the element at index, without allocation.\n")
+            .addModifiers(Modifier.PUBLIC)
+            .addParameter(TypeName.INT, "index")
+            .addParameter(flyweightTypeName, "flyweight")
+            .returns(flyweightTypeName)
+            .addStatement("return flyweight.wrap(buffer, $T.checkIndex(index, size) * $L.SIZE)", Objects.class,
+                FLYWEIGHT)
+            .build())
+        .addMethod(MethodSpec.methodBuilder("set")
+            .addModifiers(Modifier.PUBLIC)
+            .addParameter(TypeName.INT, "index")
+            .addParameter(adtTypeName, "value")
+            .addStatement("write(value, buffer, $T.checkIndex(index, size) * $L.SIZE)", Objects.class, FLYWEIGHT)
+            .build())
+        .addMethod(MethodSpec.methodBuilder("add")
+            .addModifiers(Modifier.PUBLIC)
+            .addParameter(adtTypeName, "value")
+            .returns(flyweightArrayTypeName)
+            .addStatement("int required = bytes(size + 1L)")
+            .beginControlFlow("if (required > buffer.capacity())")
+            .addStatement("int capacity = (int) Math.min(Integer.MAX_VALUE, Math.max(required, 2L * "
+                + "buffer.capacity()))")
+            .addStatement("$T grown = $T.allocateDirect(capacity).order(buffer.order())", ByteBuffer.class,
+                ByteBuffer.class)
+            .addStatement("grown.put(buffer.duplicate().position(0).limit(size * $L.SIZE))", FLYWEIGHT)
+            .addStatement("buffer = grown")
+            .endControlFlow()
+            .addStatement("write(value, buffer, size++ * $L.SIZE)", FLYWEIGHT)
+            .addStatement("return this")
+            .build())
+        .addMethod(MethodSpec.methodBuilder("buffer")
+            .addJavadoc("The underlying buffer, holding {@code size()} elements.\n")
+            .addModifiers(Modifier.PUBLIC)
+            .returns(ByteBuffer.class)
+            .addStatement("return buffer")
+            .build())
+        .build();
+
+    return DerivedCodeSpecs.codeSpec(List.of(flyweight.build(), flyweightArray), List.of(), List.of(write));
+  }
+
+  private static int byteSize(TypeMirror type) {
+    switch (type.getKind()) {
+      case BOOLEAN:
+      case BYTE:
+        return 1;
+      case SHORT:
+      case CHAR:
+        return 2;
+      case INT:
+      case FLOAT:
+        return 4;
+      default:
+        return 8;
+    }
+  }
+
+  private static CodeBlock read(TypeMirror type, CodeBlock index) {
+    switch (type.getKind()) {
+      case BOOLEAN:
+        return CodeBlock.of("(this.buffer.get($L) != 0)", index);
+      case BYTE:
+        return CodeBlock.of("this.buffer.get($L)", index);
+      default:
+        return CodeBlock.of("this.buffer.get$L($L)", Utils.capitalize(type.getKind().name().toLowerCase(Locale.US)),
+            index);
+    }
+  }
+
+  private static CodeBlock write(DataArgument argument, CodeBlock index) {
+    final var kind = argument.type().getKind();
+    switch (kind) {
+      case BOOLEAN:
+        return CodeBlock.of(".put($L, (byte) ($N ? 1 : 0))", index, argument.fieldName());
+      case BYTE:
+        return CodeBlock.of(".put($L, $N)", index, argument.fieldName());
+      default:
+        return CodeBlock.of(".put$L($L, $N)", Utils.capitalize(kind.name().toLowerCase(Locale.US)), index,
+            argument.fieldName());
+    }
+  }
+
+  private static DeriveResult<DerivedCodeSpec> error(AlgebraicDataType<?> adt, String msg) {
+    return DeriveResult.error(message(msg, onElement(adt.typeConstructor().typeElement())));
+  }
+
+}
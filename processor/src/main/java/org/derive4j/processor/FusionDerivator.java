@@ -0,0 +1,215 @@
+/*
+ * Copyright (c) 2019, Jean-Baptiste Giraudeau <jb@giraudeau.info>
+ *
+ * This file is part of "Derive4J - Annotation Processor".
+ *
+ * "Derive4J - Annotation Processor" is free software: you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * "Derive4J - Annotation Processor" is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with "Derive4J - Annotation Processor".  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.derive4j.processor;
+
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.FieldSpec;
+import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.ParameterizedTypeName;
+import com.squareup.javapoet.TypeName;
+import com.squareup.javapoet.TypeSpec;
+import com.squareup.javapoet.TypeVariableName;
+import java.util.List;
+import java.util.stream.Collectors;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.type.DeclaredType;
+import org.derive4j.processor.api.Derivator;
+import org.derive4j.processor.api.DeriveResult;
+import org.derive4j.processor.api.DeriveUtils;
+import org.derive4j.processor.api.DerivedCodeSpec;
+import org.derive4j.processor.api.DerivedCodeSpecs;
+import org.derive4j.processor.api.SamInterface;
+import org.derive4j.processor.api.model.*;
+import org.derive4j.processor.api.model.AlgebraicDataType.Variant.Drv4j;
+
+import static org.derive4j.processor.Utils.optionalAsStream;
+
+/**
+ * Shortcut fusion for data types whose visitor is an object algebra: a {@code Producer} is a value abstracted over
+ * the algebra it is built with. {@code build(producer)} defers building it with the {@code factory()}, so that the
+ * function returned by {@code cata(algebra, delay)} can run the producer directly over the algebra instead of
+ * folding an intermediate structure. {@code fold(producer, algebra)} does the same without building anything.
+ */
+final class FusionDerivator implements Derivator<Drv4j> {
+
+  private static final String PRODUCER = "Producer";
+
+  private static final String FUSED = "Fused";
+
+  private final DeriveUtils utils;
+  private final CataDerivator cataDerivator;
+  private final StrictConstructorDerivator strictDerivator;
+
+  FusionDerivator(DeriveUtilsImpl utils) {
+    this.utils = utils;
+    cataDerivator = new CataDerivator(utils);
+    strictDerivator = new StrictConstructorDerivator(utils);
+  }
+
+  static ClassName fusedClassName(AlgebraicDataType<Drv4j> adt) {
+    return adt.deriveConfig().targetClass().className().nestedClass(FUSED);
+  }
+
+  static TypeName fusedTypeName(AlgebraicDataType<Drv4j> adt) {
+    return withTypeVariables(fusedClassName(adt), adt);
+  }
+
+  @Override
+  public DeriveResult<DerivedCodeSpec> derive(AlgebraicDataType<Drv4j> adt) {
+    return DeriveResult.result(DataConstructions.caseOf(AlgebraicDataTypes.getDataConstruction_(adt))
+        .multipleConstructors(MultipleConstructorsSupport.cases()
+            .visitorDispatch((visitorParam, visitorType, constructors) -> cataDerivator.visitorIsObjectAlgebra(adt)
+                ? fusion(adt, visitorType)
+                : DerivedCodeSpec.none())
+            .otherwise_(DerivedCodeSpec.none()))
+        .otherwise_(DerivedCodeSpec.none()));
+  }
+
+  private DerivedCodeSpec fusion(AlgebraicDataType<Drv4j> adt, DeclaredType visitorType) {
+
+    final var typeConstructor = adt.typeConstructor();
+    final var matchMethod = AlgebraicDataTypes.getMatchMethod_(adt);
+    final var typeVariables = typeConstructor.typeVariables()
+        .stream()
+        .map(TypeVariableName::get)
+        .collect(Collectors.toList());
+    final var returnTypeVariable = TypeVariableName.get(matchMethod.returnTypeVariable());
+    final var targetClass = adt.deriveConfig().targetClass().className();
+    final var adtTypeName = TypeName.get(typeConstructor.declaredType());
+    final var algebraTypeName = TypeName.get(cataDerivator.strictCataType(adt, visitorType));
+    final var producerTypeName = withTypeVariables(targetClass.nestedClass(PRODUCER), adt);
+    final SamInterface f0 = utils.function0Model(adt.deriveConfig().flavour());
+
+    final TypeSpec producer = TypeSpec.interfaceBuilder(PRODUCER)
+        .addJavadoc("A $T built with any algebra, without intermediate structure.\n",
+            ClassName.get(typeConstructor.typeElement()))
+        .addModifiers(Modifier.PUBLIC)
+        .addTypeVariables(typeVariables)
+        .addMethod(MethodSpec.methodBuilder("produce")
+            .addModifiers(Modifier.PUBLIC, Modifier.ABSTRACT)
+            .addTypeVariable(returnTypeVariable)
+            .addParameter(algebraTypeName, "algebra")
+            .returns(returnTypeVariable)
+            .build())
+        .build();
+
+    final TypeSpec.Builder fused = TypeSpec.classBuilder(FUSED)
+        .addModifiers(Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL)
+        .addTypeVariables(typeVariables)
+        .addField(producerTypeName, "producer", Modifier.PRIVATE, Modifier.FINAL)
+        .addField(FieldSpec.builder(adtTypeName, "built", Modifier.PRIVATE).build())
+        .addMethod(MethodSpec.constructorBuilder()
+            .addParameter(producerTypeName, "producer")
+            .addStatement("this.producer = producer")
+            .build())
+        .addMethod(MethodSpec.methodBuilder("built")
+            .addModifiers(Modifier.PRIVATE)
+            .returns(adtTypeName)
+            .addStatement("$T value = built", adtTypeName)
+            .beginControlFlow("if (value == null)")
+            .addStatement("value = built = producer.produce($T.factory())", targetClass)
+            .endControlFlow()
+            .addStatement("return value")
+            .build())
+        .addMethod(Utils.overrideMethodBuilder(matchMethod.element())
+            .addStatement("return built().$L($L)", matchMethod.element().getSimpleName(),
+                Utils.asArgumentsStringOld(matchMethod.element().getParameters()))
+            .build());
+
+    if (typeConstructor.declaredType().asElement().getKind() == ElementKind.INTERFACE) {
+      fused.addSuperinterface(adtTypeName);
+    } else {
+      fused.superclass(adtTypeName);
+    }
+
+    fused.addMethods(optionalAsStream(strictDerivator.findAbstractEquals(typeConstructor.typeElement())
+        .map(equals -> utils.overrideMethodBuilder(equals, typeConstructor.declaredType())
+            .addStatement("return built().equals($L)", equals.getParameters().get(0).getSimpleName())
+            .build())).collect(Collectors.toList()));
+
+    fused.addMethods(optionalAsStream(strictDerivator.findAbstractHashCode(typeConstructor.typeElement())
+        .map(hashCode -> utils.overrideMethodBuilder(hashCode, typeConstructor.declaredType())
+            .addStatement("return built().hashCode()")
+            .build())).collect(Collectors.toList()));
+
+    fused.addMethods(optionalAsStream(strictDerivator.findAbstractToString(typeConstructor.typeElement())
+        .map(toString -> utils.overrideMethodBuilder(toString, typeConstructor.declaredType())
+            .addStatement("return built().toString()")
+            .build())).collect(Collectors.toList()));
+
+    fused.addMethods(optionalAsStream(strictDerivator.deriveCompareTo(adt)).collect(Collectors.toList()));
+
+    final MethodSpec build = MethodSpec.methodBuilder("build")
+        .addJavadoc("A $T built on demand by producer, unless it is consumed by a catamorphism.\n",
+            ClassName.get(typeConstructor.typeElement()))
+        .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
+        .addTypeVariables(typeVariables)
+        .addParameter(producerTypeName, "producer")
+        .returns(adtTypeName)
+        .addStatement("return new $T$L(producer)", fusedClassName(adt), typeVariables.isEmpty() ? "" : "<>")
+        .build();
+
+    final MethodSpec fold = MethodSpec.methodBuilder("fold")
+        .addJavadoc("Same as {@code cata(algebra, delay).apply(build(producer))}.\n")
+        .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
+        .addTypeVariables(typeVariables)
+        .addTypeVariable(returnTypeVariable)
+        .addParameter(producerTypeName, "producer")
+        .addParameter(algebraTypeName, "algebra")
+        .returns(returnTypeVariable)
+        .addStatement("return producer.produce(algebra)")
+        .build();
+
+    final MethodSpec asProducer = MethodSpec.methodBuilder("producer")
+        .addJavadoc("The producer of value: the one value was built with, or its catamorphism.\n")
+        .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
+        .addTypeVariables(typeVariables)
+        .addParameter(adtTypeName, "value")
+        .returns(producerTypeName)
+        .beginControlFlow("if (value instanceof $T)", fusedClassName(adt))
+        .addStatement("return (($T) value).producer", fusedTypeName(adt))
+        .endControlFlow()
+        .addStatement("return $L", TypeSpec.anonymousClassBuilder("")
+            .addSuperinterface(producerTypeName)
+            .addMethod(MethodSpec.methodBuilder("produce")
+                .addAnnotation(Override.class)
+                .addModifiers(Modifier.PUBLIC)
+                .addTypeVariable(returnTypeVariable)
+                .addParameter(algebraTypeName, "algebra")
+                .returns(returnTypeVariable)
+                .addStatement("return $T.cata(algebra, $T::$L).$L(value)", targetClass, ClassName.get(f0.samClass()),
+                    f0.sam().getSimpleName(), utils.function1Model(adt.deriveConfig().flavour()).sam().getSimpleName())
+                .build())
+            .build())
+        .build();
+
+    return DerivedCodeSpecs.codeSpec(List.of(producer, fused.build()), List.of(), List.of(build, fold, asProducer));
+  }
+
+  private static TypeName withTypeVariables(ClassName className, AlgebraicDataType<Drv4j> adt) {
+    return adt.typeConstructor().typeVariables().isEmpty()
+        ? className
+        : ParameterizedTypeName.get(className, adt.typeConstructor()
+            .typeVariables()
+            .stream()
+            .map(TypeVariableName::get)
+            .toArray(TypeName[]::new));
+  }
+}
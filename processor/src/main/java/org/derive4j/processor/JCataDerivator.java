@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) 2019, Jean-Baptiste Giraudeau <jb@giraudeau.info>
+ *
+ * This file is part of "Derive4J - Annotation Processor".
+ *
+ * "Derive4J - Annotation Processor" is free software: you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * "Derive4J - Annotation Processor" is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with "Derive4J - Annotation Processor".  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.derive4j.processor;
+
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.CodeBlock;
+import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.NameAllocator;
+import com.squareup.javapoet.ParameterSpec;
+import com.squareup.javapoet.TypeName;
+import com.squareup.javapoet.TypeSpec;
+import com.squareup.javapoet.TypeVariableName;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.type.TypeMirror;
+import org.derive4j.processor.api.Derivator;
+import org.derive4j.processor.api.DeriveResult;
+import org.derive4j.processor.api.DeriveUtils;
+import org.derive4j.processor.api.DerivedCodeSpec;
+import org.derive4j.processor.api.SamInterface;
+import org.derive4j.processor.api.model.AlgebraicDataType;
+import org.derive4j.processor.api.model.AlgebraicDataType.Variant.Java;
+import org.derive4j.processor.api.model.AlgebraicDataTypes;
+import org.derive4j.processor.api.model.JRecord;
+import org.derive4j.processor.api.model.JRecords;
+
+import static org.derive4j.processor.Utils.uncapitalize;
+import static org.derive4j.processor.api.DeriveResult.result;
+import static org.derive4j.processor.api.DerivedCodeSpec.methodSpec;
+
+/**
+ * Record counterpart of {@link CataDerivator}: folds recursive record hierarchies through a pattern {@code switch},
+ * recursion being suspended by the {@code delay} function.
+ */
+final class JCataDerivator implements Derivator<Java> {
+
+  JCataDerivator(DeriveUtils utils) {
+    this.utils = utils;
+    mapperDerivator = new JMapperDerivator(utils);
+  }
+
+  private final DeriveUtils      utils;
+  private final JMapperDerivator mapperDerivator;
+
+  @Override
+  public DeriveResult<DerivedCodeSpec> derive(AlgebraicDataType<Java> adt) {
+
+    final List<JRecord> records = AlgebraicDataTypes.getJDataConstruction_(adt).constructors();
+
+    return records.stream()
+        .flatMap(rec -> JRecords.getComponents(rec).stream())
+        .anyMatch(c -> isSelfReference(adt, c.asType()))
+        ? result(methodSpec(cataMethod(adt, records)))
+        : result(DerivedCodeSpec.none());
+  }
+
+  private MethodSpec cataMethod(AlgebraicDataType<Java> adt, List<JRecord> records) {
+
+    final TypeVariableName returnTypeVariable = JMapperDerivator.returnTypeVariable(adt);
+    final SamInterface f0 = utils.function0Model(adt.deriveConfig().flavour());
+    final SamInterface f1 = utils.function1Model(adt.deriveConfig().flavour());
+    final ExecutableElement abstractMethod = f1.sam();
+    final TypeName returnType = Utils.typeName(ClassName.get(f1.samClass()),
+        Stream.of(TypeName.get(adt.typeConstructor().declaredType()), returnTypeVariable));
+
+    final NameAllocator nameAllocator = new NameAllocator();
+    records.forEach(rec -> nameAllocator.newName(JMapperDerivator.mapperFieldName(rec)));
+    final var delay = nameAllocator.newName("delay");
+    final var adtVar = nameAllocator.newName(uncapitalize(adt.typeConstructor().typeElement().getSimpleName()));
+
+    final CodeBlock switchExpr = Utils.switchOnRecords(CodeBlock.of("$N", adtVar), records, nameAllocator,
+        (caseVar, rec) -> CodeBlock.of("$L.$L($L);", JMapperDerivator.mapperFieldName(rec),
+            mapperDerivator.mapperApplyMethod(adt.deriveConfig(), rec),
+            Utils.joinStringsAsArguments(JRecords.getComponents(rec)
+                .stream()
+                .map(c -> isSelfReference(adt, c.asType())
+                    ? "this." + abstractMethod.getSimpleName() + '(' + caseVar + '.' + c.getSimpleName() + "())"
+                    : caseVar + '.' + c.getSimpleName() + "()"))),
+        Optional.empty());
+
+    final TypeSpec wrapper = TypeSpec.anonymousClassBuilder("")
+        .addSuperinterface(returnType)
+        .addMethod(MethodSpec.methodBuilder(abstractMethod.getSimpleName().toString())
+            .addAnnotation(Override.class)
+            .addModifiers(abstractMethod.getModifiers()
+                .stream()
+                .filter(m -> m != Modifier.ABSTRACT)
+                .collect(Collectors.toList()))
+            .returns(returnTypeVariable)
+            .addParameter(TypeName.get(adt.typeConstructor().declaredType()), adtVar)
+            .addStatement("return $L.$L(() -> $L)", delay, f1.sam().getSimpleName(),
+                switchExpr)
+            .build())
+        .build();
+
+    return MethodSpec.methodBuilder("cata")
+        .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
+        .addTypeVariables(adt.typeConstructor().typeVariables().stream().map(TypeVariableName::get).toList())
+        .addTypeVariable(returnTypeVariable)
+        .returns(returnType)
+        .addParameters(records.stream()
+            .map(rec -> ParameterSpec.builder(
+                mapperDerivator.mapperTypeName(adt, rec, returnTypeVariable, returnTypeVariable),
+                JMapperDerivator.mapperFieldName(rec)).build())
+            .toList())
+        .addParameter(Utils.typeName(ClassName.get(f1.samClass()),
+            Stream.of(Utils.typeName(ClassName.get(f0.samClass()), Stream.of(returnTypeVariable)), returnTypeVariable)),
+            delay)
+        .addStatement("return $L", wrapper)
+        .build();
+  }
+
+  private boolean isSelfReference(AlgebraicDataType<Java> adt, TypeMirror type) {
+    return utils.types().isSameType(type, adt.typeConstructor().declaredType());
+  }
+}
@@ -0,0 +1,190 @@
+/*
+ * Copyright (c) 2019, Jean-Baptiste Giraudeau <jb@giraudeau.info>
+ *
+ * This file is part of "Derive4J - Annotation Processor".
+ *
+ * "Derive4J - Annotation Processor" is free software: you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * "Derive4J - Annotation Processor" is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with "Derive4J - Annotation Processor".  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.derive4j.processor;
+
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.NameAllocator;
+import com.squareup.javapoet.ParameterSpec;
+import com.squareup.javapoet.ParameterizedTypeName;
+import com.squareup.javapoet.TypeName;
+import com.squareup.javapoet.TypeSpec;
+import com.squareup.javapoet.TypeVariableName;
+import java.util.List;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.RecordComponentElement;
+import org.derive4j.Make;
+import org.derive4j.processor.api.Derivator;
+import org.derive4j.processor.api.DeriveResult;
+import org.derive4j.processor.api.DeriveUtils;
+import org.derive4j.processor.api.DerivedCodeSpec;
+import org.derive4j.processor.api.DerivedCodeSpecs;
+import org.derive4j.processor.api.model.AlgebraicDataType;
+import org.derive4j.processor.api.model.AlgebraicDataType.Variant.Java;
+import org.derive4j.processor.api.model.AlgebraicDataTypes;
+import org.derive4j.processor.api.model.DeriveConfig;
+import org.derive4j.processor.api.model.JRecord;
+import org.derive4j.processor.api.model.JRecords;
+
+import static java.util.stream.Stream.concat;
+import static org.derive4j.processor.Utils.uncapitalize;
+
+/**
+ * Record counterpart of {@link MapperDerivator}: functional interfaces taking the components of a record, used by
+ * record pattern matchers and catamorphisms.
+ */
+final class JMapperDerivator implements Derivator<Java> {
+
+  JMapperDerivator(DeriveUtils deriveUtils) {
+    this.deriveUtils = deriveUtils;
+  }
+
+  private final DeriveUtils deriveUtils;
+
+  @Override
+  public DeriveResult<DerivedCodeSpec> derive(AlgebraicDataType<Java> adt) {
+
+    // mapper interfaces are only used by matchers and catamorphisms.
+    if (Stream.of(Make.casesMatching, Make.caseOfMatching, Make.catamorphism)
+        .noneMatch(adt.deriveConfig().makes()::contains)) {
+      return DeriveResult.result(DerivedCodeSpec.none());
+    }
+
+    return DeriveResult.result(DerivedCodeSpecs.codeSpec(AlgebraicDataTypes.getJDataConstruction_(adt)
+        .constructors()
+        .stream()
+        .filter(rec -> JRecords.getComponents(rec).size() > 1)
+        .filter(rec -> !usesRuntimeFunction(adt.deriveConfig(), rec))
+        .map(JMapperDerivator::mapperTypeSpec)
+        .toList(), List.of(), List.of()));
+  }
+
+  static String mapperFieldName(JRecord rec) {
+    return uncapitalize(JRecords.getElement(rec).getSimpleName());
+  }
+
+  static String mapperInterfaceName(JRecord rec) {
+    return JRecords.getElement(rec).getSimpleName() + "Mapper";
+  }
+
+  /**
+   * A type variable for the result of a match that does not clash with the type variables of the data type.
+   */
+  static TypeVariableName returnTypeVariable(AlgebraicDataType<Java> adt) {
+    final var nameAllocator = new NameAllocator();
+    adt.typeConstructor().typeVariables().forEach(tv -> nameAllocator.newName(tv.toString()));
+    return TypeVariableName.get(nameAllocator.newName("R"));
+  }
+
+  /**
+   * Mappers of arity > 1 are shared runtime library functions when they do not need primitive parameters.
+   */
+  static boolean usesRuntimeFunction(DeriveConfig deriveConfig, JRecord rec) {
+    final var components = JRecords.getComponents(rec);
+    final var nbArgs = components.size();
+    return nbArgs > 1 && nbArgs <= RuntimeLibrary.MAX_FUNCTION_ARITY && RuntimeLibrary.enabled(deriveConfig)
+        && components.stream().noneMatch(JMapperDerivator::isPrimitive);
+  }
+
+  private static boolean isPrimitive(RecordComponentElement component) {
+    return component.asType().getKind().isPrimitive();
+  }
+
+  String mapperApplyMethod(DeriveConfig deriveConfig, JRecord rec) {
+    final var nbArgs = JRecords.getComponents(rec).size();
+    return (nbArgs == 0)
+        ? deriveUtils.function0Model(deriveConfig.flavour()).sam().getSimpleName().toString()
+        : nbArgs == 1
+            ? deriveUtils.function1Model(deriveConfig.flavour()).sam().getSimpleName().toString()
+            : usesRuntimeFunction(deriveConfig, rec)
+                ? "apply"
+                : mapperFieldName(rec);
+  }
+
+  TypeName mapperTypeName(AlgebraicDataType<Java> adt, JRecord rec, TypeName returnType) {
+    return mapperTypeName(adt, rec, TypeName.get(adt.typeConstructor().declaredType()), returnType);
+  }
+
+  /**
+   * @param selfReferenceType type substituted to components of the data type itself (eg. the result of a fold).
+   */
+  TypeName mapperTypeName(AlgebraicDataType<Java> adt, JRecord rec, TypeName selfReferenceType,
+      TypeName returnType) {
+
+    final var components = JRecords.getComponents(rec);
+    final boolean mapperInterface = components.size() > 1 && !usesRuntimeFunction(adt.deriveConfig(), rec);
+
+    // primitive components are not type arguments of mapper interfaces, which take them unboxed.
+    final TypeName[] argsTypeNames = components
+        .stream()
+        .filter(c -> !(mapperInterface && isPrimitive(c)))
+        .map(RecordComponentElement::asType)
+        .map(t -> deriveUtils.types().isSameType(t, adt.typeConstructor().declaredType())
+            ? selfReferenceType
+            : TypeName.get(Utils.asBoxedType.visit(t, deriveUtils.types())))
+        .toArray(TypeName[]::new);
+
+    return components.isEmpty()
+        ? ParameterizedTypeName
+            .get(ClassName.get(deriveUtils.function0Model(adt.deriveConfig().flavour()).samClass()), returnType)
+        : components.size() == 1
+            ? ParameterizedTypeName.get(
+                ClassName.get(deriveUtils.function1Model(adt.deriveConfig().flavour()).samClass()),
+                argsTypeNames[0], returnType)
+            : ParameterizedTypeName.get(mapperInterface
+                    ? adt.deriveConfig().targetClass().className().nestedClass(mapperInterfaceName(rec))
+                    : RuntimeLibrary.function(argsTypeNames.length),
+                concat(Stream.of(argsTypeNames), Stream.of(returnType)).toArray(TypeName[]::new));
+  }
+
+  private static TypeSpec mapperTypeSpec(JRecord rec) {
+    final var components = JRecords.getComponents(rec);
+    final var nameAllocator = new NameAllocator();
+    final var argsTypes = IntStream.range(0, components.size())
+        .mapToObj(i -> isPrimitive(components.get(i))
+            ? TypeName.get(components.get(i).asType())
+            : TypeVariableName.get(nameAllocator.newName("T" + (i + 1))))
+        .toList();
+    final var returnTypeVariable = TypeVariableName.get(nameAllocator.newName("R"));
+
+    return TypeSpec.interfaceBuilder(mapperInterfaceName(rec))
+        .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
+        .addTypeVariables(argsTypes.stream()
+            .filter(TypeVariableName.class::isInstance)
+            .map(TypeVariableName.class::cast)
+            .toList())
+        .addTypeVariable(returnTypeVariable)
+        .addMethod(MethodSpec.methodBuilder(mapperFieldName(rec))
+            .addModifiers(Modifier.PUBLIC, Modifier.ABSTRACT)
+            .addParameters(IntStream.range(0, components.size())
+                .mapToObj(i -> ParameterSpec
+                    .builder(argsTypes.get(i), components.get(i).getSimpleName().toString())
+                    .build())
+                .toList())
+            .returns(returnTypeVariable)
+            .build())
+        .build();
+  }
+
+  static TypeName recordTypeName(JRecord rec) {
+    return TypeName.get(JRecords.getElement(rec).asType());
+  }
+}
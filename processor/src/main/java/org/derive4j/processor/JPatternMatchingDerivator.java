@@ -0,0 +1,272 @@
+/*
+ * Copyright (c) 2019, Jean-Baptiste Giraudeau <jb@giraudeau.info>
+ *
+ * This file is part of "Derive4J - Annotation Processor".
+ *
+ * "Derive4J - Annotation Processor" is free software: you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * "Derive4J - Annotation Processor" is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with "Derive4J - Annotation Processor".  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.derive4j.processor;
+
+import com.squareup.javapoet.AnnotationSpec;
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.CodeBlock;
+import com.squareup.javapoet.FieldSpec;
+import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.NameAllocator;
+import com.squareup.javapoet.ParameterSpec;
+import com.squareup.javapoet.ParameterizedTypeName;
+import com.squareup.javapoet.TypeName;
+import com.squareup.javapoet.TypeSpec;
+import com.squareup.javapoet.TypeVariableName;
+import com.squareup.javapoet.WildcardTypeName;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import javax.lang.model.element.Modifier;
+import org.derive4j.processor.PatternMatchingDerivator.MatchingKind;
+import org.derive4j.processor.api.Derivator;
+import org.derive4j.processor.api.DeriveResult;
+import org.derive4j.processor.api.DeriveUtils;
+import org.derive4j.processor.api.DerivedCodeSpec;
+import org.derive4j.processor.api.model.AlgebraicDataType;
+import org.derive4j.processor.api.model.AlgebraicDataType.Variant.Java;
+import org.derive4j.processor.api.model.AlgebraicDataTypes;
+import org.derive4j.processor.api.model.JRecord;
+import org.derive4j.processor.api.model.JRecords;
+
+import static org.derive4j.processor.Utils.uncapitalize;
+
+/**
+ * Record counterpart of {@link PatternMatchingDerivator}: the same total matching steps (plus {@code otherwise}),
+ * dispatched through a pattern {@code switch} over the permitted records.
+ */
+final class JPatternMatchingDerivator implements Derivator<Java> {
+
+  JPatternMatchingDerivator(DeriveUtils deriveUtils, MatchingKind matchingKind) {
+    this.deriveUtils = deriveUtils;
+    this.matchingKind = matchingKind;
+    mapperDerivator = new JMapperDerivator(deriveUtils);
+  }
+
+  private final DeriveUtils      deriveUtils;
+  private final MatchingKind     matchingKind;
+  private final JMapperDerivator mapperDerivator;
+
+  @Override
+  public DeriveResult<DerivedCodeSpec> derive(AlgebraicDataType<Java> adt) {
+
+    final List<JRecord> records = AlgebraicDataTypes.getJDataConstruction_(adt).constructors();
+
+    if (records.isEmpty() || ((matchingKind == MatchingKind.CaseOf) && (records.size() <= 1))) {
+      return DeriveResult.result(DerivedCodeSpec.none());
+    }
+
+    final ClassName wrapperClass = adt.deriveConfig()
+        .targetClass()
+        .className()
+        .nestedClass(matchingKind.wrapperClassName());
+    final ClassName firstStepClassName = wrapperClass.nestedClass(stepClassName(records.get(0)));
+    final TypeName firstStepTypeName = Utils.typeName(firstStepClassName,
+        adt.typeConstructor().typeVariables().stream().map(TypeName::get));
+
+    final MethodSpec.Builder matchFactory = MethodSpec.methodBuilder(matchingKind.factoryMethodName())
+        .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
+        .addTypeVariables(adtTypeVariables(adt))
+        .returns(firstStepTypeName);
+
+    final TypeSpec.Builder wrapperClassSpec = TypeSpec.classBuilder(wrapperClass)
+        .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
+        .addMethod(MethodSpec.constructorBuilder().addModifiers(Modifier.PRIVATE).build());
+
+    if (matchingKind == MatchingKind.Cases) {
+      final var initialStepFieldName = uncapitalize(firstStepClassName.simpleName());
+      final FieldSpec.Builder initialStepField = FieldSpec
+          .builder(Utils.typeName(firstStepClassName, adt.typeConstructor()
+              .typeVariables()
+              .stream()
+              .map(__ -> WildcardTypeName.subtypeOf(Object.class))), initialStepFieldName)
+          .addModifiers(Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL);
+
+      if (adt.typeConstructor().typeVariables().isEmpty()) {
+        initialStepField.initializer("new $L()", firstStepClassName.simpleName());
+        matchFactory.addStatement("return $T.$L", wrapperClass, initialStepFieldName);
+      } else {
+        initialStepField.initializer("new $L<>()", firstStepClassName.simpleName());
+        matchFactory
+            .addAnnotation(AnnotationSpec.builder(SuppressWarnings.class).addMember("value", "$S", "unchecked").build())
+            .addStatement("return ($T) $T.$L", firstStepTypeName, wrapperClass, initialStepFieldName);
+      }
+      wrapperClassSpec.addField(initialStepField.build());
+    } else {
+      final ParameterSpec adtParameterSpec = ParameterSpec
+          .builder(TypeName.get(adt.typeConstructor().declaredType()),
+              uncapitalize(adt.typeConstructor().typeElement().getSimpleName()))
+          .build();
+      matchFactory.addParameter(adtParameterSpec)
+          .addStatement("return new $T($N)", firstStepTypeName, adtParameterSpec);
+    }
+
+    return DeriveResult.result(DerivedCodeSpec.codeSpec(wrapperClassSpec
+        .addTypes(IntStream.range(0, records.size())
+            .mapToObj(i -> stepTypeSpec(adt, wrapperClass, records, i))
+            .collect(Collectors.toList()))
+        .build(), matchFactory.build()));
+  }
+
+  private TypeSpec stepTypeSpec(AlgebraicDataType<Java> adt, ClassName wrapperClass, List<JRecord> records,
+      int current) {
+
+    final TypeVariableName returnTypeVariable = JMapperDerivator.returnTypeVariable(adt);
+    final JRecord currentRecord = records.get(current);
+    final List<JRecord> previousRecords = records.subList(0, current);
+    final FieldSpec adtField = adtFieldSpec(adt);
+
+    final List<TypeVariableName> stepTypeVariables = new ArrayList<>(adtTypeVariables(adt));
+    if (current > 0) {
+      stepTypeVariables.add(returnTypeVariable);
+    }
+
+    final TypeSpec.Builder step = TypeSpec.classBuilder(stepClassName(currentRecord))
+        .addModifiers(Modifier.PUBLIC, Modifier.STATIC, Modifier.FINAL)
+        .addTypeVariables(stepTypeVariables);
+
+    final MethodSpec.Builder constructor = MethodSpec.constructorBuilder();
+
+    if (matchingKind == MatchingKind.CaseOf) {
+      step.addField(adtField);
+      constructor.addParameter(adtField.type, adtField.name).addStatement("this.$1N = $1N", adtField);
+    }
+
+    for (JRecord rec : previousRecords) {
+      final var mapperType = mapperDerivator.mapperTypeName(adt, rec, returnTypeVariable);
+      final var mapperName = JMapperDerivator.mapperFieldName(rec);
+      step.addField(FieldSpec.builder(mapperType, mapperName, Modifier.PRIVATE, Modifier.FINAL).build());
+      constructor.addParameter(mapperType, mapperName).addStatement("this.$1N = $1N", mapperName);
+    }
+
+    final TypeName matchedType = (matchingKind == MatchingKind.Cases)
+        ? ParameterizedTypeName.get(ClassName.get(deriveUtils.function1Model(adt.deriveConfig().flavour()).samClass()),
+            TypeName.get(adt.typeConstructor().declaredType()), returnTypeVariable)
+        : returnTypeVariable;
+
+    final boolean last = current == records.size() - 1;
+
+    final TypeName returnType = last
+        ? matchedType
+        : ParameterizedTypeName.get(wrapperClass.nestedClass(stepClassName(records.get(current + 1))),
+            Stream.concat(adtTypeVariables(adt).stream(), Stream.of(returnTypeVariable)).toArray(TypeName[]::new));
+
+    final var currentMapperName = JMapperDerivator.mapperFieldName(currentRecord);
+
+    final MethodSpec.Builder currentMatchMethod = MethodSpec.methodBuilder(currentMapperName)
+        .addModifiers(Modifier.PUBLIC, Modifier.FINAL)
+        .addParameter(mapperDerivator.mapperTypeName(adt, currentRecord, returnTypeVariable), currentMapperName)
+        .returns(returnType);
+
+    if (last) {
+      currentMatchMethod.addCode(matchImpl(adt, records, records.size(), Optional.empty()));
+    } else {
+      currentMatchMethod.addStatement("return new $L<>($L)", stepClassName(records.get(current + 1)),
+          Utils.joinStringsAsArguments(Stream.of(
+              (matchingKind == MatchingKind.CaseOf) ? Stream.of("this." + adtField.name) : Stream.<String>empty(),
+              previousRecords.stream().map(rec -> "this." + JMapperDerivator.mapperFieldName(rec)),
+              Stream.of(currentMapperName)).flatMap(s -> s)));
+    }
+
+    final NameAllocator nameAllocator = new NameAllocator();
+    final var constantName = nameAllocator.newName(uncapitalize(returnTypeVariable.name));
+    final MethodSpec.Builder currentConstantMethod = MethodSpec.methodBuilder(currentMapperName + '_')
+        .addModifiers(Modifier.PUBLIC, Modifier.FINAL)
+        .addParameter(returnTypeVariable, constantName)
+        .returns(returnType)
+        .addStatement("return this.$L($L -> $L)", currentMapperName,
+            lambdaParameters(currentRecord, nameAllocator), constantName);
+
+    if (current == 0) {
+      currentMatchMethod.addTypeVariable(returnTypeVariable);
+      currentConstantMethod.addTypeVariable(returnTypeVariable);
+    }
+
+    step.addMethod(constructor.build()).addMethod(currentMatchMethod.build()).addMethod(currentConstantMethod.build());
+
+    if (current > 0) {
+      final var f0 = deriveUtils.function0Model(adt.deriveConfig().flavour());
+      step.addMethod(MethodSpec.methodBuilder("otherwise")
+          .addModifiers(Modifier.PUBLIC, Modifier.FINAL)
+          .addParameter(ParameterizedTypeName.get(ClassName.get(f0.samClass()), returnTypeVariable), "otherwise")
+          .returns(matchedType)
+          .addCode(matchImpl(adt, records, current,
+              Optional.of(CodeBlock.of("otherwise.$L()", f0.sam().getSimpleName()))))
+          .build())
+          .addMethod(MethodSpec.methodBuilder("otherwise_")
+              .addModifiers(Modifier.PUBLIC, Modifier.FINAL)
+              .addParameter(returnTypeVariable, constantName)
+              .returns(matchedType)
+              .addStatement("return this.otherwise(() -> $L)", constantName)
+              .build());
+    }
+
+    return step.build();
+  }
+
+  private CodeBlock matchImpl(AlgebraicDataType<Java> adt, List<JRecord> records, int nbMatched,
+      Optional<CodeBlock> otherwise) {
+
+    final NameAllocator nameAllocator = new NameAllocator();
+    records.forEach(rec -> nameAllocator.newName(JMapperDerivator.mapperFieldName(rec)));
+    nameAllocator.newName("otherwise");
+    final var adtVar = nameAllocator.newName(uncapitalize(adt.typeConstructor().typeElement().getSimpleName()));
+
+    final CodeBlock switchExpr = Utils.switchOnRecords(
+        (matchingKind == MatchingKind.Cases) ? CodeBlock.of("$N", adtVar) : CodeBlock.of("this.$N", adtFieldSpec(adt)),
+        records.subList(0, nbMatched), nameAllocator,
+        (caseVar, rec) -> CodeBlock.of("$L.$L($L);", JMapperDerivator.mapperFieldName(rec),
+            mapperDerivator.mapperApplyMethod(adt.deriveConfig(), rec),
+            Utils.joinStringsAsArguments(JRecords.getComponents(rec)
+                .stream()
+                .map(c -> caseVar + '.' + c.getSimpleName() + "()"))),
+        otherwise.map(o -> CodeBlock.of("$L;", o)));
+
+    return (matchingKind == MatchingKind.Cases)
+        ? CodeBlock.builder().addStatement("return $L -> $L", adtVar, switchExpr).build()
+        : CodeBlock.builder().addStatement("return $L", switchExpr).build();
+  }
+
+  static String stepClassName(JRecord rec) {
+    return "TotalMatcher_" + JRecords.getElement(rec).getSimpleName();
+  }
+
+  static String lambdaParameters(JRecord rec, NameAllocator nameAllocator) {
+    final var components = JRecords.getComponents(rec);
+    final var params = components.stream()
+        .map(c -> nameAllocator.newName(c.getSimpleName().toString()))
+        .collect(Collectors.joining(", "));
+    return components.size() == 1 ? params : '(' + params + ')';
+  }
+
+  private static List<TypeVariableName> adtTypeVariables(AlgebraicDataType<Java> adt) {
+    return adt.typeConstructor().typeVariables().stream().map(TypeVariableName::get).collect(Collectors.toList());
+  }
+
+  private static FieldSpec adtFieldSpec(AlgebraicDataType<Java> adt) {
+    return FieldSpec
+        .builder(TypeName.get(adt.typeConstructor().declaredType()),
+            '_' + uncapitalize(adt.typeConstructor().typeElement().getSimpleName()))
+        .addModifiers(Modifier.PRIVATE, Modifier.FINAL)
+        .build();
+  }
+}
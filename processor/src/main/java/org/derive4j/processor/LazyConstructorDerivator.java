@@ -41,7 +41,7 @@ final class LazyConstructorDerivator implements Derivator<Variant.Drv4j> {
   private final DeriveUtils                deriveUtils;
   private final StrictConstructorDerivator strictDerivator;
 
-  LazyConstructorDerivator(DeriveUtils deriveUtils) {
+  LazyConstructorDerivator(DeriveUtilsImpl deriveUtils) {
     this.deriveUtils = deriveUtils;
     strictDerivator = new StrictConstructorDerivator(deriveUtils);
   }
@@ -136,6 +136,8 @@ final class LazyConstructorDerivator implements Derivator<Variant.Drv4j> {
             .addStatement("return (this.expression == null ? this.evaluation : _evaluate()).toString()")
             .build())).collect(Collectors.toList()));
 
+    typeSpecBuilder.addMethods(optionalAsStream(strictDerivator.deriveCompareTo(adt)).collect(Collectors.toList()));
+
     return result(codeSpec(typeSpecBuilder.build(),
         MethodSpec.methodBuilder("lazy")
             .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
@@ -0,0 +1,233 @@
+/*
+ * Copyright (c) 2019, Jean-Baptiste Giraudeau <jb@giraudeau.info>
+ *
+ * This file is part of "Derive4J - Annotation Processor".
+ *
+ * "Derive4J - Annotation Processor" is free software: you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * "Derive4J - Annotation Processor" is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with "Derive4J - Annotation Processor".  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.derive4j.processor;
+
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.CodeBlock;
+import com.squareup.javapoet.FieldSpec;
+import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.NameAllocator;
+import com.squareup.javapoet.ParameterizedTypeName;
+import com.squareup.javapoet.TypeName;
+import com.squareup.javapoet.TypeSpec;
+import com.squareup.javapoet.TypeVariableName;
+import com.squareup.javapoet.WildcardTypeName;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.type.TypeVariable;
+import org.derive4j.processor.api.Derivator;
+import org.derive4j.processor.api.DeriveResult;
+import org.derive4j.processor.api.DeriveUtils;
+import org.derive4j.processor.api.DerivedCodeSpec;
+import org.derive4j.processor.api.DerivedCodeSpecs;
+import org.derive4j.processor.api.model.AlgebraicDataType;
+import org.derive4j.processor.api.model.AlgebraicDataType.Variant.Drv4j;
+import org.derive4j.processor.api.model.AlgebraicDataTypes;
+import org.derive4j.processor.api.model.DataArgument;
+import org.derive4j.processor.api.model.DataConstructor;
+
+import static org.derive4j.processor.api.DeriveMessages.message;
+import static org.derive4j.processor.api.MessageLocalizations.onElement;
+
+/**
+ * Loop based {@code foldLeft}, {@code forEach}, {@code length} and {@code get} for linearly recursive data types
+ * (constructors having at most one field of the data type itself), over the fields of the single type variable.
+ * The recursive field is walked one node at a time, so that lazy nodes are forced one at a time and the stack does
+ * not grow.
+ */
+final class LinearFoldDerivator implements Derivator<Drv4j> {
+
+  private static final String WALK_CLASS_NAME = "LinearWalk";
+
+  private final DeriveUtils deriveUtils;
+
+  LinearFoldDerivator(DeriveUtils deriveUtils) {
+    this.deriveUtils = deriveUtils;
+  }
+
+  @Override
+  public DeriveResult<DerivedCodeSpec> derive(AlgebraicDataType<Drv4j> adt) {
+
+    final var typeVariables = adt.typeConstructor().typeVariables();
+    final var constructors = AlgebraicDataTypes.getDataConstruction_(adt).constructors();
+
+    if (typeVariables.size() != 1) {
+      return error(adt, "linearFold requires a data type with exactly one type variable");
+    }
+    if (constructors.stream().anyMatch(dc -> !dc.typeRestrictions().isEmpty())) {
+      return error(adt, "linearFold is not supported for constructors with type restrictions (GADT)");
+    }
+    final var selfFieldCounts = constructors.stream()
+        .mapToLong(dc -> dc.arguments().stream().filter(da -> isSelf(adt, da)).count())
+        .summaryStatistics();
+    if (selfFieldCounts.getMax() != 1) {
+      return error(adt,
+          "linearFold requires a linearly recursive data type: at least one constructor with exactly one field of type "
+              + adt.typeConstructor().declaredType() + " and none with more");
+    }
+
+    return DeriveResult.result(linearFold(adt, typeVariables.get(0)));
+  }
+
+  private DerivedCodeSpec linearFold(AlgebraicDataType<Drv4j> adt, TypeVariable element) {
+
+    final var elementType = TypeVariableName.get(element);
+    final var accType = TypeVariableName.get(freshTypeVariableName(element, "B"));
+    final var adtTypeName = TypeName.get(adt.typeConstructor().declaredType());
+    final var walkClass = adt.deriveConfig().targetClass().className().nestedClass(WALK_CLASS_NAME);
+    final var walkTypeName = ParameterizedTypeName.get(walkClass, elementType, accType);
+    final var functionType = ParameterizedTypeName.get(ClassName.get(BiFunction.class), accType,
+        WildcardTypeName.supertypeOf(elementType), accType);
+
+    final TypeSpec walkSpec = TypeSpec.classBuilder(WALK_CLASS_NAME)
+        .addModifiers(Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL)
+        .addTypeVariables(Arrays.asList(elementType, accType))
+        .addField(adtTypeName, "rest", Modifier.PRIVATE)
+        .addField(accType, "acc", Modifier.PRIVATE)
+        .addField(functionType, "f", Modifier.PRIVATE, Modifier.FINAL)
+        .addField(TypeName.LONG, "limit", Modifier.PRIVATE, Modifier.FINAL)
+        .addField(TypeName.LONG, "count", Modifier.PRIVATE)
+        .addMethod(MethodSpec.constructorBuilder()
+            .addParameter(adtTypeName, "value")
+            .addParameter(accType, "zero")
+            .addParameter(functionType, "f")
+            .addParameter(TypeName.LONG, "limit")
+            .addStatement("this.rest = value")
+            .addStatement("this.acc = zero")
+            .addStatement("this.f = f")
+            .addStatement("this.limit = limit")
+            .build())
+        .addMethod(MethodSpec.methodBuilder("accept")
+            .addModifiers(Modifier.PRIVATE)
+            .addParameter(elementType, "element")
+            .returns(TypeName.BOOLEAN)
+            .addStatement("acc = f.apply(acc, element)")
+            .addStatement("return ++count < limit")
+            .build())
+        .addMethod(MethodSpec.methodBuilder("advance")
+            .addModifiers(Modifier.PRIVATE)
+            .addParameter(adtTypeName, "next")
+            .returns(TypeName.BOOLEAN)
+            .addStatement("rest = next")
+            .addStatement("return next != null")
+            .build())
+        .addMethod(MethodSpec.methodBuilder("run")
+            .returns(walkTypeName)
+            .beginControlFlow("if (limit > 0)")
+            .beginControlFlow("while ($L)",
+                Utils.matchWithLambdas(adt, CodeBlock.of("rest"), dc -> step(adt, element, dc)))
+            .endControlFlow()
+            .endControlFlow()
+            .addStatement("return this")
+            .build())
+        .build();
+
+    final var value = "value";
+    final List<MethodSpec> methods = new ArrayList<>();
+
+    methods.add(MethodSpec.methodBuilder("foldLeft")
+        .addJavadoc("Folds the elements of value from the first one, in constant stack space.\n")
+        .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
+        .addTypeVariables(Arrays.asList(elementType, accType))
+        .addParameter(adtTypeName, value)
+        .addParameter(accType, "zero")
+        .addParameter(functionType, "f")
+        .returns(accType)
+        .addStatement("return new $T<$T, $T>($N, zero, f, $T.MAX_VALUE).run().acc", walkClass, elementType, accType,
+            value, Long.class)
+        .build());
+
+    methods.add(MethodSpec.methodBuilder("forEach")
+        .addJavadoc("Applies effect to the elements of value, in order.\n")
+        .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
+        .addTypeVariable(elementType)
+        .addParameter(adtTypeName, value)
+        .addParameter(ParameterizedTypeName.get(ClassName.get(Consumer.class),
+            WildcardTypeName.supertypeOf(elementType)), "effect")
+        .addStatement(
+            "new $T<$T, $T>($N, null, (unit, element) -> {\n$>effect.accept(element);\nreturn unit;\n$<}, $T.MAX_VALUE)"
+                + ".run()",
+            walkClass, elementType, Void.class, value, Long.class)
+        .build());
+
+    methods.add(MethodSpec.methodBuilder("length")
+        .addJavadoc("The number of elements of value.\n")
+        .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
+        .addTypeVariable(elementType)
+        .addParameter(adtTypeName, value)
+        .returns(TypeName.INT)
+        .addStatement(
+            "return $T.toIntExact(new $T<$T, $T>($N, null, (unit, element) -> unit, $T.MAX_VALUE).run().count)",
+            Math.class, walkClass, elementType, Void.class, value, Long.class)
+        .build());
+
+    methods.add(MethodSpec.methodBuilder("get")
+        .addJavadoc("The element of value at index, walking no further.\n")
+        .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
+        .addTypeVariable(elementType)
+        .addParameter(adtTypeName, value)
+        .addParameter(TypeName.INT, "index")
+        .returns(elementType)
+        .addStatement("$T<$T, $T> walk = new $T<$T, $T>($N, null, (previous, element) -> element, index + 1L).run()",
+            walkClass, elementType, elementType, walkClass, elementType, elementType, value)
+        .beginControlFlow("if (index < 0 || walk.count <= index)")
+        .addStatement("throw new $T($S + index)", IndexOutOfBoundsException.class, "Index out of range: ")
+        .endControlFlow()
+        .addStatement("return walk.acc")
+        .build());
+
+    return DerivedCodeSpecs.codeSpec(Collections.singletonList(walkSpec), Collections.<FieldSpec>emptyList(), methods);
+  }
+
+  /**
+   * Accepts the elements of a node, in field order, stopping at the limit, then advances to its recursive field.
+   */
+  private CodeBlock step(AlgebraicDataType<Drv4j> adt, TypeVariable element, DataConstructor constructor) {
+    final List<CodeBlock> steps = new ArrayList<>();
+    String next = "null";
+    for (DataArgument da : constructor.arguments()) {
+      if (isSelf(adt, da)) {
+        next = da.fieldName();
+      } else if (deriveUtils.types().isSameType(da.type(), element)) {
+        steps.add(CodeBlock.of("this.accept($N)", da.fieldName()));
+      }
+    }
+    steps.add(CodeBlock.of("this.advance($L)", next));
+    return CodeBlock.join(steps, " && ");
+  }
+
+  private boolean isSelf(AlgebraicDataType<Drv4j> adt, DataArgument da) {
+    return deriveUtils.types().isSameType(da.type(), adt.typeConstructor().declaredType());
+  }
+
+  private static String freshTypeVariableName(TypeVariable element, String candidate) {
+    final NameAllocator nameAllocator = new NameAllocator();
+    nameAllocator.newName(element.toString());
+    return nameAllocator.newName(candidate);
+  }
+
+  private static DeriveResult<DerivedCodeSpec> error(AlgebraicDataType<Drv4j> adt, String msg) {
+    return DeriveResult.error(message(msg, onElement(adt.typeConstructor().typeElement())));
+  }
+}
@@ -82,7 +82,19 @@ class MapperDerivator implements Derivator<Drv4j> {
         ? deriveUtils.function0Model(deriveConfig.flavour()).sam().getSimpleName().toString()
         : nbArgs == 1
             ? deriveUtils.function1Model(deriveConfig.flavour()).sam().getSimpleName().toString()
-            : dc.deconstructor().method().getSimpleName().toString();
+            : usesRuntimeFunction(deriveConfig, dc)
+                ? "apply"
+                : dc.deconstructor().method().getSimpleName().toString();
+  }
+
+  /**
+   * Mappers of arity > 1 are shared runtime library functions when they do not need primitive parameters.
+   */
+  static boolean usesRuntimeFunction(DeriveConfig deriveConfig, DataConstructor dc) {
+
+    int nbArgs = dc.arguments().size() + dc.typeRestrictions().size();
+    return nbArgs > 1 && nbArgs <= RuntimeLibrary.MAX_FUNCTION_ARITY && RuntimeLibrary.enabled(deriveConfig)
+        && dc.deconstructor().visitorMethodType().getParameterTypes().stream().noneMatch(t -> t.getKind().isPrimitive());
   }
 
   public TypeName mapperTypeName(AlgebraicDataType<Drv4j> adt, DataConstructor dc) {
@@ -110,9 +122,16 @@ class MapperDerivator implements Derivator<Drv4j> {
             ? ParameterizedTypeName.get(
                 ClassName.get(deriveUtils.function1Model(adt.deriveConfig().flavour()).samClass()),
                 argsTypeNames[0], returnType)
-            : ParameterizedTypeName
-                .get(adt.deriveConfig().targetClass().className().nestedClass(mapperInterfaceName(dc)),
-                    mapperVariables(dc).toArray(TypeName[]::new));
+            : usesRuntimeFunction(adt.deriveConfig(), dc)
+                ? runtimeFunctionTypeName(argsTypeNames, returnType)
+                : ParameterizedTypeName
+                    .get(adt.deriveConfig().targetClass().className().nestedClass(mapperInterfaceName(dc)),
+                        mapperVariables(dc).toArray(TypeName[]::new));
+  }
+
+  private static TypeName runtimeFunctionTypeName(TypeName[] argsTypeNames, TypeName returnType) {
+    return ParameterizedTypeName.get(RuntimeLibrary.function(argsTypeNames.length),
+        concat(Stream.of(argsTypeNames), Stream.of(returnType)).toArray(TypeName[]::new));
   }
 
   public TypeName mapperTypeName(AlgebraicDataType<Drv4j> adt, DataConstructor dc, TypeName returnType) {
@@ -148,7 +167,9 @@ class MapperDerivator implements Derivator<Drv4j> {
                 ? ParameterizedTypeName.get(
                     ClassName.get(deriveUtils.function1Model(adt.deriveConfig().flavour()).samClass()),
                     argsTypeNames[0], returnType)
-                : ParameterizedTypeName
+                : usesRuntimeFunction(adt.deriveConfig(), dc)
+                    ? runtimeFunctionTypeName(argsTypeNames, returnType)
+                    : ParameterizedTypeName
                     .get(adt.deriveConfig().targetClass().className().nestedClass(mapperInterfaceName(dc)),
                         concat(
                             dc.deconstructor()
@@ -248,8 +269,10 @@ class MapperDerivator implements Derivator<Drv4j> {
         .build();
 
     return DerivedCodeSpec.codeSpec(
-        concat(constructors.stream().filter(dc -> (dc.arguments().size() + dc.typeRestrictions().size()) > 1).map(
-            this::mapperTypeSpec), Stream.of(lambdaVisitor)).collect(Collectors.toList()),
+        concat(constructors.stream()
+            .filter(dc -> (dc.arguments().size() + dc.typeRestrictions().size()) > 1)
+            .filter(dc -> !usesRuntimeFunction(adt.deriveConfig(), dc))
+            .map(this::mapperTypeSpec), Stream.of(lambdaVisitor)).collect(Collectors.toList()),
         lambdaVisitorFactory);
 
   }
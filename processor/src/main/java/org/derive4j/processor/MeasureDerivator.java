@@ -0,0 +1,268 @@
+/*
+ * Copyright (c) 2019, Jean-Baptiste Giraudeau <jb@giraudeau.info>
+ *
+ * This file is part of "Derive4J - Annotation Processor".
+ *
+ * "Derive4J - Annotation Processor" is free software: you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * "Derive4J - Annotation Processor" is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with "Derive4J - Annotation Processor".  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.derive4j.processor;
+
+import com.squareup.javapoet.AnnotationSpec;
+import com.squareup.javapoet.ArrayTypeName;
+import com.squareup.javapoet.CodeBlock;
+import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.NameAllocator;
+import com.squareup.javapoet.TypeName;
+import com.squareup.javapoet.TypeSpec;
+import com.squareup.javapoet.TypeVariableName;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import javax.lang.model.element.Modifier;
+import org.derive4j.DeriveOption;
+import org.derive4j.processor.api.DeriveUtils;
+import org.derive4j.processor.api.DerivedCodeSpec;
+import org.derive4j.processor.api.DerivedCodeSpecs;
+import org.derive4j.processor.api.model.AlgebraicDataType;
+import org.derive4j.processor.api.model.AlgebraicDataType.Variant.Drv4j;
+import org.derive4j.processor.api.model.AlgebraicDataTypes;
+import org.derive4j.processor.api.model.DataArgument;
+import org.derive4j.processor.api.model.DataConstructor;
+
+/**
+ * {@link DeriveOption#cachedMeasures}: {@code size(value)} (number of nodes) and {@code depth(value)} of self-recursive
+ * data types. Constructor classes compute and store their measures at construction, from the measures already
+ * stored by their recursive fields: lazy fields are not evaluated, the measures of the nodes built on top of them
+ * being computed on first demand, from an explicit stack, then stored.
+ * <p>Stored measures are volatile, the depth being written before the size and read after it: threads racing on the
+ * first demand may compute the same measures twice, but never read a torn or half stored pair.
+ */
+final class MeasureDerivator {
+
+  private static final String MEASURED = "Measured";
+
+  private final DeriveUtils deriveUtils;
+
+  MeasureDerivator(DeriveUtils deriveUtils) {
+    this.deriveUtils = deriveUtils;
+  }
+
+  boolean measured(AlgebraicDataType<Drv4j> adt) {
+    return adt.deriveConfig().options().contains(DeriveOption.cachedMeasures)
+        && AlgebraicDataTypes.getDataConstruction_(adt)
+            .constructors()
+            .stream()
+            .anyMatch(dc -> !selfArguments(adt, dc).isEmpty());
+  }
+
+  /**
+   * Stores the measures of the instances of a constructor class, computed by its constructor when those of
+   * selfArguments are known.
+   */
+  void measuredNode(AlgebraicDataType<Drv4j> adt, List<DataArgument> selfArguments, TypeSpec.Builder constructorClass,
+      MethodSpec.Builder constructor) {
+
+    final var targetClass = adt.deriveConfig().targetClass().className();
+    final var sizeField = measureFieldName(adt, "measuredSize");
+    final var depthField = measureFieldName(adt, "measuredDepth");
+
+    final CodeBlock knownChildren = selfArguments.stream()
+        .map(da -> CodeBlock.of("$T.knownSize($N) >= 0", targetClass, da.fieldName()))
+        .collect(CodeBlock.joining(" && "));
+    final CodeBlock size = selfArguments.stream()
+        .map(da -> CodeBlock.of(" + $T.knownSize($N)", targetClass, da.fieldName()))
+        .collect(CodeBlock.joining("", "1", ""));
+    final CodeBlock depth = selfArguments.stream()
+        .map(da -> CodeBlock.of("$T.knownDepth($N)", targetClass, da.fieldName()))
+        .reduce((d1, d2) -> CodeBlock.of("$T.max($L, $L)", Math.class, d1, d2))
+        .map(d -> CodeBlock.of("1 + $L", d))
+        .orElse(CodeBlock.of("1"));
+
+    if (!selfArguments.isEmpty()) {
+      constructor.beginControlFlow("if ($L)", knownChildren);
+    }
+    constructor.addStatement("this.$N = $L", depthField, depth).addStatement("this.$N = $L", sizeField, size);
+    if (!selfArguments.isEmpty()) {
+      constructor.endControlFlow();
+    }
+
+    constructorClass.addSuperinterface(targetClass.nestedClass(MEASURED))
+        .addField(TypeName.LONG, sizeField, Modifier.PRIVATE, Modifier.VOLATILE)
+        .addField(TypeName.INT, depthField, Modifier.PRIVATE, Modifier.VOLATILE)
+        .addMethod(MethodSpec.methodBuilder("knownSize")
+            .addAnnotation(Override.class)
+            .addModifiers(Modifier.PUBLIC)
+            .returns(TypeName.LONG)
+            .addStatement("return $N > 0 && $N > 0 ? $N : -1", sizeField, depthField, sizeField)
+            .build())
+        .addMethod(MethodSpec.methodBuilder("knownDepth")
+            .addAnnotation(Override.class)
+            .addModifiers(Modifier.PUBLIC)
+            .returns(TypeName.INT)
+            .addStatement("return $N > 0 && $N > 0 ? $N : -1", sizeField, depthField, depthField)
+            .build())
+        .addMethod(MethodSpec.methodBuilder("cacheMeasures")
+            .addAnnotation(Override.class)
+            .addModifiers(Modifier.PUBLIC)
+            .addParameter(TypeName.LONG, "size")
+            .addParameter(TypeName.INT, "depth")
+            .addStatement("this.$N = depth", depthField)
+            .addStatement("this.$N = size", sizeField)
+            .build());
+  }
+
+  DerivedCodeSpec derive(AlgebraicDataType<Drv4j> adt) {
+
+    final var typeVariables = adt.typeConstructor()
+        .typeVariables()
+        .stream()
+        .map(TypeVariableName::get)
+        .collect(Collectors.toList());
+    final var adtTypeName = TypeName.get(adt.typeConstructor().declaredType());
+    final var measuredClass = adt.deriveConfig().targetClass().className().nestedClass(MEASURED);
+    final var unchecked = AnnotationSpec.builder(SuppressWarnings.class).addMember("value", "$S", "unchecked").build();
+
+    final TypeSpec measured = TypeSpec.interfaceBuilder(MEASURED)
+        .addModifiers(Modifier.PRIVATE)
+        .addMethod(MethodSpec.methodBuilder("knownSize")
+            .addModifiers(Modifier.PUBLIC, Modifier.ABSTRACT)
+            .returns(TypeName.LONG)
+            .build())
+        .addMethod(MethodSpec.methodBuilder("knownDepth")
+            .addModifiers(Modifier.PUBLIC, Modifier.ABSTRACT)
+            .returns(TypeName.INT)
+            .build())
+        .addMethod(MethodSpec.methodBuilder("cacheMeasures")
+            .addModifiers(Modifier.PUBLIC, Modifier.ABSTRACT)
+            .addParameter(TypeName.LONG, "size")
+            .addParameter(TypeName.INT, "depth")
+            .build())
+        .build();
+
+    final MethodSpec knownSize = MethodSpec.methodBuilder("knownSize")
+        .addModifiers(Modifier.PRIVATE, Modifier.STATIC)
+        .addParameter(Object.class, "node")
+        .returns(TypeName.LONG)
+        .addStatement("return node == null ? 0 : node instanceof $1T ? (($1T) node).knownSize() : -1", measuredClass)
+        .build();
+
+    final MethodSpec knownDepth = MethodSpec.methodBuilder("knownDepth")
+        .addModifiers(Modifier.PRIVATE, Modifier.STATIC)
+        .addParameter(Object.class, "node")
+        .returns(TypeName.INT)
+        .addStatement("return node == null ? 0 : node instanceof $1T ? (($1T) node).knownDepth() : -1", measuredClass)
+        .build();
+
+    final MethodSpec selfChildren = MethodSpec.methodBuilder("selfChildren")
+        .addModifiers(Modifier.PRIVATE, Modifier.STATIC)
+        .addTypeVariables(typeVariables)
+        .addParameter(adtTypeName, "node")
+        .returns(ArrayTypeName.of(Object.class))
+        .addStatement("return $L", Utils.matchWithLambdas(adt, CodeBlock.of("node"),
+            dc -> CodeBlock.of("new $T[] { $L }", Object.class, selfArguments(adt, dc).stream()
+                .map(da -> CodeBlock.of("$N", da.fieldName()))
+                .collect(CodeBlock.joining(", ")))))
+        .build();
+
+    final MethodSpec measure = MethodSpec.methodBuilder("measure")
+        .addJavadoc("Measures value in post-order, from an explicit stack, storing the measures of visited nodes.\n")
+        .addAnnotation(unchecked)
+        .addModifiers(Modifier.PRIVATE, Modifier.STATIC)
+        .addTypeVariables(typeVariables)
+        .addParameter(adtTypeName, "value")
+        .returns(long[].class)
+        .addStatement("$T<$T, long[]> measures = new $T<>()", Map.class, Object.class, IdentityHashMap.class)
+        .addStatement("$T<$T> entered = $T.newSetFromMap(new $T<>())", Set.class, Object.class, Collections.class,
+            IdentityHashMap.class)
+        .addStatement("$T<$T> stack = new $T<>()", ArrayDeque.class, adtTypeName, ArrayDeque.class)
+        .addStatement("stack.push(value)")
+        .beginControlFlow("while (!stack.isEmpty())")
+        .addStatement("$T node = stack.peek()", adtTypeName)
+        .beginControlFlow("if (measures.containsKey(node))")
+        .addStatement("stack.pop()")
+        .nextControlFlow("else if (entered.add(node))")
+        .beginControlFlow("for ($T child : selfChildren(node))", Object.class)
+        .beginControlFlow("if (knownSize(child) < 0 && !measures.containsKey(child))")
+        .addStatement("stack.push(($T) child)", adtTypeName)
+        .endControlFlow()
+        .endControlFlow()
+        .nextControlFlow("else")
+        .addStatement("stack.pop()")
+        .addStatement("long size = 1")
+        .addStatement("int depth = 0")
+        .beginControlFlow("for ($T child : selfChildren(node))", Object.class)
+        .addStatement("long childSize = knownSize(child)")
+        .addStatement("int childDepth = knownDepth(child)")
+        .beginControlFlow("if (childSize < 0)")
+        .addStatement("long[] childMeasures = measures.get(child)")
+        .beginControlFlow("if (childMeasures == null)")
+        .addStatement("throw new $T($S)", IllegalStateException.class, "cyclic value")
+        .endControlFlow()
+        .addStatement("childSize = childMeasures[0]")
+        .addStatement("childDepth = (int) childMeasures[1]")
+        .endControlFlow()
+        .addStatement("size += childSize")
+        .addStatement("depth = $T.max(depth, childDepth)", Math.class)
+        .endControlFlow()
+        .addStatement("depth++")
+        .addStatement("measures.put(node, new long[] { size, depth })")
+        .beginControlFlow("if (node instanceof $T)", measuredClass)
+        .addStatement("(($T) node).cacheMeasures(size, depth)", measuredClass)
+        .endControlFlow()
+        .endControlFlow()
+        .endControlFlow()
+        .addStatement("return measures.get(value)")
+        .build();
+
+    final MethodSpec size = MethodSpec.methodBuilder("size")
+        .addJavadoc("The number of nodes of value, counting shared nodes once per occurrence.\n")
+        .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
+        .addTypeVariables(typeVariables)
+        .addParameter(adtTypeName, "value")
+        .returns(TypeName.LONG)
+        .addStatement("long known = knownSize(value)")
+        .addStatement("return known >= 0 ? known : measure(value)[0]")
+        .build();
+
+    final MethodSpec depth = MethodSpec.methodBuilder("depth")
+        .addJavadoc("The number of nodes of the longest path from value to a node without recursive fields.\n")
+        .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
+        .addTypeVariables(typeVariables)
+        .addParameter(adtTypeName, "value")
+        .returns(TypeName.INT)
+        .addStatement("int known = knownDepth(value)")
+        .addStatement("return known >= 0 ? known : (int) measure(value)[1]")
+        .build();
+
+    return DerivedCodeSpecs.codeSpec(List.of(measured), List.of(),
+        List.of(knownSize, knownDepth, selfChildren, measure, size, depth));
+  }
+
+  List<DataArgument> selfArguments(AlgebraicDataType<Drv4j> adt, DataConstructor constructor) {
+    return constructor.arguments()
+        .stream()
+        .filter(da -> deriveUtils.types().isSameType(da.type(), adt.typeConstructor().declaredType()))
+        .collect(Collectors.toList());
+  }
+
+  private static String measureFieldName(AlgebraicDataType<Drv4j> adt, String name) {
+    final NameAllocator nameAllocator = new NameAllocator();
+    adt.fields().forEach(da -> nameAllocator.newName(da.fieldName()));
+    return nameAllocator.newName(name);
+  }
+}
@@ -0,0 +1,264 @@
+/*
+ * Copyright (c) 2019, Jean-Baptiste Giraudeau <jb@giraudeau.info>
+ *
+ * This file is part of "Derive4J - Annotation Processor".
+ *
+ * "Derive4J - Annotation Processor" is free software: you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * "Derive4J - Annotation Processor" is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with "Derive4J - Annotation Processor".  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.derive4j.processor;
+
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.CodeBlock;
+import com.squareup.javapoet.FieldSpec;
+import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.ParameterizedTypeName;
+import com.squareup.javapoet.TypeName;
+import com.squareup.javapoet.TypeSpec;
+import com.squareup.javapoet.TypeVariableName;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.type.DeclaredType;
+import org.derive4j.processor.api.Derivator;
+import org.derive4j.processor.api.DeriveResult;
+import org.derive4j.processor.api.DeriveUtils;
+import org.derive4j.processor.api.DerivedCodeSpec;
+import org.derive4j.processor.api.DerivedCodeSpecs;
+import org.derive4j.processor.api.SamInterface;
+import org.derive4j.processor.api.model.AlgebraicDataType;
+import org.derive4j.processor.api.model.AlgebraicDataType.Variant.Drv4j;
+import org.derive4j.processor.api.model.AlgebraicDataTypes;
+import org.derive4j.processor.api.model.DataConstructions;
+import org.derive4j.processor.api.model.DataConstructor;
+import org.derive4j.processor.api.model.MultipleConstructorsSupport;
+
+import static org.derive4j.processor.Utils.zip;
+import static org.derive4j.processor.api.DeriveMessages.message;
+import static org.derive4j.processor.api.MessageLocalizations.onElement;
+
+/**
+ * {@code cataMemo(algebra, delay)}: the catamorphism of data types whose visitor is an object algebra, folding each
+ * node once per fold, however many times it is shared, by caching results per node identity. A bounded
+ * {@code MemoCache} also shares results of long-lived nodes across folds, evicting the least recently used ones.
+ */
+final class MemoCataDerivator implements Derivator<Drv4j> {
+
+  private static final String MEMO_CATA = "MemoCata";
+
+  private static final String MEMO_CACHE = "MemoCache";
+
+  private static final String MEMO_KEY = "MemoKey";
+
+  private final DeriveUtils utils;
+  private final CataDerivator cataDerivator;
+
+  MemoCataDerivator(DeriveUtils utils) {
+    this.utils = utils;
+    cataDerivator = new CataDerivator(utils);
+  }
+
+  @Override
+  public DeriveResult<DerivedCodeSpec> derive(AlgebraicDataType<Drv4j> adt) {
+    return DataConstructions.caseOf(AlgebraicDataTypes.getDataConstruction_(adt))
+        .multipleConstructors(MultipleConstructorsSupport.cases()
+            .visitorDispatch((visitorParam, visitorType, constructors) -> cataDerivator.visitorIsObjectAlgebra(adt)
+                ? DeriveResult.result(memoCata(adt, visitorType, constructors))
+                : error(adt))
+            .otherwise_(error(adt)))
+        .otherwise_(error(adt));
+  }
+
+  private DerivedCodeSpec memoCata(AlgebraicDataType<Drv4j> adt, DeclaredType visitorType,
+      List<DataConstructor> constructors) {
+
+    final var typeConstructor = adt.typeConstructor();
+    final var matchMethod = AlgebraicDataTypes.getMatchMethod_(adt);
+    final var targetClass = adt.deriveConfig().targetClass().className();
+    final var returnTypeVariable = TypeVariableName.get(matchMethod.returnTypeVariable());
+    final List<TypeVariableName> typeVariables = new ArrayList<>(typeConstructor.typeVariables()
+        .stream()
+        .map(TypeVariableName::get)
+        .collect(Collectors.toList()));
+    typeVariables.add(returnTypeVariable);
+    final TypeName[] typeArguments = typeVariables.toArray(new TypeName[0]);
+
+    final var adtTypeName = TypeName.get(typeConstructor.declaredType());
+    final var algebraTypeName = TypeName.get(cataDerivator.strictCataType(adt, visitorType));
+    final SamInterface f0 = utils.function0Model(adt.deriveConfig().flavour());
+    final SamInterface f1 = utils.function1Model(adt.deriveConfig().flavour());
+    final var delayTypeName = ParameterizedTypeName.get(ClassName.get(f1.samClass()),
+        ParameterizedTypeName.get(ClassName.get(f0.samClass()), returnTypeVariable), returnTypeVariable);
+    final var foldTypeName = ParameterizedTypeName.get(ClassName.get(f1.samClass()), adtTypeName,
+        returnTypeVariable);
+    final var memoCataClass = targetClass.nestedClass(MEMO_CATA);
+    final var memoCacheClass = targetClass.nestedClass(MEMO_CACHE);
+    final var memoCacheTypeName = ParameterizedTypeName.get(memoCacheClass, typeArguments);
+    final var memoKeyClass = targetClass.nestedClass(MEMO_KEY);
+
+    final TypeSpec memoKey = TypeSpec.classBuilder(MEMO_KEY)
+        .addModifiers(Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL)
+        .addField(Object.class, "node", Modifier.PRIVATE, Modifier.FINAL)
+        .addMethod(MethodSpec.constructorBuilder()
+            .addParameter(Object.class, "node")
+            .addStatement("this.node = node")
+            .build())
+        .addMethod(MethodSpec.methodBuilder("equals")
+            .addAnnotation(Override.class)
+            .addModifiers(Modifier.PUBLIC)
+            .addParameter(Object.class, "obj")
+            .returns(TypeName.BOOLEAN)
+            .addStatement("return obj instanceof $T && (($T) obj).node == node", memoKeyClass, memoKeyClass)
+            .build())
+        .addMethod(MethodSpec.methodBuilder("hashCode")
+            .addAnnotation(Override.class)
+            .addModifiers(Modifier.PUBLIC)
+            .returns(TypeName.INT)
+            .addStatement("return $T.identityHashCode(node)", System.class)
+            .build())
+        .build();
+
+    final var entriesTypeName = ParameterizedTypeName.get(ClassName.get(Map.class), memoKeyClass, returnTypeVariable);
+    final TypeSpec memoCache = TypeSpec.classBuilder(MEMO_CACHE)
+        .addJavadoc("Results of folds of long-lived $T nodes, by identity, shared across folds. Thread safe.\n",
+            ClassName.get(typeConstructor.typeElement()))
+        .addModifiers(Modifier.PUBLIC, Modifier.STATIC, Modifier.FINAL)
+        .addTypeVariables(typeVariables)
+        .addField(entriesTypeName, "entries", Modifier.PRIVATE, Modifier.FINAL)
+        .addMethod(MethodSpec.constructorBuilder()
+            .addModifiers(Modifier.PRIVATE)
+            .addParameter(TypeName.INT, "maximumSize")
+            .addStatement("this.entries = $L", TypeSpec.anonymousClassBuilder("16, 0.75f, true")
+                .superclass(ParameterizedTypeName.get(ClassName.get(LinkedHashMap.class), memoKeyClass,
+                    returnTypeVariable))
+                .addField(FieldSpec.builder(TypeName.LONG, "serialVersionUID", Modifier.PRIVATE, Modifier.STATIC,
+                    Modifier.FINAL).initializer("1L").build())
+                .addMethod(MethodSpec.methodBuilder("removeEldestEntry")
+                    .addAnnotation(Override.class)
+                    .addModifiers(Modifier.PROTECTED)
+                    .addParameter(ParameterizedTypeName.get(ClassName.get(Map.Entry.class), memoKeyClass,
+                        returnTypeVariable), "eldest")
+                    .returns(TypeName.BOOLEAN)
+                    .addStatement("return size() > maximumSize")
+                    .build())
+                .build())
+            .build())
+        .addMethod(MethodSpec.methodBuilder("get")
+            .addModifiers(Modifier.SYNCHRONIZED)
+            .addParameter(adtTypeName, "node")
+            .returns(returnTypeVariable)
+            .addStatement("return entries.get(new $T(node))", memoKeyClass)
+            .build())
+        .addMethod(MethodSpec.methodBuilder("put")
+            .addModifiers(Modifier.SYNCHRONIZED)
+            .addParameter(adtTypeName, "node")
+            .addParameter(returnTypeVariable, "result")
+            .addStatement("entries.put(new $T(node), result)", memoKeyClass)
+            .build())
+        .build();
+
+    final var visitedTypeName = ParameterizedTypeName.get(ClassName.get(Map.class), adtTypeName, returnTypeVariable);
+    final TypeSpec memoCata = TypeSpec.classBuilder(MEMO_CATA)
+        .addModifiers(Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL)
+        .addTypeVariables(typeVariables)
+        .addSuperinterface(TypeName.get(visitorType))
+        .addField(algebraTypeName, "algebra", Modifier.PRIVATE, Modifier.FINAL)
+        .addField(delayTypeName, "delay", Modifier.PRIVATE, Modifier.FINAL)
+        .addField(memoCacheTypeName, "shared", Modifier.PRIVATE, Modifier.FINAL)
+        .addField(FieldSpec.builder(visitedTypeName, "visited", Modifier.PRIVATE, Modifier.FINAL)
+            .initializer("new $T<>()", IdentityHashMap.class)
+            .build())
+        .addMethod(MethodSpec.constructorBuilder()
+            .addParameter(algebraTypeName, "algebra")
+            .addParameter(delayTypeName, "delay")
+            .addParameter(memoCacheTypeName, "shared")
+            .addStatement("this.algebra = algebra")
+            .addStatement("this.delay = delay")
+            .addStatement("this.shared = shared")
+            .build())
+        .addMethod(MethodSpec.methodBuilder("_fold")
+            .addParameter(adtTypeName, "node")
+            .returns(returnTypeVariable)
+            .beginControlFlow("if (visited.containsKey(node))")
+            .addStatement("return visited.get(node)")
+            .endControlFlow()
+            .addStatement("$T result = shared == null ? null : shared.get(node)", returnTypeVariable)
+            .beginControlFlow("if (result == null)")
+            .addStatement("result = delay.$L(() -> node.$L(this))", f1.sam().getSimpleName(),
+                matchMethod.element().getSimpleName())
+            .beginControlFlow("if (shared != null)")
+            .addStatement("shared.put(node, result)")
+            .endControlFlow()
+            .endControlFlow()
+            .addStatement("visited.put(node, result)")
+            .addStatement("return result")
+            .build())
+        .addMethods(constructors.stream()
+            .map(DataConstructor::deconstructor)
+            .map(dc -> utils.overrideMethodBuilder(dc.method(), visitorType)
+                .addStatement("return this.algebra.$L($L)", dc.method().getSimpleName(),
+                    zip(dc.method().getParameters(), dc.methodType().getParameterTypes())
+                        .stream()
+                        .map(p -> utils.types().isSameType(typeConstructor.declaredType(), p._2())
+                            ? CodeBlock.of("this._fold($L)", p._1().getSimpleName())
+                            : CodeBlock.of("$L", p._1().getSimpleName()))
+                        .collect(CodeBlock.joining(", ")))
+                .build())
+            .collect(Collectors.toList()))
+        .build();
+
+    final MethodSpec cataMemo = MethodSpec.methodBuilder("cataMemo")
+        .addJavadoc("Same as {@code cata(algebra, delay)}, shared nodes being folded once per fold.\n")
+        .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
+        .addTypeVariables(typeVariables)
+        .addParameter(algebraTypeName, "algebra")
+        .addParameter(delayTypeName, "delay")
+        .returns(foldTypeName)
+        .addStatement("return value -> new $T<$L>(algebra, delay, null)._fold(value)", memoCataClass,
+            typeVariables.stream().map(tv -> CodeBlock.of("$T", tv)).collect(CodeBlock.joining(", ")))
+        .build();
+
+    final MethodSpec cataMemoShared = MethodSpec.methodBuilder("cataMemo")
+        .addJavadoc("Same as {@code cataMemo(algebra, delay)}, also reusing and filling the results of cache, that "
+            + "must\nonly be used with the same algebra.\n")
+        .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
+        .addTypeVariables(typeVariables)
+        .addParameter(algebraTypeName, "algebra")
+        .addParameter(delayTypeName, "delay")
+        .addParameter(memoCacheTypeName, "cache")
+        .returns(foldTypeName)
+        .addStatement("return value -> new $T<>(algebra, delay, cache)._fold(value)", memoCataClass)
+        .build();
+
+    final MethodSpec memoCacheFactory = MethodSpec.methodBuilder("memoCache")
+        .addJavadoc("A cache of at most maximumSize fold results, evicting the least recently used ones.\n")
+        .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
+        .addTypeVariables(typeVariables)
+        .addParameter(TypeName.INT, "maximumSize")
+        .returns(memoCacheTypeName)
+        .addStatement("return new $T<>(maximumSize)", memoCacheClass)
+        .build();
+
+    return DerivedCodeSpecs.codeSpec(List.of(memoKey, memoCache, memoCata), List.of(),
+        List.of(cataMemo, cataMemoShared, memoCacheFactory));
+  }
+
+  private static DeriveResult<DerivedCodeSpec> error(AlgebraicDataType<Drv4j> adt) {
+    return DeriveResult.error(message("memoizedCatamorphism requires a visitor that is an object algebra",
+        onElement(adt.typeConstructor().typeElement())));
+  }
+}
@@ -0,0 +1,257 @@
+/*
+ * Copyright (c) 2019, Jean-Baptiste Giraudeau <jb@giraudeau.info>
+ *
+ * This file is part of "Derive4J - Annotation Processor".
+ *
+ * "Derive4J - Annotation Processor" is free software: you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * "Derive4J - Annotation Processor" is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with "Derive4J - Annotation Processor".  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.derive4j.processor;
+
+import com.squareup.javapoet.ArrayTypeName;
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.CodeBlock;
+import com.squareup.javapoet.FieldSpec;
+import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.NameAllocator;
+import com.squareup.javapoet.TypeName;
+import com.squareup.javapoet.TypeSpec;
+import com.squareup.javapoet.TypeVariableName;
+import com.squareup.javapoet.WildcardTypeName;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.PrimitiveType;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.TypeKindVisitor8;
+import org.derive4j.DeriveOption;
+import org.derive4j.processor.api.DeriveUtils;
+import org.derive4j.processor.api.DerivedCodeSpec;
+import org.derive4j.processor.api.DerivedCodeSpecs;
+import org.derive4j.processor.api.model.AlgebraicDataType;
+import org.derive4j.processor.api.model.AlgebraicDataType.Variant.Drv4j;
+import org.derive4j.processor.api.model.AlgebraicDataTypes;
+import org.derive4j.processor.api.model.DataArgument;
+import org.derive4j.processor.api.model.DataConstructor;
+
+/**
+ * {@link DeriveOption#mixedHash}: a 64-bit {@code hash64(value)} whose fields and constructor index go through a
+ * murmur3-style finalizer, {@code hashCode} being its folding to 32 bits. Self-recursive fields are hashed from an
+ * explicit stack, each node being mixed together with its path from the root.
+ */
+final class MixedHashDerivator {
+
+  static final String HASHER_CLASS_NAME = "Hash64";
+
+  private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+  private final DeriveUtils deriveUtils;
+
+  MixedHashDerivator(DeriveUtils deriveUtils) {
+    this.deriveUtils = deriveUtils;
+  }
+
+  static boolean mixedHash(AlgebraicDataType<?> adt) {
+    return adt.deriveConfig().options().contains(DeriveOption.mixedHash);
+  }
+
+  /**
+   * Body of the {@code hashCode} of constructor classes.
+   */
+  static CodeBlock hashCodeImpl(AlgebraicDataType<Drv4j> adt) {
+    return CodeBlock.of("return $T.hashCode($T.hash64(this));\n", Long.class,
+        adt.deriveConfig().targetClass().className());
+  }
+
+  DerivedCodeSpec hash64(AlgebraicDataType<Drv4j> adt) {
+    final var typeVariables = adt.typeConstructor()
+        .typeVariables()
+        .stream()
+        .map(TypeVariableName::get)
+        .collect(Collectors.toList());
+    final var adtWildcardTypeName = Utils.typeName(ClassName.get(adt.typeConstructor().typeElement()),
+        typeVariables.stream().map(__ -> WildcardTypeName.subtypeOf(Object.class)));
+    final var hasher = adt.deriveConfig().targetClass().className().nestedClass(HASHER_CLASS_NAME);
+    final var constructors = AlgebraicDataTypes.getDataConstruction_(adt).constructors();
+
+    final NameAllocator nameAllocator = new NameAllocator();
+    adt.fields().forEach(da -> nameAllocator.newName(da.fieldName()));
+    final var value = nameAllocator.newName("value");
+
+    final TypeSpec hasherSpec = TypeSpec.classBuilder(HASHER_CLASS_NAME)
+        .addModifiers(Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL)
+        .addField(FieldSpec.builder(ArrayTypeName.of(Object.class), "stack", Modifier.PRIVATE)
+            .initializer("new $T[16]", Object.class)
+            .build())
+        .addField(FieldSpec.builder(ArrayTypeName.of(TypeName.LONG), "paths", Modifier.PRIVATE)
+            .initializer("new long[16]")
+            .build())
+        .addField(TypeName.INT, "size", Modifier.PRIVATE)
+        .addField(TypeName.LONG, "path", Modifier.PRIVATE)
+        .addField(TypeName.LONG, "hash", Modifier.PRIVATE)
+        .addMethod(MethodSpec.methodBuilder("mix")
+            .addJavadoc("Murmur3 64-bit finalizer.\n")
+            .addModifiers(Modifier.PRIVATE, Modifier.STATIC)
+            .addParameter(TypeName.LONG, "h")
+            .returns(TypeName.LONG)
+            .addStatement("h = (h ^ (h >>> 33)) * 0xff51afd7ed558ccdL")
+            .addStatement("h = (h ^ (h >>> 33)) * 0xc4ceb9fe1a85ec53L")
+            .addStatement("return h ^ (h >>> 33)")
+            .build())
+        .addMethod(MethodSpec.methodBuilder("combine")
+            .addModifiers(Modifier.PRIVATE, Modifier.STATIC)
+            .addParameter(TypeName.LONG, "h")
+            .addParameter(TypeName.LONG, "fieldHash")
+            .returns(TypeName.LONG)
+            .addStatement("return $T.rotateLeft(h ^ fieldHash, 27) * $LL", Long.class, GOLDEN_GAMMA)
+            .build())
+        .addMethod(MethodSpec.methodBuilder("run")
+            .addParameter(adtWildcardTypeName, "value")
+            .returns(TypeName.LONG)
+            .addStatement("push(value, 0)")
+            .beginControlFlow("while (size > 0)")
+            .addStatement("size--")
+            .addStatement("$T item = stack[size]", Object.class)
+            .addStatement("stack[size] = null")
+            .addStatement("path = paths[size]")
+            .beginControlFlow("if (item != null)")
+            .addStatement("step(($T) item)", adtWildcardTypeName)
+            .endControlFlow()
+            .endControlFlow()
+            .addStatement("return mix(hash)")
+            .build())
+        .addMethod(MethodSpec.methodBuilder("add")
+            .addModifiers(Modifier.PRIVATE)
+            .addParameter(TypeName.LONG, "nodeHash")
+            .returns(hasher)
+            .addStatement("hash += mix(path ^ nodeHash)")
+            .addStatement("return this")
+            .build())
+        .addMethod(MethodSpec.methodBuilder("push")
+            .addJavadoc("A self-recursive field, at the given position within the fields of its parent.\n")
+            .addModifiers(Modifier.PRIVATE)
+            .addParameter(Object.class, "value")
+            .addParameter(TypeName.INT, "position")
+            .returns(hasher)
+            .beginControlFlow("if (size == stack.length)")
+            .addStatement("stack = $T.copyOf(stack, size * 2)", Arrays.class)
+            .addStatement("paths = $T.copyOf(paths, size * 2)", Arrays.class)
+            .endControlFlow()
+            .addStatement("stack[size] = value")
+            .addStatement("paths[size] = mix(path + (position + 1) * $LL)", GOLDEN_GAMMA)
+            .addStatement("size++")
+            .addStatement("return this")
+            .build())
+        .addMethod(MethodSpec.methodBuilder("step")
+            .addModifiers(Modifier.PRIVATE)
+            .addParameter(adtWildcardTypeName, value)
+            .addStatement("$L", Utils.matchWithLambdas(adt, CodeBlock.of("$L", value),
+                dc -> nodeHash(adt, dc, constructors.indexOf(dc))))
+            .build())
+        .build();
+
+    return DerivedCodeSpecs.codeSpec(List.of(hasherSpec), List.of(), List.of(MethodSpec.methodBuilder("hash64")
+        .addJavadoc("A well-distributed 64-bit hash of value, consistent with {@code equals}.\n")
+        .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
+        .addTypeVariables(typeVariables)
+        .addParameter(TypeName.get(adt.typeConstructor().declaredType()), "value")
+        .returns(TypeName.LONG)
+        .addStatement("return new $T().run(value)", hasher)
+        .build()));
+  }
+
+  private CodeBlock nodeHash(AlgebraicDataType<Drv4j> adt, DataConstructor constructor, int constructorIndex) {
+    final var types = deriveUtils.types();
+    final List<DataArgument> arguments = constructor.arguments();
+
+    CodeBlock nodeHash = CodeBlock.of("$LL", (constructorIndex + 1) * GOLDEN_GAMMA);
+    final CodeBlock.Builder pushes = CodeBlock.builder();
+    for (int i = 0; i < arguments.size(); i++) {
+      final var da = arguments.get(i);
+      if (types.isSameType(types.erasure(da.type()), types.erasure(adt.typeConstructor().declaredType()))) {
+        pushes.add(".push($N, $L)", da.fieldName(), i);
+      } else {
+        nodeHash = CodeBlock.of("combine($L, $L)", nodeHash, fieldHash(da));
+      }
+    }
+    return CodeBlock.builder().add("this.add($L)", nodeHash).add(pushes.build()).build();
+  }
+
+  private static String fieldHash(DataArgument da) {
+
+    return da.type().accept(new TypeKindVisitor8<String, String>() {
+
+      @Override
+      public String visitArray(final ArrayType t, final String p) {
+
+        return "java.util.Arrays.hashCode(" + p + ')';
+      }
+
+      @Override
+      public String visitPrimitiveAsBoolean(PrimitiveType t, String p) {
+
+        return "(" + p + " ? 1L : 0L)";
+      }
+
+      @Override
+      public String visitPrimitiveAsDouble(final PrimitiveType t, final String p) {
+
+        return "Double.doubleToLongBits(" + p + ')';
+      }
+
+      @Override
+      public String visitPrimitiveAsFloat(final PrimitiveType t, final String p) {
+
+        return "Float.floatToIntBits(" + p + ')';
+      }
+
+      @Override
+      public String visitPrimitiveAsByte(PrimitiveType t, String p) {
+
+        return p;
+      }
+
+      @Override
+      public String visitPrimitiveAsChar(PrimitiveType t, String p) {
+
+        return p;
+      }
+
+      @Override
+      public String visitPrimitiveAsInt(PrimitiveType t, String p) {
+
+        return p;
+      }
+
+      @Override
+      public String visitPrimitiveAsLong(PrimitiveType t, String p) {
+
+        return p;
+      }
+
+      @Override
+      public String visitPrimitiveAsShort(PrimitiveType t, String p) {
+
+        return p;
+      }
+
+      @Override
+      protected String defaultAction(final TypeMirror e, final String p) {
+
+        return p + ".hashCode()";
+      }
+    }, da.fieldName());
+  }
+}
@@ -19,6 +19,7 @@
 package org.derive4j.processor;
 
 import com.squareup.javapoet.*;
+import org.derive4j.DeriveOption;
 import org.derive4j.processor.api.Derivator;
 import org.derive4j.processor.api.DeriveResult;
 import org.derive4j.processor.api.DeriveUtils;
@@ -93,6 +94,9 @@ final class ModifiersDerivator implements Derivator<Variant> {
         .map(getTypeVarName);
 
     final var boxedFieldType = field.type().accept(Utils.asBoxedType, deriveUtils.types());
+    // unchanged values can only be returned as is when the modifier does not change the type of the data type:
+    final var identity = adt.deriveConfig().options().contains(DeriveOption.identityModifiers)
+        && uniqueTypeVariables.isEmpty();
     final var smartSuffix = caseOf(adt.deriveConfig().targetClass().visibility()).Smart_("0").otherwise_("");
     final var modMethodName = "mod" + Utils.capitalize(field.fieldName()) + smartSuffix;
 
@@ -135,10 +139,12 @@ final class ModifiersDerivator implements Derivator<Variant> {
     return DerivedCodeSpec.methodSpecs(Stream
         .of(Optional.of(setMethod.build()), caseOf(adt)
             .adt((deriveConfig, typeConstructor, matchMethod, dataConstruction, fields, eq) ->
-                drv4jModImpl(Utils.coerce(adt, eq), field, adtArg, moderArg, f1Apply, polymorphism, nameAllocator, modMethod))
+                drv4jModImpl(Utils.coerce(adt, eq), field, adtArg, moderArg, f1Apply, polymorphism, nameAllocator,
+                    modMethod, identity))
 
             .jadt((deriveConfig, typeConstructor, jDataConstruction, fields, eq) ->
-                javaModImpl(Utils.coerce(adt, eq), field, adtArg, moderArg, f1Apply, nameAllocator, modMethod)))
+                javaModImpl(Utils.coerce(adt, eq), field, adtArg, moderArg, f1Apply, nameAllocator, modMethod,
+                    identity)))
         .flatMap(Optional::stream)
         .toList());
   }
@@ -149,7 +155,8 @@ final class ModifiersDerivator implements Derivator<Variant> {
       , String moderArg
       , String f1Apply
       , NameAllocator na
-      , MethodSpec.Builder modMethod) {
+      , MethodSpec.Builder modMethod
+      , boolean identity) {
 
     final var _switch = CodeBlock
         .builder()
@@ -166,6 +173,10 @@ final class ModifiersDerivator implements Derivator<Variant> {
               final var contructorCall = "%s.%s"
                   .formatted(adt.deriveConfig().targetClass().className().simpleName()
                            , constructorName);
+              final var hasField = JRecords.getComponents(rec)
+                  .stream()
+                  .anyMatch(cpt -> cpt.getSimpleName().contentEquals(field.fieldName()));
+              final var newValue = na.clone().newName("new" + Utils.capitalize(field.fieldName()));
               final var args = Utils.joinStringsAsArguments(JRecords
                   .getComponents(rec)
                   .stream()
@@ -174,13 +185,26 @@ final class ModifiersDerivator implements Derivator<Variant> {
                     final var cptCall = "%s.%s()".formatted(caseVar, cptName);
 
                     return cptName.contentEquals(field.fieldName())
-                        ? "%s.%s(%s)".formatted(moderArg, f1Apply, cptCall)
+                        ? identity ? newValue : "%s.%s(%s)".formatted(moderArg, f1Apply, cptCall)
                         : cptCall;
                   }));
 
-              return CodeBlock.builder()
-                  .add("case $T $N -> $L($L);", elt, caseVar, contructorCall, args)
-                  .build();
+              return !identity
+                  ? CodeBlock.builder()
+                      .add("case $T $N -> $L($L);", elt, caseVar, contructorCall, args)
+                      .build()
+                  : hasField
+                      ? CodeBlock.builder()
+                          .add("case $T $N -> {\n", elt, caseVar)
+                          .indent()
+                          .add("final var $L = $L.$L($N.$L());\n", newValue, moderArg, f1Apply, caseVar,
+                              field.fieldName())
+                          .add("yield $L ? $N : $L($L);\n", unchanged(field, CodeBlock.of("$L", newValue),
+                              CodeBlock.of("$N.$L()", caseVar, field.fieldName())), adtArg, contructorCall, args)
+                          .unindent()
+                          .add("}")
+                          .build()
+                      : CodeBlock.of("case $T $N -> $N;", elt, caseVar, adtArg);
             })
             .reduce((cb1, cb2) -> cb1.toBuilder().add("\n").add(cb2).build())
             .orElse(CodeBlock.of("")))
@@ -200,9 +224,11 @@ final class ModifiersDerivator implements Derivator<Variant> {
       , String f1Apply
       , Function<TypeVariable, Optional<TypeName>> polymorphism
       , NameAllocator nameAllocator
-      , MethodSpec.Builder modMethod) {
+      , MethodSpec.Builder modMethod
+      , boolean identity) {
     final var dataConstruction = AlgebraicDataTypes.getDataConstruction_(adt);
     final var matchMethod = AlgebraicDataTypes.getMatchMethod_(adt);
+    final var adtType = TypeName.get(adt.typeConstructor().declaredType());
 
     final var lambdas = dataConstruction.constructors()
         .stream()
@@ -213,6 +239,10 @@ final class ModifiersDerivator implements Derivator<Variant> {
               ? (constructor.name() + '0')
               : constructor.name();
 
+          if (identity) {
+            return identityModLambda(constructor, field, moderArg, f1Apply, nameAllocator, constructorName);
+          }
+
           return arguments.stream().map(DataArgument::fieldName).anyMatch(fn -> fn.equals(field.fieldName()))
               ? CodeBlock.builder()
               .add("($L) -> " + "$L($L)", joinStringsAsArguments(Stream.concat(
@@ -249,21 +279,93 @@ final class ModifiersDerivator implements Derivator<Variant> {
                       adt.deriveConfig().targetClass().className().nestedClass(
                           MapperDerivator.visitorLambdaFactoryName(adt)),
                       lambdas)
-                  .addStatement("return $1L -> $1L.$2L($3L)", adtArg,
-                      matchMethod.element().getSimpleName(), visitorVarName)
+                  .addStatement("return $L", matchWithIdentity(adtType, adtArg, CodeBlock.of("$L.$L($L)", adtArg,
+                      matchMethod.element().getSimpleName(), visitorVarName), identity, nameAllocator))
                   .build();
             })
             .functionsDispatch(constructors -> modMethod
-                .addStatement("return $1L -> $1L.$2L($3L)", adtArg, matchMethod.element().getSimpleName(),
-                    lambdas)
+                .addStatement("return $L", matchWithIdentity(adtType, adtArg, CodeBlock.of("$L.$L($L)", adtArg,
+                    matchMethod.element().getSimpleName(), lambdas), identity, nameAllocator))
                 .build()))
         .oneConstructor(constructor -> modMethod
-            .addStatement("return $1L -> $1L.$2L($3L)", adtArg, matchMethod.element().getSimpleName(),
-                lambdas)
+            .addStatement("return $L", matchWithIdentity(adtType, adtArg, CodeBlock.of("$L.$L($L)", adtArg,
+                matchMethod.element().getSimpleName(), lambdas), identity, nameAllocator))
             .build())
         .otherwiseEmpty();
   }
 
+  /**
+   * Constructors of an identity modifier return null when the value is unchanged, see {@link #matchWithIdentity}.
+   */
+  private static CodeBlock identityModLambda(DataConstructor constructor
+      , DataArgument field
+      , String moderArg
+      , String f1Apply
+      , NameAllocator nameAllocator
+      , String constructorName) {
+    final var fieldNames = Stream
+        .concat(constructor.arguments().stream().map(DataArgument::fieldName),
+            constructor.typeRestrictions().stream().map(TypeRestriction::typeEq).map(DataArgument::fieldName))
+        .toList();
+    final var lambdaNames = nameAllocator.clone();
+    final var params = fieldNames.stream().map(fn -> lambdaNames.newName(fn, fn + " field")).toList();
+    final var lambdaParams = joinStringsAsArguments(params.stream());
+
+    if (!fieldNames.contains(field.fieldName())) {
+      return CodeBlock.of("($L) -> null", lambdaParams);
+    }
+
+    final var oldValue = lambdaNames.get(field.fieldName() + " field");
+    final var newValue = lambdaNames.newName("new" + Utils.capitalize(field.fieldName()));
+
+    return CodeBlock.builder()
+        .add("($L) -> {\n", lambdaParams)
+        .indent()
+        .add("final var $L = $L.$L($L);\n", newValue, moderArg, f1Apply, oldValue)
+        .add("return $L ? null : $L($L);\n", unchanged(field, CodeBlock.of("$L", newValue),
+            CodeBlock.of("$L", oldValue)), constructorName,
+            joinStringsAsArguments(params.stream().map(p -> p.equals(oldValue) ? newValue : p)))
+        .unindent()
+        .add("}")
+        .build();
+  }
+
+  /**
+   * Whether a modified field value is the same as the original one: float and double fields are compared by their
+   * bits, so that {@code 0.0} to {@code -0.0} is a modification and {@code NaN} to {@code NaN} is not.
+   */
+  private static CodeBlock unchanged(DataArgument field, CodeBlock newValue, CodeBlock oldValue) {
+    switch (field.type().getKind()) {
+      case FLOAT:
+        return CodeBlock.of("$1T.floatToRawIntBits($2L) == $1T.floatToRawIntBits($3L)", Float.class, newValue,
+            oldValue);
+      case DOUBLE:
+        return CodeBlock.of("$1T.doubleToRawLongBits($2L) == $1T.doubleToRawLongBits($3L)", Double.class, newValue,
+            oldValue);
+      default:
+        return CodeBlock.of("$L == $L", newValue, oldValue);
+    }
+  }
+
+  /**
+   * {@code adt -> adt.match(..)}, returning the original value when the match returns null.
+   */
+  private static CodeBlock matchWithIdentity(TypeName adtType, String adtArg, CodeBlock match, boolean identity,
+      NameAllocator nameAllocator) {
+    if (!identity) {
+      return CodeBlock.of("$L -> $L", adtArg, match);
+    }
+    final var modified = nameAllocator.clone().newName("modified");
+    return CodeBlock.builder()
+        .add("$L -> {\n", adtArg)
+        .indent()
+        .add("final $T $L = $L;\n", adtType, modified, match)
+        .add("return $L == null ? $L : $L;\n", modified, adtArg, modified)
+        .unindent()
+        .add("}")
+        .build();
+  }
+
   private static TypeVariableName getTypeVariableName(MatchMethod matchMethod, TypeVariable utv) {
     return TypeVariableName.get(matchMethod.returnTypeVariable().toString() + utv.toString());
   }
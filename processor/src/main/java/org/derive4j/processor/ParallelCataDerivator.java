@@ -0,0 +1,220 @@
+/*
+ * Copyright (c) 2019, Jean-Baptiste Giraudeau <jb@giraudeau.info>
+ *
+ * This file is part of "Derive4J - Annotation Processor".
+ *
+ * "Derive4J - Annotation Processor" is free software: you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * "Derive4J - Annotation Processor" is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with "Derive4J - Annotation Processor".  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.derive4j.processor;
+
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.CodeBlock;
+import com.squareup.javapoet.FieldSpec;
+import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.NameAllocator;
+import com.squareup.javapoet.ParameterizedTypeName;
+import com.squareup.javapoet.TypeName;
+import com.squareup.javapoet.TypeSpec;
+import com.squareup.javapoet.TypeVariableName;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.type.DeclaredType;
+import org.derive4j.processor.api.Derivator;
+import org.derive4j.processor.api.DeriveResult;
+import org.derive4j.processor.api.DeriveUtils;
+import org.derive4j.processor.api.DerivedCodeSpec;
+import org.derive4j.processor.api.DerivedCodeSpecs;
+import org.derive4j.processor.api.SamInterface;
+import org.derive4j.processor.api.model.AlgebraicDataType;
+import org.derive4j.processor.api.model.AlgebraicDataType.Variant.Drv4j;
+import org.derive4j.processor.api.model.AlgebraicDataTypes;
+import org.derive4j.processor.api.model.DataArgument;
+import org.derive4j.processor.api.model.DataConstruction;
+import org.derive4j.processor.api.model.DataConstructions;
+import org.derive4j.processor.api.model.DataConstructor;
+import org.derive4j.processor.api.model.MultipleConstructorsSupport;
+
+import static org.derive4j.processor.api.DeriveMessages.message;
+import static org.derive4j.processor.api.MessageLocalizations.onElement;
+
+/**
+ * {@code parCata(algebra, pool, threshold)}: the catamorphism of tree shaped data types whose visitor is an object
+ * algebra, evaluated in a fork/join pool. The recursive fields of the first {@code threshold} levels are folded by
+ * distinct tasks, deeper levels by the sequential {@code cata}.
+ */
+final class ParallelCataDerivator implements Derivator<Drv4j> {
+
+  private static final String TASK_CLASS_NAME = "ParCataTask";
+
+  private final DeriveUtils utils;
+  private final CataDerivator cataDerivator;
+
+  ParallelCataDerivator(DeriveUtils utils) {
+    this.utils = utils;
+    cataDerivator = new CataDerivator(utils);
+  }
+
+  @Override
+  public DeriveResult<DerivedCodeSpec> derive(AlgebraicDataType<Drv4j> adt) {
+    final DataConstruction dataConstruction = AlgebraicDataTypes.getDataConstruction_(adt);
+    final boolean treeShaped = dataConstruction.constructors()
+        .stream()
+        .anyMatch(dc -> dc.arguments().stream().filter(da -> isSelf(adt, da)).count() > 1);
+
+    return DataConstructions.caseOf(dataConstruction)
+        .multipleConstructors(MultipleConstructorsSupport.cases()
+            .visitorDispatch((visitorParam, visitorType, constructors) -> cataDerivator.visitorIsObjectAlgebra(adt)
+                && treeShaped
+                    ? DeriveResult.result(parallelCata(adt, visitorType, constructors))
+                    : error(adt))
+            .otherwise_(error(adt)))
+        .otherwise_(error(adt));
+  }
+
+  private DerivedCodeSpec parallelCata(AlgebraicDataType<Drv4j> adt, DeclaredType visitorType,
+      List<DataConstructor> constructors) {
+
+    final var typeConstructor = adt.typeConstructor();
+    final var matchMethod = AlgebraicDataTypes.getMatchMethod_(adt);
+    final var targetClass = adt.deriveConfig().targetClass().className();
+    final var returnTypeVariable = TypeVariableName.get(matchMethod.returnTypeVariable());
+    final List<TypeVariableName> typeVariables = typeConstructor.typeVariables()
+        .stream()
+        .map(TypeVariableName::get)
+        .collect(Collectors.toList());
+    final List<TypeVariableName> taskTypeVariables = new ArrayList<>(typeVariables);
+    taskTypeVariables.add(returnTypeVariable);
+
+    final var adtTypeName = TypeName.get(typeConstructor.declaredType());
+    final var algebraTypeName = TypeName.get(cataDerivator.strictCataType(adt, visitorType));
+    final SamInterface f0 = utils.function0Model(adt.deriveConfig().flavour());
+    final SamInterface f1 = utils.function1Model(adt.deriveConfig().flavour());
+    final var foldTypeName = TypeName.get(
+        utils.types().getDeclaredType(f1.samClass(), typeConstructor.declaredType(), matchMethod.returnTypeVariable()));
+    final var taskClass = targetClass.nestedClass(TASK_CLASS_NAME);
+    final var taskTypeName = ParameterizedTypeName.get(taskClass, taskTypeVariables.toArray(new TypeName[0]));
+
+    final TypeSpec task = TypeSpec.classBuilder(TASK_CLASS_NAME)
+        .addModifiers(Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL)
+        .addTypeVariables(taskTypeVariables)
+        .superclass(ParameterizedTypeName.get(ClassName.get(RecursiveTask.class), returnTypeVariable))
+        .addField(FieldSpec.builder(TypeName.LONG, "serialVersionUID", Modifier.PRIVATE, Modifier.STATIC,
+            Modifier.FINAL).initializer("1L").build())
+        .addField(algebraTypeName, "algebra", Modifier.PRIVATE, Modifier.FINAL)
+        .addField(foldTypeName, "sequential", Modifier.PRIVATE, Modifier.FINAL)
+        .addField(TypeName.INT, "threshold", Modifier.PRIVATE, Modifier.FINAL)
+        .addField(adtTypeName, "value", Modifier.PRIVATE, Modifier.FINAL)
+        .addMethod(MethodSpec.constructorBuilder()
+            .addParameter(algebraTypeName, "algebra")
+            .addParameter(foldTypeName, "sequential")
+            .addParameter(TypeName.INT, "threshold")
+            .addParameter(adtTypeName, "value")
+            .addStatement("this.algebra = algebra")
+            .addStatement("this.sequential = sequential")
+            .addStatement("this.threshold = threshold")
+            .addStatement("this.value = value")
+            .build())
+        .addMethod(MethodSpec.methodBuilder("subtask")
+            .addModifiers(Modifier.PRIVATE)
+            .addParameter(adtTypeName, "child")
+            .returns(taskTypeName)
+            .addStatement("return new $T<>(algebra, sequential, threshold - 1, child)", taskClass)
+            .build())
+        .addMethod(MethodSpec.methodBuilder("compute")
+            .addAnnotation(Override.class)
+            .addModifiers(Modifier.PROTECTED)
+            .returns(returnTypeVariable)
+            .beginControlFlow("if (threshold <= 0)")
+            .addStatement("return sequential.$L(value)", f1.sam().getSimpleName())
+            .endControlFlow()
+            .addStatement("return $L", Utils.matchWithLambdas(adt, CodeBlock.of("value"),
+                dc -> forkJoin(adt, dc, taskTypeName)))
+            .build())
+        .build();
+
+    final MethodSpec parCata = MethodSpec.methodBuilder("parCata")
+        .addJavadoc("Same as {@code cata(algebra, delay)}, the recursive fields of the first threshold levels being "
+            + "folded in parallel in pool.\n")
+        .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
+        .addTypeVariables(taskTypeVariables)
+        .addParameter(algebraTypeName, "algebra")
+        .addParameter(ForkJoinPool.class, "pool")
+        .addParameter(TypeName.INT, "threshold")
+        .returns(foldTypeName)
+        .addStatement("$T sequential = cata(algebra, $T::$L)", foldTypeName, ClassName.get(f0.samClass()),
+            f0.sam().getSimpleName())
+        .addStatement("return value -> pool.invoke(new $T<>(algebra, sequential, threshold, value))", taskClass)
+        .build();
+
+    return DerivedCodeSpecs.codeSpec(List.of(task), List.of(), List.of(parCata));
+  }
+
+  /**
+   * Forks a task for each recursive field but the last one, computed by the current task, then joins them.
+   */
+  private CodeBlock forkJoin(AlgebraicDataType<Drv4j> adt, DataConstructor dc, TypeName taskTypeName) {
+    final NameAllocator nameAllocator = new NameAllocator();
+    dc.arguments().forEach(da -> nameAllocator.newName(da.fieldName(), da));
+    final List<DataArgument> selfArguments = dc.arguments()
+        .stream()
+        .filter(da -> isSelf(adt, da))
+        .collect(Collectors.toList());
+    if (selfArguments.isEmpty()) {
+      return algebraCall(dc, da -> CodeBlock.of("$N", da.fieldName()));
+    }
+
+    final Map<DataArgument, CodeBlock> results = new HashMap<>();
+    final CodeBlock.Builder body = CodeBlock.builder().add("{\n").indent();
+    for (DataArgument da : selfArguments.subList(0, selfArguments.size() - 1)) {
+      final String task = nameAllocator.newName(da.fieldName() + "Task");
+      body.addStatement("$T $L = this.subtask($N)", taskTypeName, task, da.fieldName()).addStatement("$L.fork()", task);
+      results.put(da, CodeBlock.of("$L.join()", task));
+    }
+    final DataArgument last = selfArguments.get(selfArguments.size() - 1);
+    final String lastResult = nameAllocator.newName(last.fieldName() + "Result");
+    body.addStatement("$T $L = this.subtask($N).compute()",
+        TypeName.get(AlgebraicDataTypes.getMatchMethod_(adt).returnTypeVariable()), lastResult, last.fieldName());
+    results.put(last, CodeBlock.of("$L", lastResult));
+
+    return body
+        .addStatement("return $L", algebraCall(dc,
+            da -> isSelf(adt, da) ? results.get(da) : CodeBlock.of("$N", da.fieldName())))
+        .unindent()
+        .add("}")
+        .build();
+  }
+
+  private static CodeBlock algebraCall(DataConstructor dc, Function<DataArgument, CodeBlock> argument) {
+    return CodeBlock.of("this.algebra.$L($L)", dc.deconstructor().method().getSimpleName(),
+        dc.arguments().stream().map(argument).collect(CodeBlock.joining(", ")));
+  }
+
+  private boolean isSelf(AlgebraicDataType<Drv4j> adt, DataArgument da) {
+    return utils.types().isSameType(da.type(), adt.typeConstructor().declaredType());
+  }
+
+  private static DeriveResult<DerivedCodeSpec> error(AlgebraicDataType<Drv4j> adt) {
+    return DeriveResult.error(message(
+        "parallelCatamorphism requires a visitor that is an object algebra and a constructor with two or more "
+            + "fields of type " + adt.typeConstructor().declaredType(),
+        onElement(adt.typeConstructor().typeElement())));
+  }
+}
@@ -0,0 +1,294 @@
+/*
+ * Copyright (c) 2019, Jean-Baptiste Giraudeau <jb@giraudeau.info>
+ *
+ * This file is part of "Derive4J - Annotation Processor".
+ *
+ * "Derive4J - Annotation Processor" is free software: you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * "Derive4J - Annotation Processor" is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with "Derive4J - Annotation Processor".  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.derive4j.processor;
+
+import com.squareup.javapoet.ArrayTypeName;
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.CodeBlock;
+import com.squareup.javapoet.FieldSpec;
+import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.NameAllocator;
+import com.squareup.javapoet.TypeName;
+import com.squareup.javapoet.TypeSpec;
+import com.squareup.javapoet.WildcardTypeName;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import javax.lang.model.element.Modifier;
+import org.derive4j.processor.api.DeriveUtils;
+import org.derive4j.processor.api.DerivedCodeSpec;
+import org.derive4j.processor.api.DerivedCodeSpecs;
+import org.derive4j.processor.api.model.AlgebraicDataType;
+import org.derive4j.processor.api.model.AlgebraicDataType.Variant.Drv4j;
+import org.derive4j.processor.api.model.AlgebraicDataTypes;
+import org.derive4j.processor.api.model.DataArgument;
+import org.derive4j.processor.api.model.DataConstructor;
+
+/**
+ * Stack-safe {@code equals} and {@code hashCode} for self-recursive data types: recursive fields are compared and
+ * hashed from an explicit work stack instead of the call stack. Values are visited one node at a time through
+ * pattern matching, so lazy nodes are only evaluated as they are reached. Self references nested in other types (eg.
+ * a list of subtrees) are compared and hashed by the equals and hashCode of those types, on the call stack.
+ */
+final class RecursiveEqualityDerivator {
+
+  static final String EQUALS_CLASS_NAME = "IterativeEquals";
+
+  static final String HASH_CODE_CLASS_NAME = "IterativeHashCode";
+
+  private static final String OTHER_SUFFIX = "_";
+
+  private final DeriveUtils deriveUtils;
+
+  RecursiveEqualityDerivator(DeriveUtils deriveUtils) {
+    this.deriveUtils = deriveUtils;
+  }
+
+  boolean isSelfRecursive(AlgebraicDataType<Drv4j> adt) {
+    return AlgebraicDataTypes.getDataConstruction_(adt)
+        .constructors()
+        .stream()
+        .anyMatch(dc -> hasSelfReference(adt, dc));
+  }
+
+  boolean hasSelfReference(AlgebraicDataType<Drv4j> adt, DataConstructor constructor) {
+    return constructor.arguments().stream().anyMatch(da -> isSelfReference(adt, da));
+  }
+
+  private boolean isSelfReference(AlgebraicDataType<Drv4j> adt, DataArgument da) {
+    final var types = deriveUtils.types();
+    return types.isSameType(types.erasure(da.type()), types.erasure(adt.typeConstructor().declaredType()));
+  }
+
+  /**
+   * Body of the {@code equals} of constructor classes having self-recursive fields.
+   */
+  CodeBlock equalsImpl(AlgebraicDataType<Drv4j> adt, String objectParam) {
+    return CodeBlock.of("return ($1L instanceof $2T) && new $3T().run(this, ($4T) $1L);\n", objectParam,
+        TypeName.get(deriveUtils.types().erasure(adt.typeConstructor().declaredType())),
+        adt.deriveConfig().targetClass().className().nestedClass(EQUALS_CLASS_NAME), wildcardTypeName(adt));
+  }
+
+  /**
+   * Body of the {@code hashCode} of constructor classes having self-recursive fields.
+   */
+  static CodeBlock hashCodeImpl(AlgebraicDataType<Drv4j> adt) {
+    return CodeBlock.of("return new $T().run(this);\n",
+        adt.deriveConfig().targetClass().className().nestedClass(HASH_CODE_CLASS_NAME));
+  }
+
+  DerivedCodeSpec derive(AlgebraicDataType<Drv4j> adt, boolean withEquals, boolean withHashCode) {
+    if (!isSelfRecursive(adt)) {
+      return DerivedCodeSpec.none();
+    }
+    final List<TypeSpec> classes = new ArrayList<>();
+    if (withEquals) {
+      classes.add(iterativeEquals(adt));
+    }
+    if (withHashCode) {
+      classes.add(iterativeHashCode(adt));
+    }
+    return DerivedCodeSpecs.codeSpec(classes, List.of(), List.of());
+  }
+
+  private TypeSpec iterativeEquals(AlgebraicDataType<Drv4j> adt) {
+    final var adtTypeName = wildcardTypeName(adt);
+
+    final NameAllocator nameAllocator = new NameAllocator();
+    adt.fields().forEach(da -> {
+      nameAllocator.newName(da.fieldName());
+      nameAllocator.newName(da.fieldName() + OTHER_SUFFIX);
+    });
+    final var left = nameAllocator.newName("left");
+    final var right = nameAllocator.newName("right");
+
+    final var match = Utils.matchWithLambdas(adt, CodeBlock.of("$L", left),
+        dc -> Utils.matchWithLambdas(adt, CodeBlock.of("$L", right), OTHER_SUFFIX,
+            other -> other.name().equals(dc.name())
+                ? equalityTests(adt, dc)
+                : CodeBlock.of("false")));
+
+    return TypeSpec.classBuilder(EQUALS_CLASS_NAME)
+        .addModifiers(Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL)
+        .addField(FieldSpec.builder(ArrayTypeName.of(Object.class), "stack", Modifier.PRIVATE)
+            .initializer("new $T[16]", Object.class)
+            .build())
+        .addField(TypeName.INT, "size", Modifier.PRIVATE)
+        .addMethod(MethodSpec.methodBuilder("run")
+            .addParameter(adtTypeName, "left")
+            .addParameter(adtTypeName, "right")
+            .returns(TypeName.BOOLEAN)
+            .addStatement("push(left, right)")
+            .beginControlFlow("while (size > 0)")
+            .addStatement("$T y = stack[--size]", Object.class)
+            .addStatement("$T x = stack[--size]", Object.class)
+            .addStatement("stack[size] = null")
+            .addStatement("stack[size + 1] = null")
+            .beginControlFlow("if (x != y && (x == null || y == null || !step(($1T) x, ($1T) y)))", adtTypeName)
+            .addStatement("return false")
+            .endControlFlow()
+            .endControlFlow()
+            .addStatement("return true")
+            .build())
+        .addMethod(MethodSpec.methodBuilder("push")
+            .addModifiers(Modifier.PRIVATE)
+            .addParameter(Object.class, "left")
+            .addParameter(Object.class, "right")
+            .returns(TypeName.BOOLEAN)
+            .beginControlFlow("if (size == stack.length)")
+            .addStatement("stack = $T.copyOf(stack, size * 2)", Arrays.class)
+            .endControlFlow()
+            .addStatement("stack[size++] = left")
+            .addStatement("stack[size++] = right")
+            .addStatement("return true")
+            .build())
+        .addMethod(MethodSpec.methodBuilder("step")
+            .addModifiers(Modifier.PRIVATE)
+            .addParameter(adtTypeName, left)
+            .addParameter(adtTypeName, right)
+            .returns(TypeName.BOOLEAN)
+            .addStatement("return $L", match)
+            .build())
+        .build();
+  }
+
+  /**
+   * Compares the non-recursive fields, then defers the comparison of the recursive ones.
+   */
+  private CodeBlock equalityTests(AlgebraicDataType<Drv4j> adt, DataConstructor constructor) {
+    final List<CodeBlock> tests = new ArrayList<>();
+    constructor.arguments()
+        .stream()
+        .filter(da -> !isSelfReference(adt, da))
+        .forEach(da -> tests.add(CodeBlock.of("$L", StrictConstructorDerivator.equalityTest(da, da.fieldName(),
+            da.fieldName() + OTHER_SUFFIX))));
+    constructor.arguments()
+        .stream()
+        .filter(da -> isSelfReference(adt, da))
+        .forEach(da -> tests.add(CodeBlock.of("this.push($L, $L)", da.fieldName(), da.fieldName() + OTHER_SUFFIX)));
+    return tests.isEmpty() ? CodeBlock.of("true") : CodeBlock.join(tests, " && ");
+  }
+
+  private TypeSpec iterativeHashCode(AlgebraicDataType<Drv4j> adt) {
+    final var adtTypeName = wildcardTypeName(adt);
+    final var hasher = adt.deriveConfig().targetClass().className().nestedClass(HASH_CODE_CLASS_NAME);
+    final var constructors = AlgebraicDataTypes.getDataConstruction_(adt).constructors();
+
+    final NameAllocator nameAllocator = new NameAllocator();
+    adt.fields().forEach(da -> nameAllocator.newName(da.fieldName()));
+    final var value = nameAllocator.newName("value");
+
+    return TypeSpec.classBuilder(HASH_CODE_CLASS_NAME)
+        .addModifiers(Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL)
+        .addField(FieldSpec.builder(ArrayTypeName.of(Object.class), "stack", Modifier.PRIVATE)
+            .initializer("new $T[16]", Object.class)
+            .build())
+        .addField(FieldSpec.builder(ArrayTypeName.of(TypeName.INT), "multipliers", Modifier.PRIVATE)
+            .initializer("new int[16]")
+            .build())
+        .addField(TypeName.INT, "size", Modifier.PRIVATE)
+        .addField(FieldSpec.builder(TypeName.INT, "multiplier", Modifier.PRIVATE).initializer("1").build())
+        .addField(TypeName.INT, "hash", Modifier.PRIVATE)
+        .addMethod(MethodSpec.methodBuilder("run")
+            .addParameter(adtTypeName, "value")
+            .returns(TypeName.INT)
+            .addStatement("push(value, 1)")
+            .beginControlFlow("while (size > 0)")
+            .addStatement("size--")
+            .addStatement("$T item = stack[size]", Object.class)
+            .addStatement("stack[size] = null")
+            .addStatement("multiplier = multipliers[size]")
+            .beginControlFlow("if (item != null)")
+            .addStatement("step(($T) item)", adtTypeName)
+            .endControlFlow()
+            .endControlFlow()
+            .addStatement("return hash")
+            .build())
+        .addMethod(MethodSpec.methodBuilder("add")
+            .addModifiers(Modifier.PRIVATE)
+            .addParameter(TypeName.INT, "nodeHash")
+            .returns(hasher)
+            .addStatement("hash += multiplier * nodeHash")
+            .addStatement("return this")
+            .build())
+        .addMethod(MethodSpec.methodBuilder("push")
+            .addJavadoc("A self-recursive field, whose hash code contributes coefficient times its parent's.\n")
+            .addModifiers(Modifier.PRIVATE)
+            .addParameter(Object.class, "value")
+            .addParameter(TypeName.INT, "coefficient")
+            .returns(hasher)
+            .beginControlFlow("if (size == stack.length)")
+            .addStatement("stack = $T.copyOf(stack, size * 2)", Arrays.class)
+            .addStatement("multipliers = $T.copyOf(multipliers, size * 2)", Arrays.class)
+            .endControlFlow()
+            .addStatement("stack[size] = value")
+            .addStatement("multipliers[size] = multiplier * coefficient")
+            .addStatement("size++")
+            .addStatement("return this")
+            .build())
+        .addMethod(MethodSpec.methodBuilder("step")
+            .addModifiers(Modifier.PRIVATE)
+            .addParameter(adtTypeName, value)
+            .addStatement("$L", Utils.matchWithLambdas(adt, CodeBlock.of("$L", value),
+                dc -> nodeHash(adt, dc, StrictConstructorDerivator.PRIMES.get(constructors.indexOf(dc)))))
+            .build())
+        .build();
+  }
+
+  /**
+   * The strict {@code hashCode} of a constructor with prime p and fields h1..hn is
+   * {@code ((p + h1) * p + h2) * p ... + hn}, that is {@code p^n + p^(n-1) * h1 + ... + hn}, and p for a nullary
+   * constructor: each recursive field is pushed with its coefficient, the rest is added to the hash right away.
+   */
+  private CodeBlock nodeHash(AlgebraicDataType<Drv4j> adt, DataConstructor constructor, int prime) {
+    final List<DataArgument> arguments = constructor.arguments();
+    final int n = arguments.size();
+    final int[] powers = new int[n + 1];
+    powers[0] = 1;
+    for (int i = 1; i <= n; i++) {
+      powers[i] = powers[i - 1] * prime;
+    }
+
+    final CodeBlock.Builder nodeHash = CodeBlock.builder().add("$L", intLiteral(n == 0 ? prime : powers[n]));
+    final CodeBlock.Builder pushes = CodeBlock.builder();
+    for (int i = 0; i < n; i++) {
+      final var da = arguments.get(i);
+      final int coefficient = powers[n - 1 - i];
+      if (isSelfReference(adt, da)) {
+        pushes.add(".push($N, $L)", da.fieldName(), intLiteral(coefficient));
+      } else if (coefficient == 1) {
+        nodeHash.add(" + $L", StrictConstructorDerivator.hashCodeOf(da, da.fieldName()));
+      } else {
+        nodeHash.add(" + $L * $L", intLiteral(coefficient), StrictConstructorDerivator.hashCodeOf(da, da.fieldName()));
+      }
+    }
+    return CodeBlock.builder().add("this.add($L)", nodeHash.build()).add(pushes.build()).build();
+  }
+
+  private static String intLiteral(int value) {
+    return value < 0 ? "(" + value + ")" : String.valueOf(value);
+  }
+
+  private static TypeName wildcardTypeName(AlgebraicDataType<Drv4j> adt) {
+    return Utils.typeName(ClassName.get(adt.typeConstructor().typeElement()), adt.typeConstructor()
+        .typeVariables()
+        .stream()
+        .map(__ -> WildcardTypeName.subtypeOf(Object.class)));
+  }
+}
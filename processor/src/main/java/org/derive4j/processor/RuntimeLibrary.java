@@ -0,0 +1,59 @@
+/*
+ * Copyright (c) 2019, Jean-Baptiste Giraudeau <jb@giraudeau.info>
+ *
+ * This file is part of "Derive4J - Annotation Processor".
+ *
+ * "Derive4J - Annotation Processor" is free software: you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * "Derive4J - Annotation Processor" is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with "Derive4J - Annotation Processor".  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.derive4j.processor;
+
+import com.squareup.javapoet.ClassName;
+import java.util.EnumSet;
+import java.util.Optional;
+import java.util.Set;
+import org.derive4j.DeriveOption;
+import org.derive4j.processor.api.DeriveUtils;
+import org.derive4j.processor.api.model.DeriveConfig;
+
+final class RuntimeLibrary {
+
+  static final String PACKAGE = "org.derive4j.runtime";
+
+  static final ClassName INSTANCE_CACHE = ClassName.get(PACKAGE, "InstanceCache");
+
+  static final int MAX_FUNCTION_ARITY = 8;
+
+  private static final Set<DeriveOption> REQUIRING_OPTIONS = EnumSet.of(DeriveOption.runtimeLibrary,
+      DeriveOption.cachedInstances);
+
+  private RuntimeLibrary() {
+  }
+
+  static boolean enabled(DeriveConfig deriveConfig) {
+    return deriveConfig.options().contains(DeriveOption.runtimeLibrary);
+  }
+
+  static Optional<DeriveOption> requiringOption(DeriveConfig deriveConfig) {
+    return deriveConfig.options().stream().filter(REQUIRING_OPTIONS::contains).findFirst();
+  }
+
+  static boolean isAvailable(DeriveUtils deriveUtils) {
+    return deriveUtils.elements().getTypeElement(INSTANCE_CACHE.reflectionName()) != null;
+  }
+
+  static ClassName function(int arity) {
+    return ClassName.get(PACKAGE, "F" + arity);
+  }
+
+}
@@ -0,0 +1,277 @@
+/*
+ * Copyright (c) 2019, Jean-Baptiste Giraudeau <jb@giraudeau.info>
+ *
+ * This file is part of "Derive4J - Annotation Processor".
+ *
+ * "Derive4J - Annotation Processor" is free software: you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * "Derive4J - Annotation Processor" is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with "Derive4J - Annotation Processor".  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.derive4j.processor;
+
+import com.squareup.javapoet.AnnotationSpec;
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.CodeBlock;
+import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.NameAllocator;
+import com.squareup.javapoet.ParameterizedTypeName;
+import com.squareup.javapoet.TypeName;
+import com.squareup.javapoet.TypeSpec;
+import com.squareup.javapoet.TypeVariableName;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.PrimitiveType;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.type.TypeVariable;
+import org.derive4j.Data;
+import org.derive4j.Derive;
+import org.derive4j.Flavour;
+import org.derive4j.Make;
+import org.derive4j.Specialize;
+import org.derive4j.processor.api.Derivator;
+import org.derive4j.processor.api.DeriveResult;
+import org.derive4j.processor.api.DeriveUtils;
+import org.derive4j.processor.api.DerivedCodeSpec;
+import org.derive4j.processor.api.DerivedCodeSpecs;
+import org.derive4j.processor.api.model.AlgebraicDataType;
+import org.derive4j.processor.api.model.AlgebraicDataType.Variant;
+import org.derive4j.processor.api.model.AlgebraicDataType.Variant.Drv4j;
+import org.derive4j.processor.api.model.AlgebraicDataTypes;
+import org.derive4j.processor.api.model.DataArgument;
+import org.derive4j.processor.api.model.DataConstruction;
+import org.derive4j.processor.api.model.DataConstructor;
+
+import static org.derive4j.processor.api.DeriveMessages.message;
+import static org.derive4j.processor.api.MessageLocalizations.onElement;
+
+/**
+ * {@link Specialize}: generates, in the derived class, a @Data sibling of a single type parameter data type for each
+ * requested primitive type, with primitive fields in place of the type parameter, together with conversions from and
+ * to the generic form. The siblings are then derived in the next processing round.
+ */
+final class SpecializeDerivator implements Derivator<Variant> {
+
+  private static final Set<Make> SPECIALIZED_MAKES = EnumSet.of(Make.lambdaVisitor, Make.constructors,
+      Make.lazyConstructor, Make.casesMatching, Make.caseOfMatching, Make.getters, Make.modifiers);
+
+  private final DeriveUtils deriveUtils;
+  private final TypeElement specializeAnnotation;
+  private final CataDerivator cataDerivator;
+  private final StrictConstructorDerivator strictDerivator;
+
+  SpecializeDerivator(DeriveUtilsImpl deriveUtils) {
+    this.deriveUtils = deriveUtils;
+    specializeAnnotation = deriveUtils.elements().getTypeElement(Specialize.class.getName());
+    cataDerivator = new CataDerivator(deriveUtils);
+    strictDerivator = new StrictConstructorDerivator(deriveUtils);
+  }
+
+  @Override
+  public DeriveResult<DerivedCodeSpec> derive(AlgebraicDataType<Variant> adt) {
+    return specializations(adt.typeConstructor().typeElement()).map(primitives -> AlgebraicDataTypes.caseOf(adt)
+        .adt((deriveConfig, typeConstructor, matchMethod, dataConstruction, fields, eq) -> specialize(
+            Utils.coerce(adt, eq), dataConstruction, primitives))
+        .jadt((deriveConfig, typeConstructor, jDataConstruction, fields, eq) -> error(adt,
+            "@Specialize is not supported for records")))
+        .orElseGet(() -> DeriveResult.result(DerivedCodeSpec.none()));
+  }
+
+  private DeriveResult<DerivedCodeSpec> specialize(AlgebraicDataType<Drv4j> adt, DataConstruction dataConstruction,
+      List<TypeMirror> primitives) {
+
+    final var typeVariables = adt.typeConstructor().typeVariables();
+
+    return typeVariables.size() != 1
+        ? error(adt, "@Specialize requires a data type with exactly one type parameter")
+        : !dataConstruction.isVisitorDispatch() || cataDerivator.visitorIsObjectAlgebra(adt)
+            ? error(adt, "@Specialize requires a visitor interface that is not an object algebra")
+            : dataConstruction.constructors().stream().anyMatch(dc -> !dc.typeRestrictions().isEmpty())
+                ? error(adt, "@Specialize does not support constructors with type restrictions")
+                : !adt.deriveConfig().makes().containsAll(EnumSet.of(Make.lambdaVisitor, Make.constructors))
+                    ? error(adt, "@Specialize requires the lambdaVisitor and constructors derivations")
+                    : recursive(adt, dataConstruction) && !adt.deriveConfig().makes().contains(Make.lazyConstructor)
+                        ? error(adt, "@Specialize requires the lazyConstructor derivation for recursive data types, "
+                            + "so that conversions do not recurse on the call stack")
+                        : primitives.stream().anyMatch(p -> !p.getKind().isPrimitive())
+                            ? error(adt, "@Specialize only accepts primitive types")
+                            : DeriveResult.result(DerivedCodeSpecs.codeSpec(primitives.stream()
+                                .map(p -> specialization(adt, dataConstruction.constructors(), typeVariables.get(0),
+                                    (PrimitiveType) p))
+                                .collect(Collectors.toList()), List.of(), List.of()));
+  }
+
+  private TypeSpec specialization(AlgebraicDataType<Drv4j> adt, List<DataConstructor> constructors,
+      TypeVariable typeVariable, PrimitiveType primitive) {
+
+    final var typeConstructor = adt.typeConstructor();
+    final var adtName = typeConstructor.typeElement().getSimpleName().toString();
+    final var companion = adt.deriveConfig().targetClass().className();
+    final var specializedName = Utils.capitalize(primitive.toString()) + adtName;
+    final var specialized = companion.nestedClass(specializedName);
+    final var specializedCompanion = ClassName.get(companion.packageName(),
+        DeriveConfigBuilder.autoGeneratedClassName(specializedName));
+    final var boxed = deriveUtils.types().boxedClass(primitive).asType();
+    final var genericTypeName = ParameterizedTypeName.get(ClassName.get(typeConstructor.typeElement()),
+        TypeName.get(boxed));
+
+    final var matchMethod = AlgebraicDataTypes.getMatchMethod_(adt);
+    final var visitorParam = MapperDerivator.visitorLambdaFactoryName(adt);
+    final var visitorName = constructors.get(0).deconstructor().visitorType().asElement().getSimpleName().toString();
+    final var returnTypeVariable = TypeVariableName.get(matchMethod.returnTypeVariable().asElement()
+        .getSimpleName()
+        .toString());
+    final var visitor = specialized.nestedClass(visitorName);
+
+    final Function<TypeMirror, TypeName> specializedType = type -> deriveUtils.types()
+        .isSameType(type, typeVariable)
+            ? TypeName.get(primitive)
+            : deriveUtils.types().isSameType(type, typeConstructor.declaredType())
+                ? specialized
+                : TypeName.get(deriveUtils.resolve(type, tv -> deriveUtils.types().isSameType(tv, typeVariable)
+                    ? Optional.of(boxed)
+                    : Optional.empty()));
+
+    final var makes = EnumSet.copyOf(SPECIALIZED_MAKES);
+    makes.retainAll(adt.deriveConfig().makes());
+
+    final var derive = AnnotationSpec.builder(Derive.class);
+    makes.forEach(make -> derive.addMember("make", "$T.$L", Make.class, make.name()));
+    final var data = AnnotationSpec.builder(Data.class).addMember("value", "$L", derive.build());
+    if (adt.deriveConfig().flavour() != Flavour.JDK) {
+      data.addMember("flavour", "$T.$L", Flavour.class, adt.deriveConfig().flavour().name());
+    }
+
+    final var visitorInterface = TypeSpec.interfaceBuilder(visitorName)
+        .addModifiers(Modifier.PUBLIC)
+        .addTypeVariable(returnTypeVariable);
+    for (DataConstructor dc : constructors) {
+      final var method = MethodSpec.methodBuilder(dc.deconstructor().method().getSimpleName().toString())
+          .addModifiers(Modifier.PUBLIC, Modifier.ABSTRACT)
+          .returns(returnTypeVariable);
+      dc.arguments().forEach(da -> method.addParameter(specializedType.apply(da.type()), da.fieldName()));
+      visitorInterface.addMethod(method.build());
+    }
+
+    final var typeSpec = TypeSpec.classBuilder(specializedName)
+        .addModifiers(Modifier.PUBLIC, Modifier.STATIC, Modifier.ABSTRACT)
+        .addJavadoc("Specialization of {@link $T} to $L.\n", ClassName.get(typeConstructor.typeElement()), primitive)
+        .addAnnotation(data.build())
+        .addType(visitorInterface.build())
+        .addMethod(MethodSpec.constructorBuilder().build())
+        .addMethod(MethodSpec.methodBuilder(matchMethod.element().getSimpleName().toString())
+            .addModifiers(Modifier.PUBLIC, Modifier.ABSTRACT)
+            .addTypeVariable(returnTypeVariable)
+            .addParameter(ParameterizedTypeName.get(visitor, returnTypeVariable), visitorParam)
+            .returns(returnTypeVariable)
+            .build());
+
+    final var typeElement = typeConstructor.typeElement();
+    strictDerivator.findAbstractEquals(typeElement)
+        .ifPresent(__ -> typeSpec.addMethod(abstractObjectMethod("equals", TypeName.BOOLEAN)
+            .addParameter(Object.class, "obj")
+            .build()));
+    strictDerivator.findAbstractHashCode(typeElement)
+        .ifPresent(__ -> typeSpec.addMethod(abstractObjectMethod("hashCode", TypeName.INT).build()));
+    strictDerivator.findAbstractToString(typeElement)
+        .ifPresent(__ -> typeSpec.addMethod(abstractObjectMethod("toString", ClassName.get(String.class)).build()));
+
+    final var nameAllocator = new NameAllocator();
+    constructors.stream().flatMap(dc -> dc.arguments().stream()).map(DataArgument::fieldName).distinct().forEach(
+        fieldName -> nameAllocator.newName(fieldName, fieldName));
+    final var value = nameAllocator.newName("value");
+    final var fromName = "from" + adtName;
+    final var toName = "to" + adtName;
+
+    final var from = Utils.matchWithLambdas(adt, CodeBlock.of("$L", value),
+        dc -> CodeBlock.of("$T.$L($L)", specializedCompanion, dc.name(), dc.arguments()
+            .stream()
+            .map(da -> deriveUtils.types().isSameType(da.type(), typeConstructor.declaredType())
+                ? CodeBlock.of("$T.lazy(() -> $L($L))", specializedCompanion, fromName, da.fieldName())
+                : CodeBlock.of("$L", da.fieldName()))
+            .collect(CodeBlock.joining(", "))));
+
+    final var lambdas = constructors.stream()
+        .map(dc -> CodeBlock.of("($L) -> $T.$L($L)",
+            dc.arguments().stream().map(DataArgument::fieldName).collect(Collectors.joining(", ")), companion,
+            dc.name() + (StrictConstructorDerivator.smartConstructor(dc, adt.deriveConfig()) ? "0" : ""),
+            dc.arguments()
+                .stream()
+                .map(da -> deriveUtils.types().isSameType(da.type(), typeConstructor.declaredType())
+                    ? CodeBlock.of("$T.lazy(() -> $L($L))", companion, toName, da.fieldName())
+                    : CodeBlock.of("$L", da.fieldName()))
+                .collect(CodeBlock.joining(", "))))
+        .collect(CodeBlock.joining(",\n"));
+    final var to = constructors.size() > 1
+        ? CodeBlock.of("$L.$L($T.$L(\n$>$L$<))", value, matchMethod.element().getSimpleName(), specializedCompanion,
+            visitorParam, lambdas)
+        : CodeBlock.of("$L.$L(\n$>$L$<)", value, matchMethod.element().getSimpleName(), lambdas);
+
+    return typeSpec.addMethod(MethodSpec.methodBuilder(fromName)
+        .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
+        .addParameter(genericTypeName, value)
+        .returns(specialized)
+        .addStatement("return $L", from)
+        .build())
+        .addMethod(MethodSpec.methodBuilder(toName)
+            .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
+            .addParameter(specialized, value)
+            .returns(genericTypeName)
+            .addStatement("return $L", to)
+            .build())
+        .build();
+  }
+
+  private static MethodSpec.Builder abstractObjectMethod(String name, TypeName returnType) {
+    return MethodSpec.methodBuilder(name)
+        .addAnnotation(Override.class)
+        .addModifiers(Modifier.PUBLIC, Modifier.ABSTRACT)
+        .returns(returnType);
+  }
+
+  private Optional<List<TypeMirror>> specializations(TypeElement typeElement) {
+    return typeElement.getAnnotationMirrors()
+        .stream()
+        .filter(am -> specializeAnnotation.equals(am.getAnnotationType().asElement()))
+        .findFirst()
+        .map(this::primitives);
+  }
+
+  private boolean recursive(AlgebraicDataType<Drv4j> adt, DataConstruction dataConstruction) {
+    return dataConstruction.constructors()
+        .stream()
+        .flatMap(dc -> dc.arguments().stream())
+        .anyMatch(da -> deriveUtils.types().isSameType(da.type(), adt.typeConstructor().declaredType()));
+  }
+
+  private List<TypeMirror> primitives(AnnotationMirror specialize) {
+    return deriveUtils.elements()
+        .getElementValuesWithDefaults(specialize)
+        .entrySet()
+        .stream()
+        .filter(e -> e.getKey().getSimpleName().contentEquals("value"))
+        .flatMap(e -> ((List<?>) e.getValue().getValue()).stream())
+        .map(v -> (TypeMirror) ((AnnotationValue) v).getValue())
+        .collect(Collectors.toList());
+  }
+
+  private static DeriveResult<DerivedCodeSpec> error(AlgebraicDataType<?> adt, String message) {
+    return DeriveResult.error(message(message, onElement(adt.typeConstructor().typeElement())));
+  }
+}
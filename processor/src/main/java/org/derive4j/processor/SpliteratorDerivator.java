@@ -0,0 +1,346 @@
+/*
+ * Copyright (c) 2019, Jean-Baptiste Giraudeau <jb@giraudeau.info>
+ *
+ * This file is part of "Derive4J - Annotation Processor".
+ *
+ * "Derive4J - Annotation Processor" is free software: you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * "Derive4J - Annotation Processor" is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with "Derive4J - Annotation Processor".  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.derive4j.processor;
+
+import com.squareup.javapoet.AnnotationSpec;
+import com.squareup.javapoet.ArrayTypeName;
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.CodeBlock;
+import com.squareup.javapoet.FieldSpec;
+import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.NameAllocator;
+import com.squareup.javapoet.ParameterizedTypeName;
+import com.squareup.javapoet.TypeName;
+import com.squareup.javapoet.TypeSpec;
+import com.squareup.javapoet.TypeVariableName;
+import com.squareup.javapoet.WildcardTypeName;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.type.TypeVariable;
+import javax.lang.model.type.WildcardType;
+import javax.lang.model.util.SimpleTypeVisitor8;
+import org.derive4j.processor.api.Derivator;
+import org.derive4j.processor.api.DeriveResult;
+import org.derive4j.processor.api.DeriveUtils;
+import org.derive4j.processor.api.DerivedCodeSpec;
+import org.derive4j.processor.api.DerivedCodeSpecs;
+import org.derive4j.processor.api.model.AlgebraicDataType;
+import org.derive4j.processor.api.model.AlgebraicDataType.Variant.Drv4j;
+import org.derive4j.processor.api.model.AlgebraicDataTypes;
+import org.derive4j.processor.api.model.DataArgument;
+import org.derive4j.processor.api.model.DataConstructor;
+
+import static org.derive4j.processor.api.DeriveMessages.message;
+import static org.derive4j.processor.api.MessageLocalizations.onElement;
+
+/**
+ * {@link Spliterator} and {@link Stream} of the elements of data types that are recursive in their single type
+ * variable: the elements are the fields of that type, in field order, recursive fields being traversed in place.
+ * Values with several recursive fields (trees) split on their subtrees; values with a single recursive field (lists)
+ * split off growing batches of elements.
+ * <p>Only fields of the data type itself are recursive fields: data types nesting themselves in other types (eg. the
+ * {@code List<Tree<A>>} sub-forest of a rose tree) are rejected, as their elements would not be traversed.
+ */
+final class SpliteratorDerivator implements Derivator<Drv4j> {
+
+  private static final String SPLITERATOR_CLASS_NAME = "ElementSpliterator";
+
+  private final DeriveUtils deriveUtils;
+
+  SpliteratorDerivator(DeriveUtils deriveUtils) {
+    this.deriveUtils = deriveUtils;
+  }
+
+  @Override
+  public DeriveResult<DerivedCodeSpec> derive(AlgebraicDataType<Drv4j> adt) {
+
+    final var typeVariables = adt.typeConstructor().typeVariables();
+    final var constructors = AlgebraicDataTypes.getDataConstruction_(adt).constructors();
+
+    if (typeVariables.size() != 1) {
+      return error(adt, "spliterator requires a data type with exactly one type variable");
+    }
+    if (constructors.stream().anyMatch(dc -> !dc.typeRestrictions().isEmpty())) {
+      return error(adt, "spliterator is not supported for constructors with type restrictions (GADT)");
+    }
+    final TypeVariable element = typeVariables.get(0);
+    final var nestingSelf = adt.fields().stream().filter(da -> nestsSelf(adt, da.type())).findFirst();
+    if (nestingSelf.isPresent()) {
+      return error(adt, "spliterator does not traverse " + adt.typeConstructor().typeElement().getSimpleName()
+          + " values nested in other types, as in field " + nestingSelf.get().fieldName() + " of type "
+          + nestingSelf.get().type() + ": recursive fields must be of the data type itself");
+    }
+    if (constructors.stream().noneMatch(dc -> dc.arguments().stream().anyMatch(da -> isSelf(adt, da)))
+        || constructors.stream().noneMatch(dc -> dc.arguments().stream().anyMatch(da -> isElement(element, da)))) {
+      return error(adt, "spliterator requires a recursive data type with fields of type " + element);
+    }
+
+    return DeriveResult.result(spliterator(adt, element));
+  }
+
+  private DerivedCodeSpec spliterator(AlgebraicDataType<Drv4j> adt, TypeVariable element) {
+
+    final var elementType = TypeVariableName.get(element);
+    final var adtTypeName = TypeName.get(adt.typeConstructor().declaredType());
+    final var spliteratorClass = adt.deriveConfig().targetClass().className().nestedClass(SPLITERATOR_CLASS_NAME);
+    final var spliteratorTypeName = ParameterizedTypeName.get(spliteratorClass, elementType);
+    final var spliteratorOfElements = ParameterizedTypeName.get(ClassName.get(Spliterator.class), elementType);
+    final var treeLike = AlgebraicDataTypes.getDataConstruction_(adt)
+        .constructors()
+        .stream()
+        .anyMatch(dc -> dc.arguments().stream().filter(da -> isSelf(adt, da)).count() > 1);
+
+    final NameAllocator nameAllocator = new NameAllocator();
+    adt.fields().forEach(da -> nameAllocator.newName(da.fieldName()));
+    final var node = nameAllocator.newName("node");
+
+    final MethodSpec expand = MethodSpec.methodBuilder("expand")
+        .addJavadoc("Pushes the elements and recursive fields of node, so that they are popped in field order.\n")
+        .addModifiers(Modifier.PRIVATE)
+        .addParameter(adtTypeName, node)
+        .addStatement("$L", Utils.matchWithLambdas(adt, CodeBlock.of("$L", node), dc -> pushFields(adt, element, dc)))
+        .build();
+
+    final MethodSpec.Builder trySplit = MethodSpec.methodBuilder("trySplit")
+        .addAnnotation(Override.class)
+        .addModifiers(Modifier.PUBLIC)
+        .returns(spliteratorOfElements);
+    if (treeLike) {
+      trySplit.addComment("split off the entries above the deepest pending subtree, as they come first")
+          .beginControlFlow("while (size > 0)")
+          .addStatement("int bottom = 0")
+          .beginControlFlow("while (bottom < size && !nodes[bottom])")
+          .addStatement("bottom++")
+          .endControlFlow()
+          .addStatement("int above = bottom + 1")
+          .beginControlFlow("while (above < size && !nodes[above])")
+          .addStatement("above++")
+          .endControlFlow()
+          .beginControlFlow("if (above < size)")
+          .addStatement("$T prefix = new $T<>()", spliteratorTypeName, spliteratorClass)
+          .addStatement("prefix.items = $T.copyOfRange(items, bottom + 1, $T.max(size, bottom + 17))", Arrays.class,
+              Math.class)
+          .addStatement("prefix.nodes = $T.copyOfRange(nodes, bottom + 1, $T.max(size, bottom + 17))", Arrays.class,
+              Math.class)
+          .addStatement("prefix.size = size - bottom - 1")
+          .addStatement("$T.fill(items, bottom + 1, size, null)", Arrays.class)
+          .addStatement("size = bottom + 1")
+          .addStatement("return prefix")
+          .endControlFlow()
+          .beginControlFlow("if (bottom != size - 1)")
+          .addStatement("break")
+          .endControlFlow()
+          .addComment("a single pending subtree, on top: split its children")
+          .addStatement("$T next = pop()", adtTypeName)
+          .beginControlFlow("if (next != null)")
+          .addStatement("expand(next)")
+          .endControlFlow()
+          .endControlFlow();
+    }
+    trySplit.addCode(batchSplit(elementType));
+
+    final TypeSpec spliteratorSpec = TypeSpec.classBuilder(SPLITERATOR_CLASS_NAME)
+        .addModifiers(Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL)
+        .addTypeVariable(elementType)
+        .addSuperinterface(spliteratorOfElements)
+        .addField(FieldSpec.builder(ArrayTypeName.of(Object.class), "items", Modifier.PRIVATE)
+            .initializer("new $T[16]", Object.class)
+            .build())
+        .addField(FieldSpec.builder(ArrayTypeName.of(TypeName.BOOLEAN), "nodes", Modifier.PRIVATE)
+            .initializer("new boolean[16]")
+            .build())
+        .addField(TypeName.INT, "size", Modifier.PRIVATE)
+        .addField(TypeName.INT, "batch", Modifier.PRIVATE)
+        .addMethod(MethodSpec.methodBuilder("push")
+            .addModifiers(Modifier.PRIVATE)
+            .addParameter(Object.class, "item")
+            .addParameter(TypeName.BOOLEAN, "node")
+            .returns(spliteratorTypeName)
+            .beginControlFlow("if (size == items.length)")
+            .addStatement("items = $T.copyOf(items, size * 2)", Arrays.class)
+            .addStatement("nodes = $T.copyOf(nodes, size * 2)", Arrays.class)
+            .endControlFlow()
+            .addStatement("items[size] = item")
+            .addStatement("nodes[size] = node")
+            .addStatement("size++")
+            .addStatement("return this")
+            .build())
+        .addMethod(MethodSpec.methodBuilder("pop")
+            .addAnnotation(AnnotationSpec.builder(SuppressWarnings.class)
+                .addMember("value", "$S", "unchecked")
+                .build())
+            .addModifiers(Modifier.PRIVATE)
+            .returns(adtTypeName)
+            .addStatement("size--")
+            .addStatement("$T item = items[size]", Object.class)
+            .addStatement("items[size] = null")
+            .addStatement("return ($T) item", adtTypeName)
+            .build())
+        .addMethod(expand)
+        .addMethod(MethodSpec.methodBuilder("tryAdvance")
+            .addAnnotation(Override.class)
+            .addAnnotation(AnnotationSpec.builder(SuppressWarnings.class)
+                .addMember("value", "$S", "unchecked")
+                .build())
+            .addModifiers(Modifier.PUBLIC)
+            .addParameter(ParameterizedTypeName.get(ClassName.get(Consumer.class),
+                WildcardTypeName.supertypeOf(elementType)), "action")
+            .returns(TypeName.BOOLEAN)
+            .beginControlFlow("while (size > 0)")
+            .beginControlFlow("if (nodes[size - 1])")
+            .addStatement("$T next = pop()", adtTypeName)
+            .beginControlFlow("if (next != null)")
+            .addStatement("expand(next)")
+            .endControlFlow()
+            .nextControlFlow("else")
+            .addStatement("size--")
+            .addStatement("$T item = items[size]", Object.class)
+            .addStatement("items[size] = null")
+            .addStatement("action.accept(($T) item)", elementType)
+            .addStatement("return true")
+            .endControlFlow()
+            .endControlFlow()
+            .addStatement("return false")
+            .build())
+        .addMethod(trySplit.build())
+        .addMethod(MethodSpec.methodBuilder("estimateSize")
+            .addAnnotation(Override.class)
+            .addModifiers(Modifier.PUBLIC)
+            .returns(TypeName.LONG)
+            .addStatement("return size == 0 ? 0 : $T.MAX_VALUE", Long.class)
+            .build())
+        .addMethod(MethodSpec.methodBuilder("characteristics")
+            .addAnnotation(Override.class)
+            .addModifiers(Modifier.PUBLIC)
+            .returns(TypeName.INT)
+            .addStatement("return $1T.ORDERED | $1T.IMMUTABLE", Spliterator.class)
+            .build())
+        .build();
+
+    final MethodSpec spliterator = MethodSpec.methodBuilder("spliterator")
+        .addJavadoc("A spliterator over the elements of value.\n")
+        .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
+        .addTypeVariable(elementType)
+        .addParameter(adtTypeName, "value")
+        .returns(spliteratorOfElements)
+        .addStatement("return new $T<$T>().push(value, true)", spliteratorClass, elementType)
+        .build();
+
+    final List<MethodSpec> streams = new ArrayList<>();
+    streams.add(spliterator);
+    for (boolean parallel : new boolean[] { false, true }) {
+      streams.add(MethodSpec.methodBuilder(parallel ? "parallelStream" : "stream")
+          .addJavadoc(parallel
+              ? "A parallel stream of the elements of value.\n"
+              : "A stream of the elements of value.\n")
+          .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
+          .addTypeVariable(elementType)
+          .addParameter(adtTypeName, "value")
+          .returns(ParameterizedTypeName.get(ClassName.get(Stream.class), elementType))
+          .addStatement("return $T.stream(spliterator(value), $L)", StreamSupport.class, parallel)
+          .build());
+    }
+
+    return DerivedCodeSpecs.codeSpec(Collections.singletonList(spliteratorSpec), Collections.emptyList(), streams);
+  }
+
+  /**
+   * Splits off a batch of elements, growing by 1024 at each split, as done by the JDK for iterators.
+   */
+  private static CodeBlock batchSplit(TypeVariableName elementType) {
+    return CodeBlock.builder()
+        .beginControlFlow("if (size == 0)")
+        .addStatement("return null")
+        .endControlFlow()
+        .addStatement("int n = $T.min(batch + 1024, 1 << 25)", Math.class)
+        .addStatement("$T[] batchItems = new $T[n]", Object.class, Object.class)
+        .addStatement("$T<$T> collect = item -> batchItems[batch++] = item", Consumer.class, elementType)
+        .addStatement("batch = 0")
+        .beginControlFlow("while (batch < n && tryAdvance(collect))")
+        .endControlFlow()
+        .beginControlFlow("if (batch == 0)")
+        .addStatement("return null")
+        .endControlFlow()
+        .addStatement("return $T.spliterator(batchItems, 0, batch, $T.ORDERED | $T.IMMUTABLE)", Spliterators.class,
+            Spliterator.class, Spliterator.class)
+        .build();
+  }
+
+  private CodeBlock pushFields(AlgebraicDataType<Drv4j> adt, TypeVariable element, DataConstructor constructor) {
+    final CodeBlock.Builder pushes = CodeBlock.builder().add("this");
+    final List<DataArgument> arguments = new ArrayList<>(constructor.arguments());
+    Collections.reverse(arguments);
+    for (DataArgument da : arguments) {
+      if (isSelf(adt, da)) {
+        pushes.add(".push($N, true)", da.fieldName());
+      } else if (isElement(element, da)) {
+        pushes.add(".push($N, false)", da.fieldName());
+      }
+    }
+    return pushes.build();
+  }
+
+  private boolean isSelf(AlgebraicDataType<Drv4j> adt, DataArgument da) {
+    return deriveUtils.types().isSameType(da.type(), adt.typeConstructor().declaredType());
+  }
+
+  /**
+   * Whether type mentions the data type without being it, eg. {@code List<Tree<A>>} or {@code Tree<A>[]}.
+   */
+  private boolean nestsSelf(AlgebraicDataType<Drv4j> adt, TypeMirror type) {
+    final var types = deriveUtils.types();
+    return type.accept(new SimpleTypeVisitor8<Boolean, Boolean>(false) {
+      @Override
+      public Boolean visitDeclared(DeclaredType t, Boolean nested) {
+        return nested && types.isSameType(types.erasure(t), types.erasure(adt.typeConstructor().declaredType()))
+            || t.getTypeArguments().stream().anyMatch(arg -> arg.accept(this, true));
+      }
+
+      @Override
+      public Boolean visitArray(ArrayType t, Boolean nested) {
+        return t.getComponentType().accept(this, true);
+      }
+
+      @Override
+      public Boolean visitWildcard(WildcardType t, Boolean nested) {
+        return Stream.of(t.getExtendsBound(), t.getSuperBound())
+            .anyMatch(bound -> bound != null && bound.accept(this, true));
+      }
+    }, false);
+  }
+
+  private boolean isElement(TypeVariable element, DataArgument da) {
+    return deriveUtils.types().isSameType(da.type(), element);
+  }
+
+  private static DeriveResult<DerivedCodeSpec> error(AlgebraicDataType<Drv4j> adt, String msg) {
+    return DeriveResult.error(message(msg, onElement(adt.typeConstructor().typeElement())));
+  }
+}
@@ -32,6 +32,7 @@ import java.util.Arrays;
 import java.util.EnumSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 import java.util.stream.Stream;
@@ -45,6 +46,7 @@ import javax.lang.model.type.TypeVariable;
 import javax.lang.model.util.ElementFilter;
 import javax.lang.model.util.TypeKindVisitor8;
 import org.derive4j.ArgOption;
+import org.derive4j.DeriveOption;
 import org.derive4j.Make;
 import org.derive4j.processor.api.Derivator;
 import org.derive4j.processor.api.DeriveResult;
@@ -56,18 +58,24 @@ import org.derive4j.processor.api.model.AlgebraicDataType.Variant.Drv4j;
 import org.derive4j.processor.api.model.AlgebraicDataType.Variant.Java;
 
 import static org.derive4j.processor.Utils.*;
+import static org.derive4j.processor.api.DeriveMessages.message;
 import static org.derive4j.processor.api.DeriveResult.result;
+import static org.derive4j.processor.api.MessageLocalizations.onElement;
 import static org.derive4j.processor.api.model.DataConstructions.caseOf;
 import static org.derive4j.processor.api.model.DeriveVisibilities.caseOf;
 
 final class StrictConstructorDerivator implements Derivator<Variant> {
 
-  StrictConstructorDerivator(DeriveUtils deriveUtils) {
+  StrictConstructorDerivator(DeriveUtilsImpl deriveUtils) {
     this.deriveUtils = deriveUtils;
     mapperDerivator = new MapperDerivator(deriveUtils);
+    appendToDerivator = new AppendToDerivator(deriveUtils);
+    recursiveEqualityDerivator = new RecursiveEqualityDerivator(deriveUtils);
+    mixedHashDerivator = new MixedHashDerivator(deriveUtils);
+    measureDerivator = new MeasureDerivator(deriveUtils);
   }
 
-  private static final List<Integer> PRIMES = Arrays.asList(23, 29, 31, 37, 41, 43, 47, 53, 59, 61, 67, 71, 73, 79, 83,
+  static final List<Integer> PRIMES = Arrays.asList(23, 29, 31, 37, 41, 43, 47, 53, 59, 61, 67, 71, 73, 79, 83,
       89, 97, 101, 103, 107, 109, 113, 127, 131, 137, 139, 149, 151, 157, 163, 167, 173, 179, 181, 191, 193, 197, 199,
       211, 223, 227, 229, 233, 239, 241, 251, 257, 263, 269, 271, 277, 281, 283, 293, 307, 311, 313, 317, 331, 337, 347,
       349, 353, 359, 367, 373, 379, 383, 389, 397, 401, 409, 419, 421, 431, 433, 439, 443, 449, 457, 461, 463, 467, 479,
@@ -76,10 +84,20 @@ final class StrictConstructorDerivator implements Derivator<Variant> {
       797, 809, 811, 821, 823, 827, 829, 839, 853, 857, 859, 863, 877, 881, 883, 887, 907, 911, 919, 929, 937, 941, 947,
       953, 967, 971, 977, 983, 991, 997);
 
+  private static final String NULLARY_CLASS_NAME = "Nullary";
+
   private final DeriveUtils deriveUtils;
 
   private final MapperDerivator mapperDerivator;
 
+  private final AppendToDerivator appendToDerivator;
+
+  private final RecursiveEqualityDerivator recursiveEqualityDerivator;
+
+  private final MixedHashDerivator mixedHashDerivator;
+
+  private final MeasureDerivator measureDerivator;
+
   @Override
   public DeriveResult<DerivedCodeSpec> derive(AlgebraicDataType<Variant> adt) {
     // skip constructors for enums
@@ -89,22 +107,55 @@ final class StrictConstructorDerivator implements Derivator<Variant> {
 
         .adt((deriveConfig, typeConstructor, matchMethod, dataConstruction, fields, eq) -> {
           final var drv4jAdt = Utils.coerce(adt, eq);
+          if (deriveConfig.options().contains(DeriveOption.cachedMeasures) && !measureDerivator.measured(drv4jAdt)) {
+            return DeriveResult.error(message("cachedMeasures requires a self-recursive data type",
+                onElement(typeConstructor.typeElement())));
+          }
           final var codeSpec = caseOf(dataConstruction)
-            .multipleConstructors(constructors -> constructors
-              .constructors()
-              .stream()
-              .map(dc -> constructorSpec(drv4jAdt, dc))
-              .reduce(DerivedCodeSpec.none(), DerivedCodeSpec::append))
-            .oneConstructor(constructor -> constructorSpec(drv4jAdt, constructor))
+            .multipleConstructors(constructors -> {
+              final var foldedNullaryConstructors = foldedNullaryConstructors(drv4jAdt);
+              return constructors
+                .constructors()
+                .stream()
+                .map(dc -> constructorSpec(drv4jAdt, dc, foldedNullaryConstructors.contains(dc)
+                    ? Optional.of(constructors.constructors().indexOf(dc))
+                    : Optional.empty()))
+                .reduce(foldedNullaryConstructors.isEmpty()
+                    ? DerivedCodeSpec.none()
+                    : nullaryClassSpec(drv4jAdt, foldedNullaryConstructors), DerivedCodeSpec::append);
+            })
+            .oneConstructor(constructor -> constructorSpec(drv4jAdt, constructor, Optional.empty()))
             .noConstructor(DerivedCodeSpec::none);
 
-          return needLambdaVisitorGeneration(adt)
-              ? mapperDerivator.derive(drv4jAdt).map(codeSpec::append)
-              : result(codeSpec);
+          final var withAppendTo = findAbstractToString(typeConstructor.typeElement()).isPresent()
+              && appendToDerivator.recursive(drv4jAdt)
+              ? codeSpec.append(appendToDerivator.appendTo(drv4jAdt))
+              : codeSpec;
+
+          final var withIterativeEquality = withAppendTo.append(recursiveEqualityDerivator.derive(drv4jAdt,
+              findAbstractEquals(typeConstructor.typeElement()).isPresent(),
+              findAbstractHashCode(typeConstructor.typeElement()).isPresent()
+                  && !MixedHashDerivator.mixedHash(adt)));
+
+          final var withHash64 = MixedHashDerivator.mixedHash(adt) && !dataConstruction.constructors().isEmpty()
+              ? withIterativeEquality.append(mixedHashDerivator.hash64(drv4jAdt))
+              : withIterativeEquality;
+
+          final var withMeasures = measureDerivator.measured(drv4jAdt)
+              ? withHash64.append(measureDerivator.derive(drv4jAdt))
+              : withHash64;
+
+          return needLambdaVisitorGeneration(drv4jAdt)
+              ? mapperDerivator.derive(drv4jAdt).map(withMeasures::append)
+              : result(withMeasures);
         })
 
         .jadt((deriveConfig, typeConstructor, jDataConstruction, fields, eq) -> {
           final var javaAdt = Utils.coerce(adt, eq);
+          if (deriveConfig.options().contains(DeriveOption.cachedMeasures)) {
+            return DeriveResult.error(message("cachedMeasures is not supported for records",
+                onElement(typeConstructor.typeElement())));
+          }
 
           return result(JDataConstructions.caseOf(jDataConstruction)
               .multipleConstructors(records -> records
@@ -139,6 +190,31 @@ final class StrictConstructorDerivator implements Derivator<Variant> {
         .findFirst();
   }
 
+  Optional<ExecutableElement> findAbstractCompareTo(TypeElement typeElement) {
+
+    final var compareTo = ElementFilter.methodsIn(deriveUtils.elements()
+        .getTypeElement(Comparable.class.getName())
+        .getEnclosedElements()).get(0);
+    return deriveUtils.allAbstractMethods(typeElement)
+        .stream()
+        .filter(e -> deriveUtils.elements().overrides(e, compareTo, typeElement))
+        .findFirst();
+  }
+
+  /**
+   * {@code compareTo} through the derived comparator, for data types without type variables.
+   */
+  Optional<MethodSpec> deriveCompareTo(AlgebraicDataType<?> adt) {
+
+    return adt.deriveConfig().makes().contains(Make.comparator) && adt.typeConstructor().typeVariables().isEmpty()
+        ? findAbstractCompareTo(adt.typeConstructor().typeElement()).map(compareTo -> deriveUtils
+            .overrideMethodBuilder(compareTo, adt.typeConstructor().declaredType())
+            .addStatement("return $T.comparator().compare(this, $L)", adt.deriveConfig().targetClass().className(),
+                compareTo.getParameters().get(0).getSimpleName())
+            .build())
+        : Optional.empty();
+  }
+
   private Optional<MethodSpec> deriveHashCode(AlgebraicDataType<Drv4j> adt, DataConstructor constructor) {
     final var dataConstruction = AlgebraicDataTypes.getDataConstruction_(adt);
 
@@ -148,6 +224,15 @@ final class StrictConstructorDerivator implements Derivator<Variant> {
         .findFirst()
         .getAsInt();
 
+    if (MixedHashDerivator.mixedHash(adt) || recursiveEqualityDerivator.hasSelfReference(adt, constructor)) {
+      return findAbstractHashCode(adt.typeConstructor().typeElement()).map(abstractHashCode -> deriveUtils
+          .overrideMethodBuilder(abstractHashCode, constructor.returnedType())
+          .addCode(MixedHashDerivator.mixedHash(adt)
+              ? MixedHashDerivator.hashCodeImpl(adt)
+              : RecursiveEqualityDerivator.hashCodeImpl(adt))
+          .build());
+    }
+
     return findAbstractHashCode(adt.typeConstructor().typeElement()).map(abstractHashCode -> deriveUtils
         .overrideMethodBuilder(abstractHashCode, constructor.returnedType())
         .addStatement("return $L$L$L",
@@ -167,16 +252,31 @@ final class StrictConstructorDerivator implements Derivator<Variant> {
       if (constructor.arguments().isEmpty()) {
         methodBuilder.addStatement("return \"$L()\"", constructor.name());
       } else {
-        methodBuilder.addStatement("return $S + $L + $S", constructor.name() + '(',
-            joinStrings(constructor.arguments().stream().map(StrictConstructorDerivator::toString), " + \", \" + "),
-            ")");
-
+        methodBuilder.addCode(appendToDerivator.toStringImpl(adt, constructor));
       }
       return methodBuilder.build();
     });
   }
 
   private Optional<MethodSpec> deriveEquals(AlgebraicDataType<Drv4j> adt, DataConstructor constructor) {
+    if (recursiveEqualityDerivator.hasSelfReference(adt, constructor)) {
+      return findAbstractEquals(adt.typeConstructor().typeElement()).map(abstractEquals -> deriveUtils
+          .overrideMethodBuilder(abstractEquals, constructor.returnedType())
+          .addCode(recursiveEqualityDerivator.equalsImpl(adt,
+              abstractEquals.getParameters().get(0).getSimpleName().toString()))
+          .build());
+    }
+    return deriveEquals(adt, constructor, c -> c.name().equals(constructor.name())
+        ? constructor.arguments()
+            .stream()
+            .map(StrictConstructorDerivator::equalityTest)
+            .reduce((s1, s2) -> s1 + " && " + s2)
+            .orElse("true")
+        : "false");
+  }
+
+  private Optional<MethodSpec> deriveEquals(AlgebraicDataType<Drv4j> adt, DataConstructor constructor,
+      Function<DataConstructor, String> equalityTests) {
 
     final var dataConstruction = AlgebraicDataTypes.getDataConstruction_(adt);
     final var matchMethod = AlgebraicDataTypes.getMatchMethod_(adt);
@@ -189,13 +289,7 @@ final class StrictConstructorDerivator implements Derivator<Variant> {
           .stream()
           .map(c -> CodeBlock.builder()
               .add("($L) -> $L", Utils.asLambdaParametersString(c.arguments(), c.typeRestrictions()),
-                  c.name().equals(constructor.name())
-                      ? constructor.arguments()
-                          .stream()
-                          .map(StrictConstructorDerivator::equalityTest)
-                          .reduce((s1, s2) -> s1 + " && " + s2)
-                          .orElse("true")
-                      : "false")
+                  equalityTests.apply(c))
               .build())
           .reduce((cb1, cb2) -> CodeBlock.builder().add(cb1).add(",\n").add(cb2).build())
           .orElse(CodeBlock.builder().build());
@@ -294,7 +388,102 @@ final class StrictConstructorDerivator implements Derivator<Variant> {
         .build());
   }
 
-  private DerivedCodeSpec constructorSpec(AlgebraicDataType<Drv4j> adt, DataConstructor constructor) {
+  private List<DataConstructor> foldedNullaryConstructors(AlgebraicDataType<Drv4j> adt) {
+
+    List<DataConstructor> constructors = AlgebraicDataTypes.getDataConstruction_(adt).constructors();
+    List<DataConstructor> nullaryConstructors = constructors.stream()
+        .filter(dc -> dc.arguments().isEmpty() && dc.typeRestrictions().isEmpty())
+        .collect(Collectors.toList());
+
+    return adt.deriveConfig().options().contains(DeriveOption.minimalClasses)
+        && nullaryConstructors.size() > 1
+        && constructors.stream().noneMatch(dc -> Utils.capitalize(dc.name()).equals(NULLARY_CLASS_NAME))
+            ? nullaryConstructors
+            : List.of();
+  }
+
+  /**
+   * A single class for all nullary constructors, that dispatch on a tag.
+   */
+  private DerivedCodeSpec nullaryClassSpec(AlgebraicDataType<Drv4j> adt, List<DataConstructor> nullaryConstructors) {
+
+    List<DataConstructor> constructors = AlgebraicDataTypes.getDataConstruction_(adt).constructors();
+    DataConstructor lastConstructor = nullaryConstructors.get(nullaryConstructors.size() - 1);
+    TypeName adtTypeName = TypeName.get(adt.typeConstructor().declaredType());
+
+    MethodSpec.Builder constructorBuilder = MethodSpec.constructorBuilder()
+        .addParameter(TypeName.INT, "tag")
+        .addStatement("this.tag = tag");
+
+    TypeSpec.Builder typeSpecBuilder = TypeSpec.classBuilder(NULLARY_CLASS_NAME)
+        .addModifiers(Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL)
+        .addTypeVariables(
+            adt.typeConstructor().typeVariables().stream().map(TypeVariableName::get).collect(Collectors.toList()))
+        .addField(FieldSpec.builder(TypeName.INT, "tag", Modifier.PRIVATE, Modifier.FINAL).build())
+        .addMethod(deriveUtils
+            .overrideMethodBuilder(AlgebraicDataTypes.getMatchMethod_(adt).element(),
+                adt.typeConstructor().declaredType())
+            .addCode(tagSwitch(constructors, nullaryConstructors,
+                dc -> CodeBlock.of("return $L.$L();\n", dc.deconstructor().visitorParam().getSimpleName(),
+                    dc.deconstructor().method().getSimpleName())))
+            .build());
+
+    if (measureDerivator.measured(adt)) {
+      measureDerivator.measuredNode(adt, List.of(), typeSpecBuilder, constructorBuilder);
+    }
+    typeSpecBuilder.addMethod(constructorBuilder.build());
+
+    if (adt.typeConstructor().declaredType().asElement().getKind() == ElementKind.INTERFACE) {
+      typeSpecBuilder.addSuperinterface(adtTypeName);
+    } else {
+      typeSpecBuilder.superclass(adtTypeName);
+    }
+
+    if (ConstructorIndexDerivator.indexedConstructors(adt)) {
+      typeSpecBuilder.addSuperinterface(ConstructorIndexDerivator.indexedConstructorInterface(adt))
+          .addMethod(ConstructorIndexDerivator.constructorIndexImpl(CodeBlock.of("this.tag")));
+    }
+
+    typeSpecBuilder.addMethods(optionalAsStream(deriveEquals(adt, lastConstructor,
+        c -> nullaryConstructors.contains(c) ? "this.tag == " + constructors.indexOf(c) : "false"))
+        .collect(Collectors.toList()));
+
+    typeSpecBuilder.addMethods(optionalAsStream(findAbstractHashCode(adt.typeConstructor().typeElement())
+        .map(abstractHashCode -> deriveUtils.overrideMethodBuilder(abstractHashCode, adt.typeConstructor().declaredType())
+            .addCode(MixedHashDerivator.mixedHash(adt)
+                ? MixedHashDerivator.hashCodeImpl(adt)
+                : tagSwitch(constructors, nullaryConstructors,
+                    dc -> CodeBlock.of("return $L;\n", PRIMES.get(constructors.indexOf(dc)))))
+            .build())).collect(Collectors.toList()));
+
+    typeSpecBuilder.addMethods(optionalAsStream(findAbstractToString(adt.typeConstructor().typeElement())
+        .map(abstractToString -> deriveUtils.overrideMethodBuilder(abstractToString, adt.typeConstructor().declaredType())
+            .addCode(tagSwitch(constructors, nullaryConstructors, dc -> CodeBlock.of("return \"$L()\";\n", dc.name())))
+            .build())).collect(Collectors.toList()));
+
+    typeSpecBuilder.addMethods(optionalAsStream(deriveCompareTo(adt)).collect(Collectors.toList()));
+
+    return DerivedCodeSpec.codeSpec(typeSpecBuilder.build(), List.of());
+  }
+
+  private static CodeBlock tagSwitch(List<DataConstructor> constructors, List<DataConstructor> taggedConstructors,
+      Function<DataConstructor, CodeBlock> caseCode) {
+
+    CodeBlock.Builder switchBlock = CodeBlock.builder().beginControlFlow("switch (this.tag)");
+    for (int i = 0; i < taggedConstructors.size(); i++) {
+      DataConstructor dc = taggedConstructors.get(i);
+      switchBlock.add(i < taggedConstructors.size() - 1
+          ? CodeBlock.of("case $L:\n", constructors.indexOf(dc))
+          : CodeBlock.of("default:\n"))
+          .indent()
+          .add(caseCode.apply(dc))
+          .unindent();
+    }
+    return switchBlock.endControlFlow().build();
+  }
+
+  private DerivedCodeSpec constructorSpec(AlgebraicDataType<Drv4j> adt, DataConstructor constructor,
+      Optional<Integer> nullaryTag) {
 
     TypeName constructedType = TypeName.get(constructor.returnedType());
 
@@ -333,21 +522,32 @@ final class StrictConstructorDerivator implements Derivator<Variant> {
                 .addModifiers(Modifier.PRIVATE, Modifier.FINAL)
                 .build())
             .collect(Collectors.toList()))
-        .addMethod(constructorBuilder.build())
         .addMethod(deriveUtils.overrideMethodBuilder(AlgebraicDataTypes.getMatchMethod_(adt).element(), constructor.returnedType())
             .addStatement("return $L.$L($L)", constructor.deconstructor().visitorParam().getSimpleName(),
                 constructor.deconstructor().method().getSimpleName(),
                 Utils.asArgumentsString(constructor.arguments(), constructor.typeRestrictions()))
             .build());
+    if (measureDerivator.measured(adt)) {
+      measureDerivator.measuredNode(adt, measureDerivator.selfArguments(adt, constructor), typeSpecBuilder,
+          constructorBuilder);
+    }
+    typeSpecBuilder.addMethod(constructorBuilder.build());
     if (adt.typeConstructor().declaredType().asElement().getKind() == ElementKind.INTERFACE) {
       typeSpecBuilder.addSuperinterface(constructedType);
     } else {
       typeSpecBuilder.superclass(constructedType);
     }
 
+    if (ConstructorIndexDerivator.indexedConstructors(adt)) {
+      typeSpecBuilder.addSuperinterface(ConstructorIndexDerivator.indexedConstructorInterface(adt))
+          .addMethod(ConstructorIndexDerivator.constructorIndexImpl(CodeBlock.of("$L",
+              AlgebraicDataTypes.getDataConstruction_(adt).constructors().indexOf(constructor))));
+    }
+
     typeSpecBuilder.addMethods(optionalAsStream(deriveEquals(adt, constructor)).collect(Collectors.toList()));
     typeSpecBuilder.addMethods(optionalAsStream(deriveHashCode(adt, constructor)).collect(Collectors.toList()));
     typeSpecBuilder.addMethods(optionalAsStream(deriveToString(adt, constructor)).collect(Collectors.toList()));
+    typeSpecBuilder.addMethods(optionalAsStream(deriveCompareTo(adt)).collect(Collectors.toList()));
 
     boolean smartConstructor = smartConstructor(constructor, adt.deriveConfig());
 
@@ -407,13 +607,33 @@ final class StrictConstructorDerivator implements Derivator<Variant> {
             .build());
       }
 
-      result = DerivedCodeSpec.codeSpec(typeSpecBuilder.build(), singleton.build(),
-          factory.addStatement("$1T _$2L = $2L", constructedType, constructor.name())
-              .beginControlFlow("if (_$L == null)", constructor.name())
-              .addStatement("$1L = _$1L = new $2L()", constructor.name(), className)
-              .endControlFlow()
-              .addStatement("return _$L", constructor.name())
-              .build());
+      String newInstance = nullaryTag
+          .map(tag -> "new " + NULLARY_CLASS_NAME + "(" + tag + ")")
+          .orElse("new " + className + "()");
+
+      if (adt.deriveConfig().options().contains(DeriveOption.eagerSingletons)) {
+        // the holder class is initialized on first use only, not with the derived class.
+        String holderName = Utils.capitalize(constructor.name()) + "Holder";
+        TypeSpec holder = TypeSpec.classBuilder(holderName)
+            .addModifiers(Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL)
+            .addField(singleton.addModifiers(Modifier.FINAL).initializer(newInstance).build())
+            .build();
+        factory.addStatement("return $L.$L", holderName, constructor.name());
+
+        result = nullaryTag.isPresent()
+            ? DerivedCodeSpec.codeSpec(holder, factory.build())
+            : DerivedCodeSpec.codeSpec(List.of(typeSpecBuilder.build(), holder), factory.build());
+      } else {
+        factory.addStatement("$1T _$2L = $2L", constructedType, constructor.name())
+            .beginControlFlow("if (_$L == null)", constructor.name())
+            .addStatement("$1L = _$1L = $2L", constructor.name(), newInstance)
+            .endControlFlow()
+            .addStatement("return _$L", constructor.name());
+
+        result = nullaryTag.isPresent()
+            ? DerivedCodeSpec.codeSpec(singleton.build(), factory.build())
+            : DerivedCodeSpec.codeSpec(typeSpecBuilder.build(), singleton.build(), factory.build());
+      }
     } else {
       result = DerivedCodeSpec.codeSpec(typeSpecBuilder.build(),
           factory
@@ -425,9 +645,15 @@ final class StrictConstructorDerivator implements Derivator<Variant> {
     return gadtFactory.map(f -> result.append(DerivedCodeSpec.methodSpec(f.build()))).orElse(result);
   }
 
-  private boolean needLambdaVisitorGeneration(AlgebraicDataType<?> adt) {
+  private boolean needLambdaVisitorGeneration(AlgebraicDataType<Drv4j> adt) {
     return !adt.deriveConfig().makes().contains(Make.lambdaVisitor)
-        && findAbstractEquals(adt.typeConstructor().typeElement()).isPresent();
+        && (findAbstractEquals(adt.typeConstructor().typeElement()).isPresent()
+            || (findAbstractToString(adt.typeConstructor().typeElement()).isPresent()
+                && appendToDerivator.recursive(adt))
+            || MixedHashDerivator.mixedHash(adt)
+            || measureDerivator.measured(adt)
+            || (findAbstractHashCode(adt.typeConstructor().typeElement()).isPresent()
+                && recursiveEqualityDerivator.isSelfRecursive(adt)));
   }
 
   static boolean smartConstructor(DataConstructor constructor, DeriveConfig deriveConfig) {
@@ -445,8 +671,11 @@ final class StrictConstructorDerivator implements Derivator<Variant> {
   }
 
   private static String equalityTest(DataArgument da) {
+    return equalityTest(da, "this." + da.fieldName(), da.fieldName());
+  }
+
+  static String equalityTest(DataArgument da, String thisField, String otherField) {
 
-    String thisField = "this." + da.fieldName();
     return da.type().accept(new TypeKindVisitor8<>() {
 
       @Override
@@ -485,10 +714,14 @@ final class StrictConstructorDerivator implements Derivator<Variant> {
         return '(' + thisField + " == " + p + ')';
       }
 
-    }, da.fieldName());
+    }, otherField);
   }
 
   private static String hascode(DataArgument da) {
+    return hashCodeOf(da, "this." + da.fieldName());
+  }
+
+  static String hashCodeOf(DataArgument da, String field) {
 
     return da.type().accept(new TypeKindVisitor8<>() {
 
@@ -551,26 +784,7 @@ final class StrictConstructorDerivator implements Derivator<Variant> {
 
         return p + ".hashCode()";
       }
-    }, "this." + da.fieldName());
-  }
-
-  private static String toString(DataArgument da) {
-
-    return da.type().accept(new TypeKindVisitor8<>() {
-
-      @Override
-      public String visitArray(final ArrayType t, final String p) {
-
-        return "java.util.Arrays.toString(" + p + ')';
-      }
-
-      @Override
-      protected String defaultAction(final TypeMirror e, final String p) {
-
-        return p;
-      }
-
-    }, "this." + da.fieldName());
+    }, field);
   }
 
 }
@@ -0,0 +1,266 @@
+/*
+ * Copyright (c) 2019, Jean-Baptiste Giraudeau <jb@giraudeau.info>
+ *
+ * This file is part of "Derive4J - Annotation Processor".
+ *
+ * "Derive4J - Annotation Processor" is free software: you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * "Derive4J - Annotation Processor" is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with "Derive4J - Annotation Processor".  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.derive4j.processor;
+
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.CodeBlock;
+import com.squareup.javapoet.FieldSpec;
+import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.NameAllocator;
+import com.squareup.javapoet.ParameterizedTypeName;
+import com.squareup.javapoet.TypeName;
+import com.squareup.javapoet.TypeSpec;
+import com.squareup.javapoet.TypeVariableName;
+import java.util.Optional;
+import java.util.function.DoubleUnaryOperator;
+import java.util.function.IntUnaryOperator;
+import java.util.function.LongUnaryOperator;
+import java.util.stream.Collectors;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.type.TypeMirror;
+import org.derive4j.processor.api.Derivator;
+import org.derive4j.processor.api.DeriveResult;
+import org.derive4j.processor.api.DeriveUtils;
+import org.derive4j.processor.api.DerivedCodeSpec;
+import org.derive4j.processor.api.model.*;
+import org.derive4j.processor.api.model.AlgebraicDataType.Variant;
+import org.derive4j.processor.api.model.AlgebraicDataType.Variant.Drv4j;
+import org.derive4j.processor.api.model.AlgebraicDataType.Variant.Java;
+
+import static org.derive4j.processor.Utils.capitalize;
+import static org.derive4j.processor.Utils.uncapitalize;
+import static org.derive4j.processor.api.DeriveMessages.message;
+import static org.derive4j.processor.api.MessageLocalizations.onElement;
+import static org.derive4j.processor.api.model.DeriveVisibilities.caseOf;
+
+/**
+ * Batch modifiers: an {@code Updater} accumulates sets and modifications of several fields and rebuilds the value
+ * once, instead of one copy per {@code setX}/{@code modX} function.
+ */
+final class UpdaterDerivator implements Derivator<Variant> {
+
+  private static final String UPDATER = "Updater";
+
+  UpdaterDerivator(DeriveUtils deriveUtils) {
+    this.deriveUtils = deriveUtils;
+  }
+
+  private final DeriveUtils deriveUtils;
+
+  @Override
+  public DeriveResult<DerivedCodeSpec> derive(AlgebraicDataType<Variant> adt) {
+
+    return AlgebraicDataTypes.caseOf(adt)
+        .adt((deriveConfig, typeConstructor, matchMethod, dataConstruction, fields, eq) -> dataConstruction
+            .constructors()
+            .stream()
+            .anyMatch(dc -> !dc.typeRestrictions().isEmpty())
+            ? DeriveResult.<DerivedCodeSpec>error(message(
+                "updater is not supported for constructors with type restrictions (GADT)",
+                onElement(typeConstructor.typeElement())))
+            : DeriveResult.result(updater(adt, drv4jApply(Utils.coerce(adt, eq)))))
+
+        .jadt((deriveConfig, typeConstructor, jDataConstruction, fields, eq) -> DeriveResult
+            .result(updater(adt, javaApply(Utils.coerce(adt, eq)))));
+  }
+
+  private DerivedCodeSpec updater(AlgebraicDataType<Variant> adt, CodeBlock applyBody) {
+
+    final var typeConstructor = adt.typeConstructor();
+    final var typeVariables = typeConstructor.typeVariables()
+        .stream()
+        .map(TypeVariableName::get)
+        .collect(Collectors.toList());
+    final var updaterClassName = adt.deriveConfig().targetClass().className().nestedClass(UPDATER);
+    final TypeName updaterTypeName = typeVariables.isEmpty()
+        ? updaterClassName
+        : ParameterizedTypeName.get(updaterClassName, typeVariables.toArray(new TypeName[0]));
+    final var adtTypeName = TypeName.get(typeConstructor.declaredType());
+    final var smart = caseOf(adt.deriveConfig().targetClass().visibility()).Smart_(true).otherwise_(false);
+    final var visibility = smart ? new Modifier[0] : new Modifier[] { Modifier.PUBLIC };
+    final var nameAllocator = nameAllocator(adt);
+
+    final TypeSpec.Builder updater = TypeSpec.classBuilder(UPDATER)
+        .addJavadoc("Accumulates updates of $T fields, applied with a single copy.\n",
+            ClassName.get(typeConstructor.typeElement()))
+        .addModifiers(visibility)
+        .addModifiers(Modifier.STATIC, Modifier.FINAL)
+        .addTypeVariables(typeVariables)
+        .addMethod(MethodSpec.constructorBuilder().addModifiers(Modifier.PRIVATE).build());
+
+    for (DataArgument field : adt.fields()) {
+      final var name = field.fieldName();
+      final var capitalized = capitalize(name);
+      final var fieldType = TypeName.get(field.type());
+      final var modType = modType(adt, field.type());
+      final var modApply = modApply(adt, field.type());
+      final var setFlag = nameAllocator.get(setFlagTag(name));
+      final var mod = nameAllocator.get(modTag(name));
+      final var previous = nameAllocator.clone().newName("previous");
+
+      updater.addField(fieldType, name, Modifier.PRIVATE)
+          .addField(TypeName.BOOLEAN, setFlag, Modifier.PRIVATE)
+          .addField(FieldSpec.builder(modType, mod, Modifier.PRIVATE).build())
+          .addMethod(MethodSpec.methodBuilder("set" + capitalized)
+              .addModifiers(Modifier.PUBLIC)
+              .addParameter(fieldType, name)
+              .returns(updaterTypeName)
+              .addStatement("this.$1N = $1N", name)
+              .addStatement("this.$N = true", setFlag)
+              .addStatement("this.$N = null", mod)
+              .addStatement("return this")
+              .build())
+          .addMethod(MethodSpec.methodBuilder("mod" + capitalized)
+              .addModifiers(Modifier.PUBLIC)
+              .addParameter(modType, mod)
+              .returns(updaterTypeName)
+              .beginControlFlow("if (this.$N)", setFlag)
+              .addStatement("this.$1N = $2N.$3L(this.$1N)", name, mod, modApply)
+              .nextControlFlow("else if (this.$N == null)", mod)
+              .addStatement("this.$1N = $1N", mod)
+              .nextControlFlow("else")
+              .addStatement("final $T $N = this.$N", modType, previous, mod)
+              .addStatement("this.$2N = $1N -> $2N.$3L($4N.$3L($1N))", name, mod, modApply, previous)
+              .endControlFlow()
+              .addStatement("return this")
+              .build());
+    }
+
+    return DerivedCodeSpec.codeSpec(updater
+        .addMethod(MethodSpec.methodBuilder("apply")
+            .addJavadoc("A copy of the given value with all accumulated updates.\n")
+            .addModifiers(Modifier.PUBLIC)
+            .addParameter(adtTypeName, applyParameter(adt))
+            .returns(adtTypeName)
+            .addCode(applyBody)
+            .build())
+        .build(), MethodSpec.methodBuilder("updater")
+        .addModifiers(visibility)
+        .addModifiers(Modifier.STATIC)
+        .addTypeVariables(typeVariables)
+        .returns(updaterTypeName)
+        .addStatement(typeVariables.isEmpty() ? "return new $T()" : "return new $T<>()", updaterClassName)
+        .build());
+  }
+
+  private CodeBlock drv4jApply(AlgebraicDataType<Drv4j> adt) {
+    final var companion = adt.deriveConfig().targetClass().className();
+    final var nameAllocator = nameAllocator(adt);
+
+    return CodeBlock.builder()
+        .addStatement("return $L", Utils.matchWithLambdas(adt, CodeBlock.of(applyParameter(adt)),
+            dc -> CodeBlock.of("$T.$L$L($L)", companion, dc.name(),
+                StrictConstructorDerivator.smartConstructor(dc, adt.deriveConfig()) ? "0" : "",
+                dc.arguments()
+                    .stream()
+                    .map(da -> updatedField(adt, nameAllocator, da.fieldName(), CodeBlock.of("$N", da.fieldName())))
+                    .collect(CodeBlock.joining(", ")))))
+        .build();
+  }
+
+  private CodeBlock javaApply(AlgebraicDataType<Java> adt) {
+    final var nameAllocator = nameAllocator(adt);
+    final var target = nameAllocator.get(adt);
+
+    return CodeBlock.builder()
+        .addStatement("return $L", Utils.switchOnRecords(CodeBlock.of("$N", target),
+            AlgebraicDataTypes.getJDataConstruction_(adt).constructors(), nameAllocator,
+            (caseVar, rec) -> CodeBlock.of("new $T($L);", JMapperDerivator.recordTypeName(rec), JRecords
+                .getComponents(rec)
+                .stream()
+                .map(c -> updatedField(adt, nameAllocator, c.getSimpleName().toString(),
+                    CodeBlock.of("$N.$N()", caseVar, c.getSimpleName().toString())))
+                .collect(CodeBlock.joining(", "))),
+            Optional.empty()))
+        .build();
+  }
+
+  /**
+   * The updated value of a field, given its current value.
+   */
+  private CodeBlock updatedField(AlgebraicDataType<?> adt, NameAllocator nameAllocator, String fieldName,
+      CodeBlock current) {
+    return CodeBlock.of("this.$1N ? this.$2N : this.$3N != null ? this.$3N.$4L($5L) : $5L",
+        nameAllocator.get(setFlagTag(fieldName)), fieldName, nameAllocator.get(modTag(fieldName)),
+        modApply(adt, adt.fields()
+            .stream()
+            .filter(da -> da.fieldName().equals(fieldName))
+            .findFirst()
+            .get()
+            .type()), current);
+  }
+
+  /**
+   * Type of the modification of a field: a primitive specialized operator for int, long and double fields (as
+   * {@code Columns.modX}), otherwise a function of the boxed type.
+   */
+  private TypeName modType(AlgebraicDataType<?> adt, TypeMirror fieldType) {
+    switch (fieldType.getKind()) {
+      case INT:
+        return ClassName.get(IntUnaryOperator.class);
+      case LONG:
+        return ClassName.get(LongUnaryOperator.class);
+      case DOUBLE:
+        return ClassName.get(DoubleUnaryOperator.class);
+      default:
+        final var boxedType = TypeName.get(fieldType.accept(Utils.asBoxedType, deriveUtils.types()));
+        return ParameterizedTypeName.get(ClassName.get(deriveUtils.function1Model(adt.deriveConfig().flavour())
+            .samClass()), boxedType, boxedType);
+    }
+  }
+
+  private String modApply(AlgebraicDataType<?> adt, TypeMirror fieldType) {
+    switch (fieldType.getKind()) {
+      case INT:
+        return "applyAsInt";
+      case LONG:
+        return "applyAsLong";
+      case DOUBLE:
+        return "applyAsDouble";
+      default:
+        return deriveUtils.function1Model(adt.deriveConfig().flavour()).sam().getSimpleName().toString();
+    }
+  }
+
+  private static String applyParameter(AlgebraicDataType<?> adt) {
+    return nameAllocator(adt).get(adt);
+  }
+
+  /**
+   * Field names first, then the set flags and modification fields of the {@code Updater}, then the value parameter.
+   */
+  private static NameAllocator nameAllocator(AlgebraicDataType<?> adt) {
+    final var nameAllocator = new NameAllocator();
+    adt.fields().forEach(da -> nameAllocator.newName(da.fieldName()));
+    adt.fields().forEach(da -> {
+      nameAllocator.newName(da.fieldName() + "Set", setFlagTag(da.fieldName()));
+      nameAllocator.newName(da.fieldName() + "Mod", modTag(da.fieldName()));
+    });
+    nameAllocator.newName(uncapitalize(adt.typeConstructor().typeElement().getSimpleName()), adt);
+    return nameAllocator;
+  }
+
+  private static String setFlagTag(String fieldName) {
+    return "set flag of " + fieldName;
+  }
+
+  private static String modTag(String fieldName) {
+    return "modification of " + fieldName;
+  }
+}
@@ -381,6 +381,67 @@ final class Utils {
     return res;
   }
 
+  /**
+   * {@code target.match(lambdas)}, through the lambda visitor factory in case of visitor dispatch.
+   */
+  static CodeBlock matchWithLambdas(AlgebraicDataType<AlgebraicDataType.Variant.Drv4j> adt, CodeBlock target,
+      Function<DataConstructor, CodeBlock> lambdaBody) {
+    return matchWithLambdas(adt, target, "", lambdaBody);
+  }
+
+  /**
+   * Same as above, lambda parameters being the field names followed by the given suffix.
+   */
+  static CodeBlock matchWithLambdas(AlgebraicDataType<AlgebraicDataType.Variant.Drv4j> adt, CodeBlock target,
+      String parameterSuffix, Function<DataConstructor, CodeBlock> lambdaBody) {
+
+    DataConstruction dataConstruction = AlgebraicDataTypes.getDataConstruction_(adt);
+    boolean useVisitorFactory = dataConstruction.isVisitorDispatch() && dataConstruction.constructors().size() > 1;
+
+    CodeBlock lambdas = dataConstruction.constructors()
+        .stream()
+        .map(dc -> CodeBlock.builder()
+            .add("($L) -> ", asLambdaParametersString(dc.arguments(), dc.typeRestrictions(), parameterSuffix))
+            .add(lambdaBody.apply(dc))
+            .build())
+        .reduce((cb1, cb2) -> cb1.toBuilder().add(",\n").add(cb2).build())
+        .orElse(CodeBlock.of(""));
+
+    return useVisitorFactory
+        ? CodeBlock.builder()
+            .add("$L.$L($T.$L(\n", target, AlgebraicDataTypes.getMatchMethod_(adt).element().getSimpleName(),
+                adt.deriveConfig().targetClass().className(), MapperDerivator.visitorLambdaFactoryName(adt))
+            .indent()
+            .add(lambdas)
+            .unindent()
+            .add("))")
+            .build()
+        : CodeBlock.builder()
+            .add("$L.$L(\n", target, AlgebraicDataTypes.getMatchMethod_(adt).element().getSimpleName())
+            .indent()
+            .add(lambdas)
+            .unindent()
+            .add(")")
+            .build();
+  }
+
+  /**
+   * Pattern {@code switch (target)} over the given records, each case binding a variable allocated from the record
+   * name. The default case, if any, must be given when the records are not all the permitted ones.
+   */
+  static CodeBlock switchOnRecords(CodeBlock target, List<JRecord> records, NameAllocator nameAllocator,
+      BiFunction<String, JRecord, CodeBlock> caseImpl, Optional<CodeBlock> defaultImpl) {
+
+    CodeBlock.Builder _switch = CodeBlock.builder().add("switch ($L) {\n", target).indent();
+    for (JRecord rec : records) {
+      TypeElement element = JRecords.getElement(rec);
+      String caseVarName = nameAllocator.newName(uncapitalize(element.getSimpleName()));
+      _switch.add("case $T $N -> ", element, caseVarName).add(caseImpl.apply(caseVarName, rec)).add("\n");
+    }
+    defaultImpl.ifPresent(d -> _switch.add("default -> ").add(d).add("\n"));
+    return _switch.unindent().add("}").build();
+  }
+
   @SuppressWarnings("unchecked")
   static <S, T> AlgebraicDataType<T> coerce(AlgebraicDataType<S> adt, Function<T, S> ignoredEq) {
     return (AlgebraicDataType<T>) adt;
@@ -84,6 +84,96 @@ public class CompileExamplesTest {
     checkCompileOf("Request.java");
   }
 
+  @Test
+  public void compile_Shape_with_runtime_library() {
+    checkCompileOf("Shape.java");
+  }
+
+  @Test
+  public void compile_TrafficLight_with_minimal_classes() {
+    checkCompileOf("TrafficLight.java");
+  }
+
+  @Test
+  public void compile_Chain_with_cached_instances() {
+    checkCompileOf("Chain.java");
+  }
+
+  @Test
+  public void compile_Token_with_eager_singletons() {
+    checkCompileOf("Token.java");
+  }
+
+  @Test
+  public void compile_Segment_with_eager_singletons_and_cached_instances() {
+    checkCompileOf("Segment.java");
+  }
+
+  @Test
+  public void compile_constructor_index() {
+    checkCompileOf("Reading.java", "jadt/Signal.java");
+  }
+
+  @Test
+  public void compile_binary_codecs() {
+    checkCompileOf("Position.java", "Message.java");
+  }
+
+  @Test
+  public void compile_Tick_flyweight() {
+    checkCompileOf("Tick.java");
+  }
+
+  @Test
+  public void compile_Measurement_columnar() {
+    checkCompileOf("Measurement.java");
+  }
+
+  @Test
+  public void compile_updaters() {
+    checkCompileOf("PlayerState.java", "jadt/Cursor.java");
+  }
+
+  @Test
+  public void compile_identity_modifiers() {
+    checkCompileOf("Block.java", "jadt/Viewport.java");
+  }
+
+  @Test
+  public void compile_Trail_appendTo() {
+    checkCompileOf("Trail.java");
+  }
+
+  @Test
+  public void compile_Route_nested_appendTo() {
+    checkCompileOf("Route.java", "Trail.java");
+  }
+
+  @Test
+  public void compile_Rope_iterative_equality() {
+    checkCompileOf("Rope.java");
+  }
+
+  @Test
+  public void compile_TileKey_mixedHash() {
+    checkCompileOf("TileKey.java");
+  }
+
+  @Test
+  public void compile_Feed_cachedMeasures() {
+    checkCompileOf("Feed.java");
+  }
+
+  @Test
+  public void compile_Trace_specialized() {
+    checkCompileOf("Trace.java");
+  }
+
+  @Test
+  public void compile_comparators() {
+    checkCompileOf("LogEntry.java", "Schedule.java");
+  }
+
   @Test
   public void compile_Term() {
     checkCompileOf("Term.java");
@@ -99,11 +189,56 @@ public class CompileExamplesTest {
     checkCompileOf("algebras/ObjectAlgebras.java");
   }
 
+  @Test
+  public void compile_fusion() {
+    checkCompileOf("algebras/Seq.java");
+  }
+
+  @Test
+  public void compile_anamorphism() {
+    checkCompileOf("algebras/BinTree.java");
+  }
+
+  @Test
+  public void compile_parallelCatamorphism() {
+    checkCompileOf("algebras/Rule.java");
+  }
+
+  @Test
+  public void compile_memoizedCatamorphism() {
+    checkCompileOf("algebras/Sym.java");
+  }
+
+  @Test
+  public void compile_asyncCatamorphism() {
+    checkCompileOf("algebras/Fetch.java");
+  }
+
+  @Test
+  public void compile_spliterators() {
+    checkCompileOf("SearchTree.java", "Walk.java");
+  }
+
+  @Test
+  public void compile_batchMatching() {
+    checkCompileOf("Signal.java");
+  }
+
+  @Test
+  public void compile_linearFold() {
+    checkCompileOf("Ledger.java");
+  }
+
   @Test
   public void compile_Jadts() {
     checkCompileOf("jadt/Address.java", "jadt/Either.java");
   }
 
+  @Test
+  public void compile_Jadt_matchers() {
+    checkCompileOf("jadt/Levels.java", "jadt/Tree.java");
+  }
+
   private static void checkCompileOf(String... exampleFiles) {
     Truth.assert_()
         .about(javaSources())
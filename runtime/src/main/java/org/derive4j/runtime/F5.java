@@ -0,0 +1,26 @@
+/*
+ * Copyright (c) 2019, Jean-Baptiste Giraudeau <jb@giraudeau.info>
+ *
+ * This file is part of "Derive4J - Runtime".
+ *
+ * "Derive4J - Runtime" is free software: you can redistribute it
+ * and/or modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * "Derive4J - Runtime" is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with "Derive4J - Runtime".  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.derive4j.runtime;
+
+@FunctionalInterface
+public interface F5<A1, A2, A3, A4, A5, R> {
+
+  R apply(A1 a1, A2 a2, A3 a3, A4 a4, A5 a5);
+
+}
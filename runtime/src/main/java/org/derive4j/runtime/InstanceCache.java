@@ -0,0 +1,138 @@
+/*
+ * Copyright (c) 2019, Jean-Baptiste Giraudeau <jb@giraudeau.info>
+ *
+ * This file is part of "Derive4J - Runtime".
+ *
+ * "Derive4J - Runtime" is free software: you can redistribute it
+ * and/or modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * "Derive4J - Runtime" is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with "Derive4J - Runtime".  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.derive4j.runtime;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A bounded cache of type class instances keyed by the identity of the instances they are built from. The cache is
+ * direct-mapped: a new entry replaces the one occupying its slot, so that memory usage stays bounded, and lookups
+ * of up to four keys do not allocate.
+ * <p>
+ * Keys and values are strongly referenced until their entry is replaced: the instances a cached instance is built
+ * from are typically long-lived (static) instances, and the bounded size caps what can be retained.
+ */
+public final class InstanceCache<V> {
+
+  private static final int DEFAULT_CAPACITY = 64;
+
+  private final AtomicReferenceArray<Entry<V>> entries;
+
+  private final int mask;
+
+  public InstanceCache() {
+    this(DEFAULT_CAPACITY);
+  }
+
+  public InstanceCache(int capacity) {
+    int size = Integer.highestOneBit(Math.max(1, capacity - 1) << 1);
+    entries = new AtomicReferenceArray<>(size);
+    mask = size - 1;
+  }
+
+  public V get(Object key) {
+    Entry<V> entry = entries.get(slot(System.identityHashCode(key)));
+    return entry != null && entry.keys.length == 1 && entry.keys[0] == key ? entry.value : null;
+  }
+
+  public V get(Object key1, Object key2) {
+    Entry<V> entry = entries.get(slot(hash(System.identityHashCode(key1), key2)));
+    return entry != null && entry.keys.length == 2 && entry.keys[0] == key1 && entry.keys[1] == key2
+        ? entry.value
+        : null;
+  }
+
+  public V get(Object key1, Object key2, Object key3) {
+    Entry<V> entry = entries.get(slot(hash(hash(System.identityHashCode(key1), key2), key3)));
+    return entry != null && entry.keys.length == 3 && entry.keys[0] == key1 && entry.keys[1] == key2
+        && entry.keys[2] == key3 ? entry.value : null;
+  }
+
+  public V get(Object key1, Object key2, Object key3, Object key4) {
+    Entry<V> entry = entries.get(slot(hash(hash(hash(System.identityHashCode(key1), key2), key3), key4)));
+    return entry != null && entry.keys.length == 4 && entry.keys[0] == key1 && entry.keys[1] == key2
+        && entry.keys[2] == key3 && entry.keys[3] == key4 ? entry.value : null;
+  }
+
+  public V get(Object... keys) {
+    Entry<V> entry = entries.get(slot(hash(keys)));
+    return entry != null && entry.sameKeys(keys) ? entry.value : null;
+  }
+
+  /**
+   * Caches value for the given keys, unless a value is already cached for them, in which case that value is
+   * returned instead.
+   */
+  public V put(V value, Object... keys) {
+    int slot = slot(hash(keys));
+    Entry<V> newEntry = new Entry<>(keys.clone(), value);
+    while (true) {
+      Entry<V> entry = entries.get(slot);
+      if (entry != null && entry.sameKeys(keys)) {
+        return entry.value;
+      }
+      if (entries.compareAndSet(slot, entry, newEntry)) {
+        return value;
+      }
+    }
+  }
+
+  private int slot(int hash) {
+    hash ^= hash >>> 16;
+    hash *= 0x85ebca6b;
+    return (hash ^ (hash >>> 13)) & mask;
+  }
+
+  private static int hash(Object[] keys) {
+    int hash = System.identityHashCode(keys[0]);
+    for (int i = 1; i < keys.length; i++) {
+      hash = hash(hash, keys[i]);
+    }
+    return hash;
+  }
+
+  private static int hash(int hash, Object key) {
+    return hash * 31 + System.identityHashCode(key);
+  }
+
+  private static final class Entry<V> {
+
+    final Object[] keys;
+
+    final V value;
+
+    Entry(Object[] keys, V value) {
+      this.keys = keys;
+      this.value = value;
+    }
+
+    boolean sameKeys(Object[] otherKeys) {
+      if (keys.length != otherKeys.length) {
+        return false;
+      }
+      for (int i = 0; i < keys.length; i++) {
+        if (keys[i] != otherKeys[i]) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+
+}
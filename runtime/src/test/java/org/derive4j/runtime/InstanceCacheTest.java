@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) 2019, Jean-Baptiste Giraudeau <jb@giraudeau.info>
+ *
+ * This file is part of "Derive4J - Runtime".
+ *
+ * "Derive4J - Runtime" is free software: you can redistribute it
+ * and/or modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * "Derive4J - Runtime" is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with "Derive4J - Runtime".  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.derive4j.runtime;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.Test;
+
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class InstanceCacheTest {
+
+  @Test
+  public void getReturnsThePutValue() {
+    InstanceCache<String> cache = new InstanceCache<>();
+    Object key1 = new Object();
+    Object key2 = new Object();
+
+    assertNull(cache.get(key1));
+    assertSame("a", cache.put("a", key1));
+    assertSame("a", cache.get(key1));
+
+    assertSame("b", cache.put("b", key1, key2));
+    assertSame("b", cache.get(key1, key2));
+    assertNull(cache.get(key2, key1));
+  }
+
+  @Test
+  public void fixedArityAndVarargsLookupsAgree() {
+    InstanceCache<String> cache = new InstanceCache<>();
+    Object key1 = new Object();
+    Object key2 = new Object();
+    Object key3 = new Object();
+    Object key4 = new Object();
+
+    cache.put("c", key1, key2, key3);
+    assertSame("c", cache.get(key1, key2, key3));
+    assertSame("c", cache.get(new Object[] { key1, key2, key3 }));
+    assertNull(cache.get(key1, key2, key4));
+
+    cache.put("d", key1, key2, key3, key4);
+    assertSame("d", cache.get(key1, key2, key3, key4));
+    assertSame("d", cache.get(new Object[] { key1, key2, key3, key4 }));
+    assertNull(cache.get(key4, key3, key2, key1));
+  }
+
+  @Test
+  public void keysAreComparedByIdentity() {
+    InstanceCache<String> cache = new InstanceCache<>();
+    cache.put("a", new String("key"));
+
+    assertNull(cache.get(new String("key")));
+  }
+
+  @Test
+  public void putKeepsTheFirstValue() {
+    InstanceCache<String> cache = new InstanceCache<>();
+    Object key = new Object();
+
+    assertSame("a", cache.put("a", key));
+    assertSame("a", cache.put("b", key));
+  }
+
+  @Test
+  public void concurrentPutsAgreeOnOneValue() throws Exception {
+    int threads = 8;
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      for (int round = 0; round < 100; round++) {
+        InstanceCache<Object> cache = new InstanceCache<>(1);
+        Object key = new Object();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Object>> results = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+          results.add(executor.submit(() -> {
+            start.await();
+            return cache.put(new Object(), key);
+          }));
+        }
+        start.countDown();
+        Object winner = results.get(0).get();
+        for (Future<Object> result : results) {
+          assertSame(winner, result.get());
+        }
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+}